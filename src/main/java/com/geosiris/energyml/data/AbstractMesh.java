@@ -17,20 +17,140 @@ package com.geosiris.energyml.data;
 
 import java.util.List;
 
+/**
+ * A mesh read from an energyml representation. The points are stored as interleaved x, y, z in a double[] (or a
+ * float[], see {@link #setSinglePrecision(boolean)}) and the List based getters are views of this buffer, built on
+ * first access. The meshes built from lists keep these lists.
+ */
 public abstract class AbstractMesh implements MeshExporter{
     protected Object energymlObject;
     protected Object crsObject;
     protected String identifier;
     protected List<?> pointList;
+    /** The points as interleaved x, y, z : a double[] or a float[], null if the mesh is built from lists */
+    protected Object xyz;
 
     public abstract Long getNbPoints();
     public abstract Long getNbEdge();
     public abstract Long getNbFaces();
 
+    /**
+     * @return the points as lists of coordinates : a view of the coordinates buffer (a coordinate can be modified
+     * with List.set, which writes in the buffer), or the list given to the constructor
+     */
     public List<?> getPointList(){
+        if (pointList == null && xyz != null) {
+            pointList = createPointListView(xyz);
+        }
         return pointList;
     }
 
+    /**
+     * @return the boxed view of a coordinates buffer returned by {@link #getPointList()} : the list of the points
+     */
+    protected List<?> createPointListView(Object xyz) {
+        return XyzViews.ofPoints(xyz);
+    }
+
+    /**
+     * @return the shape of the points array returned by {@link #getPoints()}
+     */
+    protected long[] getPointsShape(int nbCoordinates) {
+        return new long[]{nbCoordinates / 3, 3};
+    }
+
+    /**
+     * @return the number of points of the coordinates buffer, or of the point list for the meshes built from lists
+     */
+    protected long countPoints() {
+        if (xyz != null) {
+            return XyzViews.getLength(xyz) / 3;
+        }
+        return pointList != null ? pointList.size() : 0L;
+    }
+
+    /**
+     * @return true if the points are stored in a primitive buffer, false if the mesh is built from lists
+     */
+    public boolean isBufferBacked() {
+        return xyz != null;
+    }
+
+    /**
+     * @return true if the coordinates are stored as float
+     */
+    public boolean isSinglePrecision() {
+        return xyz instanceof float[];
+    }
+
+    /**
+     * Converts the coordinates buffer to float (halving its size) or to double. A mesh built from lists is converted
+     * to a buffer. The views previously returned by {@link #getPointList()} are no longer updated.
+     */
+    public void setSinglePrecision(boolean singlePrecision) {
+        if (xyz != null && singlePrecision == isSinglePrecision()) {
+            return;
+        }
+        xyz = singlePrecision ? getXyzFloat() : getXyz();
+        pointList = null;
+    }
+
+    /**
+     * @return the coordinates as interleaved x, y, z : the buffer itself for a double precision mesh (modifications
+     * are seen by the mesh), a converted copy otherwise
+     */
+    public double[] getXyz() {
+        if (xyz instanceof double[]) {
+            return (double[]) xyz;
+        } else if (xyz instanceof float[]) {
+            float[] source = (float[]) xyz;
+            double[] result = new double[source.length];
+            for (int i = 0; i < source.length; i++) {
+                result[i] = source[i];
+            }
+            return result;
+        }
+        NumericArray points = toNumericArray(pointList);
+        // toDoubleArray may return the array of a viewed list
+        return points.getElementType() == NumericArray.ElementType.DOUBLE ? points.toDoubleArray().clone() : points.toDoubleArray();
+    }
+
+    /**
+     * @return the coordinates as interleaved x, y, z : the buffer itself for a single precision mesh (modifications
+     * are seen by the mesh), a converted copy otherwise
+     */
+    public float[] getXyzFloat() {
+        if (xyz instanceof float[]) {
+            return (float[]) xyz;
+        } else if (xyz instanceof double[]) {
+            double[] source = (double[]) xyz;
+            float[] result = new float[source.length];
+            for (int i = 0; i < source.length; i++) {
+                result[i] = (float) source[i];
+            }
+            return result;
+        }
+        NumericArray points = toNumericArray(pointList);
+        return points.getElementType() == NumericArray.ElementType.FLOAT ? points.toFloatArray().clone() : points.toFloatArray();
+    }
+
+    /**
+     * @return the points as a DOUBLE or FLOAT array of shape (nbPoints, 3), or (nbRows, nbColumns, 3) for a grid :
+     * a view of the buffer, or a copy for the meshes built from lists
+     */
+    public NumericArray getPoints() {
+        if (xyz instanceof float[]) {
+            float[] coordinates = (float[]) xyz;
+            return NumericArray.of(coordinates, getPointsShape(coordinates.length));
+        }
+        double[] coordinates = getXyz();
+        return NumericArray.of(coordinates, getPointsShape(coordinates.length));
+    }
+
+    private static NumericArray toNumericArray(List<?> points) {
+        return points != null ? NumericArray.fromList(points) : NumericArray.of(new double[0]);
+    }
+
     public String getIdentifier() {
         return identifier;
     }
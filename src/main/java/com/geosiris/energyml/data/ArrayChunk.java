@@ -0,0 +1,53 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+/**
+ * A contiguous part of an array, see {@link ArrayChunkSpliterator}.
+ */
+public class ArrayChunk {
+    private final long offset;
+    private final NumericArray values;
+
+    /**
+     * @param offset flat (row-major) index of the first value in the whole array
+     * @param values the values of the chunk, one-dimensional
+     */
+    public ArrayChunk(long offset, NumericArray values) {
+        this.offset = offset;
+        this.values = values;
+    }
+
+    /**
+     * @return flat (row-major) index of the first value in the whole array
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public NumericArray getValues() {
+        return values;
+    }
+
+    public long size() {
+        return values.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ArrayChunk{" + offset + " +" + values.size() + " " + values.getElementType() + "}";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Delivers an array as a sequence of chunks of bounded size, so arrays bigger than the memory can be processed (e.g.
+ * min/max, histograms). The array is seen as rows (its first dimension), a chunk contains whole rows : at most
+ * 'chunkSize' values, or one row if a row is bigger. Only the chunk being processed is in memory.
+ * The spliterator can be split for parallel streams, chunks are read by the thread processing them.
+ */
+public class ArrayChunkSpliterator implements Spliterator<ArrayChunk> {
+
+    /**
+     * Reads consecutive rows of an array.
+     */
+    @FunctionalInterface
+    public interface RowReader {
+        /**
+         * @return the values of rows [firstRow, firstRow + nbRows), in row-major order (any shape)
+         */
+        NumericArray read(long firstRow, long nbRows) throws Exception;
+    }
+
+    private final RowReader reader;
+    private final long rowSize;
+    private final long rowsPerChunk;
+    private long currentRow;
+    private final long endRow;
+
+    /**
+     * @param nbRows number of rows of the array
+     * @param rowSize number of values of a row
+     * @param chunkSize maximum number of values of a chunk (a chunk contains at least one row)
+     */
+    public ArrayChunkSpliterator(RowReader reader, long nbRows, long rowSize, long chunkSize) {
+        this(reader, rowSize, Math.max(1, chunkSize / Math.max(1, rowSize)), 0, nbRows);
+    }
+
+    private ArrayChunkSpliterator(RowReader reader, long rowSize, long rowsPerChunk, long currentRow, long endRow) {
+        this.reader = reader;
+        this.rowSize = rowSize;
+        this.rowsPerChunk = rowsPerChunk;
+        this.currentRow = currentRow;
+        this.endRow = endRow;
+    }
+
+    /**
+     * Chunks of an array of the given shape, read with reader.
+     */
+    public static ArrayChunkSpliterator of(RowReader reader, long[] shape, long chunkSize) {
+        if (shape.length == 0) {
+            return new ArrayChunkSpliterator(reader, 1, 1, chunkSize);
+        }
+        return new ArrayChunkSpliterator(reader, shape[0], NumericArray.shapeSize(Arrays.copyOfRange(shape, 1, shape.length)), chunkSize);
+    }
+
+    /**
+     * Chunks of an array already in memory (or generating its values), each chunk is a copy of its values.
+     */
+    public static ArrayChunkSpliterator of(NumericArray array, long chunkSize) {
+        long[] shape = array.getShape();
+        return of((firstRow, nbRows) -> {
+            if (shape.length == 0) {
+                return array;
+            }
+            long[] offset = new long[shape.length];
+            long[] count = shape.clone();
+            offset[0] = firstRow;
+            count[0] = nbRows;
+            return array.slice(offset, count, null);
+        }, shape, chunkSize);
+    }
+
+    public static Stream<ArrayChunk> stream(Spliterator<ArrayChunk> spliterator, boolean parallel) {
+        return StreamSupport.stream(spliterator, parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ArrayChunk> action) {
+        if (currentRow >= endRow) {
+            return false;
+        }
+        long nbRows = Math.min(rowsPerChunk, endRow - currentRow);
+        NumericArray values;
+        try {
+            values = reader.read(currentRow, nbRows);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read rows " + currentRow + " to " + (currentRow + nbRows), e);
+        }
+        long offset = currentRow * rowSize;
+        currentRow += nbRows;
+        action.accept(new ArrayChunk(offset, values.getRank() == 1 ? values : values.reshape(values.size())));
+        return true;
+    }
+
+    @Override
+    public Spliterator<ArrayChunk> trySplit() {
+        long nbChunks = estimateSize();
+        if (nbChunks < 2) {
+            return null;
+        }
+        long splitRow = currentRow + (nbChunks / 2) * rowsPerChunk;
+        ArrayChunkSpliterator prefix = new ArrayChunkSpliterator(reader, rowSize, rowsPerChunk, currentRow, splitRow);
+        currentRow = splitRow;
+        return prefix;
+    }
+
+    /**
+     * @return the number of remaining chunks
+     */
+    @Override
+    public long estimateSize() {
+        return (endRow - currentRow + rowsPerChunk - 1) / rowsPerChunk;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
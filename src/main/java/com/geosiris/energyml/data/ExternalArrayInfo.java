@@ -0,0 +1,170 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Description of an external array (an h5 dataset, or the part of it selected by an external data array part),
+ * obtained without reading its values.
+ */
+public class ExternalArrayInfo {
+    private final String rootIdentifier;
+    private final String pathInRoot;
+    private final String filePath;
+    private final String pathInExternalFile;
+    private final long[] datasetDimensions;
+    private final long[] startIndex;
+    private final long[] count;
+    private final Class<?> javaType;
+    private final int elementSize;
+    private final long storageSizeInBytes;
+    private final String layout;
+    private final long[] chunkDimensions;
+    private final List<String> filters;
+
+    /**
+     * @param startIndex selection start in the dataset, null if the whole dataset is used
+     * @param count selection size, null if the whole dataset is used
+     * @param layout storage layout : CONTIGUOUS, CHUNKED or COMPACT
+     * @param chunkDimensions null if the dataset is not chunked
+     * @param filters names of the filters applied to the chunks (e.g. "deflate"), empty if none
+     */
+    public ExternalArrayInfo(String rootIdentifier, String pathInRoot, String filePath, String pathInExternalFile,
+                             long[] datasetDimensions, long[] startIndex, long[] count, Class<?> javaType,
+                             int elementSize, long storageSizeInBytes, String layout, long[] chunkDimensions,
+                             List<String> filters) {
+        this.rootIdentifier = rootIdentifier;
+        this.pathInRoot = pathInRoot;
+        this.filePath = filePath;
+        this.pathInExternalFile = pathInExternalFile;
+        this.datasetDimensions = datasetDimensions;
+        this.startIndex = startIndex;
+        this.count = count;
+        this.javaType = javaType;
+        this.elementSize = elementSize;
+        this.storageSizeInBytes = storageSizeInBytes;
+        this.layout = layout;
+        this.chunkDimensions = chunkDimensions;
+        this.filters = List.copyOf(filters);
+    }
+
+    /**
+     * @return the same description for an other array of the same dataset
+     */
+    public ExternalArrayInfo withArray(String rootIdentifier, String pathInRoot) {
+        return new ExternalArrayInfo(rootIdentifier, pathInRoot, filePath, pathInExternalFile, datasetDimensions,
+                startIndex, count, javaType, elementSize, storageSizeInBytes, layout, chunkDimensions, filters);
+    }
+
+    public String getRootIdentifier() {
+        return rootIdentifier;
+    }
+
+    public String getPathInRoot() {
+        return pathInRoot;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getPathInExternalFile() {
+        return pathInExternalFile;
+    }
+
+    public long[] getDatasetDimensions() {
+        return datasetDimensions.clone();
+    }
+
+    /**
+     * @return the dimensions of the array : the selection count, or the dataset dimensions
+     */
+    public long[] getDimensions() {
+        return count != null ? count.clone() : datasetDimensions.clone();
+    }
+
+    public long[] getStartIndex() {
+        return startIndex != null ? startIndex.clone() : null;
+    }
+
+    /**
+     * @return the java type of the values (e.g. double.class, String.class)
+     */
+    public Class<?> getJavaType() {
+        return javaType;
+    }
+
+    /**
+     * @return the element type, null if the values are not numeric
+     */
+    public NumericArray.ElementType getElementType() {
+        return NumericArray.ElementType.fromJavaType(javaType);
+    }
+
+    /**
+     * @return the size of one element in the file, in bytes
+     */
+    public int getElementSize() {
+        return elementSize;
+    }
+
+    public long getSize() {
+        return NumericArray.shapeSize(getDimensions());
+    }
+
+    /**
+     * @return the uncompressed size of the array values, in bytes
+     */
+    public long getSizeInBytes() {
+        return getSize() * elementSize;
+    }
+
+    /**
+     * @return the size of the whole dataset in the file (compressed if filtered), in bytes
+     */
+    public long getStorageSizeInBytes() {
+        return storageSizeInBytes;
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public boolean isChunked() {
+        return chunkDimensions != null;
+    }
+
+    public long[] getChunkDimensions() {
+        return chunkDimensions != null ? chunkDimensions.clone() : null;
+    }
+
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    public boolean isCompressed() {
+        return !filters.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ExternalArrayInfo{" + rootIdentifier + " " + pathInRoot + " -> " + filePath + ":" + pathInExternalFile
+                + " " + javaType + Arrays.toString(getDimensions()) + " " + layout
+                + (isChunked() ? Arrays.toString(chunkDimensions) : "") + (isCompressed() ? " " + filters : "") + "}";
+    }
+}
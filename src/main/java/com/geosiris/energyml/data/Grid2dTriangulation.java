@@ -0,0 +1,219 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.stream.IntStream;
+
+/**
+ * Converts a grid of points stored as interleaved x, y, z, row after row (e.g. a Grid2d patch), to the faces of a
+ * surface, on primitive arrays. The nodes whose z value is NaN are holes : they are marked in a bitmap, removed
+ * from the surface points with an int[] remap table computed by prefix sum, and the faces touching them are dropped.
+ * Big grids are processed in parallel (by blocks of 64 nodes, or by rows for the faces).
+ */
+public class Grid2dTriangulation {
+    /* Grids with less points are processed in the calling thread */
+    private static final int PARALLEL_MIN_SIZE = 1 << 16;
+
+    public enum FaceType {
+        /** One quad per grid cell */
+        QUADS(4),
+        /** Two triangles per grid cell, split along the diagonal from its first node : a cell whose only hole is
+         * its second or its fourth node keeps the triangle without hole */
+        TRIANGLES(3);
+
+        private final int size;
+
+        FaceType(int size) {
+            this.size = size;
+        }
+
+        /**
+         * @return the number of nodes of a face
+         */
+        public int getSize() {
+            return size;
+        }
+    }
+
+    private Grid2dTriangulation() {
+    }
+
+    private static IntStream range(int end, long nbPoints) {
+        IntStream range = IntStream.range(0, end);
+        return nbPoints >= PARALLEL_MIN_SIZE ? range.parallel() : range;
+    }
+
+    /**
+     * @return the bitmap of the holes : bit p % 64 of word p / 64 is set if the z value of point p is NaN
+     */
+    public static long[] getHoleMask(double[] xyz) {
+        final int nbPoints = xyz.length / 3;
+        long[] mask = new long[(nbPoints + 63) >>> 6];
+        range(mask.length, nbPoints).forEach(w -> {
+            long word = 0;
+            int end = Math.min(nbPoints, (w + 1) << 6);
+            for (int p = w << 6; p < end; p++) {
+                if (Double.isNaN(xyz[p * 3 + 2])) {
+                    // shift distances are taken modulo 64
+                    word |= 1L << p;
+                }
+            }
+            mask[w] = word;
+        });
+        return mask;
+    }
+
+    public static boolean isHole(long[] mask, int point) {
+        return (mask[point >>> 6] & (1L << point)) != 0;
+    }
+
+    /**
+     * @return the number of holes of a bitmap
+     */
+    public static int countHoles(long[] mask) {
+        int count = 0;
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Computes the index of each point once the holes are removed : the first index of each block of 64 points is
+     * the prefix sum of the number of points which are not holes in the previous blocks.
+     * @return the index of each point in the points without holes, -1 for the holes
+     */
+    public static int[] getRemap(long[] mask, int nbPoints) {
+        int[] blockStart = new int[mask.length + 1];
+        for (int w = 0; w < mask.length; w++) {
+            int blockSize = Math.min(64, nbPoints - (w << 6));
+            blockStart[w + 1] = blockStart[w] + blockSize - Long.bitCount(mask[w]);
+        }
+        int[] remap = new int[nbPoints];
+        range(mask.length, nbPoints).forEach(w -> {
+            int index = blockStart[w];
+            int end = Math.min(nbPoints, (w + 1) << 6);
+            for (int p = w << 6; p < end; p++) {
+                remap[p] = (mask[w] & (1L << p)) != 0 ? -1 : index++;
+            }
+        });
+        return remap;
+    }
+
+    /**
+     * @return the coordinates of the points which are not holes, at their index in remap
+     */
+    public static double[] removeHoles(double[] xyz, int[] remap, int nbPointsWithoutHoles) {
+        double[] result = new double[nbPointsWithoutHoles * 3];
+        final int nbPoints = remap.length;
+        range((nbPoints + 63) >>> 6, nbPoints).forEach(w -> {
+            int end = Math.min(nbPoints, (w + 1) << 6);
+            for (int p = w << 6; p < end; p++) {
+                if (remap[p] >= 0) {
+                    System.arraycopy(xyz, p * 3, result, remap[p] * 3, 3);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Writes the faces of the grid cells in an index buffer : the valid faces of each row are counted, the offset
+     * of each row in the buffer is their prefix sum, then the rows are written.
+     * @param remap the index of each node in the surface points, -1 for the holes ; null to keep all the nodes
+     *              (the node of row i and column j is i * nbColumns + j)
+     * @return the node indices of the faces, faceType.getSize() per face. A quad is (i, j), (i + 1, j),
+     * (i + 1, j + 1), (i, j + 1).
+     */
+    public static int[] getFaces(int[] remap, int nbRows, int nbColumns, FaceType faceType) {
+        final int nbCellRows = Math.max(0, nbRows - 1);
+        final int nbCellColumns = Math.max(0, nbColumns - 1);
+        final long nbPoints = (long) nbRows * nbColumns;
+        int[] rowStart = new int[nbCellRows + 1];
+        if (remap == null) {
+            int cellSize = faceType == FaceType.QUADS ? 4 : 6;
+            checkIndexCount((long) nbCellRows * nbCellColumns * cellSize, nbRows, nbColumns);
+            for (int i = 0; i < nbCellRows; i++) {
+                rowStart[i + 1] = rowStart[i] + nbCellColumns * cellSize;
+            }
+        } else {
+            int[] rowCounts = new int[nbCellRows];
+            range(nbCellRows, nbPoints).forEach(i -> rowCounts[i] = writeRow(remap, i, nbColumns, faceType, null, 0));
+            long nbIndices = 0;
+            for (int i = 0; i < nbCellRows; i++) {
+                nbIndices += rowCounts[i];
+                checkIndexCount(nbIndices, nbRows, nbColumns);
+                rowStart[i + 1] = (int) nbIndices;
+            }
+        }
+        int[] faces = new int[rowStart[nbCellRows]];
+        range(nbCellRows, nbPoints).forEach(i -> writeRow(remap, i, nbColumns, faceType, faces, rowStart[i]));
+        return faces;
+    }
+
+    private static void checkIndexCount(long nbIndices, int nbRows, int nbColumns) {
+        if (nbIndices > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Faces of a grid of " + nbRows + "x" + nbColumns + " points can not be stored in a java array");
+        }
+    }
+
+    /* Writes the faces of the cells of row i in faces from position (only counts them if faces is null) and
+     * returns the number of indices */
+    private static int writeRow(int[] remap, int i, int nbColumns, FaceType faceType, int[] faces, int position) {
+        int start = position;
+        for (int j = 0; j < nbColumns - 1; j++) {
+            int a = i * nbColumns + j;
+            int b = a + nbColumns;
+            int c = b + 1;
+            int d = a + 1;
+            if (remap != null) {
+                a = remap[a];
+                b = remap[b];
+                c = remap[c];
+                d = remap[d];
+            }
+            if (faceType == FaceType.QUADS) {
+                if ((a | b | c | d) >= 0) {
+                    if (faces != null) {
+                        faces[position] = a;
+                        faces[position + 1] = b;
+                        faces[position + 2] = c;
+                        faces[position + 3] = d;
+                    }
+                    position += 4;
+                }
+            } else {
+                if ((a | b | c) >= 0) {
+                    if (faces != null) {
+                        faces[position] = a;
+                        faces[position + 1] = b;
+                        faces[position + 2] = c;
+                    }
+                    position += 3;
+                }
+                if ((a | c | d) >= 0) {
+                    if (faces != null) {
+                        faces[position] = a;
+                        faces[position + 1] = c;
+                        faces[position + 2] = d;
+                    }
+                    position += 3;
+                }
+            }
+        }
+        return position - start;
+    }
+}
@@ -21,17 +21,60 @@ import java.io.OutputStream;
 import java.util.List;
 
 public class GridedPointSetMesh extends AbstractMesh{
+    private int nbRows;
+    private int nbColumns;
 
     public GridedPointSetMesh(Object energymlObject, Object crsObject, List<List<List<Double>>> point_list, String identifier) {
         this.energymlObject = energymlObject;
         this.crsObject = crsObject;
         this.pointList = point_list;
         this.identifier = identifier;
+        this.nbRows = point_list != null ? point_list.size() : 0;
+        this.nbColumns = nbRows > 0 ? point_list.get(0).size() : 0;
     }
 
+    /**
+     * @param xyz the nbRows * nbColumns points, row after row, as interleaved x, y, z (not copied)
+     */
+    public GridedPointSetMesh(Object energymlObject, Object crsObject, double[] xyz, int nbRows, int nbColumns, String identifier) {
+        if ((long) nbRows * nbColumns * 3 != xyz.length) {
+            throw new IllegalArgumentException(xyz.length + " coordinates for a grid of " + nbRows + "x" + nbColumns + " points");
+        }
+        this.energymlObject = energymlObject;
+        this.crsObject = crsObject;
+        this.xyz = xyz;
+        this.nbRows = nbRows;
+        this.nbColumns = nbColumns;
+        this.identifier = identifier;
+    }
+
+    /**
+     * @return the rows of points
+     */
+    @Override
+    protected List<?> createPointListView(Object xyz) {
+        return XyzViews.ofGrid(xyz, nbRows, nbColumns);
+    }
+
+    @Override
+    protected long[] getPointsShape(int nbCoordinates) {
+        return new long[]{nbRows, nbColumns, 3};
+    }
+
+    public int getNbRows() {
+        return nbRows;
+    }
+
+    public int getNbColumns() {
+        return nbColumns;
+    }
+
+    /**
+     * @return the number of rows of points, as the size of {@link #getPointList()}
+     */
     @Override
     public Long getNbPoints() {
-        return this.pointList != null ? this.pointList.size() : 0L;
+        return (long) nbRows;
     }
 
     @Override
@@ -0,0 +1,266 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows of different lengths (e.g. the node indices of polylines or faces) stored as the values of all the rows, one
+ * after the other, and the offset of each row in these values. Row i is made of the elements (indices of the first
+ * dimension of the values) from getOffsets()[i] to getOffsets()[i + 1]. The rows are read as views of the values,
+ * without copy.
+ */
+public class JaggedArray {
+    private final NumericArray values;
+    private final long[] offsets;
+    private final long elementSize;
+    private final long[] elementShape;
+
+    /**
+     * @param values the values of all the rows ; if its rank is more than 1, an element of a row is a sub-array of
+     *               the values (e.g. a point of an array of shape (n, 3))
+     * @param offsets the first element of each row, followed by the end of the last row (nbRows + 1 values)
+     * @throws IllegalArgumentException if the offsets are decreasing or out of the values
+     */
+    public JaggedArray(NumericArray values, long[] offsets) {
+        long nbElements = values.getRank() > 0 ? values.getShape()[0] : values.size();
+        if (offsets.length == 0 || offsets[0] < 0 || offsets[offsets.length - 1] > nbElements) {
+            throw new IllegalArgumentException("Offsets out of the " + nbElements + " elements");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("Decreasing offsets at row " + (i - 1) + " : " + offsets[i - 1] + " > " + offsets[i]);
+            }
+        }
+        this.values = values;
+        this.offsets = offsets;
+        this.elementSize = values.getRank() > 1 ? values.stride(0) : 1;
+        this.elementShape = values.getRank() > 1 ? Arrays.copyOfRange(values.getShape(), 1, values.getRank()) : new long[0];
+    }
+
+    /**
+     * @param cumulativeLengths the end of each row, as in the energyml jagged arrays
+     */
+    public static JaggedArray fromCumulativeLengths(NumericArray values, NumericArray cumulativeLengths) {
+        long[] offsets = new long[checkedRowCount(cumulativeLengths.size()) + 1];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = cumulativeLengths.getLong(i - 1);
+        }
+        return new JaggedArray(values, offsets);
+    }
+
+    /**
+     * @param counts the number of elements of each row
+     */
+    public static JaggedArray fromCounts(NumericArray values, NumericArray counts) {
+        long[] offsets = new long[checkedRowCount(counts.size()) + 1];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = offsets[i - 1] + counts.getLong(i - 1);
+        }
+        return new JaggedArray(values, offsets);
+    }
+
+    /**
+     * @return the rows of rowLength elements of values (e.g. 3 for triangles), a last incomplete row is ignored
+     */
+    public static JaggedArray ofRegular(NumericArray values, long rowLength) {
+        long nbElements = values.getRank() > 0 ? values.getShape()[0] : values.size();
+        long[] offsets = new long[checkedRowCount(rowLength > 0 ? nbElements / rowLength : 0) + 1];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = offsets[i - 1] + rowLength;
+        }
+        return new JaggedArray(values, offsets);
+    }
+
+    /**
+     * Copies rows of integers (e.g. the indices given to the List based mesh constructors) in a LONG jagged array.
+     */
+    public static JaggedArray fromRows(List<? extends List<? extends Number>> rows) {
+        long[] offsets = new long[checkedRowCount(rows.size()) + 1];
+        for (int i = 0; i < rows.size(); i++) {
+            offsets[i + 1] = offsets[i] + rows.get(i).size();
+        }
+        long[] values = new long[checkedValueCount(offsets[offsets.length - 1])];
+        int position = 0;
+        for (List<? extends Number> row : rows) {
+            for (Number v : row) {
+                values[position++] = v.longValue();
+            }
+        }
+        return new JaggedArray(NumericArray.of(values), offsets);
+    }
+
+    /**
+     * @return the rows of 1 dimension jagged arrays one after the other, copied in a LONG jagged array (the array
+     * itself if there is only one)
+     */
+    public static JaggedArray concat(List<JaggedArray> arrays) {
+        if (arrays.size() == 1) {
+            return arrays.get(0);
+        }
+        long nbRows = 0;
+        long nbValues = 0;
+        for (JaggedArray array : arrays) {
+            nbRows += array.getNbRows();
+            nbValues += array.getNbValues();
+        }
+        long[] offsets = new long[checkedRowCount(nbRows) + 1];
+        long[] values = new long[checkedValueCount(nbValues)];
+        int row = 0;
+        int position = 0;
+        for (JaggedArray array : arrays) {
+            for (int i = 0; i < array.getNbRows(); i++) {
+                for (long k = array.offsets[i]; k < array.offsets[i + 1]; k++) {
+                    values[position++] = array.values.getLong(k);
+                }
+                offsets[++row] = position;
+            }
+        }
+        return new JaggedArray(NumericArray.of(values), offsets);
+    }
+
+    private static int checkedValueCount(long nbValues) {
+        if (nbValues > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Jagged array of " + nbValues + " values can not be copied in a java array");
+        }
+        return (int) nbValues;
+    }
+
+    private static int checkedRowCount(long nbRows) {
+        if (nbRows > Integer.MAX_VALUE - 9) {
+            throw new UnsupportedOperationException("Jagged array of " + nbRows + " rows is not supported");
+        }
+        return (int) nbRows;
+    }
+
+    public int getNbRows() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return the values of all the rows
+     */
+    public NumericArray getValues() {
+        return values;
+    }
+
+    /**
+     * @return the offsets of the rows (must not be modified)
+     */
+    public long[] getOffsets() {
+        return offsets;
+    }
+
+    public long getRowStart(int row) {
+        return offsets[row];
+    }
+
+    public long getRowLength(int row) {
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * @return the elements of a row, a view of the values. Its shape is the row length followed by the shape of an
+     * element (if the values rank is more than 1).
+     */
+    public NumericArray getRow(int row) {
+        NumericArray flat = values.subArray(offsets[row] * elementSize, offsets[row + 1] * elementSize);
+        if (elementShape.length == 0) {
+            return flat;
+        }
+        long[] shape = new long[elementShape.length + 1];
+        shape[0] = getRowLength(row);
+        System.arraycopy(elementShape, 0, shape, 1, elementShape.length);
+        return flat.reshape(shape);
+    }
+
+    /**
+     * @return the value k of a row, for 1 dimension values
+     */
+    public long getLong(int row, long k) {
+        return values.getLong(offsets[row] + k);
+    }
+
+    /**
+     * @return the value k of a row, for 1 dimension values
+     */
+    public double getDouble(int row, long k) {
+        return values.getDouble(offsets[row] + k);
+    }
+
+    /**
+     * @return the number of values of all the rows
+     */
+    public long getNbValues() {
+        return (offsets[offsets.length - 1] - offsets[0]) * elementSize;
+    }
+
+    /**
+     * Read-only boxed view of the rows (see {@link NumericArray#asListView()}), as returned by the List based API.
+     */
+    public List<List<?>> asListView() {
+        return new AbstractList<>() {
+            @Override
+            public List<?> get(int row) {
+                return getRow(row).asListView();
+            }
+
+            @Override
+            public int size() {
+                return getNbRows();
+            }
+        };
+    }
+
+    /**
+     * Read-only view of the rows of 1 dimension values as Long, whatever the element type (e.g. indices).
+     */
+    public List<List<Long>> asLongListView() {
+        return new AbstractList<>() {
+            @Override
+            public List<Long> get(int row) {
+                final long start = offsets[row];
+                final int length = (int) getRowLength(row);
+                return new AbstractList<>() {
+                    @Override
+                    public Long get(int k) {
+                        if (k < 0 || k >= length) {
+                            throw new IndexOutOfBoundsException("Index " + k + " out of bounds for length " + length);
+                        }
+                        return values.getLong(start + k);
+                    }
+
+                    @Override
+                    public int size() {
+                        return length;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return getNbRows();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "JaggedArray{" + getNbRows() + " rows of " + values + "}";
+    }
+}
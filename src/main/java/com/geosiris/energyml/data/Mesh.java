@@ -21,6 +21,7 @@ import com.geosiris.energyml.utils.EPCGenericManager;
 import com.geosiris.energyml.utils.EnergymlWorkspace;
 import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
 import com.geosiris.energyml.utils.ObjectController;
+import com.geosiris.energyml.utils.ReaderRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -28,7 +29,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static com.geosiris.energyml.pkg.EPCFile.getIdentifier;
 import static com.geosiris.energyml.utils.EnergymlWorkspaceHelper.*;
@@ -37,7 +37,61 @@ import static com.geosiris.energyml.utils.ObjectController.searchAttributeMatchi
 public class Mesh {
     public static Logger logger = LogManager.getLogger(Mesh.class);
 
+    private static final ReaderRegistry<MeshReader> MESH_READERS = new ReaderRegistry<>(Mesh::meshNameMapping);
 
+    static {
+        MESH_READERS.register("PointRepresentation", Mesh::readPointRepresentation);
+        MESH_READERS.register("PolylineRepresentation", Mesh::readPolylineRepresentation);
+        MESH_READERS.register("Grid2dRepresentation", Mesh::readGrid2dRepresentation);
+        MESH_READERS.register("TriangulatedSetRepresentation", Mesh::readTriangulatedSetRepresentation);
+    }
+
+    /**
+     * Registers the mesh reader of a representation class (and its subclasses), e.g. for a representation type that
+     * is not supported by this library. It is used by {@link #readMeshObject(Object, EnergymlWorkspace)} instead of
+     * the reader of the type name of the class (see {@link #meshNameMapping(String)}).
+     */
+    public static void registerMeshReader(Class<?> representationClass, MeshReader reader) {
+        MESH_READERS.register(representationClass, reader);
+    }
+
+    /**
+     * Registers the mesh reader of a representation type name (see {@link #meshNameMapping(String)}), e.g.
+     * "PolylineRepresentation" for the polyline set representations of every energyml version. Replaces the reader
+     * of the library for this name.
+     */
+    public static void registerMeshReader(String meshTypeName, MeshReader reader) {
+        MESH_READERS.register(meshTypeName, reader);
+    }
+
+    /**
+     * Removes a reader registered with {@link #registerMeshReader(Class, MeshReader)}.
+     * @return the removed reader, null if none was registered for this class
+     */
+    public static MeshReader unregisterMeshReader(Class<?> representationClass) {
+        return MESH_READERS.unregister(representationClass);
+    }
+
+    /**
+     * Removes a reader registered with {@link #registerMeshReader(String, MeshReader)}, the library reader of this
+     * name is not restored.
+     * @return the removed reader, null if none was registered for this name
+     */
+    public static MeshReader unregisterMeshReader(String meshTypeName) {
+        return MESH_READERS.unregister(meshTypeName);
+    }
+
+    /**
+     * @return the mesh reader of a representation class, null if the class is not supported
+     */
+    public static MeshReader getMeshReader(Class<?> representationClass) {
+        return MESH_READERS.get(representationClass);
+    }
+
+    /**
+     * @deprecated the readers are no longer found by reflection, use {@link #getMeshReader(Class)}
+     */
+    @Deprecated
     public static Method getMeshReaderFunction(String meshTypeName) {
         for (Method m : Mesh.class.getMethods()) {
             if (m.getName().equals("read" + meshTypeName)) {
@@ -62,16 +116,19 @@ public class Mesh {
             }
             return meshes;
         }
-        String arrayTypeName = meshNameMapping(energymlObject.getClass().getSimpleName());
-
-        Method readerFunc = getMeshReaderFunction(arrayTypeName);
-        if (readerFunc != null) {
-            logger.debug("{}", readerFunc.getName());
-            readerFunc.setAccessible(true);
-            return (List<AbstractMesh>) readerFunc.invoke(null, energymlObject, workspace);
-        } else {
-            logger.error("Type %s is not supported: function read_%s not found%n", arrayTypeName, arrayTypeName);
-            throw new RuntimeException(String.format("Type %s is not supported%n\t%s: %n\tfunction read_%s not found", arrayTypeName, energymlObject, arrayTypeName));
+        MeshReader reader = MESH_READERS.get(energymlObject.getClass());
+        if (reader == null) {
+            String meshTypeName = MESH_READERS.getTypeName(energymlObject.getClass());
+            logger.error("Type {} is not supported: no mesh reader registered", meshTypeName);
+            throw new RuntimeException(String.format("Type %s is not supported%n\t%s: %n\tno mesh reader registered for %s", meshTypeName, energymlObject, meshTypeName));
+        }
+        try {
+            return new ArrayList<>(reader.read(energymlObject, workspace));
+        } catch (InvocationTargetException | IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            // same as the failure of a reflective call, that the callers expect
+            throw new InvocationTargetException(e, "Failed to read meshes of " + energymlObject.getClass().getSimpleName());
         }
     }
 
@@ -84,38 +141,20 @@ public class Mesh {
             String pointsPathInObj = e.getKey();
             Object pointsObj = e.getValue();
 
-            List<List<Double>> points = new ArrayList<>();
-            List<?> pl = readArray(pointsObj, energymlObject, pointsPathInObj, workspace);
-            if(!pl.isEmpty()) {
-                if (pl.get(0) instanceof Collection) {
-                    points.addAll(((List<List<?>>) pl).stream()
-                            .map(l -> l.stream().map(v -> ((Number) v).doubleValue()).collect(Collectors.toList())).collect(Collectors.toList()));
-                } else { // pl given flat
-                    for (int i = 0; i < pl.size() - 2; i+=3) {
-                        points.add(new ArrayList<>(List.of(
-                                ((Number) pl.get(i)).doubleValue(),
-                                ((Number) pl.get(i + 1)).doubleValue(),
-                                ((Number) pl.get(i + 2)).doubleValue()
-                        )));
-                    }
-                }
-            }else{
-                logger.info("Size is 0 for {}", pointsPathInObj);
-            }
-
             Object crs = null;
             try {
                 crs = getCrsObj(pointsObj, pointsPathInObj, energymlObject, workspace);
             } catch (ObjectNotFoundNotError ignore) {}
 
-            if(isZReversed(crs)){
-                points.forEach(l->l.set(2, -l.get(2)));
+            double[] xyz = readXyz(pointsObj, energymlObject, pointsPathInObj, workspace, isZReversed(crs));
+            if(xyz.length == 0) {
+                logger.info("Size is 0 for {}", pointsPathInObj);
             }
 
             meshes.add(new PointSetMesh(
                     energymlObject,
                     crs,
-                    points,
+                    xyz,
                     String.format("NodePatch num %d", patchIdx)
             ));
 
@@ -127,38 +166,21 @@ public class Mesh {
         for(Map.Entry<String, Object> e: pointsPathInObjMap.entrySet()) {
             String pointsPathInObj = e.getKey();
             Object pointsObj = e.getValue();
-            List<List<Double>> points = new ArrayList<>();
-            List<?> pl = readArray(pointsObj, energymlObject, pointsPathInObj, workspace);
-            if(!pl.isEmpty()) {
-                if (pl.get(0) instanceof Collection) {
-                    points.addAll(((List<List<?>>) pl).stream()
-                            .map(l -> l.stream().map(v -> ((Number) v).doubleValue()).collect(Collectors.toList())).collect(Collectors.toList()));
-                } else { // pl given flat
-                    for (int i = 0; i < pl.size() - 2; i+=3) {
-                        points.add(new ArrayList<>(List.of(
-                                ((Number) pl.get(i)).doubleValue(),
-                                ((Number) pl.get(i + 1)).doubleValue(),
-                                ((Number) pl.get(i + 2)).doubleValue()
-                        )));
-                    }
-                }
-            }else{
-                logger.info("Size is 0 for {}", pointsPathInObj);
-            }
 
             Object crs = null;
             try {
                 crs = getCrsObj(pointsObj, pointsPathInObj, energymlObject, workspace);
             } catch (ObjectNotFoundNotError ignore) {}
 
-            if(isZReversed(crs)){
-                points.forEach(l->l.set(2, -l.get(2)));
+            double[] xyz = readXyz(pointsObj, energymlObject, pointsPathInObj, workspace, isZReversed(crs));
+            if(xyz.length == 0) {
+                logger.info("Size is 0 for {}", pointsPathInObj);
             }
 
             meshes.add(new PointSetMesh(
                     energymlObject,
                     crs,
-                    points,
+                    xyz,
                     String.format("NodePatchGeometry num %d", patchIdx)
             ));
 
@@ -168,6 +190,27 @@ public class Mesh {
         return meshes;
     }
 
+    /**
+     * Reads an array of 3d points in a new array of interleaved x, y, z (an incomplete last point is ignored).
+     * @param reverseZ true to negate the z values (see {@link EnergymlWorkspaceHelper#isZReversed(Object)})
+     */
+    public static double[] readXyz(Object pointsObj, Object energymlObject, String pathInObj, EnergymlWorkspace workspace, boolean reverseZ) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        NumericArray points = readPoint3dNumericArray(pointsObj, energymlObject, pathInObj, workspace);
+        // the points may be shared (e.g. a cached supporting geometry) : they are copied before z is modified
+        double[] xyz = points.toDoubleArray();
+        xyz = Arrays.copyOf(xyz, xyz.length - xyz.length % 3);
+        if (reverseZ) {
+            reverseZ(xyz);
+        }
+        return xyz;
+    }
+
+    private static void reverseZ(double[] xyz) {
+        for (int i = 2; i < xyz.length; i += 3) {
+            xyz[i] = -xyz[i];
+        }
+    }
+
     public static List<PolylineSetMesh> readPolylineRepresentation(Object energymlObject, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
         List<PolylineSetMesh> meshes = new ArrayList<>();
         try {
@@ -180,72 +223,47 @@ public class Mesh {
                 String pointsPath = entry.getKey();
                 Object pointsObj = entry.getValue();
 
-                List<List<Double>> points = new ArrayList<>();
-                List<?> pl = EnergymlWorkspaceHelper.readArray(pointsObj, energymlObject, patchPathInObj + pointsPath, workspace);
-                if(!pl.isEmpty()) {
-                    if (pl.get(0) instanceof Collection) {
-                        points.addAll(((List<List<?>>) pl).stream()
-                                .map(l -> l.stream().map(v -> ((Number) v).doubleValue()).collect(Collectors.toList())).collect(Collectors.toList()));
-                    } else { // pl given flat
-                        for (int i = 0; i < pl.size() - 2; i+=3) {
-                            points.add(new ArrayList<>(List.of(
-                                    ((Number) pl.get(i)).doubleValue(),
-                                    ((Number) pl.get(i + 1)).doubleValue(),
-                                    ((Number) pl.get(i + 2)).doubleValue()
-                            )));
-                        }
-                    }
-                }else{
-                    logger.info("Size is 0 for {}", patch);
-                }
-
                 Object crs = null;
                 try {
                     crs = getCrsObj(pointsObj, patchPathInObj + pointsPath, energymlObject, workspace);
                 } catch (ObjectNotFoundNotError ignore) {
                 }
 
+                double[] xyz = readXyz(pointsObj, energymlObject, patchPathInObj + pointsPath, workspace, isZReversed(crs));
+                if(xyz.length == 0) {
+                    logger.info("Size is 0 for {}", patch);
+                }
+
                 Map.Entry<String, Object> closedPolyEntry = searchAttributeMatchingNameWithPath(patch, "ClosedPolylines").entrySet().iterator().next();
                 String closePolyPath = closedPolyEntry.getKey();
                 Object closePolyObj = closedPolyEntry.getValue();
-                var closePoly = readArray(closePolyObj, energymlObject, patchPathInObj + closePolyPath, workspace);
+                NumericArray closePoly = readNumericArray(closePolyObj, energymlObject, patchPathInObj + closePolyPath, workspace);
 
-                List<List<Long>> pointIndices = null;
+                JaggedArray pointIndices = null;
                 try {
                     Map.Entry<String, Object> nodeCountPerPolyPathInObjEntry = searchAttributeMatchingNameWithPath(patch, "NodeCountPerPolyline").entrySet().iterator().next();
                     String nodeCountPerPolyPathInObj = nodeCountPerPolyPathInObjEntry.getKey();
                     Object nodeCountPerPoly = nodeCountPerPolyPathInObjEntry.getValue();
-                    List<Long> nodeCountsList = readArray(nodeCountPerPoly, energymlObject, patchPathInObj + nodeCountPerPolyPathInObj, workspace).stream()
-                            .map(v -> ((Number)v).longValue()).collect(Collectors.toList());
-                    long idx = 0;
-                    int polyIdx = 0;
-                    pointIndices = new ArrayList<>();
-                    for (Long nbNode : nodeCountsList) {
-                        pointIndices.add(IntStream.range((int) idx, (int) idx + nbNode.intValue())
-                                .boxed().map(Long::valueOf).collect(Collectors.toList()));
-                        if (closePoly != null && closePoly.size() > polyIdx && closePoly.get(polyIdx) != null && ((boolean)closePoly.get(polyIdx))) {
-                            pointIndices.get(pointIndices.size() - 1).add(idx);
-                        }
-                        idx += nbNode;
-                        polyIdx++;
+                    NumericArray nodeCounts = readNumericArray(nodeCountPerPoly, energymlObject, patchPathInObj + nodeCountPerPolyPathInObj, workspace);
+                    long nbNodes = 0;
+                    for (long i = 0; i < nodeCounts.size(); i++) {
+                        nbNodes += nodeCounts.getLong(i);
                     }
+                    pointIndices = getPolylineIndexArray(JaggedArray.fromCounts(NumericArray.ofRange(0, nbNodes), nodeCounts), closePoly);
                 } catch (IndexOutOfBoundsException err) {
                     logger.error(err);
                 }
 
-                if(isZReversed(crs)){
-                    points.forEach(l->l.set(2, -l.get(2)));
-                }
-
-                if (pointIndices == null || pointIndices.isEmpty()) {
-                    pointIndices = new ArrayList<>(Collections.singleton(new ArrayList<>(IntStream.range(0, points.size()).mapToObj(Long::valueOf).collect(Collectors.toList()))));
+                long nbPoints = xyz.length / 3;
+                if (pointIndices == null || pointIndices.getNbRows() == 0) {
+                    pointIndices = new JaggedArray(NumericArray.ofRange(0, nbPoints), new long[]{0, nbPoints});
                 }
 
-                if (!points.isEmpty()) {
+                if (nbPoints > 0) {
                     meshes.add(new PolylineSetMesh(
                             energymlObject,
                             crs,
-                            points,
+                            xyz,
                             String.format("%s_patch%d", getIdentifier(energymlObject), patchIdx),
                             pointIndices
                     ));
@@ -260,11 +278,81 @@ public class Mesh {
         return meshes;
     }
 
+    /**
+     * @param polylines the point indices of each polyline
+     * @param closed true for the closed polylines (may be null or shorter than the number of polylines)
+     * @return the point indices of each polyline, followed by its first point if it is closed, as a read-only view
+     * of {@link #getPolylineIndexArray(JaggedArray, NumericArray)}
+     */
+    public static List<List<Long>> getPolylineIndices(JaggedArray polylines, NumericArray closed) {
+        return getPolylineIndexArray(polylines, closed).asLongListView();
+    }
+
+    /**
+     * @param polylines the point indices of each polyline
+     * @param closed true for the closed polylines (may be null or shorter than the number of polylines)
+     * @return the point indices of each polyline, followed by its first point if it is closed, in an INT array (LONG
+     * if an index does not fit in an int). The polylines are returned as is if none of them is closed.
+     */
+    public static JaggedArray getPolylineIndexArray(JaggedArray polylines, NumericArray closed) {
+        int nbRows = polylines.getNbRows();
+        long[] offsets = new long[nbRows + 1];
+        for (int polyIdx = 0; polyIdx < nbRows; polyIdx++) {
+            long length = polylines.getRowLength(polyIdx);
+            offsets[polyIdx + 1] = offsets[polyIdx] + length + (isClosed(closed, polyIdx) && length > 0 ? 1 : 0);
+        }
+        long nbValues = offsets[nbRows];
+        if (nbValues == polylines.getNbValues()) {
+            return polylines;
+        }
+        if (nbValues > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Polylines of " + nbValues + " indices can not be copied in a java array");
+        }
+        long maxIndex = 0;
+        for (int polyIdx = 0; polyIdx < nbRows; polyIdx++) {
+            for (long k = 0; k < polylines.getRowLength(polyIdx); k++) {
+                maxIndex = Math.max(maxIndex, polylines.getLong(polyIdx, k));
+            }
+        }
+        boolean intIndices = maxIndex <= Integer.MAX_VALUE;
+        int[] intValues = intIndices ? new int[(int) nbValues] : null;
+        long[] longValues = intIndices ? null : new long[(int) nbValues];
+        for (int polyIdx = 0; polyIdx < nbRows; polyIdx++) {
+            int position = (int) offsets[polyIdx];
+            int end = (int) offsets[polyIdx + 1];
+            for (long k = 0; position < end; k++, position++) {
+                // the index after the last point of a closed polyline is its first point
+                long index = polylines.getLong(polyIdx, k < polylines.getRowLength(polyIdx) ? k : 0);
+                if (intIndices) {
+                    intValues[position] = (int) index;
+                } else {
+                    longValues[position] = index;
+                }
+            }
+        }
+        return new JaggedArray(intIndices ? NumericArray.of(intValues) : NumericArray.of(longValues), offsets);
+    }
+
+    private static boolean isClosed(NumericArray closed, int polyIdx) {
+        return closed != null && closed.size() > polyIdx && closed.getBoolean(polyIdx);
+    }
+
     public static List<SurfaceMesh> readGrid2dRepresentation(Object energymlObject, EnergymlWorkspace workspace) {
         return readGrid2dRepresentationHolable(energymlObject, workspace, false);
     }
 
     public static List<SurfaceMesh> readGrid2dRepresentationHolable(Object energymlObject, EnergymlWorkspace workspace, boolean keepHoles) {
+        return readGrid2dRepresentationHolable(energymlObject, workspace, keepHoles, Grid2dTriangulation.FaceType.QUADS);
+    }
+
+    /**
+     * Reads the patches of a Grid2dRepresentation as surfaces, see {@link Grid2dTriangulation}.
+     * @param keepHoles true to keep the nodes whose z value is NaN (with a z value of 0) and their faces, false to
+     *                  remove them
+     * @param faceType one quad or two triangles per grid cell
+     */
+    public static List<SurfaceMesh> readGrid2dRepresentationHolable(Object energymlObject, EnergymlWorkspace workspace, boolean keepHoles,
+                                                                    Grid2dTriangulation.FaceType faceType) {
         List<SurfaceMesh> meshes = new ArrayList<>();
         try {
             logger.debug("keepHoles {}", keepHoles);
@@ -286,58 +374,41 @@ public class Mesh {
                 } catch (ObjectNotFoundNotError ignore) {
                 }
 
-                List<List<List<Double>>> points = (List<List<List<Double>>>) readGrid2dPatch(patch, energymlObject, patchPath, workspace);
-
-                boolean finalReverseZValues = reverseZValues;
-                points.forEach(l -> l.forEach(p -> {
-                    if(Double.isNaN(p.get(2))) {
-                        if (keepHoles)
-                            p.set(2, 0.);
-                    }else if(finalReverseZValues){
-                        p.set(2, -p.get(2));
-                    }
-                }));
-
-                List<List<Double>> pointsNoNaN = new ArrayList<>();
-                var indiceToFinalIndice = new HashMap<Long, Long>();
-
-                List<List<Long>> indices = new ArrayList<>();
-                if (!keepHoles) {
-                    for (var i = 0; i < points.size(); i++) {
-                        long lineSize = points.get(i).size();
-                        for (var j = 0; j < lineSize; j++) {
-                            List<Double> p = points.get(i).get(j);
-                            if(!Double.isNaN(p.get(2))) {
-                                indiceToFinalIndice.put((long) i * lineSize + j, (long) pointsNoNaN.size());
-                                pointsNoNaN.add(p);
-                            }
+                NumericArray points = readGrid2dPatchNumericArray(patch, energymlObject, patchPath, workspace);
+                if (points.getRank() != 3) {
+                    throw new IllegalArgumentException("Grid2d points of shape " + Arrays.toString(points.getShape()) + " are not a grid");
+                }
+                int nbRows = (int) points.getShape()[0];
+                int nbColumns = (int) points.getShape()[1];
+                // the points may be shared : they are copied before being modified (toDoubleArray already copies other types)
+                double[] xyz = points.getElementType() == NumericArray.ElementType.DOUBLE ? points.toDoubleArray().clone() : points.toDoubleArray();
+                long[] holes = Grid2dTriangulation.getHoleMask(xyz);
+                for (int k = 2; k < xyz.length; k += 3) {
+                    if (Double.isNaN(xyz[k])) {
+                        if (keepHoles) {
+                            xyz[k] = 0.;
                         }
+                    } else if (reverseZValues) {
+                        xyz[k] = -xyz[k];
                     }
                 }
 
-                for (long i = 0; i < points.size() - 1; i++) {
-                    long lineSize = points.get((int) i).size();
-                    for (long j = 0; j < lineSize - 1; j++) {
-                        List<Long> faceIdx = new ArrayList<>(List.of(
-                                i * lineSize + j,
-                                (i+1) * lineSize + j,
-                                (i+1) * lineSize + j + 1,
-                                i * lineSize + j + 1
-                        ));
-                        if(!keepHoles){
-                            faceIdx = faceIdx.stream().map(indiceToFinalIndice::get).collect(Collectors.toList());
-                        }
-                        if(!faceIdx.contains(null))
-                            indices.add(faceIdx);
-                    }
+                double[] meshXyz = xyz;
+                int[] remap = null;
+                int nbHoles = keepHoles ? 0 : Grid2dTriangulation.countHoles(holes);
+                if (nbHoles > 0) {
+                    remap = Grid2dTriangulation.getRemap(holes, xyz.length / 3);
+                    meshXyz = Grid2dTriangulation.removeHoles(xyz, remap, xyz.length / 3 - nbHoles);
                 }
+                // faces touching a hole are dropped
+                int[] faces = Grid2dTriangulation.getFaces(remap, nbRows, nbColumns, faceType);
 
                 meshes.add(new SurfaceMesh(
                         energymlObject,
                         crs,
-                        keepHoles ? points.stream().flatMap(List::stream).collect(Collectors.toList()) : pointsNoNaN,
+                        meshXyz,
                         String.format("%s_patch%d", getIdentifier(energymlObject), patchIdx),
-                        indices
+                        JaggedArray.ofRegular(NumericArray.of(faces), faceType.getSize())
                 ));
 
                 patchIdx++;
@@ -369,19 +440,23 @@ public class Mesh {
                 } catch (ObjectNotFoundNotError ignore) {
                 }
 
-                List<List<List<Double>>> points = (List<List<List<Double>>>) readGrid2dPatch(patch, energymlObject, patchPath, workspace);
-
-                boolean finalReverseZValues = reverseZValues;
-                points.forEach(l -> l.forEach(p -> {
-                    if(!Double.isNaN(p.get(2)) && finalReverseZValues){
-                        p.set(2, -p.get(2));
-                    }
-                }));
+                NumericArray points = readGrid2dPatchNumericArray(patch, energymlObject, patchPath, workspace);
+                if (points.getRank() != 3) {
+                    throw new IllegalArgumentException("Grid2d points of shape " + Arrays.toString(points.getShape()) + " are not a grid");
+                }
+                // the points may be shared : they are copied before being modified (toDoubleArray already copies other types)
+                double[] xyz = points.getElementType() == NumericArray.ElementType.DOUBLE ? points.toDoubleArray().clone() : points.toDoubleArray();
+                if (reverseZValues) {
+                    // NaN z values stay NaN
+                    reverseZ(xyz);
+                }
 
                 meshes.add(new GridedPointSetMesh(
                         energymlObject,
                         crs,
-                        points,
+                        xyz,
+                        (int) points.getShape()[0],
+                        (int) points.getShape()[1],
                         String.format("%s_patch%d", getIdentifier(energymlObject), patchIdx)
                 ));
 
@@ -399,7 +474,6 @@ public class Mesh {
         try {
             Object crs = null;
 
-            // long pointOffset = 0;
             long patchIdx = 0;
             var patchPathInObjMap = searchAttributeMatchingNameWithPath(energymlObject, "TrianglePatch.\\d+", false);
 
@@ -426,64 +500,32 @@ public class Mesh {
                 } catch (ObjectNotFoundNotError ignore) {
                 }
 
-                List<List<Double>> pointList = new ArrayList<>();
+                List<double[]> xyzParts = new ArrayList<>();
                 for (var pointPath : searchAttributeMatchingNameWithPath(patch, "Geometry.Points").entrySet()) {
-                    List<?> pl = readArray(pointPath.getValue(), energymlObject, patchPath + pointPath.getKey(), workspace);
-                    if(!pl.isEmpty()) {
-                        if (pl.get(0) instanceof Collection) {
-                            pointList.addAll(((List<List<?>>) pl).stream()
-                                    .map(l -> l.stream().map(v -> ((Number) v).doubleValue()).collect(Collectors.toList())).collect(Collectors.toList()));
-                        } else { // pl given flat
-                            for (int i = 0; i < pl.size() - 2; i+=3) {
-                                pointList.add(new ArrayList<>(List.of(
-                                        ((Number) pl.get(i)).doubleValue(),
-                                        ((Number) pl.get(i + 1)).doubleValue(),
-                                        ((Number) pl.get(i + 2)).doubleValue()
-                                )));
-                            }
-                        }
-                    }else{
+                    double[] part = readXyz(pointPath.getValue(), energymlObject, patchPath + pointPath.getKey(), workspace, isZReversed(crs));
+                    if(part.length == 0) {
                         logger.info("Size is 0 for {}", patch);
                     }
+                    xyzParts.add(part);
                 }
-                if(isZReversed(crs)){
-                    pointList.forEach(l->l.set(2, -l.get(2)));
-                }
+                double[] xyz = xyzParts.size() == 1 ? xyzParts.get(0) : concat(xyzParts);
 
-                List<List<Long>> trianglesList_obj = new ArrayList<>();
+                List<JaggedArray> triangles = new ArrayList<>();
                 for (var trianglesPath : searchAttributeMatchingNameWithPath(patch, "Triangles").entrySet()) {
-                    List<?> indices = readArray(trianglesPath.getValue(), energymlObject, patchPath + trianglesPath.getKey(), workspace);
-                    if(indices.get(0) instanceof Collection){
-                        trianglesList_obj.addAll(((List<List<?>>)indices).stream()
-                                .map(l -> l.stream().map(v -> ((Number)v).longValue()).collect(Collectors.toList())).collect(Collectors.toList()));
-                    }else{ // indices given flat
-                        for(int i=0; i<indices.size()-2; i+=3){
-                            trianglesList_obj.add(new ArrayList<>(List.of(
-                                    ((Number)indices.get(i)).longValue(),
-                                    ((Number)indices.get(i+1)).longValue(),
-                                    ((Number)indices.get(i+2)).longValue()
-                            )));
-                        }
-                    }
+                    NumericArray indices = readNumericArray(trianglesPath.getValue(), energymlObject, patchPath + trianglesPath.getKey(), workspace);
+                    // indices given as (nbTriangles, 3) or flat : rows of 3 indices
+                    long faceSize = indices.getRank() > 1 ? indices.getShape()[indices.getRank() - 1] : 3;
+                    triangles.add(JaggedArray.ofRegular(indices.reshape(indices.size()), faceSize));
                 }
-//                logger.info("Triangles {} {}", patchPath, trianglesList_obj);
-//                final long finalPointOffset = pointOffset;
-//                List<List<Long>> trianglesList = trianglesList_obj.stream()
-//                        .map(l-> l.stream().map(ti -> ti - finalPointOffset)
-//                                .collect(Collectors.toList()))
-//                        .collect(Collectors.toList());
 
                 meshes.add(new SurfaceMesh(
                         energymlObject,
                         crs,
-                        pointList,
+                        xyz,
                         String.format("%s_patch%d", getIdentifier(energymlObject), patchIdx),
-//                        new ArrayList<>(trianglesList.stream().collect(Collectors.groupingBy(s -> counter.getAndIncrement() / 3)).values())
-//                        trianglesList
-                        trianglesList_obj
+                        triangles.isEmpty() ? new JaggedArray(NumericArray.of(new int[0]), new long[]{0}) : JaggedArray.concat(triangles)
                 ));
 
-                // pointOffset += pointList.size();
                 patchIdx++;
             }
         }catch (Exception e){
@@ -493,4 +535,14 @@ public class Mesh {
         return meshes;
     }
 
+    private static double[] concat(List<double[]> parts) {
+        double[] result = new double[parts.stream().mapToInt(p -> p.length).sum()];
+        int position = 0;
+        for (double[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        return result;
+    }
+
 }
\ No newline at end of file
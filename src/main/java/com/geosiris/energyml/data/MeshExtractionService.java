@@ -0,0 +1,247 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.utils.EnergymlWorkspace;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Reads the meshes of many representations concurrently (e.g. all the surfaces and polylines of a project EPC), with
+ * {@link Mesh#readMeshObject(Object, EnergymlWorkspace)}. At most 'parallelism' representations are read at the same
+ * time. A representation that can not be read only fails its own result, and the results are returned in the order
+ * of the representations. The workspace and the mesh readers must support concurrent reads.
+ */
+public class MeshExtractionService {
+    public static Logger logger = LogManager.getLogger(MeshExtractionService.class);
+
+    private final EnergymlWorkspace workspace;
+    private final int parallelism;
+    private final Executor executor;
+
+    /**
+     * Progress of an extraction. The callbacks are called from the reading threads, they must be thread-safe. An
+     * exception thrown by a callback is logged and does not stop the extraction.
+     */
+    public interface ProgressListener {
+        default void onStarted(int index, Object representation) {
+        }
+
+        default void onCompleted(int index, Object representation, List<AbstractMesh> meshes) {
+        }
+
+        default void onFailed(int index, Object representation, Throwable error) {
+        }
+
+        /**
+         * Called after each representation, read or failed.
+         * @param nbDone the number of representations done
+         */
+        default void onProgress(int nbDone, int nbTotal) {
+        }
+    }
+
+    /**
+     * The meshes of one representation, or the reason why they could not be read.
+     */
+    public static final class Result {
+        private final Object representation;
+        private final List<AbstractMesh> meshes;
+        private final Throwable error;
+
+        Result(Object representation, List<AbstractMesh> meshes, Throwable error) {
+            this.representation = representation;
+            this.meshes = meshes;
+            this.error = error;
+        }
+
+        public Object getRepresentation() {
+            return representation;
+        }
+
+        /**
+         * @return one mesh per patch, an empty list if the representation could not be read
+         */
+        public List<AbstractMesh> getMeshes() {
+            return meshes;
+        }
+
+        /**
+         * @return the failure of the read, null if the meshes were read
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" + describe(representation) + ", "
+                    + (error == null ? meshes.size() + " meshes" : "error " + error) + "}";
+        }
+    }
+
+    /**
+     * Reads with threads created for each extraction, one per available processor.
+     */
+    public MeshExtractionService(EnergymlWorkspace workspace) {
+        this(workspace, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads with threads created for each extraction.
+     * @param parallelism maximum number of representations read at the same time
+     */
+    public MeshExtractionService(EnergymlWorkspace workspace, int parallelism) {
+        this(workspace, parallelism, null);
+    }
+
+    /**
+     * @param parallelism maximum number of representations read at the same time
+     * @param executor executor running the reads (e.g. an application thread pool), null to create threads for
+     *                 each extraction
+     */
+    public MeshExtractionService(EnergymlWorkspace workspace, int parallelism, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive : " + parallelism);
+        }
+        this.workspace = workspace;
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Same as {@link #extract(List, ProgressListener)}, without progress listener.
+     */
+    public List<Result> extract(List<?> representations) throws InterruptedException {
+        return extract(representations, null);
+    }
+
+    /**
+     * Reads the meshes of the representations, waiting for all the reads.
+     * @param listener progress listener, may be null
+     * @return one result per representation, in the same order
+     */
+    public List<Result> extract(List<?> representations, ProgressListener listener) throws InterruptedException {
+        try {
+            return extractAsync(representations, listener).get();
+        } catch (ExecutionException e) {
+            // the failures of the reads are in the results : this is a failure of the executor
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads the meshes of the representations without waiting. The representations are dispatched to at most
+     * 'parallelism' workers, each reading the next representation not yet read.
+     * @param listener progress listener, may be null
+     * @return the results, one per representation in the same order, available when all the reads ended
+     */
+    public CompletableFuture<List<Result>> extractAsync(List<?> representations, ProgressListener listener) {
+        final int nbTotal = representations.size();
+        final Result[] results = new Result[nbTotal];
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicInteger nbDone = new AtomicInteger();
+        int nbWorkers = Math.min(parallelism, nbTotal);
+
+        ExecutorService ownExecutor = executor == null && nbWorkers > 0 ? Executors.newFixedThreadPool(nbWorkers, r -> {
+            Thread thread = new Thread(r, "mesh-extraction");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        Executor workerExecutor = ownExecutor != null ? ownExecutor : executor;
+
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[nbWorkers];
+        for (int w = 0; w < nbWorkers; w++) {
+            workers[w] = CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < nbTotal) {
+                    results[index] = extractOne(index, representations.get(index), listener);
+                    int done = nbDone.incrementAndGet();
+                    notifyListener(listener, l -> l.onProgress(done, nbTotal));
+                }
+            }, workerExecutor);
+        }
+        CompletableFuture<List<Result>> result = CompletableFuture.allOf(workers).thenApply(v -> Arrays.asList(results));
+        if (ownExecutor != null) {
+            result.whenComplete((r, e) -> ownExecutor.shutdown());
+        }
+        return result;
+    }
+
+    private Result extractOne(int index, Object representation, ProgressListener listener) {
+        notifyListener(listener, l -> l.onStarted(index, representation));
+        List<AbstractMesh> meshes;
+        try {
+            meshes = Mesh.readMeshObject(representation, workspace);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            // reader errors (e.g. a LinkageError) only fail this representation, the virtual machine errors are rethrown
+            Throwable error = e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+            logger.error("Failed to read meshes of {} : {}", describe(representation), error.getMessage());
+            notifyListener(listener, l -> l.onFailed(index, representation, error));
+            return new Result(representation, new ArrayList<>(), error);
+        }
+        notifyListener(listener, l -> l.onCompleted(index, representation, meshes));
+        return new Result(representation, meshes, null);
+    }
+
+    /* Calls the listener (if not null), its exceptions are logged so the worker goes on with the next representations */
+    private static void notifyListener(ProgressListener listener, Consumer<ProgressListener> callback) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            callback.accept(listener);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            logger.error("Progress listener failed : {}", e.getMessage());
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    /* The identifier of a representation for the logs, its type if it has none */
+    private static String describe(Object representation) {
+        try {
+            return EPCFile.getIdentifier(representation);
+        } catch (Exception e) {
+            return representation != null ? representation.getClass().getSimpleName() : "null";
+        }
+    }
+}
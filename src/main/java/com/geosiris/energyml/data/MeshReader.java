@@ -0,0 +1,33 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import com.geosiris.energyml.utils.EnergymlWorkspace;
+
+import java.util.List;
+
+/**
+ * Reads the meshes of an energyml representation type, see {@link Mesh#registerMeshReader(Class, MeshReader)}.
+ */
+@FunctionalInterface
+public interface MeshReader {
+    /**
+     * @param energymlObject the representation
+     * @param workspace the workspace to read the external data and referenced objects
+     * @return one mesh per patch of the representation
+     */
+    List<? extends AbstractMesh> read(Object energymlObject, EnergymlWorkspace workspace) throws Exception;
+}
@@ -0,0 +1,1281 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A read-only n-dimensional array of numbers (or booleans), stored flat in row-major order without boxing.
+ * Values can be read with any primitive accessor, they are converted like a Java primitive cast
+ * (booleans are 0/1, numbers are true if not 0).
+ * {@link #toList()} gives the nested boxed list representation used by the List based API.
+ */
+public abstract class NumericArray {
+
+    public enum ElementType {
+        BOOLEAN(boolean.class, 1), BYTE(byte.class, 1), SHORT(short.class, 2), INT(int.class, 4), LONG(long.class, 8),
+        FLOAT(float.class, 4), DOUBLE(double.class, 8);
+
+        private final Class<?> javaType;
+        private final int size;
+
+        ElementType(Class<?> javaType, int size) {
+            this.javaType = javaType;
+            this.size = size;
+        }
+
+        public boolean isFloatingPoint() {
+            return this == FLOAT || this == DOUBLE;
+        }
+
+        /**
+         * @return the primitive java type, e.g. double.class
+         */
+        public Class<?> getJavaType() {
+            return javaType;
+        }
+
+        /**
+         * @return the size of a value in a java array, in bytes
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return the element type of a primitive java type, null if there is none (e.g. for String.class)
+         */
+        public static ElementType fromJavaType(Class<?> javaType) {
+            for (ElementType type : values()) {
+                if (type.javaType == javaType) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    protected final long[] shape;
+    protected final long size;
+
+    protected NumericArray(long[] shape, long size) {
+        if (shapeSize(shape) != size) {
+            throw new IllegalArgumentException("Shape " + Arrays.toString(shape) + " does not match the array size " + size);
+        }
+        this.shape = shape.clone();
+        this.size = size;
+    }
+
+    public static long shapeSize(long[] shape) {
+        long size = 1;
+        for (long d : shape) {
+            size *= d;
+        }
+        return size;
+    }
+
+    /* --------------------------------------------------- */
+
+    public abstract ElementType getElementType();
+
+    public abstract double getDouble(long index);
+
+    public abstract long getLong(long index);
+
+    public int getInt(long index) {
+        return (int) getLong(index);
+    }
+
+    public float getFloat(long index) {
+        return (float) getDouble(index);
+    }
+
+    public boolean getBoolean(long index) {
+        return getElementType().isFloatingPoint() ? getDouble(index) != 0 : getLong(index) != 0;
+    }
+
+    /**
+     * @return the value as the boxed type of the element type (Double, Float, Long, Integer, Short, Byte or Boolean)
+     */
+    public abstract Object get(long index);
+
+    public long[] getShape() {
+        return shape.clone();
+    }
+
+    public int getRank() {
+        return shape.length;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the backing array if the element type is DOUBLE (must not be modified), a converted copy otherwise
+     */
+    public double[] toDoubleArray() {
+        double[] result = new double[checkedSize()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getDouble(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the backing array if the element type is FLOAT (must not be modified), a converted copy otherwise
+     */
+    public float[] toFloatArray() {
+        float[] result = new float[checkedSize()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getFloat(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the backing array if the element type is LONG (must not be modified), a converted copy otherwise
+     */
+    public long[] toLongArray() {
+        long[] result = new long[checkedSize()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getLong(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the backing array if the element type is INT (must not be modified), a converted copy otherwise
+     */
+    public int[] toIntArray() {
+        int[] result = new int[checkedSize()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getInt(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the backing array if the element type is BOOLEAN (must not be modified), a converted copy otherwise
+     */
+    public boolean[] toBooleanArray() {
+        boolean[] result = new boolean[checkedSize()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getBoolean(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the values are computed on access (e.g. {@link #ofConstant(double, long...)}), false if they
+     * are stored
+     */
+    public boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * @return this array if its values are stored, a copy of its values in a java array of the same element type
+     * otherwise (see {@link #isVirtual()})
+     */
+    public NumericArray toDense() {
+        if (!isVirtual()) {
+            return this;
+        }
+        return slice(new long[shape.length], shape, null);
+    }
+
+    protected int checkedSize() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Array of " + size + " elements can not be copied in a java array");
+        }
+        return (int) size;
+    }
+
+    /**
+     * @return a view of the same values with an other shape
+     */
+    public NumericArray reshape(long... newShape) {
+        NumericArray source = this;
+        return new NumericArray(newShape, size) {
+            @Override
+            public ElementType getElementType() {
+                return source.getElementType();
+            }
+
+            @Override
+            public double getDouble(long index) {
+                return source.getDouble(index);
+            }
+
+            @Override
+            public long getLong(long index) {
+                return source.getLong(index);
+            }
+
+            @Override
+            public boolean getBoolean(long index) {
+                return source.getBoolean(index);
+            }
+
+            @Override
+            public Object get(long index) {
+                return source.get(index);
+            }
+
+            @Override
+            public double[] toDoubleArray() {
+                return source.toDoubleArray();
+            }
+
+            @Override
+            public float[] toFloatArray() {
+                return source.toFloatArray();
+            }
+
+            @Override
+            public long[] toLongArray() {
+                return source.toLongArray();
+            }
+
+            @Override
+            public int[] toIntArray() {
+                return source.toIntArray();
+            }
+
+            @Override
+            public boolean[] toBooleanArray() {
+                return source.toBooleanArray();
+            }
+        };
+    }
+
+    /**
+     * @return a 1 dimension view of the flat values from 'from' (included) to 'to' (excluded), without copy
+     */
+    public NumericArray subArray(long from, long to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for size " + size);
+        }
+        NumericArray source = this;
+        return new NumericArray(new long[]{to - from}, to - from) {
+            @Override
+            public ElementType getElementType() {
+                return source.getElementType();
+            }
+
+            @Override
+            public boolean isVirtual() {
+                return source.isVirtual();
+            }
+
+            private long sourceIndex(long index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                }
+                return from + index;
+            }
+
+            @Override
+            public double getDouble(long index) {
+                return source.getDouble(sourceIndex(index));
+            }
+
+            @Override
+            public long getLong(long index) {
+                return source.getLong(sourceIndex(index));
+            }
+
+            @Override
+            public boolean getBoolean(long index) {
+                return source.getBoolean(sourceIndex(index));
+            }
+
+            @Override
+            public Object get(long index) {
+                return source.get(sourceIndex(index));
+            }
+        };
+    }
+
+    /**
+     * Dense copy of a rectangular selection, with the same element type.
+     * @param offset first index of the selection in each dimension
+     * @param count number of selected indices in each dimension
+     * @param stride step between two selected indices in each dimension, null for 1
+     * @return an array of shape 'count'
+     */
+    public NumericArray slice(long[] offset, long[] count, long[] stride) {
+        stride = checkSlice(shape, offset, count, stride);
+        long n = shapeSize(count);
+        if (n > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Slice of " + n + " elements can not be copied in a java array");
+        }
+        final int[] k = {0};
+        switch (getElementType()) {
+            case BOOLEAN: {
+                boolean[] result = new boolean[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = getBoolean(i));
+                return of(result, count);
+            }
+            case BYTE: {
+                byte[] result = new byte[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = (byte) getLong(i));
+                return of(result, count);
+            }
+            case SHORT: {
+                short[] result = new short[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = (short) getLong(i));
+                return of(result, count);
+            }
+            case INT: {
+                int[] result = new int[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = getInt(i));
+                return of(result, count);
+            }
+            case LONG: {
+                long[] result = new long[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = getLong(i));
+                return of(result, count);
+            }
+            case FLOAT: {
+                float[] result = new float[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = getFloat(i));
+                return of(result, count);
+            }
+            default: {
+                double[] result = new double[(int) n];
+                forEachSliceIndex(offset, count, stride, i -> result[k[0]++] = getDouble(i));
+                return of(result, count);
+            }
+        }
+    }
+
+    /* Calls action with the flat index of each selected element, in row-major order */
+    private void forEachSliceIndex(long[] offset, long[] count, long[] stride, LongConsumer action) {
+        if (shapeSize(count) == 0) {
+            return;
+        }
+        int rank = shape.length;
+        long[] strides = new long[rank];
+        for (int d = 0; d < rank; d++) {
+            strides[d] = stride(d);
+        }
+        long[] position = new long[rank];
+        long base = 0;
+        for (int d = 0; d < rank; d++) {
+            base += offset[d] * strides[d];
+        }
+        long innerStep = rank > 0 ? stride[rank - 1] * strides[rank - 1] : 0;
+        long innerCount = rank > 0 ? count[rank - 1] : 1;
+        while (true) {
+            for (long i = 0, index = base; i < innerCount; i++, index += innerStep) {
+                action.accept(index);
+            }
+            // next row : increments the position of the outer dimensions
+            int d = rank - 2;
+            while (d >= 0) {
+                position[d]++;
+                base += stride[d] * strides[d];
+                if (position[d] < count[d]) {
+                    break;
+                }
+                base -= position[d] * stride[d] * strides[d];
+                position[d] = 0;
+                d--;
+            }
+            if (d < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks a selection against a shape.
+     * @return the stride, filled with 1 if null
+     * @throws IllegalArgumentException if the selection rank is not the shape rank, or a count or stride is negative
+     * @throws IndexOutOfBoundsException if the selection is not inside the shape
+     */
+    public static long[] checkSlice(long[] shape, long[] offset, long[] count, long[] stride) {
+        if (stride == null) {
+            stride = new long[shape.length];
+            Arrays.fill(stride, 1);
+        }
+        if (offset.length != shape.length || count.length != shape.length || stride.length != shape.length) {
+            throw new IllegalArgumentException("Selection rank does not match the array rank " + shape.length);
+        }
+        for (int d = 0; d < shape.length; d++) {
+            if (count[d] < 0 || stride[d] < 1) {
+                throw new IllegalArgumentException("Invalid count " + count[d] + " or stride " + stride[d] + " for dimension " + d);
+            }
+            if (count[d] > 0 && (offset[d] < 0 || offset[d] + (count[d] - 1) * stride[d] >= shape[d])) {
+                throw new IndexOutOfBoundsException("Selection offset=" + Arrays.toString(offset) + " count="
+                        + Arrays.toString(count) + " stride=" + Arrays.toString(stride) + " is out of shape " + Arrays.toString(shape));
+            }
+        }
+        return stride;
+    }
+
+    /**
+     * Boxed copy of the array in mutable lists, nested following the shape (e.g. a List&lt;List&lt;Double&gt;&gt; for a 2
+     * dimensional double array), as returned by the List based API.
+     */
+    public List<?> toList() {
+        if (shape.length == 0) {
+            return new ArrayList<>(List.of(get(0)));
+        }
+        return copyList(0, 0);
+    }
+
+    private List<?> copyList(int dim, long offset) {
+        int length = (int) shape[dim];
+        long stride = stride(dim);
+        List<Object> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(dim == shape.length - 1 ? get(offset + i) : copyList(dim + 1, offset + i * stride));
+        }
+        return result;
+    }
+
+    /**
+     * Read-only boxed view of the array, nested like {@link #toList()}. Values are boxed when accessed.
+     * @throws UnsupportedOperationException if a dimension has more than Integer.MAX_VALUE elements
+     */
+    public List<?> asListView() {
+        if (shape.length == 0) {
+            return List.of(get(0));
+        }
+        return viewList(0, 0);
+    }
+
+    private List<?> viewList(int dim, long offset) {
+        return new ListView(this, dim, offset);
+    }
+
+    /**
+     * @return the array of a list given by {@link #asListView()} or of a {@link PrimitiveList}, to read it with the
+     * primitive accessors; null if the list is not such a view
+     */
+    public static NumericArray getViewedArray(List<?> list) {
+        if (list instanceof ListView && ((ListView) list).dim == 0) {
+            return ((ListView) list).array;
+        } else if (list instanceof PrimitiveList) {
+            return ((PrimitiveList<?>) list).toNumericArray();
+        }
+        return null;
+    }
+
+    /* A dimension of a list view : the values (last dimension) or the views of the next dimension */
+    private static final class ListView extends AbstractList<Object> {
+        private final NumericArray array;
+        private final int dim;
+        private final long offset;
+        private final int length;
+
+        ListView(NumericArray array, int dim, long offset) {
+            this.array = array;
+            this.dim = dim;
+            this.offset = offset;
+            if (array.shape[dim] > Integer.MAX_VALUE) {
+                throw new UnsupportedOperationException("Array of " + array.shape[dim] + " elements can not be viewed as a java list");
+            }
+            this.length = (int) array.shape[dim];
+        }
+
+        @Override
+        public Object get(int index) {
+            if (dim == array.shape.length - 1) {
+                return array.get(offset + checkIndex(index, length));
+            }
+            return new ListView(array, dim + 1, offset + checkIndex(index, length) * array.stride(dim));
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+
+    /**
+     * @return the number of flat elements between two consecutive indices of dimension dim
+     */
+    public long stride(int dim) {
+        long stride = 1;
+        for (int d = dim + 1; d < shape.length; d++) {
+            stride *= shape[d];
+        }
+        return stride;
+    }
+
+    private static int checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + getElementType() + " " + Arrays.toString(shape) + "}";
+    }
+
+    /* --------------------------------------------------- */
+
+    public static NumericArray of(double[] values, long... shape) {
+        return new OfDouble(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    public static NumericArray of(float[] values, long... shape) {
+        return new OfFloat(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    public static NumericArray of(long[] values, long... shape) {
+        return new OfLong(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    public static NumericArray of(int[] values, long... shape) {
+        return new OfInt(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    public static NumericArray of(short[] values, long... shape) {
+        return new OfShort(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    public static NumericArray of(byte[] values, long... shape) {
+        return new OfByte(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    public static NumericArray of(boolean[] values, long... shape) {
+        return new OfBoolean(values, shape.length == 0 ? new long[]{values.length} : shape);
+    }
+
+    /**
+     * @return a virtual array (see {@link #isVirtual()}) of DOUBLE elements all equal to value
+     */
+    public static NumericArray ofConstant(double value, long... shape) {
+        return new OfConstant(ElementType.DOUBLE, (long) value, value, shape);
+    }
+
+    /**
+     * @return a virtual array (see {@link #isVirtual()}) of LONG elements all equal to value
+     */
+    public static NumericArray ofConstant(long value, long... shape) {
+        return new OfConstant(ElementType.LONG, value, value, shape);
+    }
+
+    /**
+     * @return a virtual array (see {@link #isVirtual()}) of BOOLEAN elements all equal to value
+     */
+    public static NumericArray ofConstant(boolean value, long... shape) {
+        return new OfConstant(ElementType.BOOLEAN, value ? 1 : 0, value ? 1 : 0, shape);
+    }
+
+    /**
+     * @return a virtual array (see {@link #isVirtual()}) of 'count' LONG elements : start, start + 1, ...
+     */
+    public static NumericArray ofRange(long start, long count) {
+        return ofLattice(start, new long[]{1}, count);
+    }
+
+    /**
+     * Virtual array (see {@link #isVirtual()}) of LONG elements : the element at (i0, i1, ...) is
+     * start + i0 * steps[0] + i1 * steps[1] + ...
+     * @param steps the step of each dimension
+     */
+    public static NumericArray ofLattice(long start, long[] steps, long... shape) {
+        return new OfLattice(ElementType.LONG, start, start, steps, null, shape);
+    }
+
+    /**
+     * Virtual array (see {@link #isVirtual()}) of DOUBLE elements : the element at (i0, i1, ...) is
+     * start + i0 * steps[0] + i1 * steps[1] + ...
+     * @param steps the step of each dimension
+     */
+    public static NumericArray ofLattice(double start, double[] steps, long... shape) {
+        return new OfLattice(ElementType.DOUBLE, (long) start, start, null, steps, shape);
+    }
+
+    /**
+     * Wraps a flat primitive java array (double[], float[], long[], int[], short[], byte[] or boolean[]) without copy.
+     * @throws IllegalArgumentException if flatArray is not a primitive numeric array
+     */
+    public static NumericArray ofFlatArray(Object flatArray, long... shape) {
+        if (flatArray instanceof double[]) {
+            return of((double[]) flatArray, shape);
+        } else if (flatArray instanceof float[]) {
+            return of((float[]) flatArray, shape);
+        } else if (flatArray instanceof long[]) {
+            return of((long[]) flatArray, shape);
+        } else if (flatArray instanceof int[]) {
+            return of((int[]) flatArray, shape);
+        } else if (flatArray instanceof short[]) {
+            return of((short[]) flatArray, shape);
+        } else if (flatArray instanceof byte[]) {
+            return of((byte[]) flatArray, shape);
+        } else if (flatArray instanceof boolean[]) {
+            return of((boolean[]) flatArray, shape);
+        }
+        throw new IllegalArgumentException("Not a primitive numeric array : " + (flatArray != null ? flatArray.getClass() : null));
+    }
+
+    /**
+     * Wraps a buffer without copy (e.g. a direct or memory-mapped buffer). The values are read from the buffer
+     * position, with the buffer byte order; booleans are stored as one byte.
+     * @throws IllegalArgumentException if the buffer is too small for the shape
+     */
+    public static OfBuffer ofBuffer(ByteBuffer buffer, ElementType type, long... shape) {
+        long[] arrayShape = shape.length == 0 ? new long[]{buffer.remaining() / type.getSize()} : shape;
+        if (shapeSize(arrayShape) * type.getSize() > buffer.remaining()) {
+            throw new IllegalArgumentException("Buffer of " + buffer.remaining() + " bytes is too small for " + type + " "
+                    + Arrays.toString(arrayShape));
+        }
+        return new OfBuffer(buffer, type, arrayShape);
+    }
+
+    /**
+     * Copies a multidimensional primitive java array (e.g. a double[][] as returned by jhdf) in a flat array.
+     * The shape is read from the first element of each dimension, the array must not be ragged.
+     */
+    public static NumericArray ofNestedArray(Object nestedArray) {
+        List<Long> shapeList = new ArrayList<>();
+        Object current = nestedArray;
+        Class<?> componentType = nestedArray.getClass();
+        while (current != null && current.getClass().isArray()) {
+            int length = Array.getLength(current);
+            shapeList.add((long) length);
+            componentType = current.getClass().getComponentType();
+            current = length > 0 && !componentType.isPrimitive() ? Array.get(current, 0) : null;
+        }
+        if (!componentType.isPrimitive()) {
+            throw new IllegalArgumentException("Not a primitive numeric array : " + nestedArray.getClass());
+        }
+        long[] shape = shapeList.stream().mapToLong(Long::longValue).toArray();
+        long n = shapeSize(shape);
+        if (n > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Array of " + n + " elements can not be copied in a java array");
+        }
+        Object flat = Array.newInstance(componentType, (int) n);
+        copyNested(nestedArray, flat, 0);
+        return ofFlatArray(flat, shape);
+    }
+
+    private static int copyNested(Object nested, Object flat, int position) {
+        int length = Array.getLength(nested);
+        if (nested.getClass().getComponentType().isPrimitive()) {
+            System.arraycopy(nested, 0, flat, position, length);
+            return position + length;
+        }
+        for (int i = 0; i < length; i++) {
+            position = copyNested(Array.get(nested, i), flat, position);
+        }
+        return position;
+    }
+
+    /**
+     * Converts a (possibly nested) list of numbers, booleans or numeric Strings. The element type is taken from
+     * the first value (Strings are read as doubles), the shape from the nesting. The list views of
+     * {@link #asListView()} are not copied, their array is returned.
+     */
+    public static NumericArray fromList(List<?> values) {
+        NumericArray viewed = getViewedArray(values);
+        if (viewed != null) {
+            return viewed;
+        }
+        List<Long> shapeList = new ArrayList<>();
+        Object current = values;
+        while (current instanceof List) {
+            List<?> l = (List<?>) current;
+            shapeList.add((long) l.size());
+            current = l.isEmpty() ? null : l.get(0);
+        }
+        long[] shape = shapeList.stream().mapToLong(Long::longValue).toArray();
+        List<Object> flat = new ArrayList<>();
+        flatten(values, flat);
+        if (flat.size() != shapeSize(shape)) {
+            // ragged lists : only the flat size is kept
+            shape = new long[]{flat.size()};
+        }
+        int n = flat.size();
+        Object first = n > 0 ? flat.get(0) : null;
+        if (first instanceof Boolean) {
+            boolean[] result = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = (Boolean) flat.get(i);
+            }
+            return of(result, shape);
+        } else if (first instanceof Long) {
+            long[] result = new long[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = ((Number) flat.get(i)).longValue();
+            }
+            return of(result, shape);
+        } else if (first instanceof Integer || first instanceof Short || first instanceof Byte) {
+            int[] result = new int[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = ((Number) flat.get(i)).intValue();
+            }
+            return of(result, shape);
+        } else if (first instanceof Float) {
+            float[] result = new float[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = ((Number) flat.get(i)).floatValue();
+            }
+            return of(result, shape);
+        }
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            Object v = flat.get(i);
+            result[i] = v instanceof Number ? ((Number) v).doubleValue() : v != null ? Double.parseDouble(String.valueOf(v)) : Double.NaN;
+        }
+        return of(result, shape);
+    }
+
+    private static void flatten(Object values, List<Object> flat) {
+        if (values instanceof Collection) {
+            for (Object v : (Collection<?>) values) {
+                flatten(v, flat);
+            }
+        } else if (values != null && values.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(values); i++) {
+                flatten(Array.get(values, i), flat);
+            }
+        } else {
+            flat.add(values);
+        }
+    }
+
+    /* --------------------------------------------------- */
+
+    static final class OfDouble extends NumericArray {
+        private final double[] values;
+
+        OfDouble(double[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.DOUBLE;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long getLong(long index) {
+            return (long) values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            return values;
+        }
+    }
+
+    static final class OfFloat extends NumericArray {
+        private final float[] values;
+
+        OfFloat(float[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.FLOAT;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public float getFloat(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long getLong(long index) {
+            return (long) values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public float[] toFloatArray() {
+            return values;
+        }
+    }
+
+    static final class OfLong extends NumericArray {
+        private final long[] values;
+
+        OfLong(long[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.LONG;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long getLong(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long[] toLongArray() {
+            return values;
+        }
+    }
+
+    static final class OfInt extends NumericArray {
+        private final int[] values;
+
+        OfInt(int[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.INT;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long getLong(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public int getInt(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public int[] toIntArray() {
+            return values;
+        }
+    }
+
+    static final class OfShort extends NumericArray {
+        private final short[] values;
+
+        OfShort(short[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.SHORT;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long getLong(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+    }
+
+    static final class OfByte extends NumericArray {
+        private final byte[] values;
+
+        OfByte(byte[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.BYTE;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public long getLong(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+    }
+
+    static final class OfBoolean extends NumericArray {
+        private final boolean[] values;
+
+        OfBoolean(boolean[] values, long[] shape) {
+            super(shape, values.length);
+            this.values = values;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.BOOLEAN;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            return values[(int) index] ? 1 : 0;
+        }
+
+        @Override
+        public long getLong(long index) {
+            return values[(int) index] ? 1 : 0;
+        }
+
+        @Override
+        public boolean getBoolean(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public Object get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public boolean[] toBooleanArray() {
+            return values;
+        }
+    }
+
+    static final class OfConstant extends NumericArray {
+        private final ElementType type;
+        private final long longValue;
+        private final double doubleValue;
+
+        OfConstant(ElementType type, long longValue, double doubleValue, long[] shape) {
+            super(shape, shapeSize(shape));
+            this.type = type;
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return type;
+        }
+
+        @Override
+        public boolean isVirtual() {
+            return true;
+        }
+
+        private void checkIndex(long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+        }
+
+        @Override
+        public double getDouble(long index) {
+            checkIndex(index);
+            return doubleValue;
+        }
+
+        @Override
+        public long getLong(long index) {
+            checkIndex(index);
+            return longValue;
+        }
+
+        @Override
+        public Object get(long index) {
+            checkIndex(index);
+            switch (type) {
+                case BOOLEAN: return longValue != 0;
+                case LONG: return longValue;
+                default: return doubleValue;
+            }
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            double[] result = new double[checkedSize()];
+            Arrays.fill(result, doubleValue);
+            return result;
+        }
+
+        @Override
+        public long[] toLongArray() {
+            long[] result = new long[checkedSize()];
+            Arrays.fill(result, longValue);
+            return result;
+        }
+    }
+
+    static final class OfLattice extends NumericArray {
+        private final ElementType type;
+        private final long longStart;
+        private final double doubleStart;
+        private final long[] longSteps;
+        private final double[] doubleSteps;
+
+        OfLattice(ElementType type, long longStart, double doubleStart, long[] longSteps, double[] doubleSteps, long[] shape) {
+            super(shape, shapeSize(shape));
+            int nbSteps = longSteps != null ? longSteps.length : doubleSteps.length;
+            if (nbSteps != shape.length) {
+                throw new IllegalArgumentException(nbSteps + " steps given for the shape " + Arrays.toString(shape));
+            }
+            this.type = type;
+            this.longStart = longStart;
+            this.doubleStart = doubleStart;
+            this.longSteps = longSteps;
+            this.doubleSteps = doubleSteps;
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return type;
+        }
+
+        @Override
+        public boolean isVirtual() {
+            return true;
+        }
+
+        private void checkFlatIndex(long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+        }
+
+        /* the index in each dimension of a flat index */
+        private long[] indices(long index) {
+            checkFlatIndex(index);
+            long[] indices = new long[shape.length];
+            for (int d = shape.length - 1; d >= 0; d--) {
+                indices[d] = index % shape[d];
+                index /= shape[d];
+            }
+            return indices;
+        }
+
+        @Override
+        public double getDouble(long index) {
+            if (type == ElementType.LONG) {
+                return getLong(index);
+            }
+            if (shape.length == 1) {
+                checkFlatIndex(index);
+                return doubleStart + index * doubleSteps[0];
+            }
+            long[] indices = indices(index);
+            double value = doubleStart;
+            for (int d = 0; d < indices.length; d++) {
+                value += indices[d] * doubleSteps[d];
+            }
+            return value;
+        }
+
+        @Override
+        public long getLong(long index) {
+            if (type == ElementType.DOUBLE) {
+                return (long) getDouble(index);
+            }
+            if (shape.length == 1) {
+                checkFlatIndex(index);
+                return longStart + index * longSteps[0];
+            }
+            long[] indices = indices(index);
+            long value = longStart;
+            for (int d = 0; d < indices.length; d++) {
+                value += indices[d] * longSteps[d];
+            }
+            return value;
+        }
+
+        @Override
+        public Object get(long index) {
+            return type == ElementType.LONG ? (Object) getLong(index) : (Object) getDouble(index);
+        }
+    }
+
+    /**
+     * Values read from a {@link ByteBuffer}, see {@link #ofBuffer(ByteBuffer, ElementType, long...)}.
+     */
+    public static final class OfBuffer extends NumericArray {
+        private final ByteBuffer buffer;
+        private final ElementType type;
+
+        OfBuffer(ByteBuffer buffer, ElementType type, long[] shape) {
+            super(shape, shapeSize(shape));
+            this.buffer = buffer.slice().order(buffer.order());
+            this.type = type;
+        }
+
+        /**
+         * @return a read-only view of the values bytes, positioned on the first value
+         */
+        public ByteBuffer getBuffer() {
+            return buffer.asReadOnlyBuffer().order(buffer.order());
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return type;
+        }
+
+        private int position(long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return (int) (index * type.getSize());
+        }
+
+        @Override
+        public double getDouble(long index) {
+            int p = position(index);
+            switch (type) {
+                case DOUBLE: return buffer.getDouble(p);
+                case FLOAT: return buffer.getFloat(p);
+                default: return getLong(index);
+            }
+        }
+
+        @Override
+        public long getLong(long index) {
+            int p = position(index);
+            switch (type) {
+                case DOUBLE: return (long) buffer.getDouble(p);
+                case FLOAT: return (long) buffer.getFloat(p);
+                case LONG: return buffer.getLong(p);
+                case INT: return buffer.getInt(p);
+                case SHORT: return buffer.getShort(p);
+                default: return buffer.get(p);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(long index) {
+            return type == ElementType.BOOLEAN ? buffer.get(position(index)) != 0 : super.getBoolean(index);
+        }
+
+        @Override
+        public Object get(long index) {
+            int p = position(index);
+            switch (type) {
+                case DOUBLE: return buffer.getDouble(p);
+                case FLOAT: return buffer.getFloat(p);
+                case LONG: return buffer.getLong(p);
+                case INT: return buffer.getInt(p);
+                case SHORT: return buffer.getShort(p);
+                case BYTE: return buffer.get(p);
+                default: return buffer.get(p) != 0;
+            }
+        }
+
+        /**
+         * @return a copy of the values (bulk copy if the element type is DOUBLE)
+         */
+        @Override
+        public double[] toDoubleArray() {
+            if (type != ElementType.DOUBLE) {
+                return super.toDoubleArray();
+            }
+            double[] result = new double[checkedSize()];
+            buffer.duplicate().order(buffer.order()).asDoubleBuffer().get(result);
+            return result;
+        }
+
+        @Override
+        public float[] toFloatArray() {
+            if (type != ElementType.FLOAT) {
+                return super.toFloatArray();
+            }
+            float[] result = new float[checkedSize()];
+            buffer.duplicate().order(buffer.order()).asFloatBuffer().get(result);
+            return result;
+        }
+
+        @Override
+        public long[] toLongArray() {
+            if (type != ElementType.LONG) {
+                return super.toLongArray();
+            }
+            long[] result = new long[checkedSize()];
+            buffer.duplicate().order(buffer.order()).asLongBuffer().get(result);
+            return result;
+        }
+
+        @Override
+        public int[] toIntArray() {
+            if (type != ElementType.INT) {
+                return super.toIntArray();
+            }
+            int[] result = new int[checkedSize()];
+            buffer.duplicate().order(buffer.order()).asIntBuffer().get(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The nodes of a 2 dimensions lattice of 3d points (e.g. the geometry of a Grid2dRepresentation) :
+ * point(i, j) = origin + (spacing sum of the i first rows) * slowestVector + (spacing sum of the j first columns) * fastestVector.
+ * Points can be computed one by one, or generated in a flat array of interleaved x, y, z.
+ */
+public class Point3dLattice {
+    /* Grids with less points are generated in the calling thread */
+    private static final int PARALLEL_MIN_SIZE = 1 << 16;
+
+    private final double[] origin;
+    private final double[] slowestVector;
+    private final double[] fastestVector;
+    private final double[] slowestOffsets;
+    private final double[] fastestOffsets;
+
+    /**
+     * @param origin the first point (x, y, z)
+     * @param slowestVector the direction of the rows (x, y, z)
+     * @param slowestSpacing the distance between two consecutive rows, along slowestVector
+     * @param nbRows the number of rows, at most slowestSpacing.length + 1
+     * @param fastestVector the direction of the columns (x, y, z)
+     * @param fastestSpacing the distance between two consecutive columns, along fastestVector
+     * @param nbColumns the number of columns, at most fastestSpacing.length + 1
+     */
+    public Point3dLattice(double[] origin, double[] slowestVector, double[] slowestSpacing, int nbRows,
+                          double[] fastestVector, double[] fastestSpacing, int nbColumns) {
+        if (nbRows > slowestSpacing.length + 1 || nbColumns > fastestSpacing.length + 1) {
+            throw new IllegalArgumentException("Lattice of " + nbRows + "x" + nbColumns + " points with only "
+                    + slowestSpacing.length + "x" + fastestSpacing.length + " spacings");
+        }
+        this.origin = origin.clone();
+        this.slowestVector = slowestVector.clone();
+        this.fastestVector = fastestVector.clone();
+        this.slowestOffsets = cumulativeSum(slowestSpacing, nbRows);
+        this.fastestOffsets = cumulativeSum(fastestSpacing, nbColumns);
+    }
+
+    private static double[] cumulativeSum(double[] spacing, int count) {
+        double[] offsets = new double[Math.max(count, 0)];
+        for (int k = 1; k < offsets.length; k++) {
+            offsets[k] = offsets[k - 1] + spacing[k - 1];
+        }
+        return offsets;
+    }
+
+    public int getNbRows() {
+        return slowestOffsets.length;
+    }
+
+    public int getNbColumns() {
+        return fastestOffsets.length;
+    }
+
+    public long size() {
+        return (long) getNbRows() * getNbColumns();
+    }
+
+    /**
+     * @return the coordinate c (0 for x, 1 for y, 2 for z) of the point of row i and column j
+     */
+    public double getCoordinate(int i, int j, int c) {
+        return origin[c] + slowestOffsets[i] * slowestVector[c] + fastestOffsets[j] * fastestVector[c];
+    }
+
+    /**
+     * @return the point of row i and column j (x, y, z)
+     */
+    public double[] point(int i, int j) {
+        double[] point = new double[3];
+        point(i, j, point, 0);
+        return point;
+    }
+
+    /**
+     * Writes the point of row i and column j (x, y, z) in dest, from destOffset.
+     */
+    public void point(int i, int j, double[] dest, int destOffset) {
+        double s = slowestOffsets[i];
+        double f = fastestOffsets[j];
+        dest[destOffset] = origin[0] + s * slowestVector[0] + f * fastestVector[0];
+        dest[destOffset + 1] = origin[1] + s * slowestVector[1] + f * fastestVector[1];
+        dest[destOffset + 2] = origin[2] + s * slowestVector[2] + f * fastestVector[2];
+    }
+
+    /**
+     * @return all the points, row by row, as interleaved x, y, z. Big lattices are generated in parallel by rows.
+     */
+    public double[] toXyzArray() {
+        long n = size() * 3;
+        if (n > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Lattice of " + size() + " points can not be copied in a java array");
+        }
+        double[] xyz = new double[(int) n];
+        int nbColumns = getNbColumns();
+        IntStream rows = IntStream.range(0, getNbRows());
+        if (size() >= PARALLEL_MIN_SIZE) {
+            rows = rows.parallel();
+        }
+        rows.forEach(i -> {
+            for (int j = 0, p = i * nbColumns * 3; j < nbColumns; j++, p += 3) {
+                point(i, j, xyz, p);
+            }
+        });
+        return xyz;
+    }
+
+    /**
+     * @return the points in an array of shape (nbRows, nbColumns, 3)
+     */
+    public NumericArray toNumericArray() {
+        return NumericArray.of(toXyzArray(), getNbRows(), getNbColumns(), 3);
+    }
+
+    /**
+     * Boxed view of a grid of points stored as interleaved x, y, z (e.g. given by {@link #toXyzArray()}), as a list
+     * of rows of points. The coordinates can be modified with List.set, which writes in xyz.
+     */
+    public static List<List<List<Double>>> asPointListView(double[] xyz, int nbRows, int nbColumns) {
+        if ((long) nbRows * nbColumns * 3 > xyz.length) {
+            throw new IllegalArgumentException(xyz.length + " coordinates for a grid of " + nbRows + "x" + nbColumns + " points");
+        }
+        return new AbstractList<>() {
+            @Override
+            public List<List<Double>> get(int i) {
+                checkIndex(i, nbRows);
+                return new AbstractList<>() {
+                    @Override
+                    public List<Double> get(int j) {
+                        checkIndex(j, nbColumns);
+                        return new PointView(xyz, (i * nbColumns + j) * 3);
+                    }
+
+                    @Override
+                    public int size() {
+                        return nbColumns;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return nbRows;
+            }
+        };
+    }
+
+    private static void checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+    }
+
+    /* A point of a flat array of coordinates */
+    private static final class PointView extends AbstractList<Double> {
+        private final double[] xyz;
+        private final int offset;
+
+        PointView(double[] xyz, int offset) {
+            this.xyz = xyz;
+            this.offset = offset;
+        }
+
+        @Override
+        public Double get(int c) {
+            checkIndex(c, 3);
+            return xyz[offset + c];
+        }
+
+        @Override
+        public Double set(int c, Double value) {
+            checkIndex(c, 3);
+            double previous = xyz[offset + c];
+            xyz[offset + c] = value;
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return 3;
+        }
+    }
+}
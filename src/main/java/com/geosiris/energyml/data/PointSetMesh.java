@@ -29,9 +29,19 @@ public class PointSetMesh extends AbstractMesh{
         this.identifier = identifier;
     }
 
+    /**
+     * @param xyz the points as interleaved x, y, z (not copied)
+     */
+    public PointSetMesh(Object energymlObject, Object crsObject, double[] xyz, String identifier) {
+        this.energymlObject = energymlObject;
+        this.crsObject = crsObject;
+        this.xyz = xyz;
+        this.identifier = identifier;
+    }
+
     @Override
     public Long getNbPoints() {
-        return this.pointList != null ? this.pointList.size() : 0L;
+        return countPoints();
     }
 
     @Override
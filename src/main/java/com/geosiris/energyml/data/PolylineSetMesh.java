@@ -23,6 +23,8 @@ import java.util.List;
 public class PolylineSetMesh extends AbstractMesh{
 
     private List<List<Long>> line_indices;
+    /** The point indices of each line, null if the mesh is built from lists */
+    private JaggedArray lineIndexArray;
 
     public PolylineSetMesh(Object energymlObject, Object crsObject, List<List<Double>> point_list, String identifier, List<List<Long>> line_indices) {
         this.energymlObject = energymlObject;
@@ -32,13 +34,35 @@ public class PolylineSetMesh extends AbstractMesh{
         this.line_indices = line_indices;
     }
 
+    /**
+     * @param xyz the points as interleaved x, y, z (not copied)
+     * @param lineIndices the point indices of each line
+     */
+    public PolylineSetMesh(Object energymlObject, Object crsObject, double[] xyz, String identifier, JaggedArray lineIndices) {
+        this.energymlObject = energymlObject;
+        this.crsObject = crsObject;
+        this.xyz = xyz;
+        this.identifier = identifier;
+        this.lineIndexArray = lineIndices;
+    }
+
+    /**
+     * @return the point indices of each line, a copy for the meshes built from lists
+     */
+    public JaggedArray getLineIndices() {
+        return lineIndexArray != null ? lineIndexArray : JaggedArray.fromRows(line_indices);
+    }
+
     @Override
     public Long getNbPoints() {
-        return this.pointList != null ? this.pointList.size() : 0L;
+        return countPoints();
     }
 
     @Override
     public Long getNbEdge() {
+        if (lineIndexArray != null) {
+            return lineIndexArray.getNbValues() - lineIndexArray.getNbRows();
+        }
         return line_indices.stream()
                 .map(l -> ((long)l.size()) - 1L)
                 .reduce(Long::sum).orElseGet(null);
@@ -49,8 +73,15 @@ public class PolylineSetMesh extends AbstractMesh{
         return 0L;
     }
 
+    /**
+     * @return the point indices of each line : a read-only view of {@link #getLineIndices()}, or the list given to
+     * the constructor
+     */
     @Override
     public List<List<Long>> getEdgeIndices() {
+        if (line_indices == null && lineIndexArray != null) {
+            line_indices = lineIndexArray.asLongListView();
+        }
         return line_indices;
     }
 
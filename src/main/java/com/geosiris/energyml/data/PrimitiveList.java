@@ -0,0 +1,348 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of numbers or booleans stored in a primitive array, e.g. the values of an energyml XmlArray. It can
+ * be used as a List of boxed values (values are boxed when read) and read without boxing with
+ * {@link #toNumericArray()}.
+ * @param <T> the boxed type : Double, Long or Boolean
+ */
+public abstract class PrimitiveList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    protected int size;
+
+    public static OfDouble ofDoubles() {
+        return new OfDouble(new double[16], 0);
+    }
+
+    public static OfLong ofLongs() {
+        return new OfLong(new long[16], 0);
+    }
+
+    public static OfBoolean ofBooleans() {
+        return new OfBoolean(new boolean[16], 0);
+    }
+
+    /**
+     * @return an empty list of the boxed type of an element type (DOUBLE for FLOAT, LONG for the other integers)
+     */
+    public static PrimitiveList<?> of(NumericArray.ElementType type) {
+        switch (type) {
+            case DOUBLE: case FLOAT: return ofDoubles();
+            case BOOLEAN: return ofBooleans();
+            default: return ofLongs();
+        }
+    }
+
+    /**
+     * @return a list of a copy of the values of an array, converted to the boxed type of elementType
+     */
+    public static PrimitiveList<?> copyOf(NumericArray values, NumericArray.ElementType elementType) {
+        if (values.size() > MAX_SIZE) {
+            throw new UnsupportedOperationException("List of " + values.size() + " values is not supported");
+        }
+        int n = (int) values.size();
+        // the to*Array methods may return the backing array of values
+        boolean sameType = values.getElementType() == of(elementType).getElementType();
+        switch (elementType) {
+            case DOUBLE: case FLOAT: return new OfDouble(sameType ? values.toDoubleArray().clone() : values.toDoubleArray(), n);
+            case BOOLEAN: return new OfBoolean(sameType ? values.toBooleanArray().clone() : values.toBooleanArray(), n);
+            default: return new OfLong(sameType ? values.toLongArray().clone() : values.toLongArray(), n);
+        }
+    }
+
+    /**
+     * @return the element type of the values : DOUBLE, LONG or BOOLEAN
+     */
+    public abstract NumericArray.ElementType getElementType();
+
+    /**
+     * Returns the values as a 1 dimension array, without copy : the array is a view of the current values, it is
+     * not updated by the values added after this call.
+     */
+    public NumericArray toNumericArray() {
+        trimToSize();
+        return wrap();
+    }
+
+    /* The array over the backing storage, which has exactly size values */
+    protected abstract NumericArray wrap();
+
+    protected abstract int capacity();
+
+    protected abstract void resize(int capacity);
+
+    /**
+     * Reduces the storage to the number of values.
+     */
+    public void trimToSize() {
+        if (capacity() != size) {
+            resize(size);
+        }
+    }
+
+    /* Ensures room for one more value */
+    protected void grow() {
+        if (size == capacity()) {
+            if (size == MAX_SIZE) {
+                throw new UnsupportedOperationException("List of more than " + MAX_SIZE + " values is not supported");
+            }
+            resize((int) Math.min(MAX_SIZE, Math.max(16, size + (long) (size >> 1))));
+        }
+    }
+
+    protected void checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    public static final class OfDouble extends PrimitiveList<Double> {
+        private double[] values;
+
+        OfDouble(double[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        public void addDouble(double value) {
+            grow();
+            values[size++] = value;
+            modCount++;
+        }
+
+        public double getDouble(int index) {
+            checkIndex(index, size);
+            return values[index];
+        }
+
+        @Override
+        public Double get(int index) {
+            return getDouble(index);
+        }
+
+        @Override
+        public Double set(int index, Double value) {
+            checkIndex(index, size);
+            double previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Double value) {
+            checkIndex(index, size + 1);
+            grow();
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public Double remove(int index) {
+            checkIndex(index, size);
+            double previous = values[index];
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        public NumericArray.ElementType getElementType() {
+            return NumericArray.ElementType.DOUBLE;
+        }
+
+        @Override
+        protected NumericArray wrap() {
+            return NumericArray.of(values);
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    public static final class OfLong extends PrimitiveList<Long> {
+        private long[] values;
+
+        OfLong(long[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        public void addLong(long value) {
+            grow();
+            values[size++] = value;
+            modCount++;
+        }
+
+        public long getLong(int index) {
+            checkIndex(index, size);
+            return values[index];
+        }
+
+        @Override
+        public Long get(int index) {
+            return getLong(index);
+        }
+
+        @Override
+        public Long set(int index, Long value) {
+            checkIndex(index, size);
+            long previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Long value) {
+            checkIndex(index, size + 1);
+            grow();
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public Long remove(int index) {
+            checkIndex(index, size);
+            long previous = values[index];
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        public NumericArray.ElementType getElementType() {
+            return NumericArray.ElementType.LONG;
+        }
+
+        @Override
+        protected NumericArray wrap() {
+            return NumericArray.of(values);
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    public static final class OfBoolean extends PrimitiveList<Boolean> {
+        private boolean[] values;
+
+        OfBoolean(boolean[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        public void addBoolean(boolean value) {
+            grow();
+            values[size++] = value;
+            modCount++;
+        }
+
+        public boolean getBoolean(int index) {
+            checkIndex(index, size);
+            return values[index];
+        }
+
+        @Override
+        public Boolean get(int index) {
+            return getBoolean(index);
+        }
+
+        @Override
+        public Boolean set(int index, Boolean value) {
+            checkIndex(index, size);
+            boolean previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Boolean value) {
+            checkIndex(index, size + 1);
+            grow();
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public Boolean remove(int index) {
+            checkIndex(index, size);
+            boolean previous = values[index];
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        public NumericArray.ElementType getElementType() {
+            return NumericArray.ElementType.BOOLEAN;
+        }
+
+        @Override
+        protected NumericArray wrap() {
+            return NumericArray.of(values);
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+}
@@ -30,6 +30,8 @@ import java.util.stream.Collectors;
 
 public class SurfaceMesh extends AbstractMesh{
     private List<List<Long>> facesIndices;
+    /** The point indices of each face, null if the mesh is built from lists */
+    private JaggedArray faceIndexArray;
 
     public SurfaceMesh(Object energymlObject, Object crsObject, List<List<Double>> point_list, String identifier, List<List<Long>> faces_indices) {
         this.energymlObject = energymlObject;
@@ -39,13 +41,35 @@ public class SurfaceMesh extends AbstractMesh{
         this.facesIndices = faces_indices;
     }
 
+    /**
+     * @param xyz the points as interleaved x, y, z (not copied)
+     * @param facesIndices the point indices of each face
+     */
+    public SurfaceMesh(Object energymlObject, Object crsObject, double[] xyz, String identifier, JaggedArray facesIndices) {
+        this.energymlObject = energymlObject;
+        this.crsObject = crsObject;
+        this.xyz = xyz;
+        this.identifier = identifier;
+        this.faceIndexArray = facesIndices;
+    }
+
+    /**
+     * @return the point indices of each face, a copy for the meshes built from lists
+     */
+    public JaggedArray getFaceIndices() {
+        return faceIndexArray != null ? faceIndexArray : JaggedArray.fromRows(facesIndices);
+    }
+
     @Override
     public Long getNbPoints() {
-        return this.pointList != null ? this.pointList.size() : 0L;
+        return countPoints();
     }
 
     @Override
     public Long getNbEdge() {
+        if (faceIndexArray != null) {
+            return faceIndexArray.getNbValues() - faceIndexArray.getNbRows();
+        }
         if(facesIndices == null || facesIndices.size() == 0){
             return 0L;
         }else {
@@ -57,11 +81,18 @@ public class SurfaceMesh extends AbstractMesh{
 
     @Override
     public Long getNbFaces() {
-        return (long) facesIndices.size();
+        return faceIndexArray != null ? faceIndexArray.getNbRows() : (long) facesIndices.size();
     }
 
+    /**
+     * @return the point indices of each face : a read-only view of {@link #getFaceIndices()}, or the list given to
+     * the constructor
+     */
     @Override
     public List<List<Long>> getEdgeIndices() {
+        if (facesIndices == null && faceIndexArray != null) {
+            facesIndices = faceIndexArray.asLongListView();
+        }
         return facesIndices;
     }
 
@@ -181,13 +212,13 @@ public class SurfaceMesh extends AbstractMesh{
             exportObjElt(
                     out,
                     out,
-                    (List<List<Double>>) m.pointList,
+                    (List<List<Double>>) m.getPointList(),
                     m.getEdgeIndices(),
                     useOffset ? pointOffset : 0,
                     new ArrayList<>(),
                     m instanceof PolylineSetMesh ? "l" : "f"
             );
-            pointOffset += m.pointList.size();
+            pointOffset += m.getPointList().size();
             out.write("\n".getBytes(StandardCharsets.UTF_8));
         }
     }
@@ -213,12 +244,12 @@ public class SurfaceMesh extends AbstractMesh{
             exportOffElt(
                     out,
                     out_i,
-                    (List<List<Double>>) m.pointList,
+                    (List<List<Double>>) m.getPointList(),
                     m.getEdgeIndices(),
                     useOffset ? pointOffset : 0,
                     new ArrayList<>()
             );
-            pointOffset += m.pointList.size();
+            pointOffset += m.getPointList().size();
             out.write("\n".getBytes(StandardCharsets.UTF_8));
         }
 
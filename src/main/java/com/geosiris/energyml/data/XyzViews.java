@@ -0,0 +1,159 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.data;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Boxed views of points stored as interleaved x, y, z in a double[] or a float[], as returned by the List based
+ * mesh API. A coordinate can be modified with List.set, which writes in the array.
+ */
+final class XyzViews {
+
+    private XyzViews() {
+    }
+
+    /**
+     * @param xyz a double[] or a float[]
+     * @return the list of the points
+     */
+    static List<List<Double>> ofPoints(Object xyz) {
+        final int nbPoints = getLength(xyz) / 3;
+        return new AbstractList<>() {
+            @Override
+            public List<Double> get(int i) {
+                checkIndex(i, nbPoints);
+                return pointView(xyz, i * 3);
+            }
+
+            @Override
+            public int size() {
+                return nbPoints;
+            }
+        };
+    }
+
+    /**
+     * @param xyz a double[] or a float[] of nbRows * nbColumns points, row after row
+     * @return the rows of points
+     */
+    static List<List<List<Double>>> ofGrid(Object xyz, int nbRows, int nbColumns) {
+        if ((long) nbRows * nbColumns * 3 > getLength(xyz)) {
+            throw new IllegalArgumentException(getLength(xyz) + " coordinates for a grid of " + nbRows + "x" + nbColumns + " points");
+        }
+        return new AbstractList<>() {
+            @Override
+            public List<List<Double>> get(int i) {
+                checkIndex(i, nbRows);
+                return new AbstractList<>() {
+                    @Override
+                    public List<Double> get(int j) {
+                        checkIndex(j, nbColumns);
+                        return pointView(xyz, (i * nbColumns + j) * 3);
+                    }
+
+                    @Override
+                    public int size() {
+                        return nbColumns;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return nbRows;
+            }
+        };
+    }
+
+    static int getLength(Object xyz) {
+        if (xyz instanceof double[]) {
+            return ((double[]) xyz).length;
+        } else if (xyz instanceof float[]) {
+            return ((float[]) xyz).length;
+        }
+        throw new IllegalArgumentException("Not supported coordinates array " + xyz);
+    }
+
+    private static List<Double> pointView(Object xyz, int offset) {
+        return xyz instanceof float[] ? new FloatPointView((float[]) xyz, offset) : new DoublePointView((double[]) xyz, offset);
+    }
+
+    private static void checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+    }
+
+    private static final class DoublePointView extends AbstractList<Double> {
+        private final double[] xyz;
+        private final int offset;
+
+        DoublePointView(double[] xyz, int offset) {
+            this.xyz = xyz;
+            this.offset = offset;
+        }
+
+        @Override
+        public Double get(int c) {
+            checkIndex(c, 3);
+            return xyz[offset + c];
+        }
+
+        @Override
+        public Double set(int c, Double value) {
+            checkIndex(c, 3);
+            double previous = xyz[offset + c];
+            xyz[offset + c] = value;
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return 3;
+        }
+    }
+
+    private static final class FloatPointView extends AbstractList<Double> {
+        private final float[] xyz;
+        private final int offset;
+
+        FloatPointView(float[] xyz, int offset) {
+            this.xyz = xyz;
+            this.offset = offset;
+        }
+
+        @Override
+        public Double get(int c) {
+            checkIndex(c, 3);
+            return (double) xyz[offset + c];
+        }
+
+        @Override
+        public Double set(int c, Double value) {
+            checkIndex(c, 3);
+            double previous = xyz[offset + c];
+            xyz[offset + c] = value.floatValue();
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return 3;
+        }
+    }
+}
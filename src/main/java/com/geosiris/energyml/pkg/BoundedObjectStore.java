@@ -0,0 +1,548 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Object store for an {@link EPCFile} read from a file (see {@link EPCFile#read(String, EPCPackageManager, BoundedObjectStore)}),
+ * keeping only part of the energyml objects in memory.
+ * Objects read from the epc archive are "clean" : they may be evicted, depending on the {@link EvictionPolicy}, and are
+ * read again from the archive when accessed. Objects added or replaced with {@link #put(String, Object)} are "dirty"
+ * and stay in memory until the epc is exported with {@link EPCFile#export(String)}, the exported file then becomes
+ * the source archive.
+ * A clean object returned by {@link #get(Object)} is returned again (not read from the archive) as long as it is
+ * referenced outside of the store, even if it has been evicted. An object edited in place (e.g. with
+ * ObjectController.editObjectAttribute) must be marked with {@link #markDirty(String)} (or put again) : otherwise
+ * the edit is lost once the object is no longer referenced and is read again from the archive.
+ * The map keys are the identifiers of all the objects, loaded or not. Iterating over values or entries loads the
+ * objects one by one.
+ */
+public class BoundedObjectStore extends AbstractMap<String, Object> implements Closeable {
+    public static Logger logger = LogManager.getLogger(BoundedObjectStore.class);
+
+    public enum EvictionPolicy {
+        /** Keeps at most 'capacity' clean objects, the least recently used are evicted first */
+        LRU_COUNT,
+        /** Keeps clean objects until the sum of their part sizes (uncompressed xml bytes) exceeds 'capacity' */
+        LRU_SIZE,
+        /** Clean objects are kept with soft references, evicted by the garbage collector when memory is needed */
+        SOFT_REFERENCES
+    }
+
+    private final EvictionPolicy policy;
+    private final long capacity;
+
+    /** identifier -> part path in the source archive, for every object that can be read again */
+    private final Map<String, String> partPaths;
+    /** identifier -> uncompressed size of the part */
+    private final Map<String, Long> partSizes;
+    /** objects that are not in the source archive (or modified), never evicted */
+    private final Map<String, Object> dirtyObjects;
+    /** number of identifiers in partPaths or dirtyObjects */
+    private int nbIdentifiers;
+    /** clean objects for LRU policies, in access order */
+    private final LinkedHashMap<String, Object> lruObjects;
+    /** clean objects for SOFT_REFERENCES policy */
+    private final Map<String, SoftReference<Object>> softObjects;
+    private long lruSize;
+    /** clean objects returned by get, while they are referenced outside of the store */
+    private final Map<String, HandedOutReference> handedOut;
+    private final ReferenceQueue<Object> handedOutQueue;
+
+    private EPCPackageManager pkgManager;
+    private String sourcePath;
+    private ZipFile sourceZip;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public BoundedObjectStore(EvictionPolicy policy, long capacity) {
+        this.policy = policy;
+        this.capacity = capacity;
+        this.partPaths = new HashMap<>();
+        this.partSizes = new HashMap<>();
+        this.dirtyObjects = new LinkedHashMap<>();
+        this.lruObjects = new LinkedHashMap<>(16, 0.75f, true);
+        this.softObjects = new HashMap<>();
+        this.lruSize = 0;
+        this.nbIdentifiers = 0;
+        this.handedOut = new HashMap<>();
+        this.handedOutQueue = new ReferenceQueue<>();
+    }
+
+    /* Weak reference to an object returned by get, removed from handedOut once collected */
+    private static final class HandedOutReference extends WeakReference<Object> {
+        final String identifier;
+
+        HandedOutReference(String identifier, Object obj, ReferenceQueue<Object> queue) {
+            super(obj, queue);
+            this.identifier = identifier;
+        }
+    }
+
+    public static BoundedObjectStore lruByCount(int maxObjects) {
+        return new BoundedObjectStore(EvictionPolicy.LRU_COUNT, maxObjects);
+    }
+
+    public static BoundedObjectStore lruBySize(long maxPartBytes) {
+        return new BoundedObjectStore(EvictionPolicy.LRU_SIZE, maxPartBytes);
+    }
+
+    public static BoundedObjectStore softReferences() {
+        return new BoundedObjectStore(EvictionPolicy.SOFT_REFERENCES, Long.MAX_VALUE);
+    }
+
+    /* Source archive, used to read evicted objects again */
+    synchronized void setSource(EPCPackageManager pkgManager, String sourcePath) throws IOException {
+        closeSource();
+        this.pkgManager = pkgManager;
+        this.sourcePath = sourcePath;
+    }
+
+    /**
+     * Adds a clean object, read from the part partPath of the source archive.
+     */
+    synchronized void putFromSource(String identifier, Object obj, String partPath, long partSize) {
+        boolean known = isKnown(identifier);
+        partPaths.put(identifier, partPath);
+        partSizes.put(identifier, partSize);
+        dirtyObjects.remove(identifier);
+        updateCount(identifier, known);
+        handedOut.remove(identifier);
+        cache(identifier, obj);
+    }
+
+    /**
+     * Pins in memory the objects that are not part of an export, before the source archive is replaced.
+     */
+    synchronized void pinNotExported(Set<String> exportedIdentifiers) {
+        for (String identifier : new ArrayList<>(partPaths.keySet())) {
+            if (!exportedIdentifiers.contains(identifier) && !dirtyObjects.containsKey(identifier)) {
+                Object obj = get(identifier);
+                if (obj != null) {
+                    removeCached(identifier);
+                    dirtyObjects.put(identifier, obj);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once the epc has been exported to newSourcePath : exported objects become clean and can be evicted.
+     * @param exportedParts identifier -> part path in the new archive
+     * @param exportedSizes identifier -> uncompressed size of the part in the new archive
+     */
+    synchronized void onExported(String newSourcePath, Map<String, String> exportedParts, Map<String, Long> exportedSizes) throws IOException {
+        Map<String, Object> exportedDirty = new LinkedHashMap<>();
+        for (String identifier : exportedParts.keySet()) {
+            Object obj = dirtyObjects.remove(identifier);
+            if (obj != null) {
+                exportedDirty.put(identifier, obj);
+            }
+        }
+        setSource(pkgManager, newSourcePath);
+        partPaths.clear();
+        partSizes.clear();
+        partPaths.putAll(exportedParts);
+        partSizes.putAll(exportedSizes);
+        nbIdentifiers = partPaths.size();
+        for (String identifier : dirtyObjects.keySet()) {
+            if (!partPaths.containsKey(identifier)) {
+                nbIdentifiers++;
+            }
+        }
+        // cached objects keep their place, their weight may have changed
+        lruSize = 0;
+        for (String identifier : lruObjects.keySet()) {
+            lruSize += weight(identifier);
+        }
+        for (Map.Entry<String, Object> e : exportedDirty.entrySet()) {
+            cache(e.getKey(), e.getValue());
+            // the callers that put or edited it may still reference it
+            handOut(e.getKey(), e.getValue());
+        }
+    }
+
+    private boolean isKnown(String identifier) {
+        return partPaths.containsKey(identifier) || dirtyObjects.containsKey(identifier);
+    }
+
+    /* Updates the identifiers count after a change of the identifier, known telling if it was counted before */
+    private void updateCount(String identifier, boolean known) {
+        boolean nowKnown = isKnown(identifier);
+        if (nowKnown != known) {
+            nbIdentifiers += nowKnown ? 1 : -1;
+        }
+    }
+
+    private void cache(String identifier, Object obj) {
+        if (policy == EvictionPolicy.SOFT_REFERENCES) {
+            softObjects.put(identifier, new SoftReference<>(obj));
+            return;
+        }
+        Object previous = lruObjects.put(identifier, obj);
+        if (previous == null) {
+            lruSize += weight(identifier);
+        }
+        Iterator<Map.Entry<String, Object>> it = lruObjects.entrySet().iterator();
+        while (lruSize > capacity && it.hasNext()) {
+            String eldest = it.next().getKey();
+            if (eldest.equals(identifier) && lruObjects.size() == 1) {
+                // always keep the object just accessed
+                break;
+            }
+            it.remove();
+            lruSize -= weight(eldest);
+            evictionCount++;
+        }
+    }
+
+    private long weight(String identifier) {
+        return policy == EvictionPolicy.LRU_SIZE ? partSizes.getOrDefault(identifier, 0L) : 1;
+    }
+
+    private Object getCached(String identifier) {
+        if (policy == EvictionPolicy.SOFT_REFERENCES) {
+            SoftReference<Object> ref = softObjects.get(identifier);
+            if (ref == null) {
+                return null;
+            }
+            Object obj = ref.get();
+            if (obj == null) {
+                softObjects.remove(identifier);
+                evictionCount++;
+            }
+            return obj;
+        }
+        return lruObjects.get(identifier);
+    }
+
+    private Object removeCached(String identifier) {
+        if (policy == EvictionPolicy.SOFT_REFERENCES) {
+            SoftReference<Object> ref = softObjects.remove(identifier);
+            return ref != null ? ref.get() : null;
+        }
+        Object removed = lruObjects.remove(identifier);
+        if (removed != null) {
+            lruSize -= weight(identifier);
+        }
+        return removed;
+    }
+
+    private Object readFromSource(String identifier) {
+        String partPath = partPaths.get(identifier);
+        if (partPath == null || sourcePath == null) {
+            return null;
+        }
+        try {
+            if (sourceZip == null) {
+                sourceZip = new ZipFile(sourcePath);
+            }
+            ZipEntry entry = sourceZip.getEntry(partPath);
+            if (entry == null) {
+                logger.error("@readFromSource part {} not found in {}", partPath, sourcePath);
+                return null;
+            }
+            try (InputStream is = sourceZip.getInputStream(entry)) {
+                return pkgManager.unmarshal(is.readAllBytes()).getValue();
+            }
+        } catch (Exception e) {
+            logger.error("@readFromSource failed to read {} from {} : {}", partPath, sourcePath, e.getMessage());
+            logger.debug(e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /* The object returned earlier by get if it is still referenced, null otherwise */
+    private Object getHandedOut(String identifier) {
+        expungeHandedOut();
+        HandedOutReference ref = handedOut.get(identifier);
+        return ref != null ? ref.get() : null;
+    }
+
+    private void handOut(String identifier, Object obj) {
+        HandedOutReference ref = handedOut.get(identifier);
+        if (ref == null || ref.get() != obj) {
+            handedOut.put(identifier, new HandedOutReference(identifier, obj, handedOutQueue));
+        }
+    }
+
+    private void expungeHandedOut() {
+        HandedOutReference ref;
+        while ((ref = (HandedOutReference) handedOutQueue.poll()) != null) {
+            handedOut.remove(ref.identifier, ref);
+        }
+    }
+
+    private void closeSource() throws IOException {
+        if (sourceZip != null) {
+            sourceZip.close();
+            sourceZip = null;
+        }
+    }
+
+    /* --------------------------------------------------- */
+
+    @Override
+    public synchronized Object get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String identifier = (String) key;
+        Object obj = dirtyObjects.get(identifier);
+        if (obj != null) {
+            hitCount++;
+            return obj;
+        }
+        obj = getCached(identifier);
+        if (obj == null && partPaths.containsKey(identifier)) {
+            // an evicted object still referenced by a caller may have been edited in place : it is kept
+            obj = getHandedOut(identifier);
+            if (obj != null) {
+                cache(identifier, obj);
+            }
+        }
+        if (obj != null) {
+            hitCount++;
+            handOut(identifier, obj);
+            return obj;
+        }
+        if (!partPaths.containsKey(identifier)) {
+            return null;
+        }
+        missCount++;
+        obj = readFromSource(identifier);
+        if (obj != null) {
+            cache(identifier, obj);
+            handOut(identifier, obj);
+        }
+        return obj;
+    }
+
+    /**
+     * Pins an object edited in place until the next {@link EPCFile#export(String)}, as {@link #put(String, Object)}
+     * does for a new object : it is no longer evicted, so the edit is not lost.
+     * @return false if there is no object with this identifier
+     */
+    public synchronized boolean markDirty(String identifier) {
+        if (dirtyObjects.containsKey(identifier)) {
+            return true;
+        }
+        Object obj = get(identifier);
+        if (obj == null) {
+            return false;
+        }
+        removeCached(identifier);
+        handedOut.remove(identifier);
+        dirtyObjects.put(identifier, obj);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return dirtyObjects.containsKey(key) || partPaths.containsKey(key);
+    }
+
+    /**
+     * Adds or replaces an object. It is pinned in memory until the next {@link EPCFile#export(String)}.
+     * @return the previous object if it was in memory, null otherwise (evicted objects are not read again)
+     */
+    @Override
+    public synchronized Object put(String identifier, Object obj) {
+        boolean known = isKnown(identifier);
+        Object previous = dirtyObjects.put(identifier, obj);
+        updateCount(identifier, known);
+        Object cached = removeCached(identifier);
+        handedOut.remove(identifier);
+        return previous != null ? previous : cached;
+    }
+
+    /**
+     * @return the removed object if it was in memory, null otherwise
+     */
+    @Override
+    public synchronized Object remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String identifier = (String) key;
+        boolean known = isKnown(identifier);
+        partPaths.remove(identifier);
+        Object cached = removeCached(identifier);
+        partSizes.remove(identifier);
+        handedOut.remove(identifier);
+        Object previous = dirtyObjects.remove(identifier);
+        updateCount(identifier, known);
+        return previous != null ? previous : cached;
+    }
+
+    @Override
+    public synchronized void clear() {
+        partPaths.clear();
+        partSizes.clear();
+        dirtyObjects.clear();
+        lruObjects.clear();
+        softObjects.clear();
+        handedOut.clear();
+        lruSize = 0;
+        nbIdentifiers = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return nbIdentifiers;
+    }
+
+    private Set<String> identifiers() {
+        Set<String> identifiers = new LinkedHashSet<>(partPaths.keySet());
+        identifiers.addAll(dirtyObjects.keySet());
+        return identifiers;
+    }
+
+    /**
+     * Entries are computed on a snapshot of the identifiers, values are read when {@link Map.Entry#getValue()} is called.
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<String> keys;
+                synchronized (BoundedObjectStore.this) {
+                    keys = new ArrayList<>(identifiers()).iterator();
+                }
+                return new Iterator<>() {
+                    private String current = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        current = keys.next();
+                        String identifier = current;
+                        return new Entry<>() {
+                            @Override
+                            public String getKey() {
+                                return identifier;
+                            }
+
+                            @Override
+                            public Object getValue() {
+                                return get(identifier);
+                            }
+
+                            @Override
+                            public Object setValue(Object value) {
+                                return put(identifier, value);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        BoundedObjectStore.this.remove(current);
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return BoundedObjectStore.this.size();
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeSource();
+    }
+
+    /* --------------------------------------------------- */
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of objects currently in memory (dirty or cached)
+     */
+    public synchronized int getLoadedCount() {
+        int count = dirtyObjects.size() + lruObjects.size();
+        for (SoftReference<Object> ref : softObjects.values()) {
+            if (ref.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized int getDirtyCount() {
+        return dirtyObjects.size();
+    }
+
+    public synchronized boolean isDirty(String identifier) {
+        return dirtyObjects.containsKey(identifier);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized void resetCounters() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BoundedObjectStore{" + policy + " capacity=" + capacity + ", objects=" + size()
+                + ", loaded=" + getLoadedCount() + ", dirty=" + dirtyObjects.size()
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+}
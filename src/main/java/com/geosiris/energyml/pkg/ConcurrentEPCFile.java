@@ -0,0 +1,235 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import com.geosiris.energyml.utils.CompactIdentifier;
+import com.geosiris.energyml.utils.ExportVersion;
+import com.geosiris.energyml.utils.ObjectController;
+import com.geosiris.energyml.utils.StringIdentifierMap;
+import energyml.core_properties.CoreProperties;
+import energyml.relationships.Relationship;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * An {@link EPCFile} that can be shared between threads.
+ * Objects, other files and rels are stored in concurrent maps so reads never lock. Mutations must go through
+ * {@link #putObject(Object)} and {@link #removeObject(String)}: they are serialized per uuid with striped locks,
+ * so writers on different objects do not block each other, and they keep a version index (uuid to object versions)
+ * and a relationship index (identifier to referenced/referencing identifiers) up to date.
+ * Objects and indexes are keyed by {@link CompactIdentifier}, the String identifiers of the API are parsed on access.
+ * Modifying the maps returned by {@link #getEnergymlObjects()} directly bypasses these indexes.
+ */
+public class ConcurrentEPCFile extends EPCFile {
+    public static Logger logger = LogManager.getLogger(ConcurrentEPCFile.class);
+
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+
+    private final ReentrantLock[] locks;
+
+    /** uuid (identifier without version) -> object versions ("" for objects without version) */
+    private final Map<CompactIdentifier, Set<String>> versionIndex;
+    /** identifier -> identifiers of the objects referenced by this object (DataObjectReferences) */
+    private final Map<CompactIdentifier, Set<CompactIdentifier>> targetIndex;
+    /** identifier -> identifiers of the objects referencing this object */
+    private final Map<CompactIdentifier, Set<CompactIdentifier>> sourceIndex;
+
+    public ConcurrentEPCFile(EPCPackageManager pkgManager, ExportVersion version, CoreProperties coreProperties, int nbLockStripes) {
+        super(pkgManager, version, coreProperties, new StringIdentifierMap<>(new ConcurrentHashMap<>()), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        this.locks = new ReentrantLock[Math.max(1, nbLockStripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.versionIndex = new ConcurrentHashMap<>();
+        this.targetIndex = new ConcurrentHashMap<>();
+        this.sourceIndex = new ConcurrentHashMap<>();
+    }
+
+    public ConcurrentEPCFile(EPCPackageManager pkgManager, ExportVersion version, CoreProperties coreProperties) {
+        this(pkgManager, version, coreProperties, DEFAULT_LOCK_STRIPES);
+    }
+
+    public ConcurrentEPCFile(EPCPackageManager pkgManager) {
+        this(pkgManager, ExportVersion.EXPANDED, createDefaultCoreProperties());
+    }
+
+    /**
+     * Copies the content of an already read epc. The objects are shared, not cloned.
+     */
+    public static ConcurrentEPCFile fromEPCFile(EPCFile epc) {
+        ConcurrentEPCFile result = new ConcurrentEPCFile(epc.pkgManager, epc.getVersion(), epc.getCoreProperties());
+        result.filePath = epc.getFilePath();
+        result.otherFiles.putAll(epc.getOtherFiles());
+        for (Map.Entry<Object, List<Relationship>> rels : epc.getAdditionalRels().entrySet()) {
+            result.additionalRels.put(rels.getKey(), new CopyOnWriteArrayList<>(rels.getValue()));
+        }
+        for (Object o : epc.getEnergymlObjects().values()) {
+            result.putObject(o);
+        }
+        return result;
+    }
+
+    public static ConcurrentEPCFile read(String filePath, EPCPackageManager pkgManager) throws FileNotFoundException {
+        return fromEPCFile(EPCFile.read(filePath, pkgManager));
+    }
+
+    public static ConcurrentEPCFile read(InputStream input, EPCPackageManager pkgManager) {
+        return fromEPCFile(EPCFile.read(input, pkgManager));
+    }
+
+    private ReentrantLock getLock(CompactIdentifier key) {
+        return locks[Math.floorMod(key.withoutVersion().hashCode(), locks.length)];
+    }
+
+    /**
+     * Adds (or replaces) an object, identified by its uuid and object version.
+     * @return the object previously stored with the same identifier, or null
+     */
+    @java.lang.Override
+    public Object putObject(Object obj) {
+        String identifier = getIdentifier(obj);
+        CompactIdentifier key = CompactIdentifier.parse(identifier);
+        List<CompactIdentifier> targets = ObjectController.findSubObjects(obj, "DataObjectReference", true).stream()
+                .map(dor -> {
+                    try {
+                        return CompactIdentifier.parse(getIdentifier(dor));
+                    } catch (Exception e) {
+                        logger.debug("@putObject invalid DOR in {}: {}", identifier, e.getMessage());
+                    }
+                    return null;
+                }).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        ReentrantLock lock = getLock(key);
+        lock.lock();
+        try {
+            Object previous = energymlObjects.put(identifier, obj);
+            if (previous != null) {
+                unindexTargets(key);
+            }
+            versionIndex.computeIfAbsent(key.withoutVersion(), k -> ConcurrentHashMap.newKeySet())
+                    .add(Objects.requireNonNullElse(key.getVersion(), ""));
+            Set<CompactIdentifier> targetSet = ConcurrentHashMap.newKeySet();
+            targetSet.addAll(targets);
+            targetIndex.put(key, targetSet);
+            for (CompactIdentifier target : targetSet) {
+                // compute is atomic for the key: the set can not be dropped by unindexTargets while adding
+                sourceIndex.compute(target, (k, sources) -> {
+                    if (sources == null) {
+                        sources = ConcurrentHashMap.newKeySet();
+                    }
+                    sources.add(key);
+                    return sources;
+                });
+            }
+            updateAccessibleDORIndex(previous, obj);
+            invalidateCaches(identifier);
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes an object and its additional rels.
+     * @return the removed object, or null if no object was stored with this identifier
+     */
+    @java.lang.Override
+    public Object removeObject(String identifier) {
+        CompactIdentifier key = CompactIdentifier.parse(identifier);
+        ReentrantLock lock = getLock(key);
+        lock.lock();
+        try {
+            Object removed = energymlObjects.remove(identifier);
+            if (removed != null) {
+                unindexTargets(key);
+                Set<String> versions = versionIndex.get(key.withoutVersion());
+                if (versions != null) {
+                    versions.remove(Objects.requireNonNullElse(key.getVersion(), ""));
+                    if (versions.isEmpty()) {
+                        versionIndex.remove(key.withoutVersion());
+                    }
+                }
+                additionalRels.remove(identifier);
+                updateAccessibleDORIndex(removed, null);
+                invalidateCaches(identifier);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Must be called while holding the lock of the identifier uuid */
+    private void unindexTargets(CompactIdentifier key) {
+        Set<CompactIdentifier> oldTargets = targetIndex.remove(key);
+        if (oldTargets != null) {
+            for (CompactIdentifier target : oldTargets) {
+                sourceIndex.computeIfPresent(target, (k, sources) -> {
+                    sources.remove(key);
+                    return sources.isEmpty() ? null : sources;
+                });
+            }
+        }
+    }
+
+    public void addAdditionalRel(String identifier, Relationship rel) {
+        additionalRels.computeIfAbsent(identifier, k -> new CopyOnWriteArrayList<>()).add(rel);
+    }
+
+    @java.lang.Override
+    public Object getObjectByIdentifier(String identifier) {
+        return identifier != null ? energymlObjects.get(identifier) : null;
+    }
+
+    @java.lang.Override
+    public List<String> getAllVersions(String uuid) {
+        Set<String> versions = uuid != null ? versionIndex.get(CompactIdentifier.of(uuid, null)) : null;
+        if (versions == null) {
+            return new ArrayList<>();
+        }
+        return versions.stream().map(v -> v.isEmpty() ? null : v).collect(Collectors.toList());
+    }
+
+    /**
+     * @return identifiers of the objects referenced by the object identified by identifier
+     */
+    public Set<String> getTargetIdentifiers(String identifier) {
+        return toIdentifiers(targetIndex.get(CompactIdentifier.parse(identifier)));
+    }
+
+    /**
+     * @return identifiers of the objects referencing the object identified by identifier
+     */
+    public Set<String> getSourceIdentifiers(String identifier) {
+        return toIdentifiers(sourceIndex.get(CompactIdentifier.parse(identifier)));
+    }
+
+    private static Set<String> toIdentifiers(Set<CompactIdentifier> keys) {
+        if (keys == null) {
+            return Set.of();
+        }
+        return keys.stream().map(CompactIdentifier::toString).collect(Collectors.toUnmodifiableSet());
+    }
+}
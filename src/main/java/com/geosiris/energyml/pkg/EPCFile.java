@@ -15,6 +15,8 @@ limitations under the License.
 */
 package com.geosiris.energyml.pkg;
 
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.exception.ObjectNotFoundNotError;
 import com.geosiris.energyml.utils.*;
 import energyml.content_types.Default;
 import energyml.content_types.Override;
@@ -22,6 +24,7 @@ import energyml.content_types.Types;
 import energyml.core_properties.CoreProperties;
 import energyml.relationships.Relationship;
 import energyml.relationships.Relationships;
+import io.jhdf.HdfFile;
 import jakarta.xml.bind.JAXBException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -30,10 +33,16 @@ import org.purl.dc.elements._1.SimpleLiteral;
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.io.*;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -44,6 +53,7 @@ public class EPCFile implements EnergymlWorkspace{
 
     /**
      * Energyml files mapped by <Identifier>. The different versions of the object identified by the identifier (see. @getIdentifier) are stored in a list.
+     * By default the identifiers are stored as {@link CompactIdentifier} (see {@link StringIdentifierMap}).
      */
     Map<String, Object> energymlObjects;
 
@@ -59,6 +69,16 @@ public class EPCFile implements EnergymlWorkspace{
 
     String filePath;
 
+    /** Access to the entries of the archive at filePath, created on first use */
+    private EpcArchiveReader archiveReader;
+
+    /** Supporting geometry caches of the workspaces reading this epc, invalidated when an object changes */
+    private final Set<SupportingGeometryCache> geometryCaches = new CopyOnWriteArraySet<>();
+
+    /** Objects by class, built on first use and then updated by putObject and removeObject */
+    private volatile AccessibleDORIndex accessibleDORIndex;
+    private final Object accessibleDORIndexLock = new Object();
+
     public EPCFile(EPCPackageManager pkgManager, ExportVersion version, CoreProperties coreProperties, Map<String, Object> energymlObjects, Map<String, InputStream> otherFiles, Map<Object, List<Relationship>> additionalRels ) {
         this.energymlObjects = energymlObjects;
         this.otherFiles = otherFiles;
@@ -70,7 +90,7 @@ public class EPCFile implements EnergymlWorkspace{
     }
 
     public EPCFile(EPCPackageManager pkgManager, ExportVersion version, CoreProperties coreProperties){
-        this(pkgManager, version, coreProperties, new HashMap<>(), new HashMap<>(), new HashMap<>());
+        this(pkgManager, version, coreProperties, new StringIdentifierMap<>(), new HashMap<>(), new HashMap<>());
     }
 
     public EPCFile(EPCPackageManager pkgManager, ExportVersion version){
@@ -83,14 +103,55 @@ public class EPCFile implements EnergymlWorkspace{
     }
 
     public EPCFile(EPCPackageManager pkgManager){
-        this(pkgManager, ExportVersion.EXPANDED);
+        this(pkgManager, ExportVersion.EXPANDED, createDefaultCoreProperties());
+    }
+
+    public static CoreProperties createDefaultCoreProperties(){
+        CoreProperties coreProperties = new CoreProperties();
         coreProperties.setVersion("1.0");
         SimpleLiteral sl_creator = new SimpleLiteral();
         sl_creator.getContent().add("energyml-utils (Geosiris: http://www.geosiris.com)");
         coreProperties.setCreator(sl_creator);
+        return coreProperties;
     }
 
     public void export(OutputStream os) throws IOException {
+        export(os, new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Exports the epc to a file. If the objects are stored in a {@link BoundedObjectStore}, the exported file becomes
+     * the archive evicted objects are read from, and the modified objects are no more pinned in memory.
+     * The file may be the one the epc has been read from.
+     * @param exportFilePath the path of the epc file to write
+     */
+    public void export(String exportFilePath) throws IOException {
+        Path target = Paths.get(exportFilePath).toAbsolutePath();
+        if (!(energymlObjects instanceof BoundedObjectStore)) {
+            try (OutputStream os = new FileOutputStream(target.toFile())) {
+                export(os);
+            }
+            return;
+        }
+        BoundedObjectStore store = (BoundedObjectStore) energymlObjects;
+        Map<String, String> exportedParts = new HashMap<>();
+        Map<String, Long> exportedSizes = new HashMap<>();
+        // the current archive is still read while exporting
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = new FileOutputStream(tmp.toFile())) {
+                export(os, exportedParts, exportedSizes);
+            }
+            store.pinNotExported(exportedParts.keySet());
+            store.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        store.onExported(target.toString(), exportedParts, exportedSizes);
+    }
+
+    private void export(OutputStream os, Map<String, String> exportedParts, Map<String, Long> exportedSizes) throws IOException {
         try(ZipOutputStream zos = new ZipOutputStream(os)){
             // Non energyml entries :
             for(Map.Entry<String, InputStream> e : otherFiles.entrySet()){
@@ -137,6 +198,9 @@ public class EPCFile implements EnergymlWorkspace{
                     zos.putNextEntry(ze_obj);
                     this.pkgManager.marshal(o, zos);
                     zos.closeEntry();
+                    String oId = getIdentifier(o);
+                    exportedParts.put(oId, pathInEPC);
+                    exportedSizes.put(oId, ze_obj.getSize());
 
                     Override overrideObjContentType = new Override();
                     overrideObjContentType.setContentType(EPCGenericManager.getObjectContentType(o, true));
@@ -151,9 +215,9 @@ public class EPCFile implements EnergymlWorkspace{
             relsDefaultCT.setExtension("rels");
             contentTypeFile.getDefaultOrOverride().add(relsDefaultCT);
 
-            Map<Object, Relationships> relsList = computeRelations();
-            for(Map.Entry<Object, Relationships> rels: relsList.entrySet()){
-                String pathInEPC = OPCRelsPackage.genRelsPathInEPC(rels.getKey(), this.version);
+            Map<String, Relationships> relsList = computeRelationsByIdentifier();
+            for(Map.Entry<String, Relationships> rels: relsList.entrySet()){
+                String pathInEPC = OPCRelsPackage.genRelsPathInEPC(energymlObjects.get(rels.getKey()), this.version);
                 ZipEntry ze_objRels = new ZipEntry(pathInEPC);
                 zos.putNextEntry(ze_objRels);
                 EPCGenericManager.marshal(OPCRelsPackage.JAXB_CONTEXT, null, rels.getValue(), zos);
@@ -221,14 +285,251 @@ public class EPCFile implements EnergymlWorkspace{
         return null;
     }
 
+    /**
+     * To be called once an object of the epc has been edited in place : if the objects are stored in a
+     * {@link BoundedObjectStore}, the object is pinned in memory until the next export instead of being evicted and
+     * read again from the archive (see {@link BoundedObjectStore#markDirty(String)}).
+     */
+    public void markModified(String identifier) {
+        if (energymlObjects instanceof BoundedObjectStore) {
+            ((BoundedObjectStore) energymlObjects).markDirty(identifier);
+        }
+        invalidateCaches(identifier);
+    }
+
+    /**
+     * Adds (or replaces) an object, identified by its uuid and object version.
+     * @return the object previously stored with the same identifier, or null
+     */
+    public Object putObject(Object obj) {
+        String identifier = getIdentifier(obj);
+        // a bounded store only returns the previous object if it is still cached
+        Object replaced = accessibleDORIndex != null ? energymlObjects.get(identifier) : null;
+        Object previous = energymlObjects.put(identifier, obj);
+        updateAccessibleDORIndex(replaced != null ? replaced : previous, obj);
+        invalidateCaches(identifier);
+        return previous;
+    }
+
+    /**
+     * Removes an object.
+     * @return the removed object, or null if no object was stored with this identifier
+     */
+    public Object removeObject(String identifier) {
+        Object removed = energymlObjects.remove(identifier);
+        updateAccessibleDORIndex(removed, null);
+        invalidateCaches(identifier);
+        return removed;
+    }
+
+    /**
+     * The index is built from all the objects on first call (with a {@link BoundedObjectStore}, they are then all
+     * kept in memory), and updated by {@link #putObject(Object)} and {@link #removeObject(String)} : objects put or
+     * removed directly in {@link #getEnergymlObjects()} afterwards are not seen.
+     */
+    @java.lang.Override
+    public AccessibleDORIndex getAccessibleDORIndex() {
+        AccessibleDORIndex index = accessibleDORIndex;
+        if (index == null) {
+            synchronized (accessibleDORIndexLock) {
+                index = accessibleDORIndex;
+                if (index == null) {
+                    index = new AccessibleDORIndex(energymlObjects.values());
+                    accessibleDORIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /* Replaces 'removed' by 'added' in the index if it has been built, after the change of energymlObjects */
+    void updateAccessibleDORIndex(Object removed, Object added) {
+        if (accessibleDORIndex == null) {
+            return;
+        }
+        synchronized (accessibleDORIndexLock) {
+            accessibleDORIndex.remove(removed);
+            accessibleDORIndex.add(added);
+        }
+    }
+
+    void addSupportingGeometryCache(SupportingGeometryCache cache) {
+        geometryCaches.add(cache);
+    }
+
+    void removeSupportingGeometryCache(SupportingGeometryCache cache) {
+        geometryCaches.remove(cache);
+    }
+
+    /* Drops what the caches computed from an object that has been put, removed or modified */
+    void invalidateCaches(String identifier) {
+        for (SupportingGeometryCache cache : geometryCaches) {
+            cache.invalidate(identifier);
+        }
+    }
+
     @java.lang.Override
     public Object getObjectByUUID(String uuid) {
         return getObject(uuid, null);
     }
 
+    /**
+     * Reads an external array stored in the epc archive (an h5 file or a raw binary file, see
+     * {@link #readExternalNumericArray(Object, Object, String)}).
+     * @throws ObjectNotFoundNotError if the epc has no archive file or if the external file is not in the archive
+     */
     @java.lang.Override
-    public List<?> readExternalArray(Object energyml_array, Object root_obj, String pathInRoot) {
-        return List.of();
+    public List<?> readExternalArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return (List<?>) readEmbeddedArray(energyml_array, root_obj, false);
+    }
+
+    /**
+     * Reads an external array stored in the epc archive at {@link #getFilePath()}. Stored entries are memory-mapped
+     * without copy, deflated ones are inflated once and kept while memory allows it.
+     * The entry may be an h5 file, or a raw binary file : a one-dimensional array of the type given by the
+     * ArrayFloatingPointType / ArrayIntegerType of the array (64 bits little-endian floats or integers by default),
+     * the selection of the external part being the start index (first value) and the count.
+     * @throws ObjectNotFoundNotError if the epc has no archive file or if the external file is not in the archive
+     */
+    @java.lang.Override
+    public NumericArray readExternalNumericArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return (NumericArray) readEmbeddedArray(energyml_array, root_obj, true);
+    }
+
+    /* Returns a NumericArray if numeric, a List otherwise */
+    private Object readEmbeddedArray(Object energyml_array, Object root_obj, boolean numeric) throws ObjectNotFoundNotError {
+        EpcArchiveReader reader = getArchiveReader();
+        if (reader == null) {
+            throw new ObjectNotFoundNotError("External arrays can not be read, the epc has no archive file : " + filePath);
+        }
+        List<String> references = EpcHdf5FileManager.getHdf5PathFromExternalPath(energyml_array, null, root_obj, this);
+        try {
+            String entryName = reader.findEntry(references);
+            if (entryName == null) {
+                throw new ObjectNotFoundNotError(String.format("No entry of %s found for %s", filePath, references));
+            }
+            long[][] selection = EnergymlWorkspaceHelper.getExternalArraySelection(energyml_array);
+            ByteBuffer content = reader.getContent(entryName);
+            if (EpcArchiveReader.isHdf5(content)) {
+                HdfFile hdfFile = reader.getHdfFile(entryName);
+                String pathInExternal = EnergymlWorkspaceHelper.getHdfReference(energyml_array).get(0);
+                if (!numeric && !EpcHdf5FileManager.isNumericDataset(hdfFile.getDatasetByPath(pathInExternal))) {
+                    return EpcHdf5FileManager.getDatasetValues(hdfFile, pathInExternal);
+                }
+                NumericArray values = EpcHdf5FileManager.readDatasetPart(hdfFile, getEntryPath(entryName), null, pathInExternal, selection, null, false);
+                return numeric ? values : values.toList();
+            }
+            NumericArray values = readRawArray(energyml_array, content, selection);
+            return numeric ? values : values.toList();
+        } catch (IOException | RuntimeException e) {
+            logger.debug(e);
+            throw new ObjectNotFoundNotError(String.format("Failed to read %s from %s : %s", references, filePath, e.getMessage()));
+        }
+    }
+
+    /**
+     * @return the entry of the h5 file stored in the epc archive for one of the references, null if there is none
+     */
+    String findEmbeddedHdfEntry(List<String> references) {
+        EpcArchiveReader reader = getArchiveReader();
+        try {
+            String entryName = reader != null ? reader.findEntry(references) : null;
+            if (entryName != null && EpcArchiveReader.isHdf5(reader.getContent(entryName))) {
+                return entryName;
+            }
+        } catch (IOException e) {
+            logger.debug("@findEmbeddedHdfEntry {} : {}", references, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * @return the h5 file of an entry of the epc archive (see {@link #findEmbeddedHdfEntry(List)}), null if it can not be read
+     */
+    HdfFile getEmbeddedHdfFile(String entryName) {
+        EpcArchiveReader reader = getArchiveReader();
+        try {
+            return reader != null ? reader.getHdfFile(entryName) : null;
+        } catch (IOException e) {
+            logger.debug("@getEmbeddedHdfFile {} : {}", entryName, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * @return the path of an entry of the epc archive, 'EPC_FILE_PATH!/ENTRY_NAME', used to identify the files
+     * stored in the archive (e.g. in caches)
+     */
+    String getEntryPath(String entryName) {
+        return filePath + "!/" + entryName;
+    }
+
+    /**
+     * @return the entry name of a path given by {@link #getEntryPath(String)}, null if it is not an entry of this epc
+     */
+    String getEntryName(String entryPath) {
+        String prefix = getEntryPath("");
+        return filePath != null && entryPath.startsWith(prefix) ? entryPath.substring(prefix.length()) : null;
+    }
+
+    private synchronized EpcArchiveReader getArchiveReader() {
+        if (archiveReader == null && filePath != null && Files.isRegularFile(Paths.get(filePath))) {
+            archiveReader = new EpcArchiveReader(filePath);
+        }
+        return archiveReader;
+    }
+
+    /* Values of a raw binary file : signed values are read from the content without copy, unsigned ones are widened */
+    private static NumericArray readRawArray(Object energyml_array, ByteBuffer content, long[][] selection) {
+        List<Object> types = ObjectController.searchAttributeMatchingName(energyml_array, "^Array(FloatingPoint|Integer)Type$",
+                Pattern.CASE_INSENSITIVE, "", false, false);
+        String typeName;
+        if (!types.isEmpty() && types.get(0) instanceof Enum) {
+            typeName = ((Enum<?>) types.get(0)).name();
+        } else {
+            String arrayType = energyml_array.getClass().getSimpleName();
+            typeName = arrayType.contains("Boolean") ? "BOOLEAN" : arrayType.contains("Integer") ? "INT_64_LE" : "DOUBLE_64_LE";
+        }
+        NumericArray.ElementType type;
+        if (typeName.contains("DOUBLE_64")) {
+            type = NumericArray.ElementType.DOUBLE;
+        } else if (typeName.contains("FLOAT_32")) {
+            type = NumericArray.ElementType.FLOAT;
+        } else if (typeName.contains("INT_64")) {
+            type = NumericArray.ElementType.LONG;
+        } else if (typeName.contains("INT_32")) {
+            type = NumericArray.ElementType.INT;
+        } else if (typeName.contains("INT_16")) {
+            type = NumericArray.ElementType.SHORT;
+        } else if (typeName.contains("INT_8")) {
+            type = NumericArray.ElementType.BYTE;
+        } else {
+            type = NumericArray.ElementType.BOOLEAN;
+        }
+        boolean unsigned = typeName.contains("U_INT") && type != NumericArray.ElementType.LONG;
+
+        long firstValue = selection != null ? selection[0][0] : 0;
+        long[] shape = selection != null ? selection[1] : new long[]{content.remaining() / type.getSize() - firstValue};
+        long nbValues = NumericArray.shapeSize(shape);
+        if (firstValue < 0 || (firstValue + nbValues) * type.getSize() > content.remaining()) {
+            throw new IndexOutOfBoundsException("Selection of " + nbValues + " values from " + firstValue + " is out of the "
+                    + content.remaining() / type.getSize() + " values of the file");
+        }
+        ByteBuffer values = content.duplicate().order(typeName.endsWith("_BE") ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        values.position(values.position() + (int) (firstValue * type.getSize()));
+        NumericArray.OfBuffer raw = NumericArray.ofBuffer(values, type, shape);
+        if (!unsigned) {
+            return raw;
+        }
+        long[] widened = new long[(int) nbValues];
+        long mask = type == NumericArray.ElementType.BYTE ? 0xFFL : type == NumericArray.ElementType.SHORT ? 0xFFFFL : 0xFFFFFFFFL;
+        for (int i = 0; i < widened.length; i++) {
+            widened[i] = raw.getLong(i) & mask;
+        }
+        if (type == NumericArray.ElementType.INT) {
+            return NumericArray.of(widened, shape);
+        }
+        return NumericArray.of(Arrays.stream(widened).mapToInt(v -> (int) v).toArray(), shape);
     }
 
     public List<String> getAllVersions(String uuid){
@@ -240,62 +541,58 @@ public class EPCFile implements EnergymlWorkspace{
 
     public Map<Object, Relationships> computeRelations(){
         Map<Object, Relationships> relations = new HashMap<>();
+        for(Map.Entry<String, Relationships> rels: computeRelationsByIdentifier().entrySet()){
+            relations.put(energymlObjects.get(rels.getKey()), rels.getValue());
+        }
+        return relations;
+    }
 
-        Map<Object, List<Object>> sourceRels = new HashMap<>();
-        Map<Object, List<Object>> destRels = new HashMap<>();
-
-        for(Object o: this.energymlObjects.values()){
-            destRels.put(o, ObjectController.findSubObjects(o, "DataObjectReference", true).stream()
+    /**
+     * Computes the rels of each object, mapped by object identifier.
+     * Objects are only accessed through their identifier so they do not have to stay in memory
+     * (see {@link BoundedObjectStore}).
+     */
+    Map<String, Relationships> computeRelationsByIdentifier(){
+        Map<String, Relationships> relations = new HashMap<>();
+
+        Map<String, String> pathsInEpc = new HashMap<>();
+        Map<String, List<String>> sourceRels = new HashMap<>();
+        Map<String, List<String>> destRels = new HashMap<>();
+
+        for(Map.Entry<String, Object> e: this.energymlObjects.entrySet()){
+            String oId = e.getKey();
+            Object o = e.getValue();
+            pathsInEpc.put(oId, EPCGenericManager.genPathInEPC(o, version));
+            destRels.put(oId, ObjectController.findSubObjects(o, "DataObjectReference", true).stream()
                     .map(obj -> {
                         try{
-                            Object rel = getObjectByIdentifier(getIdentifier(obj));
-                            if(!sourceRels.containsKey(rel)){
-                                sourceRels.put(rel, new ArrayList<>());
+                            String relId = getIdentifier(obj);
+                            if(energymlObjects.containsKey(relId)) {
+                                sourceRels.computeIfAbsent(relId, k -> new ArrayList<>()).add(oId);
+                                return relId;
                             }
-                            sourceRels.get(rel).add(o);
-                            return rel;
                         }catch (Exception ignore){}
                         return null;
                     }).filter(Objects::nonNull)
                     .collect(Collectors.toList()));
         }
 
-        for(Object o: this.energymlObjects.values()){
-            Path o_parentFolder = Paths.get(EPCGenericManager.genPathInEPC(o, version)).getParent();
+        for(Map.Entry<String, String> e: pathsInEpc.entrySet()){
+            String oId = e.getKey();
+            Path o_parentFolder = Paths.get(e.getValue()).getParent();
             Relationships rels = new Relationships();
-            relations.put(o, rels);
-            if (sourceRels.containsKey(o)){
-                for(Object source: new HashSet<>(sourceRels.get(o))){
-                    String s_uuid = getUuid(source);
-                    String s_objVersion = getObjectVersion(source);
-                    Relationship rel = new Relationship();
-                    rel.setType(EPCRelsRelationshipType.SourceObject.getType());
-                    rel.setId(URLEncoder.encode(s_uuid + (s_objVersion!= null ? "_" + s_objVersion : ""), Charset.defaultCharset()));
-                    if(o_parentFolder != null) {
-                        rel.setTarget(o_parentFolder.relativize(Paths.get(EPCGenericManager.genPathInEPC(source, version))).toString());
-                    }else{
-                        rel.setTarget(EPCGenericManager.genPathInEPC(source, version));
-                    }
-                    rels.getRelationship().add(rel);
+            relations.put(oId, rels);
+            if (sourceRels.containsKey(oId)){
+                for(String source: new HashSet<>(sourceRels.get(oId))){
+                    rels.getRelationship().add(createRelationship(EPCRelsRelationshipType.SourceObject, source, pathsInEpc.get(source), o_parentFolder));
                 }
             }
 
-            if (destRels.containsKey(o)){
-                for(Object dest: new HashSet<>(destRels.get(o))){
-                    String s_uuid = getUuid(dest);
-                    String s_objVersion = getObjectVersion(dest);
-                    Relationship rel = new Relationship();
-                    rel.setType(EPCRelsRelationshipType.DestinationObject.getType());
-                    rel.setId(URLEncoder.encode(s_uuid + (s_objVersion!= null ? "_" + s_objVersion : ""), Charset.defaultCharset()));
-                    if(o_parentFolder != null) {
-                        rel.setTarget(o_parentFolder.relativize(Paths.get(EPCGenericManager.genPathInEPC(dest, version))).toString());
-                    }else{
-                        rel.setTarget(EPCGenericManager.genPathInEPC(dest, version));
-                    }
-                    rels.getRelationship().add(rel);
+            if (destRels.containsKey(oId)){
+                for(String dest: new HashSet<>(destRels.get(oId))){
+                    rels.getRelationship().add(createRelationship(EPCRelsRelationshipType.DestinationObject, dest, pathsInEpc.get(dest), o_parentFolder));
                 }
             }
-            String oId = getIdentifier(o);
             if (additionalRels.containsKey(oId)){
                 for(Relationship r: additionalRels.get(oId)){
                     rels.getRelationship().add(r);
@@ -305,17 +602,50 @@ public class EPCFile implements EnergymlWorkspace{
         return relations;
     }
 
+    private static Relationship createRelationship(EPCRelsRelationshipType relType, String targetId, String targetPath, Path parentFolder){
+        String s_uuid = getUuidFromIdentifier(targetId);
+        String s_objVersion = getObjVersionFromIdentifier(targetId);
+        Relationship rel = new Relationship();
+        rel.setType(relType.getType());
+        rel.setId(URLEncoder.encode(s_uuid + (s_objVersion!= null ? "_" + s_objVersion : ""), Charset.defaultCharset()));
+        if(parentFolder != null) {
+            rel.setTarget(parentFolder.relativize(Paths.get(targetPath)).toString());
+        }else{
+            rel.setTarget(targetPath);
+        }
+        return rel;
+    }
+
     public static EPCFile read(String filePath, EPCPackageManager pkgManager) throws FileNotFoundException {
         EPCFile file = read(new FileInputStream(filePath), pkgManager);
         file.filePath = filePath;
         return file;
     }
 
+    /**
+     * Reads an epc file, keeping its objects in a {@link BoundedObjectStore}: only part of them stays in memory, the
+     * others are read again from the file when needed.
+     */
+    public static EPCFile read(String filePath, EPCPackageManager pkgManager, BoundedObjectStore store) throws IOException {
+        EPCFile epc = new EPCFile(pkgManager, ExportVersion.EXPANDED, createDefaultCoreProperties(), store, new HashMap<>(), new HashMap<>());
+        epc.filePath = filePath;
+        store.setSource(pkgManager, filePath);
+        try (InputStream input = new FileInputStream(filePath)) {
+            read(input, epc);
+        }
+        return epc;
+    }
+
     public static EPCFile read(InputStream input, EPCPackageManager pkgManager){
-        EPCFile epc = new EPCFile(pkgManager);
+        return read(input, new EPCFile(pkgManager));
+    }
+
+    private static EPCFile read(InputStream input, EPCFile epc){
+        EPCPackageManager pkgManager = epc.pkgManager;
+        BoundedObjectStore store = epc.energymlObjects instanceof BoundedObjectStore ? (BoundedObjectStore) epc.energymlObjects : null;
         byte[] buffer = new byte[2048];
 
-        Map<String, Object> mapPathToObject = new HashMap<>();
+        Map<String, String> mapPathToIdentifier = new HashMap<>();
         Map<String, Relationships> mapPathToRelationships = new HashMap<>();
         boolean foundNamespaceFolder = false;
 
@@ -343,8 +673,12 @@ public class EPCFile implements EnergymlWorkspace{
                             if(epc.energymlObjects.containsKey(identifier)){
                                 logger.debug("Duplicate object found for identifier {}", identifier);
                             }
-                            epc.energymlObjects.put(identifier, o);
-                            mapPathToObject.put(entry.getName(), o);
+                            if(store != null){
+                                store.putFromSource(identifier, o, entry.getName(), entryBOS.size());
+                            }else {
+                                epc.energymlObjects.put(identifier, o);
+                            }
+                            mapPathToIdentifier.put(entry.getName(), identifier);
                             if(entry.getName().toLowerCase().startsWith("namespace_")){
                                 foundNamespaceFolder = true;
                             }
@@ -364,12 +698,9 @@ public class EPCFile implements EnergymlWorkspace{
         }
 
         for(Map.Entry<String, Relationships> rels: mapPathToRelationships.entrySet()) {
-            if (mapPathToObject.containsKey(rels.getKey())){
-                Object target = mapPathToObject.get(rels.getKey());
-                String targId = getIdentifier(target);
+            if (mapPathToIdentifier.containsKey(rels.getKey())){
+                String targId = mapPathToIdentifier.get(rels.getKey());
 
-                Pair<String, String> obj_pair = new Pair<>((String) ObjectController.getObjectAttributeValue(target, "uuid"),
-                        getObjectVersion(target));
 //                if(!epc.readRels.containsKey(obj_pair)){
 //                    epc.readRels.put(obj_pair, new ArrayList<>());
 //                }
@@ -386,8 +717,8 @@ public class EPCFile implements EnergymlWorkspace{
                 }
             }else{
                 logger.error("Object " + rels.getKey() + " not found for rels");
-                for(String k: mapPathToObject.keySet()){
-                    logger.debug("\t" + k + " ==> " + mapPathToObject.containsKey(rels.getKey()) + "--" + mapPathToObject.get(rels.getKey()));
+                for(String k: mapPathToIdentifier.keySet()){
+                    logger.debug("\t" + k + " ==> " + mapPathToIdentifier.containsKey(rels.getKey()) + "--" + mapPathToIdentifier.get(rels.getKey()));
                 }
             }
         }
@@ -489,6 +820,13 @@ public class EPCFile implements EnergymlWorkspace{
         return getIdentifier(objUuid, objVersion);
     }
 
+    /**
+     * Compact form of {@link #getIdentifier(Object)}, to use as key for large object indexes.
+     */
+    public static CompactIdentifier getCompactIdentifier(Object obj){
+        return CompactIdentifier.of(getUuid(obj), getObjectVersion(obj));
+    }
+
     public static String getIdentifier(String uuid, String objVersion){
         return uuid + "." + (objVersion != null ? objVersion: "");
     }
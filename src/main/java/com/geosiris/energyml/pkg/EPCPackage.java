@@ -18,6 +18,7 @@ package com.geosiris.energyml.pkg;
 import com.geosiris.energyml.exception.EPCPackageInitializationException;
 import com.geosiris.energyml.utils.ContextBuilder;
 import com.geosiris.energyml.utils.EPCGenericManager;
+import com.geosiris.energyml.utils.XmlArrayParser;
 import jakarta.xml.bind.*;
 import jakarta.xml.bind.util.ValidationEventCollector;
 import org.apache.logging.log4j.LogManager;
@@ -194,9 +195,15 @@ public class EPCPackage {
             vec = new ValidationEventCollector();
             unmarshaller.setEventHandler(vec);
 
-            ByteArrayInputStream bais = new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8));
             long ticUnmarshall_b = System.currentTimeMillis();
-            JAXBElement<?> result = (JAXBElement<?>) unmarshaller.unmarshal(bais);
+            JAXBElement<?> result;
+            if (xmlContent.contains("XmlArray")) {
+                // the XmlArrays values are parsed in primitive lists
+                result = (JAXBElement<?>) XmlArrayParser.unmarshal(unmarshaller, xmlContent);
+            } else {
+                ByteArrayInputStream bais = new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8));
+                result = (JAXBElement<?>) unmarshaller.unmarshal(bais);
+            }
             long ticUnmarshall_e = System.currentTimeMillis();
             logger.debug("\t@parseXmlFromContext : Unmarshalling took " + (ticUnmarshall_e - ticUnmarshall_b) / 1000.0 + "s");
 
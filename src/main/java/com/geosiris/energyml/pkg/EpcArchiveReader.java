@@ -0,0 +1,293 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import io.jhdf.HdfFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Access to the raw content of the entries of an epc archive on disk (e.g. h5 or binary files stored in the epc).
+ * The zip central directory is read once (and again if the archive is modified). Stored entries are memory-mapped
+ * without copy, deflated entries are inflated from the mapped compressed bytes into a buffer that is kept (softly
+ * referenced) for the next reads of the entry. This class is thread-safe.
+ */
+class EpcArchiveReader {
+    public static Logger logger = LogManager.getLogger(EpcArchiveReader.class);
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final byte[] HDF5_SIGNATURE = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+
+    private static class Entry {
+        final String name;
+        final int method;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+        SoftReference<ByteBuffer> content;
+        SoftReference<HdfFile> hdfFile;
+
+        Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.content = new SoftReference<>(null);
+            this.hdfFile = new SoftReference<>(null);
+        }
+    }
+
+    private final Path archivePath;
+    private Map<String, Entry> entries;
+    private long lastModified;
+
+    EpcArchiveReader(String archivePath) {
+        this.archivePath = Paths.get(archivePath).toAbsolutePath().normalize();
+        this.entries = null;
+        this.lastModified = -1;
+    }
+
+    /**
+     * Finds the entry of an external file reference, e.g. "arrays.h5" or "data/arrays.h5". The reference is first
+     * searched as an entry name (relative to the archive root), then by file name.
+     * @param references the possible paths of the file (see {@link EpcHdf5FileManager#getH5PathPossibilities(String, EPCFile)})
+     * @return the entry name, null if none matches
+     */
+    synchronized String findEntry(List<String> references) throws IOException {
+        Map<String, Entry> index = getEntries();
+        for (String reference : references) {
+            String name = reference.replace('\\', '/');
+            while (name.startsWith("./") || name.startsWith("/")) {
+                name = name.substring(name.startsWith("./") ? 2 : 1);
+            }
+            if (index.containsKey(name)) {
+                return name;
+            }
+        }
+        for (String reference : references) {
+            String fileName = Paths.get(reference.replace('\\', '/')).getFileName().toString();
+            for (String name : index.keySet()) {
+                if (name.equals(fileName) || name.endsWith("/" + fileName)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a read-only view of the uncompressed content of an entry, positioned at 0, little-endian
+     */
+    synchronized ByteBuffer getContent(String entryName) throws IOException {
+        Entry entry = getEntries().get(entryName);
+        if (entry == null) {
+            throw new IOException("No entry " + entryName + " in " + archivePath);
+        }
+        ByteBuffer content = entry.content.get();
+        if (content == null) {
+            content = readContent(entry);
+            entry.content = new SoftReference<>(content);
+        }
+        return content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the h5 file of an entry, read from its content without extracting it
+     */
+    synchronized HdfFile getHdfFile(String entryName) throws IOException {
+        Entry entry = getEntries().get(entryName);
+        HdfFile hdfFile = entry != null ? entry.hdfFile.get() : null;
+        if (hdfFile == null) {
+            hdfFile = HdfFile.fromByteBuffer(getContent(entryName));
+            getEntries().get(entryName).hdfFile = new SoftReference<>(hdfFile);
+        }
+        return hdfFile;
+    }
+
+    /**
+     * @return true if the content starts with the h5 signature (at 0 or after a user block of 512, 1024... bytes)
+     */
+    static boolean isHdf5(ByteBuffer content) {
+        for (long offset = 0; offset + HDF5_SIGNATURE.length <= content.limit(); offset = offset == 0 ? 512 : offset * 2) {
+            boolean match = true;
+            for (int i = 0; i < HDF5_SIGNATURE.length && match; i++) {
+                match = content.get((int) offset + i) == HDF5_SIGNATURE[i];
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ByteBuffer readContent(Entry entry) throws IOException {
+        if (entry.size > Integer.MAX_VALUE || entry.compressedSize > Integer.MAX_VALUE) {
+            throw new IOException("Entry " + entry.name + " of " + entry.size + " bytes is too big to be read in memory");
+        }
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+            ByteBuffer localHeader = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, localHeader, entry.localHeaderOffset);
+            if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid local header for " + entry.name + " in " + archivePath);
+            }
+            long dataOffset = entry.localHeaderOffset + 30 + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, entry.compressedSize);
+            if (entry.method == ZipEntry.STORED) {
+                return data.asReadOnlyBuffer();
+            } else if (entry.method == ZipEntry.DEFLATED) {
+                return inflate(entry, data);
+            }
+            throw new IOException("Unsupported compression method " + entry.method + " for " + entry.name);
+        }
+    }
+
+    private static ByteBuffer inflate(Entry entry, ByteBuffer compressed) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate((int) entry.size);
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            while (content.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(content) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated entry " + entry.name);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid deflated entry " + entry.name, e);
+        } finally {
+            inflater.end();
+        }
+        content.flip();
+        return content.asReadOnlyBuffer();
+    }
+
+    private Map<String, Entry> getEntries() throws IOException {
+        long modified = new File(archivePath.toString()).lastModified();
+        if (entries == null || modified != lastModified) {
+            entries = readCentralDirectory();
+            lastModified = modified;
+        }
+        return entries;
+    }
+
+    private Map<String, Entry> readCentralDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            // end of central directory : 22 bytes + comment (up to 65535 bytes)
+            int tailSize = (int) Math.min(fileSize, 22 + 0xFFFF);
+            ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, tail, fileSize - tailSize);
+            int eocd = -1;
+            for (int i = tailSize - 22; i >= 0 && eocd < 0; i--) {
+                if (tail.getInt(i) == EOCD_SIGNATURE) {
+                    eocd = i;
+                }
+            }
+            if (eocd < 0) {
+                throw new IOException(archivePath + " is not a zip file");
+            }
+            long nbEntries = tail.getShort(eocd + 10) & 0xFFFF;
+            long cdSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+            long cdOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+            if (eocd >= 20 && tail.getInt(eocd - 20) == ZIP64_EOCD_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64 = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, zip64, tail.getLong(eocd - 20 + 8));
+                if (zip64.getInt(0) == ZIP64_EOCD_SIGNATURE) {
+                    nbEntries = zip64.getLong(32);
+                    cdSize = zip64.getLong(40);
+                    cdOffset = zip64.getLong(48);
+                }
+            }
+
+            ByteBuffer cd = ByteBuffer.allocate((int) cdSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, cd, cdOffset);
+            Map<String, Entry> result = new HashMap<>();
+            int p = 0;
+            for (long e = 0; e < nbEntries && p + 46 <= cd.limit(); e++) {
+                if (cd.getInt(p) != CENTRAL_HEADER_SIGNATURE) {
+                    throw new IOException("Invalid central directory in " + archivePath);
+                }
+                int method = cd.getShort(p + 10) & 0xFFFF;
+                long compressedSize = cd.getInt(p + 20) & 0xFFFFFFFFL;
+                long size = cd.getInt(p + 24) & 0xFFFFFFFFL;
+                int nameLength = cd.getShort(p + 28) & 0xFFFF;
+                int extraLength = cd.getShort(p + 30) & 0xFFFF;
+                int commentLength = cd.getShort(p + 32) & 0xFFFF;
+                long localHeaderOffset = cd.getInt(p + 42) & 0xFFFFFFFFL;
+                byte[] name = new byte[nameLength];
+                cd.position(p + 46);
+                cd.get(name);
+
+                // zip64 extended information : the values that do not fit in the header, in this order
+                for (int x = p + 46 + nameLength; x + 4 <= p + 46 + nameLength + extraLength; ) {
+                    int id = cd.getShort(x) & 0xFFFF;
+                    int length = cd.getShort(x + 2) & 0xFFFF;
+                    if (id == 0x0001) {
+                        int v = x + 4;
+                        if (size == 0xFFFFFFFFL) {
+                            size = cd.getLong(v);
+                            v += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL) {
+                            compressedSize = cd.getLong(v);
+                            v += 8;
+                        }
+                        if (localHeaderOffset == 0xFFFFFFFFL) {
+                            localHeaderOffset = cd.getLong(v);
+                        }
+                    }
+                    x += 4 + length;
+                }
+                String entryName = new String(name, StandardCharsets.UTF_8);
+                result.put(entryName, new Entry(entryName, method, compressedSize, size, localHeaderOffset));
+                p += 46 + nameLength + extraLength + commentLength;
+            }
+            logger.debug("@readCentralDirectory {} entries in {}", result.size(), archivePath);
+            return result;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -15,35 +15,76 @@ limitations under the License.
 */
 package com.geosiris.energyml.pkg;
 
+import com.geosiris.energyml.data.ExternalArrayInfo;
+import com.geosiris.energyml.data.NumericArray;
 import com.geosiris.energyml.exception.ObjectNotFoundNotError;
+import com.geosiris.energyml.utils.AccessibleDORIndex;
 import com.geosiris.energyml.utils.EnergymlWorkspace;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import com.geosiris.energyml.utils.ExternalArrayRequest;
 import com.geosiris.energyml.utils.ObjectController;
 import energyml.relationships.Relationship;
 import io.jhdf.HdfFile;
 import io.jhdf.api.Dataset;
+import io.jhdf.api.dataset.ChunkedDataset;
+import io.jhdf.api.dataset.ContiguousDataset;
+import io.jhdf.filter.PipelineFilterWithData;
+import io.jhdf.object.datatype.DataType;
+import io.jhdf.object.datatype.FixedPoint;
+import io.jhdf.object.datatype.FloatingPoint;
+import io.jhdf.object.datatype.OrderedDataType;
+import io.jhdf.object.message.DataLayout;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.Closeable;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static com.geosiris.energyml.utils.EnergymlWorkspaceHelper.getExternalArraySelection;
 import static com.geosiris.energyml.utils.EnergymlWorkspaceHelper.getHdfReference;
 import static com.geosiris.energyml.utils.ObjectController.searchAttributeMatchingName;
 import static com.geosiris.energyml.utils.Utils.rawArrayToList;
 
-public class EpcHdf5FileManager implements EnergymlWorkspace {
+public class EpcHdf5FileManager implements EnergymlWorkspace, Closeable {
     public static Logger logger = LogManager.getLogger(EpcHdf5FileManager.class);
 
     private final EPCFile epcFile;
+    private final HdfFileCache hdfFileCache;
+    private final ExternalPathCache externalPathCache;
+    private volatile ExternalArrayCache arrayCache;
+    /** null if supporting geometries are not cached, invalidated by the epc when its objects change */
+    private volatile SupportingGeometryCache supportingGeometryCache;
+    private volatile boolean memoryMapped;
 
-    private EpcHdf5FileManager(EPCFile epc){
+    private EpcHdf5FileManager(EPCFile epc, HdfFileCache hdfFileCache){
         super();
         this.epcFile = epc;
+        this.hdfFileCache = hdfFileCache;
+        this.externalPathCache = new ExternalPathCache();
+        this.arrayCache = null;
+        this.supportingGeometryCache = new SupportingGeometryCache(SupportingGeometryCache.DEFAULT_MAX_BYTES);
+        this.memoryMapped = false;
+        epc.addSupportingGeometryCache(supportingGeometryCache);
+    }
+
+    public EpcHdf5FileManager(EPCFile epc){
+        this(epc, new HdfFileCache());
     }
 
     public static EpcHdf5FileManager readEpc(String epcFilePath) throws FileNotFoundException {
@@ -54,6 +95,10 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
         return new EpcHdf5FileManager(EPCFile.read(epcFilePath, manager));
     }
 
+    public static EpcHdf5FileManager readEpc(String epcFilePath, EPCPackageManager manager, HdfFileCache hdfFileCache) throws FileNotFoundException {
+        return new EpcHdf5FileManager(EPCFile.read(epcFilePath, manager), hdfFileCache);
+    }
+
     public static Number asNumber(Object o, Class<?> o_class){
         if(o_class == Integer.class || o_class == int.class){
             return (Integer) o;
@@ -77,14 +122,343 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
         }
     }
 
+    /**
+     * Reads a dataset, the h5 file is taken from (or opened in) the cache.
+     */
+    public static List<?> getDatasetValues(HdfFileCache hdfFileCache, String filePath, String pathInHdf5){
+        logger.debug("{}, {}", filePath, pathInHdf5);
+        try (HdfFileCache.Handle handle = hdfFileCache.acquire(filePath)) {
+            return getDatasetValues(handle.getFile(), pathInHdf5);
+        }catch (Exception e){
+            logger.error(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Boxed values of a dataset, as nested lists following the dataset dimensions.
+     * Numeric datasets are read with {@link #getDatasetNumericArray(HdfFile, String)}.
+     */
     public static List<?> getDatasetValues(HdfFile hdfFile, String pathInHdf5){
         Dataset dataset = hdfFile.getDatasetByPath(pathInHdf5);
+        if (isNumericDataset(dataset)) {
+            return toNumericArray(dataset).toList();
+        }
         // data will be a Java array with the dimensions of the HDF5 dataset
         Object data = dataset.getData();
         logger.debug("@getDatasetValues {} {} {}", data.getClass().getSimpleName(), data.getClass().isArray(), dataset.getDimensions());
         return rawArrayToList(data);
     }
 
+    public static NumericArray getDatasetNumericArray(String filePath, String pathInHdf5){
+        try (HdfFile hdfFile = new HdfFile(Paths.get(filePath))) {
+            return getDatasetNumericArray(hdfFile, pathInHdf5);
+        }
+    }
+
+    public static NumericArray getDatasetNumericArray(HdfFileCache hdfFileCache, String filePath, String pathInHdf5){
+        try (HdfFileCache.Handle handle = hdfFileCache.acquire(filePath)) {
+            return getDatasetNumericArray(handle.getFile(), pathInHdf5);
+        }
+    }
+
+    /**
+     * Reads a dataset into a flat primitive array, without boxing.
+     * @throws IllegalArgumentException if the dataset does not contain numbers or booleans (e.g. strings)
+     */
+    public static NumericArray getDatasetNumericArray(HdfFile hdfFile, String pathInHdf5){
+        Dataset dataset = hdfFile.getDatasetByPath(pathInHdf5);
+        if (!isNumericDataset(dataset)) {
+            throw new IllegalArgumentException("Dataset " + pathInHdf5 + " of type " + dataset.getJavaType() + " is not numeric");
+        }
+        return toNumericArray(dataset);
+    }
+
+    /**
+     * Memory-maps a dataset of a h5 file, see {@link #mapDataset(HdfFile, String)}.
+     */
+    public static NumericArray.OfBuffer mapDataset(String filePath, String pathInHdf5){
+        try (HdfFile hdfFile = new HdfFile(Paths.get(filePath))) {
+            return mapDataset(hdfFile, pathInHdf5);
+        }
+    }
+
+    /**
+     * Memory-maps the values of a contiguous, unfiltered dataset of signed integers or floats, without copy. The
+     * mapping stays valid after the h5 file is closed.
+     * @return a read-only view of the mapped values, null if the dataset can not be mapped (see
+     * {@link #getMappedElementType(Dataset)})
+     */
+    public static NumericArray.OfBuffer mapDataset(HdfFile hdfFile, String pathInHdf5){
+        return mapDatasetPart(hdfFile, pathInHdf5, null);
+    }
+
+    /**
+     * Memory-maps a dataset if possible, reads it with {@link #getDatasetNumericArray(HdfFile, String)} otherwise
+     * (e.g. for chunked or compressed datasets).
+     */
+    public static NumericArray getDatasetNumericArrayMapped(HdfFile hdfFile, String pathInHdf5){
+        NumericArray mapped = mapDataset(hdfFile, pathInHdf5);
+        return mapped != null ? mapped : getDatasetNumericArray(hdfFile, pathInHdf5);
+    }
+
+    /**
+     * @return the element type of the dataset values if they can be memory-mapped : contiguous and allocated dataset
+     * with no filter, of floats (32 or 64 bits) or signed integers (8, 16, 32 or 64 bits). null otherwise
+     */
+    public static NumericArray.ElementType getMappedElementType(Dataset dataset){
+        if (!(dataset instanceof ContiguousDataset) || dataset.isEmpty() || dataset.isScalar() || !dataset.getFilters().isEmpty()) {
+            return null;
+        }
+        DataType dataType = dataset.getDataType();
+        if (dataType instanceof FloatingPoint) {
+            return dataType.getSize() == 8 ? NumericArray.ElementType.DOUBLE
+                    : dataType.getSize() == 4 ? NumericArray.ElementType.FLOAT : null;
+        } else if (dataType instanceof FixedPoint) {
+            FixedPoint fixedPoint = (FixedPoint) dataType;
+            if (!fixedPoint.isSigned() || fixedPoint.getBitOffset() != 0 || fixedPoint.getBitPrecision() != dataType.getSize() * 8) {
+                return null;
+            }
+            switch (dataType.getSize()) {
+                case 1: return NumericArray.ElementType.BYTE;
+                case 2: return NumericArray.ElementType.SHORT;
+                case 4: return NumericArray.ElementType.INT;
+                case 8: return NumericArray.ElementType.LONG;
+                default: return null;
+            }
+        }
+        return null;
+    }
+
+    /* Maps the dataset, or the part of it selected by {startIndex, count} if the part is contiguous in the file (only
+    the first dimension is partially selected). Returns null if it is not possible */
+    private static NumericArray.OfBuffer mapDatasetPart(HdfFile hdfFile, String pathInHdf5, long[][] selection){
+        Dataset dataset = hdfFile.getDatasetByPath(pathInHdf5);
+        NumericArray.ElementType type = getMappedElementType(dataset);
+        if (type == null || hdfFile.getFile() == null) {
+            return null;
+        }
+        long[] shape = toLongArray(dataset.getDimensions());
+        long firstElement = 0;
+        if (selection != null && selection[0].length == shape.length) {
+            NumericArray.checkSlice(shape, selection[0], selection[1], null);
+            for (int d = 1; d < shape.length; d++) {
+                if (selection[0][d] != 0 || selection[1][d] != shape[d]) {
+                    return null;
+                }
+            }
+            firstElement = selection[0][0] * (NumericArray.shapeSize(shape) / Math.max(1, shape[0]));
+            shape = selection[1].clone();
+        }
+        long nbBytes = NumericArray.shapeSize(shape) * type.getSize();
+        if (nbBytes == 0 || nbBytes > Integer.MAX_VALUE) {
+            return null;
+        }
+        long position = hdfFile.getUserBlockSize() + ((ContiguousDataset) dataset).getDataAddress() + firstElement * type.getSize();
+        try (FileChannel channel = FileChannel.open(hdfFile.getFile().toPath(), StandardOpenOption.READ)) {
+            return NumericArray.ofBuffer(channel.map(FileChannel.MapMode.READ_ONLY, position, nbBytes)
+                    .order(((OrderedDataType) dataset.getDataType()).getByteOrder()), type, shape);
+        } catch (IOException e) {
+            logger.debug("@mapDatasetPart failed to map {} : {}", pathInHdf5, e.getMessage());
+            return null;
+        }
+    }
+
+    public static boolean isNumericDataset(Dataset dataset){
+        Class<?> javaType = dataset.getJavaType();
+        return javaType != null && javaType.isPrimitive() && javaType != char.class;
+    }
+
+    private static NumericArray toNumericArray(Dataset dataset){
+        long[] shape = toLongArray(dataset.getDimensions());
+        Object flat = dataset.getDataFlat();
+        if (flat != null && !flat.getClass().isArray()) {
+            // scalar dataset
+            flat = java.lang.reflect.Array.newInstance(dataset.getJavaType(), 1);
+            java.lang.reflect.Array.set(flat, 0, dataset.getData());
+        }
+        return NumericArray.ofFlatArray(flat, shape);
+    }
+
+    public static NumericArray getDatasetNumericArraySlice(String filePath, String pathInHdf5, long[] offset, long[] count, long[] stride){
+        try (HdfFile hdfFile = new HdfFile(Paths.get(filePath))) {
+            return getDatasetNumericArraySlice(hdfFile, pathInHdf5, offset, count, stride);
+        }
+    }
+
+    public static NumericArray getDatasetNumericArraySlice(HdfFileCache hdfFileCache, String filePath, String pathInHdf5,
+                                                           long[] offset, long[] count, long[] stride){
+        try (HdfFileCache.Handle handle = hdfFileCache.acquire(filePath)) {
+            return getDatasetNumericArraySlice(handle.getFile(), pathInHdf5, offset, count, stride);
+        }
+    }
+
+    /**
+     * Reads a rectangular selection of a dataset (see {@link NumericArray#slice(long[], long[], long[])}).
+     * Contiguous datasets are read with the jhdf sliced read, only the bytes of the selection bounding box are read.
+     * For chunked datasets without filter, only the chunks crossing the selection are read. Other datasets
+     * (compressed, compact) are fully read and then sliced.
+     * @param stride null for a stride of 1 in each dimension
+     */
+    public static NumericArray getDatasetNumericArraySlice(HdfFile hdfFile, String pathInHdf5, long[] offset, long[] count, long[] stride){
+        Dataset dataset = hdfFile.getDatasetByPath(pathInHdf5);
+        if (!isNumericDataset(dataset)) {
+            throw new IllegalArgumentException("Dataset " + pathInHdf5 + " of type " + dataset.getJavaType() + " is not numeric");
+        }
+        long[] shape = toLongArray(dataset.getDimensions());
+        stride = NumericArray.checkSlice(shape, offset, count, stride);
+        if (dataset.isScalar() || dataset.isEmpty() || NumericArray.shapeSize(count) == 0) {
+            return toNumericArray(dataset).slice(offset, count, stride);
+        }
+
+        // bounding box of the selection
+        int rank = shape.length;
+        long[] boxCount = new long[rank];
+        boolean strided = false;
+        for (int d = 0; d < rank; d++) {
+            boxCount[d] = (count[d] - 1) * stride[d] + 1;
+            strided |= stride[d] != 1;
+        }
+        NumericArray box = null;
+        if (dataset.getDataLayout() == DataLayout.CONTIGUOUS) {
+            box = NumericArray.ofNestedArray(dataset.getData(offset, toIntArray(boxCount)));
+        } else if (dataset instanceof ChunkedDataset && dataset.getFilters().isEmpty()) {
+            try {
+                box = readChunkedBox((ChunkedDataset) dataset, offset, boxCount);
+            } catch (Exception e) {
+                logger.debug("@getDatasetNumericArraySlice chunked read failed for {}, reading the whole dataset : {}", pathInHdf5, e.getMessage());
+            }
+        }
+        if (box == null) {
+            return toNumericArray(dataset).slice(offset, count, stride);
+        }
+        return strided ? box.slice(new long[rank], count, stride) : box;
+    }
+
+    /* Copies the box [boxOffset, boxOffset + boxCount[ from the chunks crossing it. Chunks are not filtered, so their
+    raw bytes can be decoded directly */
+    private static NumericArray readChunkedBox(ChunkedDataset dataset, long[] boxOffset, long[] boxCount){
+        int rank = boxOffset.length;
+        int[] chunkDims = dataset.getChunkDimensions();
+        int chunkSize = 1;
+        for (int c : chunkDims) {
+            chunkSize *= c;
+        }
+        long boxSize = NumericArray.shapeSize(boxCount);
+        if (boxSize > Integer.MAX_VALUE - 8) {
+            throw new UnsupportedOperationException("Slice of " + boxSize + " elements can not be copied in a java array");
+        }
+        Object result = java.lang.reflect.Array.newInstance(dataset.getJavaType(), (int) boxSize);
+        long[] boxStrides = rowMajorStrides(boxCount);
+        long[] chunkStrides = rowMajorStrides(toLongArray(chunkDims));
+
+        long[] firstChunk = new long[rank];
+        long[] lastChunk = new long[rank];
+        for (int d = 0; d < rank; d++) {
+            firstChunk[d] = boxOffset[d] / chunkDims[d];
+            lastChunk[d] = (boxOffset[d] + boxCount[d] - 1) / chunkDims[d] + 1;
+        }
+        final int finalChunkSize = chunkSize;
+        forEachPosition(firstChunk, lastChunk, rank, chunkIndex -> {
+            int[] chunkOffset = new int[rank];
+            long[] lo = new long[rank];
+            long[] hi = new long[rank];
+            for (int d = 0; d < rank; d++) {
+                chunkOffset[d] = (int) chunkIndex[d] * chunkDims[d];
+                lo[d] = Math.max(boxOffset[d], chunkOffset[d]);
+                hi[d] = Math.min(boxOffset[d] + boxCount[d], (long) chunkOffset[d] + chunkDims[d]);
+            }
+            Object chunkData = dataset.getDataType().fillData(dataset.getRawChunkBuffer(chunkOffset), new int[]{finalChunkSize}, null);
+            int rowLength = (int) (hi[rank - 1] - lo[rank - 1]);
+            forEachPosition(lo, hi, rank - 1, position -> {
+                long src = 0;
+                long dst = 0;
+                for (int d = 0; d < rank; d++) {
+                    long p = d < rank - 1 ? position[d] : lo[d];
+                    src += (p - chunkOffset[d]) * chunkStrides[d];
+                    dst += (p - boxOffset[d]) * boxStrides[d];
+                }
+                System.arraycopy(chunkData, (int) src, result, (int) dst, rowLength);
+            });
+        });
+        return NumericArray.ofFlatArray(result, boxCount);
+    }
+
+    private static long[] rowMajorStrides(long[] shape){
+        long[] strides = new long[shape.length];
+        long stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+        return strides;
+    }
+
+    /* Calls action for each position in [lo, hi[ over the 'nbDims' first dimensions, in row-major order. The
+    position array is reused between calls */
+    private static void forEachPosition(long[] lo, long[] hi, int nbDims, Consumer<long[]> action){
+        for (int d = 0; d < nbDims; d++) {
+            if (hi[d] <= lo[d]) {
+                return;
+            }
+        }
+        long[] position = Arrays.copyOf(lo, nbDims);
+        while (true) {
+            action.accept(position);
+            int d = nbDims - 1;
+            while (d >= 0) {
+                position[d]++;
+                if (position[d] < hi[d]) {
+                    break;
+                }
+                position[d] = lo[d];
+                d--;
+            }
+            if (d < 0) {
+                return;
+            }
+        }
+    }
+
+    private static int[] toIntArray(long[] dims){
+        int[] result = new int[dims.length];
+        for (int i = 0; i < dims.length; i++) {
+            result[i] = Math.toIntExact(dims[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Describes a dataset (dimensions, type, layout, chunking and filters) without reading its values.
+     */
+    public static ExternalArrayInfo getDatasetInfo(HdfFile hdfFile, String pathInHdf5){
+        return getDatasetInfo(hdfFile, getHdfFilePath(hdfFile), pathInHdf5, null, null, null);
+    }
+
+    /* hdfFilePath is the path of the h5 file, or of the epc entry for an h5 file stored in the epc archive */
+    private static ExternalArrayInfo getDatasetInfo(HdfFile hdfFile, String hdfFilePath, String pathInHdf5, String rootIdentifier,
+                                                    String pathInRoot, long[][] selection){
+        Dataset dataset = hdfFile.getDatasetByPath(pathInHdf5);
+        long[] dims = toLongArray(dataset.getDimensions());
+        if (selection != null && selection[0].length != dims.length) {
+            selection = null;
+        }
+        return new ExternalArrayInfo(rootIdentifier, pathInRoot, hdfFilePath, pathInHdf5, dims,
+                selection != null ? selection[0] : null, selection != null ? selection[1] : null,
+                dataset.getJavaType(), dataset.getDataType().getSize(), dataset.getStorageInBytes(),
+                dataset.getDataLayout().name(),
+                dataset instanceof ChunkedDataset ? toLongArray(((ChunkedDataset) dataset).getChunkDimensions()) : null,
+                dataset.getFilters().stream().map(PipelineFilterWithData::getName).collect(Collectors.toList()));
+    }
+
+    static long[] toLongArray(int[] dims){
+        long[] result = new long[dims.length];
+        for (int i = 0; i < dims.length; i++) {
+            result[i] = dims[i];
+        }
+        return result;
+    }
+
 
     public String getExternalFilePathFromExternalPartRef(Object epr){
         List<Relationship> epr_rels = epcFile.getAdditionalRels().get(epr);
@@ -157,7 +531,7 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
                 }
                 Object hdfProxyObj = epc.getObjectByIdentifier(EPCFile.getIdentifier(hdfProxy));
                 if (hdfProxyObj != null) {
-                    for (Relationship rel : epc.getAdditionalRels().get(EPCFile.getIdentifier(hdfProxyObj))) {
+                    for (Relationship rel : epc.getAdditionalRels().getOrDefault(EPCFile.getIdentifier(hdfProxyObj), List.of())) {
                         if (rel.getType().equals(EPCRelsRelationshipType.ExternalResource.getType())) {
                             return getH5PathPossibilities(rel.getTarget(), epc);
                         }
@@ -183,13 +557,16 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
             if(!extDataArrayPart.isEmpty()){
                 logger.debug(extDataArrayPart);
                 List<String> result = new ArrayList<>();
-                for(var edap: extDataArrayPart){
-                    result.addAll(getHdf5PathFromExternalPath(
-                            edap,
-                            null,
-                            rootObj,
-                            epc
-                    ));
+                for(var edapList: extDataArrayPart){
+                    // the attribute value is the list of parts
+                    for(var edap: edapList instanceof List ? (List<?>) edapList : List.of(edapList)) {
+                        result.addAll(getHdf5PathFromExternalPath(
+                                edap,
+                                null,
+                                rootObj,
+                                epc
+                        ));
+                    }
                 }
                 return result;
             }
@@ -206,6 +583,84 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
         return epcFile;
     }
 
+    public HdfFileCache getHdfFileCache() {
+        return hdfFileCache;
+    }
+
+    public ExternalPathCache getExternalPathCache() {
+        return externalPathCache;
+    }
+
+    /**
+     * @return the cache of decoded arrays used by this workspace, null if arrays are not cached
+     */
+    public ExternalArrayCache getArrayCache() {
+        return arrayCache;
+    }
+
+    /**
+     * Caches the numeric arrays read by this workspace, e.g. in {@link ExternalArrayCache#getShared()} to share them
+     * with the other workspaces of the process.
+     * @param arrayCache null to disable the cache (default)
+     */
+    public void setArrayCache(ExternalArrayCache arrayCache) {
+        this.arrayCache = arrayCache;
+    }
+
+    @Override
+    public AccessibleDORIndex getAccessibleDORIndex() {
+        return epcFile.getAccessibleDORIndex();
+    }
+
+    @Override
+    public SupportingGeometryCache getSupportingGeometryCache() {
+        return supportingGeometryCache;
+    }
+
+    /**
+     * Caches the geometries of the supporting representations (e.g. a Grid2dRepresentation shared by several
+     * horizons), computed once for all the representations read with this workspace. The geometries of an object are
+     * invalidated when it is put, removed or marked as modified in the epc (see {@link EPCFile#putObject(Object)},
+     * {@link EPCFile#removeObject(String)} and {@link EPCFile#markModified(String)}) : objects edited in place
+     * without being marked keep their cached geometry.
+     * @param supportingGeometryCache null to disable the cache (by default a cache of
+     *                                {@link SupportingGeometryCache#DEFAULT_MAX_BYTES})
+     */
+    public void setSupportingGeometryCache(SupportingGeometryCache supportingGeometryCache) {
+        SupportingGeometryCache previous = this.supportingGeometryCache;
+        if (previous != null) {
+            epcFile.removeSupportingGeometryCache(previous);
+        }
+        this.supportingGeometryCache = supportingGeometryCache;
+        if (supportingGeometryCache != null) {
+            epcFile.addSupportingGeometryCache(supportingGeometryCache);
+        }
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * If true, the numeric arrays that can be memory-mapped (see {@link #mapDataset(HdfFile, String)}) are not
+     * copied in memory (nor in the array cache), their values are read from the mapped file.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Closes the h5 files kept open by this workspace.
+     */
+    @Override
+    public void close() {
+        SupportingGeometryCache geometryCache = supportingGeometryCache;
+        if (geometryCache != null) {
+            epcFile.removeSupportingGeometryCache(geometryCache);
+        }
+        hdfFileCache.close();
+    }
+
     @Override
     public Object getObject(String uuid, String objectVersion) {
         return this.epcFile.getObject(uuid, objectVersion);
@@ -223,21 +678,324 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
 
     @Override
     public List<?> readExternalArray(Object energyml_array, Object energymlObject, String pathInHDF) throws ObjectNotFoundNotError {
+        return readEpcExternalArray(energyml_array, energymlObject, this.epcFile, this.hdfFileCache, this.externalPathCache, this.arrayCache,
+                this.memoryMapped);
+    }
+
+    @Override
+    public NumericArray readExternalNumericArray(Object energyml_array, Object energymlObject, String pathInHDF) throws ObjectNotFoundNotError {
+        return readEpcExternalNumericArray(energyml_array, energymlObject, this.epcFile, this.hdfFileCache, this.externalPathCache, this.arrayCache,
+                this.memoryMapped);
+    }
+
+    /**
+     * Reads the arrays grouped by h5 file, see {@link #readEpcExternalNumericArraysAsync(List, EpcProvider, HdfFileCache, ExternalPathCache, ExternalArrayCache, boolean, Executor)}.
+     */
+    @Override
+    public List<CompletableFuture<NumericArray>> readExternalNumericArraysAsync(List<ExternalArrayRequest> requests, Executor executor) {
+        return readEpcExternalNumericArraysAsync(requests, rootObj -> this.epcFile, this.hdfFileCache, this.externalPathCache,
+                this.arrayCache, this.memoryMapped, executor);
+    }
+
+    @Override
+    public ExternalArrayInfo getExternalArrayInfo(Object energyml_array, Object energymlObject, String pathInRoot) throws ObjectNotFoundNotError {
+        return readEpcExternalArrayInfo(energyml_array, energymlObject, pathInRoot, this.epcFile, this.hdfFileCache, this.externalPathCache);
+    }
+
+    /**
+     * Describes all the external arrays of the epc objects, without reading their values.
+     * @return the descriptions by object identifier
+     */
+    public Map<String, List<ExternalArrayInfo>> getAllExternalArrayInfos() {
+        Map<String, List<ExternalArrayInfo>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : this.epcFile.getEnergymlObjects().entrySet()) {
+            List<ExternalArrayInfo> infos = EnergymlWorkspaceHelper.getExternalArrayInfos(e.getValue(), this);
+            if (!infos.isEmpty()) {
+                result.put(e.getKey(), infos);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public NumericArray readExternalNumericArraySlice(Object energyml_array, Object energymlObject, String pathInHDF,
+                                                      long[] offset, long[] count, long[] stride) throws ObjectNotFoundNotError {
+        return readEpcExternalNumericArraySlice(energyml_array, energymlObject, this.epcFile, this.hdfFileCache, this.externalPathCache,
+                offset, count, stride);
+    }
+
+    public static List<?> readEpcExternalArray(Object energyml_array, Object energymlObject, EPCFile epc) throws ObjectNotFoundNotError {
+        return readEpcExternalArray(energyml_array, energymlObject, epc, null);
+    }
+
+    /**
+     * Reads an external array, the h5 file is searched from the external references of the epc.
+     * @param energyml_array the array object (e.g. a DoubleHdf5Array)
+     * @param energymlObject the root object containing the array
+     * @param epc the epc file containing (or giving access to) the external part references
+     * @param hdfFileCache cache of open h5 files, if null the h5 file is opened and closed for this read
+     * @return the array values
+     * @throws ObjectNotFoundNotError if the h5 file or the dataset is not found
+     */
+    public static List<?> readEpcExternalArray(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache) throws ObjectNotFoundNotError {
+        return readEpcExternalArray(energyml_array, energymlObject, epc, hdfFileCache, null, null, false);
+    }
+
+    /* pathCache and arrayCache may be null, see readDatasetPart for memoryMapped */
+    static List<?> readEpcExternalArray(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache,
+                                        ExternalPathCache pathCache, ExternalArrayCache arrayCache, boolean memoryMapped) throws ObjectNotFoundNotError {
+        long[][] selection = getExternalArraySelection(energyml_array);
+        return readFromH5Candidates(energyml_array, energymlObject, epc, hdfFileCache, pathCache, (hdfFile, hdfFilePath, fileKey, pathInExternal) -> {
+            if ((selection != null || arrayCache != null || memoryMapped) && isNumericDataset(hdfFile.getDatasetByPath(pathInExternal))) {
+                return readDatasetPart(hdfFile, hdfFilePath, fileKey, pathInExternal, selection, arrayCache, memoryMapped).toList();
+            }
+            return getDatasetValues(hdfFile, pathInExternal);
+        });
+    }
+
+    /**
+     * Same as {@link #readEpcExternalArray(Object, Object, EPCFile, HdfFileCache)} without boxing the values.
+     */
+    public static NumericArray readEpcExternalNumericArray(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache) throws ObjectNotFoundNotError {
+        return readEpcExternalNumericArray(energyml_array, energymlObject, epc, hdfFileCache, null, null, false);
+    }
+
+    /**
+     * Same as {@link #readEpcExternalNumericArray(Object, Object, EPCFile, HdfFileCache)}, the array is taken from
+     * (or stored in) arrayCache if it is not null.
+     */
+    public static NumericArray readEpcExternalNumericArray(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache,
+                                                           ExternalArrayCache arrayCache) throws ObjectNotFoundNotError {
+        return readEpcExternalNumericArray(energyml_array, energymlObject, epc, hdfFileCache, null, arrayCache, false);
+    }
+
+    static NumericArray readEpcExternalNumericArray(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache,
+                                                    ExternalPathCache pathCache, ExternalArrayCache arrayCache,
+                                                    boolean memoryMapped) throws ObjectNotFoundNotError {
+        long[][] selection = getExternalArraySelection(energyml_array);
+        return readFromH5Candidates(energyml_array, energymlObject, epc, hdfFileCache, pathCache,
+                (hdfFile, hdfFilePath, fileKey, pathInExternal) -> readDatasetPart(hdfFile, hdfFilePath, fileKey, pathInExternal, selection, arrayCache, memoryMapped));
+    }
+
+    /**
+     * Reads a rectangular selection of an external array. The selection is relative to the external data array part,
+     * when the part itself only covers a part of the dataset (StartIndex/Count).
+     * @param stride null for a stride of 1 in each dimension
+     */
+    public static NumericArray readEpcExternalNumericArraySlice(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache,
+                                                                long[] offset, long[] count, long[] stride) throws ObjectNotFoundNotError {
+        return readEpcExternalNumericArraySlice(energyml_array, energymlObject, epc, hdfFileCache, null, offset, count, stride);
+    }
+
+    static NumericArray readEpcExternalNumericArraySlice(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache,
+                                                         ExternalPathCache pathCache, long[] offset, long[] count, long[] stride) throws ObjectNotFoundNotError {
+        long[][] selection = getExternalArraySelection(energyml_array);
+        return readFromH5Candidates(energyml_array, energymlObject, epc, hdfFileCache, pathCache, (hdfFile, hdfFilePath, fileKey, pathInExternal) -> {
+            if (selection == null || selection[0].length != offset.length) {
+                return getDatasetNumericArraySlice(hdfFile, pathInExternal, offset, count, stride);
+            }
+            long[] partOffset = new long[offset.length];
+            for (int d = 0; d < offset.length; d++) {
+                partOffset[d] = selection[0][d] + offset[d];
+            }
+            NumericArray.checkSlice(selection[1], offset, count, stride);
+            return getDatasetNumericArraySlice(hdfFile, pathInExternal, partOffset, count, stride);
+        });
+    }
+
+    /**
+     * Describes an external array without reading its values, see {@link #getDatasetInfo(HdfFile, String)}.
+     */
+    public static ExternalArrayInfo readEpcExternalArrayInfo(Object energyml_array, Object energymlObject, String pathInRoot,
+                                                             EPCFile epc, HdfFileCache hdfFileCache) throws ObjectNotFoundNotError {
+        return readEpcExternalArrayInfo(energyml_array, energymlObject, pathInRoot, epc, hdfFileCache, null);
+    }
+
+    static ExternalArrayInfo readEpcExternalArrayInfo(Object energyml_array, Object energymlObject, String pathInRoot,
+                                                      EPCFile epc, HdfFileCache hdfFileCache, ExternalPathCache pathCache) throws ObjectNotFoundNotError {
+        long[][] selection = getExternalArraySelection(energyml_array);
+        String rootIdentifier = energymlObject != null ? EPCFile.getIdentifier(energymlObject) : null;
+        return readFromH5Candidates(energyml_array, energymlObject, epc, hdfFileCache, pathCache,
+                (hdfFile, hdfFilePath, fileKey, pathInExternal) -> getDatasetInfo(hdfFile, hdfFilePath, pathInExternal, rootIdentifier, pathInRoot, selection));
+    }
+
+    /**
+     * Gives the epc file containing the external references of a root object.
+     */
+    @FunctionalInterface
+    interface EpcProvider {
+        EPCFile getEpc(Object rootObject) throws ObjectNotFoundNotError;
+    }
+
+    /**
+     * Reads many external arrays : the h5 file of each request is resolved in the calling thread, then each file is
+     * read by one task of the executor (the files are read concurrently, the arrays of a file sequentially on the
+     * same open file). An array that can not be read from the resolved file is searched in the other candidates, as
+     * with {@link #readEpcExternalNumericArray(Object, Object, EPCFile, HdfFileCache)}.
+     * @return one future per request, in the same order
+     */
+    static List<CompletableFuture<NumericArray>> readEpcExternalNumericArraysAsync(List<ExternalArrayRequest> requests, EpcProvider epcProvider,
+                                                                                  HdfFileCache hdfFileCache, ExternalPathCache pathCache,
+                                                                                  ExternalArrayCache arrayCache, boolean memoryMapped,
+                                                                                  Executor executor) {
+        List<CompletableFuture<NumericArray>> futures = new ArrayList<>(requests.size());
+        EPCFile[] epcs = new EPCFile[requests.size()];
+        Map<String, List<Integer>> requestsByFile = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CompletableFuture<NumericArray> future = new CompletableFuture<>();
+            futures.add(future);
+            ExternalArrayRequest request = requests.get(i);
+            try {
+                epcs[i] = epcProvider.getEpc(request.getRootObject());
+                String hdf5Path = resolveH5File(request.getEnergymlArray(), request.getRootObject(), epcs[i], pathCache);
+                requestsByFile.computeIfAbsent(hdf5Path, k -> new ArrayList<>()).add(i);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> fileRequests : requestsByFile.entrySet()) {
+            Runnable task = () -> readH5Requests(fileRequests.getKey(), fileRequests.getValue(), requests, epcs, futures,
+                    hdfFileCache, pathCache, arrayCache, memoryMapped);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                for (int i : fileRequests.getValue()) {
+                    futures.get(i).completeExceptionally(e);
+                }
+            }
+        }
+        return futures;
+    }
+
+    /* Reads the requests resolved to the same h5 file (possibly an entry of their epc archive), those that fail are
+    read again searching all the candidates */
+    private static void readH5Requests(String hdf5Path, List<Integer> indices, List<ExternalArrayRequest> requests, EPCFile[] epcs,
+                                       List<CompletableFuture<NumericArray>> futures, HdfFileCache hdfFileCache,
+                                       ExternalPathCache pathCache, ExternalArrayCache arrayCache, boolean memoryMapped) {
+        H5Reader<Void> reader = (hdfFile, hdfFilePath, fileKey, ignore) -> {
+            for (int i : indices) {
+                Object energymlArray = requests.get(i).getEnergymlArray();
+                try {
+                    String pathInExternal = getHdfReference(energymlArray).get(0);
+                    futures.get(i).complete(readDatasetPart(hdfFile, hdfFilePath, fileKey, pathInExternal, getExternalArraySelection(energymlArray),
+                            arrayCache, memoryMapped));
+                } catch (Exception e) {
+                    logger.debug("@readH5Requests failed to read an array from {} : {}", hdfFilePath, e.getMessage());
+                }
+            }
+            return null;
+        };
+        try {
+            String entryName = epcs[indices.get(0)].getEntryName(hdf5Path);
+            HdfFile embedded = entryName != null ? epcs[indices.get(0)].getEmbeddedHdfFile(entryName) : null;
+            if (embedded != null) {
+                reader.read(embedded, hdf5Path, ExternalArrayCache.getFileKey(hdf5Path), null);
+            } else {
+                readH5(hdf5Path, null, hdfFileCache, reader);
+            }
+        } catch (Exception e) {
+            logger.debug("@readH5Requests failed to read {} : {}", hdf5Path, e.getMessage());
+        }
+        for (int i : indices) {
+            if (!futures.get(i).isDone()) {
+                ExternalArrayRequest request = requests.get(i);
+                try {
+                    futures.get(i).complete(readEpcExternalNumericArray(request.getEnergymlArray(), request.getRootObject(),
+                            epcs[i], hdfFileCache, pathCache, arrayCache, memoryMapped));
+                } catch (Exception e) {
+                    futures.get(i).completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /* The remembered file of the array resolution key, or the first existing candidate (then remembered), or the path
+    of the h5 file stored in the epc archive (see EPCFile.getEntryPath) */
+    private static String resolveH5File(Object energyml_array, Object energymlObject, EPCFile epc, ExternalPathCache pathCache) throws ObjectNotFoundNotError {
+        String resolutionKey = null;
+        if (pathCache != null) {
+            resolutionKey = ExternalPathCache.getResolutionKey(energyml_array, epc);
+            String knownPath = pathCache.get(resolutionKey);
+            if (knownPath != null) {
+                return knownPath;
+            }
+        }
+        List<String> h5filePaths = getHdf5PathFromExternalPath(energyml_array, null, energymlObject, epc);
+        for (String hdf5Path : h5filePaths != null ? h5filePaths : List.<String>of()) {
+            if (Files.exists(Path.of(hdf5Path))) {
+                if (pathCache != null) {
+                    pathCache.put(resolutionKey, hdf5Path);
+                }
+                return hdf5Path;
+            }
+        }
+        String entryName = h5filePaths != null ? epc.findEmbeddedHdfEntry(h5filePaths) : null;
+        if (entryName != null) {
+            return epc.getEntryPath(entryName);
+        }
+        throw new ObjectNotFoundNotError(String.format("No h5 file found. Paths tried : %s", h5filePaths));
+    }
+
+    /* Reads the dataset part selected by an external data array part, or the whole dataset if there is no selection
+    or if it does not match the dataset rank. If memoryMapped, the part is mapped when possible. Otherwise, if
+    arrayCache and hdfFilePath (the path of the h5 file, or of the epc entry for an h5 file stored in the epc archive)
+    are not null, the array is taken from (or stored in) it. fileKey is the cache key of the file if already known
+    (see ExternalArrayCache.getFileKey), otherwise it is computed from hdfFilePath */
+    static NumericArray readDatasetPart(HdfFile hdfFile, String hdfFilePath, String fileKey, String pathInExternal, long[][] selection,
+                                        ExternalArrayCache arrayCache, boolean memoryMapped) {
+        if (memoryMapped) {
+            NumericArray mapped = mapDatasetPart(hdfFile, pathInExternal, selection);
+            if (mapped != null) {
+                return mapped;
+            }
+        }
+        if (arrayCache != null && hdfFilePath != null) {
+            return arrayCache.getByFileKey(fileKey != null ? fileKey : ExternalArrayCache.getFileKey(hdfFilePath), pathInExternal, selection,
+                    () -> readDatasetPart(hdfFile, hdfFilePath, null, pathInExternal, selection, null, false));
+        }
+        if (selection != null && selection[0].length == hdfFile.getDatasetByPath(pathInExternal).getDimensions().length) {
+            return getDatasetNumericArraySlice(hdfFile, pathInExternal, selection[0], selection[1], null);
+        }
+        return getDatasetNumericArray(hdfFile, pathInExternal);
+    }
+
+    /* Applies reader (h5 file, path in h5) on the first existing h5 file for which it succeeds. If pathCache is not
+    null, the file found for the array resolution key is remembered and directly used for the next arrays */
+    private static <T> T readFromH5Candidates(Object energyml_array, Object energymlObject, EPCFile epc, HdfFileCache hdfFileCache,
+                                              ExternalPathCache pathCache, H5Reader<T> reader) throws ObjectNotFoundNotError {
+        String pathInExternal = getHdfReference(energyml_array).get(0);
+        String resolutionKey = null;
+        if (pathCache != null) {
+            resolutionKey = ExternalPathCache.getResolutionKey(energyml_array, epc);
+            String knownPath = pathCache.get(resolutionKey);
+            if (knownPath != null) {
+                try {
+                    return readH5(knownPath, pathInExternal, hdfFileCache, reader);
+                } catch (Exception e) {
+                    logger.debug("@readFromH5Candidates failed to read {} from {}, searching the file again : {}", pathInExternal, knownPath, e.getMessage());
+                    pathCache.remove(resolutionKey);
+                }
+            }
+        }
+
         List<String> h5filePaths;
         try {
-            h5filePaths = getHdf5PathFromExternalPath(energyml_array, null, energymlObject, this.epcFile);
+            h5filePaths = getHdf5PathFromExternalPath(energyml_array, null, energymlObject, epc);
         }catch (Exception e){
             logger.error(e);
             throw e;
         }
-        String pathInExternal = getHdfReference(energyml_array).get(0);
         logger.debug(h5filePaths);
-        List<?> resultArray = null;
+        T resultArray = null;
         assert h5filePaths != null;
         for(String hdf5Path: h5filePaths) {
             if(Files.exists(Path.of(hdf5Path))) {
                 try {
-                    resultArray = getDatasetValues(hdf5Path, pathInExternal);
+                    resultArray = readH5(hdf5Path, pathInExternal, hdfFileCache, reader);
+                    if (pathCache != null) {
+                        pathCache.put(resolutionKey, hdf5Path);
+                    }
                     break;  // if succeed, not try with other paths
                 } catch (Exception ignore) {
                     logger.error(ignore);
@@ -245,8 +1003,44 @@ public class EpcHdf5FileManager implements EnergymlWorkspace {
             }
         }
 
+        if (resultArray == null) {
+            // h5 file stored in the epc archive
+            String entryName = epc.findEmbeddedHdfEntry(h5filePaths);
+            HdfFile embedded = entryName != null ? epc.getEmbeddedHdfFile(entryName) : null;
+            if (embedded != null) {
+                try {
+                    resultArray = reader.read(embedded, epc.getEntryPath(entryName), null, pathInExternal);
+                } catch (Exception e) {
+                    logger.debug("@readFromH5Candidates failed to read {} from the epc archive : {}", pathInExternal, e.getMessage());
+                }
+            }
+        }
         if (resultArray == null)
             throw new ObjectNotFoundNotError(String.format("Failed to read h5 file. Paths tried : %s : %s", h5filePaths, pathInExternal));
         return resultArray;
     }
+
+    private static <T> T readH5(String hdf5Path, String pathInExternal, HdfFileCache hdfFileCache, H5Reader<T> reader) {
+        if (hdfFileCache != null) {
+            try (HdfFileCache.Handle handle = hdfFileCache.acquire(hdf5Path)) {
+                // the modification time checked by the acquisition is reused for the cached arrays
+                return reader.read(handle.getFile(), hdf5Path, ExternalArrayCache.getFileKey(handle.getFilePath(), handle.getLastModified()), pathInExternal);
+            }
+        }
+        try (HdfFile hdfFile = new HdfFile(Paths.get(hdf5Path))) {
+            return reader.read(hdfFile, hdf5Path, ExternalArrayCache.getFileKey(hdf5Path), pathInExternal);
+        }
+    }
+
+    /* Path of a file opened from the file system, null for an h5 file read from memory */
+    private static String getHdfFilePath(HdfFile hdfFile) {
+        return hdfFile.getFile() != null ? hdfFile.getFile().getPath() : null;
+    }
+
+    /* Reads an h5 file, hdfFilePath is the path of the file or of the epc entry for an h5 file stored in the epc archive.
+    fileKey is its array cache key (see ExternalArrayCache.getFileKey) if known, null otherwise */
+    @FunctionalInterface
+    private interface H5Reader<T> {
+        T read(HdfFile hdfFile, String hdfFilePath, String fileKey, String pathInExternal);
+    }
 }
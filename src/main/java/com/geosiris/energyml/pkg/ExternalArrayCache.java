@@ -0,0 +1,253 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import com.geosiris.energyml.data.NumericArray;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache of decoded external arrays, stored off-heap in direct buffers. Arrays are identified by their file, the file
+ * modification time, their dataset path and their selection in the dataset, so a modified file is read again.
+ * The cached bytes are bounded by 'maxBytes' : the least recently used arrays are evicted first, arrays bigger than
+ * the budget are not cached. Cached arrays are handed out as read-only {@link NumericArray.OfBuffer} views. The
+ * memory of an evicted array is released by the garbage collector when its views are no more used.
+ * {@link #getShared()} gives the cache shared by the whole process. This class is thread-safe.
+ */
+public class ExternalArrayCache {
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final ExternalArrayCache SHARED = new ExternalArrayCache(DEFAULT_MAX_BYTES);
+
+    /** Cache key to the cached array, in access order */
+    private final LinkedHashMap<String, NumericArray.OfBuffer> entries;
+    private long maxBytes;
+    private long usedBytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public ExternalArrayCache(long maxBytes) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxBytes = maxBytes;
+        this.usedBytes = 0;
+    }
+
+    /**
+     * @return the cache shared by the whole process, its budget is {@link #DEFAULT_MAX_BYTES} until changed with
+     * {@link #setMaxBytes(long)}
+     */
+    public static ExternalArrayCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the cache key of a dataset (selection) of a file
+     * @param filePath the file path, or 'ARCHIVE_PATH!/ENTRY_NAME' for a file stored in an epc archive (the
+     *                 modification time is then the one of the archive)
+     * @param selection {startIndex, count} of the dataset part, null for the whole dataset
+     */
+    public static String getKey(String filePath, String datasetPath, long[][] selection) {
+        return getKeyOfFile(getFileKey(filePath), datasetPath, selection);
+    }
+
+    /**
+     * @return the part of the cache keys identifying a file and its modification time, the file path is normalized
+     * and the file (or the epc archive) modification time read on each call
+     * @param filePath the file path, or 'ARCHIVE_PATH!/ENTRY_NAME' for a file stored in an epc archive
+     */
+    public static String getFileKey(String filePath) {
+        int entrySeparator = filePath.indexOf("!/");
+        String archive = entrySeparator >= 0 ? filePath.substring(0, entrySeparator) : filePath;
+        String path = normalize(archive);
+        return getFileKey(path + (entrySeparator >= 0 ? filePath.substring(entrySeparator) : ""), new File(path).lastModified());
+    }
+
+    /**
+     * Same as {@link #getFileKey(String)} for an already normalized path and a known modification time (e.g. the
+     * ones of a {@link HdfFileCache.Handle}), without file system access.
+     */
+    public static String getFileKey(String normalizedFilePath, long lastModified) {
+        return normalizedFilePath + "|" + lastModified;
+    }
+
+    private static String getKeyOfFile(String fileKey, String datasetPath, long[][] selection) {
+        return fileKey + "|" + datasetPath + (selection != null ? "|" + Arrays.toString(selection[0]) + Arrays.toString(selection[1]) : "");
+    }
+
+    private static String normalize(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Returns the cached array, or reads it with 'reader' and caches it. The reader is called without lock, two
+     * threads missing the same array at the same time may both read it.
+     * @param selection {startIndex, count} of the dataset part, null for the whole dataset
+     * @return a read-only view of the cached array, or the array read if it can not be cached
+     */
+    public NumericArray get(String filePath, String datasetPath, long[][] selection, Supplier<NumericArray> reader) {
+        return getByFileKey(getFileKey(filePath), datasetPath, selection, reader);
+    }
+
+    /**
+     * Same as {@link #get(String, String, long[][], Supplier)} for a file identified by its key (see
+     * {@link #getFileKey(String, long)}), so hits do not access the file system.
+     */
+    public NumericArray getByFileKey(String fileKey, String datasetPath, long[][] selection, Supplier<NumericArray> reader) {
+        String key = getKeyOfFile(fileKey, datasetPath, selection);
+        synchronized (this) {
+            NumericArray.OfBuffer cached = entries.get(key);
+            if (cached != null) {
+                hitCount++;
+                return cached;
+            }
+            missCount++;
+        }
+        NumericArray array = reader.get();
+        long nbBytes = array.size() * array.getElementType().getSize();
+        if (nbBytes > Math.min(getMaxBytes(), Integer.MAX_VALUE)) {
+            return array;
+        }
+        NumericArray.OfBuffer stored = NumericArray.ofBuffer(toDirectBuffer(array), array.getElementType(), array.getShape());
+        synchronized (this) {
+            NumericArray.OfBuffer previous = entries.putIfAbsent(key, stored);
+            if (previous != null) {
+                return previous;
+            }
+            usedBytes += nbBytes;
+            evictOverflow();
+        }
+        return stored;
+    }
+
+    /* Copies the values in a read-only direct buffer, in native byte order */
+    private static ByteBuffer toDirectBuffer(NumericArray array) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) (array.size() * array.getElementType().getSize())).order(ByteOrder.nativeOrder());
+        switch (array.getElementType()) {
+            case DOUBLE: buffer.asDoubleBuffer().put(array.toDoubleArray()); break;
+            case FLOAT: buffer.asFloatBuffer().put(array.toFloatArray()); break;
+            case LONG: buffer.asLongBuffer().put(array.toLongArray()); break;
+            case INT: buffer.asIntBuffer().put(array.toIntArray()); break;
+            case SHORT:
+                for (int i = 0; i < array.size(); i++) {
+                    buffer.putShort(i * 2, (short) array.getLong(i));
+                }
+                break;
+            case BYTE:
+                for (int i = 0; i < array.size(); i++) {
+                    buffer.put(i, (byte) array.getLong(i));
+                }
+                break;
+            default:
+                for (int i = 0; i < array.size(); i++) {
+                    buffer.put(i, (byte) (array.getBoolean(i) ? 1 : 0));
+                }
+        }
+        return buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    /* Evicts the least recently used arrays while the budget is exceeded */
+    private void evictOverflow() {
+        Iterator<NumericArray.OfBuffer> it = entries.values().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            NumericArray.OfBuffer evicted = it.next();
+            it.remove();
+            usedBytes -= evicted.size() * evicted.getElementType().getSize();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Changes the budget, evicting arrays if needed.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evictOverflow();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Removes all the arrays of a file (of the files stored in it for an epc archive).
+     */
+    public synchronized void invalidate(String filePath) {
+        String path = normalize(filePath);
+        Iterator<Map.Entry<String, NumericArray.OfBuffer>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, NumericArray.OfBuffer> entry = it.next();
+            if (entry.getKey().startsWith(path + "|") || entry.getKey().startsWith(path + "!/")) {
+                it.remove();
+                usedBytes -= entry.getValue().size() * entry.getValue().getElementType().getSize();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * @return the number of cached arrays
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the size of the cached arrays, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 if the cache has not been used
+     */
+    public synchronized double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ExternalArrayCache{" + entries.size() + " arrays, " + usedBytes + "/" + maxBytes + " bytes, hit rate "
+                + getHitRate() + "}";
+    }
+}
@@ -0,0 +1,119 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import com.geosiris.energyml.utils.ObjectController;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoised resolution of the external file (h5) of arrays, for a workspace.
+ * Arrays are grouped by resolution key : the epc file and the referenced proxy (HdfProxy for RESQML 2.0.1, external
+ * part reference for 2.2dev3) or uri (external data array parts for 2.2). The path of the file that has been
+ * successfully read for a key is remembered, so the candidates are only searched (and tested on disk) once per key.
+ * This class is thread-safe.
+ */
+public class ExternalPathCache {
+    private static final String REFERENCE_ATTRIBUTES = "^(HdfProxy|EpcExternalPartReference|URI)$";
+    /** array to its references part of the resolution key. Generated arrays do not override equals, so entries are
+     * by instance, and dropped with the array */
+    private static final Map<Object, String> arrayReferences = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** resolution key to the path of the file */
+    private final Map<String, String> resolvedPaths;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+
+    public ExternalPathCache() {
+        this.resolvedPaths = new ConcurrentHashMap<>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
+    /**
+     * @return the key identifying the external file of an array in an epc : arrays having the same key are in the
+     * same file. The references of an array are only searched the first time the array is seen.
+     */
+    public static String getResolutionKey(Object energymlArray, EPCFile epc) {
+        String references = arrayReferences.get(energymlArray);
+        if (references == null) {
+            references = searchReferences(energymlArray);
+            arrayReferences.put(energymlArray, references);
+        }
+        return epc.getFilePath() + "|" + references;
+    }
+
+    private static String searchReferences(Object energymlArray) {
+        TreeSet<String> references = new TreeSet<>();
+        for (Object reference : ObjectController.searchAttributeMatchingNameWithPath(energymlArray, REFERENCE_ATTRIBUTES).values()) {
+            if (reference instanceof String) {
+                references.add("uri:" + reference);
+            } else if (reference != null && !(reference instanceof Iterable)) {
+                try {
+                    references.add("ref:" + EPCFile.getUuid(reference));
+                } catch (Exception ignore) {
+                    // not a data object reference
+                }
+            }
+        }
+        return String.join("|", references);
+    }
+
+    /**
+     * @return the remembered file path for this key, or null
+     */
+    public String get(String resolutionKey) {
+        String path = resolvedPaths.get(resolutionKey);
+        if (path != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return path;
+    }
+
+    public void put(String resolutionKey, String filePath) {
+        resolvedPaths.put(resolutionKey, filePath);
+    }
+
+    /**
+     * Forgets a resolution, e.g. if the remembered file can not be read anymore.
+     */
+    public void remove(String resolutionKey) {
+        resolvedPaths.remove(resolutionKey);
+    }
+
+    public void clear() {
+        resolvedPaths.clear();
+    }
+
+    public int size() {
+        return resolvedPaths.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
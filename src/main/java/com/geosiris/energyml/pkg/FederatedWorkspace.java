@@ -0,0 +1,642 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import com.geosiris.energyml.data.ExternalArrayInfo;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.exception.ObjectNotFoundNotError;
+import com.geosiris.energyml.utils.AccessibleDORIndex;
+import com.geosiris.energyml.utils.CompactIdentifier;
+import com.geosiris.energyml.utils.CompactIdentifierMap;
+import com.geosiris.energyml.utils.EPCGenericManager;
+import com.geosiris.energyml.utils.EnergymlWorkspace;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import com.geosiris.energyml.utils.ExternalArrayRequest;
+import energyml.relationships.Relationship;
+import energyml.relationships.Relationships;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A workspace over several epc files, that may reference each other's objects (e.g. CRS or features shared by
+ * several projects).
+ * When a file is added, only its zip central directory is read to build a global uuid index : uuid to
+ * (epc file, part path). Objects are unmarshalled on demand from their owning file, and files can be added or
+ * removed at any time without reading the other files again.
+ */
+public class FederatedWorkspace implements EnergymlWorkspace, Closeable {
+    public static Logger logger = LogManager.getLogger(FederatedWorkspace.class);
+
+    public static final Pattern PATTERN_PART_VERSION_FOLDER = Pattern.compile("(^|[/\\\\])version_(?<version>[^/\\\\]+)[/\\\\]");
+
+    /**
+     * Location of an energyml object inside an epc file, as found in the zip central directory.
+     */
+    public static class EPCPartLocation {
+        private final String epcFilePath;
+        private final String partPath;
+        private final CompactIdentifier uuidKey;
+        private final String objectType;
+        private final String objectVersion;
+
+        public EPCPartLocation(String epcFilePath, String partPath, String uuid, String objectType, String objectVersion) {
+            this.epcFilePath = epcFilePath;
+            this.partPath = partPath;
+            this.uuidKey = CompactIdentifier.of(uuid, null);
+            this.objectType = objectType;
+            this.objectVersion = objectVersion != null ? objectVersion.intern() : null;
+        }
+
+        public String getEpcFilePath() {
+            return epcFilePath;
+        }
+
+        public String getPartPath() {
+            return partPath;
+        }
+
+        public String getUuid() {
+            return uuidKey.getUuid();
+        }
+
+        CompactIdentifier getUuidKey() {
+            return uuidKey;
+        }
+
+        /**
+         * @return the object type as written in the part file name (e.g. "obj_TriangulatedSetRepresentation")
+         */
+        public String getObjectType() {
+            return objectType;
+        }
+
+        /**
+         * @return the object version if the part is in a "version_XXX" folder (expanded epc), null otherwise
+         */
+        public String getObjectVersion() {
+            return objectVersion;
+        }
+
+        @Override
+        public String toString() {
+            return epcFilePath + "!" + partPath;
+        }
+    }
+
+    private class Member {
+        final String epcFilePath;
+        final ZipFile zip;
+        final List<EPCPartLocation> parts;
+        /** part path to the identifier of the object loaded from this part */
+        final Map<String, CompactIdentifier> loadedParts;
+        /** part path to the additional rels of the part, null until the rels files are read */
+        volatile Map<String, List<Relationship>> relsByPart;
+        /** additional rels of the loaded objects, by object identifier */
+        final Map<Object, List<Relationship>> additionalRels;
+        final MemberEPCFile epcView;
+
+        Member(String epcFilePath, ZipFile zip, List<EPCPartLocation> parts) {
+            this.epcFilePath = epcFilePath;
+            this.zip = zip;
+            this.parts = parts;
+            this.loadedParts = new ConcurrentHashMap<>();
+            this.additionalRels = new ConcurrentHashMap<>();
+            this.epcView = new MemberEPCFile(this);
+        }
+    }
+
+    /**
+     * {@link EPCFile} view of a member file, used to resolve external parts (h5 files) relatively to the member.
+     * Object accesses are delegated to the whole workspace, so external part references stored in an other
+     * file are found. Its rels files are read on first use, and the rels of an object are only available once the
+     * object is loaded.
+     */
+    private class MemberEPCFile extends EPCFile {
+        private final Member member;
+
+        MemberEPCFile(Member member) {
+            super(FederatedWorkspace.this.pkgManager, member.epcFilePath);
+            this.member = member;
+        }
+
+        @java.lang.Override
+        public Object getObjectByIdentifier(String identifier) {
+            return FederatedWorkspace.this.getObjectByIdentifier(identifier);
+        }
+
+        @java.lang.Override
+        public Object getObjectByUUID(String uuid) {
+            return FederatedWorkspace.this.getObjectByUUID(uuid);
+        }
+
+        @java.lang.Override
+        public Map<Object, List<Relationship>> getAdditionalRels() {
+            if (member.relsByPart == null) {
+                synchronized (this) {
+                    if (member.relsByPart == null) {
+                        member.relsByPart = readAdditionalRels(member);
+                        for (Map.Entry<String, CompactIdentifier> loaded : member.loadedParts.entrySet()) {
+                            attachAdditionalRels(member, loaded.getKey(), loaded.getValue());
+                        }
+                    }
+                }
+            }
+            return member.additionalRels;
+        }
+    }
+
+    private final EPCPackageManager pkgManager;
+    private final HdfFileCache hdfFileCache;
+    /** resolution keys contain the member file path, so one cache is used for all the members */
+    private final ExternalPathCache externalPathCache;
+    /** null if arrays are not cached */
+    private volatile ExternalArrayCache arrayCache;
+    /** null if supporting geometries are not cached */
+    private volatile SupportingGeometryCache supportingGeometryCache;
+    private volatile boolean memoryMapped;
+
+    /** epc file path to member, in insertion order */
+    private final Map<String, Member> members;
+    /** uuid (without version) to the parts having this uuid, in all files. Accesses are synchronized on the map */
+    private final CompactIdentifierMap<List<EPCPartLocation>> uuidIndex;
+    /** identifier to loaded object. Accesses are synchronized on the map */
+    private final CompactIdentifierMap<Object> loadedObjects;
+    /** loaded objects by class, null until the first {@link #getAccessibleDORIndex()}. Changes are synchronized on loadedObjects */
+    private volatile AccessibleDORIndex accessibleDORIndex;
+
+    public FederatedWorkspace(EPCPackageManager pkgManager) {
+        this.pkgManager = pkgManager;
+        this.hdfFileCache = new HdfFileCache();
+        this.externalPathCache = new ExternalPathCache();
+        this.members = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.uuidIndex = new CompactIdentifierMap<>();
+        this.loadedObjects = new CompactIdentifierMap<>();
+        this.supportingGeometryCache = new SupportingGeometryCache(SupportingGeometryCache.DEFAULT_MAX_BYTES);
+    }
+
+    public FederatedWorkspace(EPCPackageManager pkgManager, Collection<String> epcFilePaths) throws IOException {
+        this(pkgManager);
+        for (String epcPath : epcFilePaths) {
+            addFile(epcPath);
+        }
+    }
+
+    public ExternalArrayCache getArrayCache() {
+        return arrayCache;
+    }
+
+    /**
+     * Caches the numeric arrays read by this workspace, see {@link EpcHdf5FileManager#setArrayCache(ExternalArrayCache)}.
+     * @param arrayCache null to disable the cache (default)
+     */
+    public void setArrayCache(ExternalArrayCache arrayCache) {
+        this.arrayCache = arrayCache;
+    }
+
+    /**
+     * The index is built on first call, which loads all the objects of the workspace. The objects of the files
+     * added afterwards are loaded when they are added, and the objects of the removed files are removed from it.
+     */
+    @Override
+    public AccessibleDORIndex getAccessibleDORIndex() {
+        AccessibleDORIndex index = accessibleDORIndex;
+        if (index == null) {
+            List<Member> snapshot;
+            synchronized (members) {
+                snapshot = new ArrayList<>(members.values());
+            }
+            for (Member member : snapshot) {
+                for (EPCPartLocation location : member.parts) {
+                    loadPart(location);
+                }
+            }
+            synchronized (loadedObjects) {
+                index = accessibleDORIndex;
+                if (index == null) {
+                    index = new AccessibleDORIndex(loadedObjects.values());
+                    accessibleDORIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public SupportingGeometryCache getSupportingGeometryCache() {
+        return supportingGeometryCache;
+    }
+
+    /**
+     * Caches the geometries of the supporting representations, see {@link EpcHdf5FileManager#setSupportingGeometryCache(SupportingGeometryCache)}.
+     * The geometries of the objects of a file are invalidated when the file is removed.
+     * @param supportingGeometryCache null to disable the cache (by default a cache of
+     *                                {@link SupportingGeometryCache#DEFAULT_MAX_BYTES})
+     */
+    public void setSupportingGeometryCache(SupportingGeometryCache supportingGeometryCache) {
+        this.supportingGeometryCache = supportingGeometryCache;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Memory-maps the arrays when possible, see {@link EpcHdf5FileManager#setMemoryMapped(boolean)}.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Adds an epc file to the workspace. Only the zip central directory is read.
+     * @param epcFilePath path to the epc file
+     * @return the number of energyml parts found in the file
+     * @throws IOException if the file is not a readable zip file
+     */
+    public synchronized int addFile(String epcFilePath) throws IOException {
+        String key = Paths.get(epcFilePath).toAbsolutePath().normalize().toString();
+        if (members.containsKey(key)) {
+            logger.debug("@addFile {} already in workspace", key);
+            return members.get(key).parts.size();
+        }
+        ZipFile zip = new ZipFile(key);
+        List<EPCPartLocation> parts = new ArrayList<>();
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            EPCPartLocation location = createPartLocation(key, entry);
+            if (location != null) {
+                parts.add(location);
+            }
+        }
+        members.put(key, new Member(key, zip, parts));
+        synchronized (uuidIndex) {
+            for (EPCPartLocation location : parts) {
+                uuidIndex.computeIfAbsent(location.getUuidKey(), k -> new ArrayList<>(1)).add(location);
+            }
+        }
+        if (accessibleDORIndex != null) {
+            // the indexed workspace keeps all its objects loaded
+            for (EPCPartLocation location : parts) {
+                loadPart(location);
+            }
+        }
+        logger.debug("@addFile {} : {} parts", key, parts.size());
+        return parts.size();
+    }
+
+    /**
+     * Removes an epc file from the workspace, its objects are no more accessible.
+     * @return true if the file was part of the workspace
+     */
+    public synchronized boolean removeFile(String epcFilePath) throws IOException {
+        String key = Paths.get(epcFilePath).toAbsolutePath().normalize().toString();
+        Member member = members.remove(key);
+        if (member == null) {
+            return false;
+        }
+        synchronized (uuidIndex) {
+            for (EPCPartLocation location : member.parts) {
+                List<EPCPartLocation> locations = uuidIndex.get(location.getUuidKey());
+                if (locations != null) {
+                    locations.remove(location);
+                    if (locations.isEmpty()) {
+                        uuidIndex.remove(location.getUuidKey());
+                    }
+                }
+            }
+        }
+        synchronized (loadedObjects) {
+            for (CompactIdentifier identifier : member.loadedParts.values()) {
+                Object removed = loadedObjects.remove(identifier);
+                if (accessibleDORIndex != null) {
+                    accessibleDORIndex.remove(removed);
+                }
+            }
+        }
+        // arrays of the other files may have been resolved through this one
+        externalPathCache.clear();
+        SupportingGeometryCache geometryCache = supportingGeometryCache;
+        if (geometryCache != null) {
+            for (CompactIdentifier identifier : member.loadedParts.values()) {
+                geometryCache.invalidate(identifier.toString());
+            }
+        }
+        member.zip.close();
+        return true;
+    }
+
+    public List<String> getFiles() {
+        synchronized (members) {
+            return new ArrayList<>(members.keySet());
+        }
+    }
+
+    public List<EPCPartLocation> getPartLocations(String uuid) {
+        return getPartLocations(CompactIdentifier.of(uuid, null));
+    }
+
+    private List<EPCPartLocation> getPartLocations(CompactIdentifier uuidKey) {
+        synchronized (uuidIndex) {
+            List<EPCPartLocation> locations = uuidIndex.get(uuidKey);
+            return locations != null ? new ArrayList<>(locations) : new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return a snapshot of the uuids of all the objects of the workspace
+     */
+    public Set<String> getAllUuids() {
+        List<CompactIdentifier> keys;
+        synchronized (uuidIndex) {
+            keys = uuidIndex.keys();
+        }
+        Set<String> uuids = new HashSet<>(keys.size() * 2);
+        for (CompactIdentifier key : keys) {
+            uuids.add(key.getUuid());
+        }
+        return uuids;
+    }
+
+    /**
+     * @return the path of the epc file containing the object, or null if not found
+     */
+    public String getOwningFile(String identifier) {
+        EPCPartLocation location = findLocation(CompactIdentifier.parse(identifier));
+        return location != null ? location.getEpcFilePath() : null;
+    }
+
+    /**
+     * @return an {@link EPCFile} view of a member file (objects are loaded lazily), or null if not found
+     */
+    public EPCFile getEpcView(String epcFilePath) {
+        Member member = members.get(Paths.get(epcFilePath).toAbsolutePath().normalize().toString());
+        return member != null ? member.epcView : null;
+    }
+
+    @Override
+    public Object getObject(String uuid, String objectVersion) {
+        return getObject(CompactIdentifier.of(uuid, objectVersion));
+    }
+
+    @Override
+    public Object getObjectByIdentifier(String identifier) {
+        if (identifier == null) {
+            return null;
+        }
+        return getObject(CompactIdentifier.parse(identifier));
+    }
+
+    public Object getObject(CompactIdentifier identifier) {
+        Object obj = getLoaded(identifier);
+        if (obj == null && findLocation(identifier) != null) {
+            obj = getLoaded(identifier);
+        }
+        return obj;
+    }
+
+    private Object getLoaded(CompactIdentifier identifier) {
+        synchronized (loadedObjects) {
+            return loadedObjects.get(identifier);
+        }
+    }
+
+    /**
+     * Contrary to {@link EPCFile#getObjectByUUID(String)}, returns an object with this uuid whatever its version.
+     */
+    @Override
+    public Object getObjectByUUID(String uuid) {
+        for (EPCPartLocation location : getPartLocations(uuid)) {
+            Object obj = loadPart(location);
+            if (obj != null) {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<?> readExternalArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return EpcHdf5FileManager.readEpcExternalArray(energyml_array, root_obj, getOwningMember(root_obj).epcView, hdfFileCache, externalPathCache,
+                arrayCache, memoryMapped);
+    }
+
+    @Override
+    public NumericArray readExternalNumericArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return EpcHdf5FileManager.readEpcExternalNumericArray(energyml_array, root_obj, getOwningMember(root_obj).epcView, hdfFileCache, externalPathCache,
+                arrayCache, memoryMapped);
+    }
+
+    @Override
+    public List<CompletableFuture<NumericArray>> readExternalNumericArraysAsync(List<ExternalArrayRequest> requests, Executor executor) {
+        return EpcHdf5FileManager.readEpcExternalNumericArraysAsync(requests, root_obj -> getOwningMember(root_obj).epcView,
+                hdfFileCache, externalPathCache, arrayCache, memoryMapped,
+                executor);
+    }
+
+    @Override
+    public NumericArray readExternalNumericArraySlice(Object energyml_array, Object root_obj, String pathInRoot,
+                                                      long[] offset, long[] count, long[] stride) throws ObjectNotFoundNotError {
+        return EpcHdf5FileManager.readEpcExternalNumericArraySlice(energyml_array, root_obj, getOwningMember(root_obj).epcView,
+                hdfFileCache, externalPathCache, offset, count, stride);
+    }
+
+    @Override
+    public ExternalArrayInfo getExternalArrayInfo(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return EpcHdf5FileManager.readEpcExternalArrayInfo(energyml_array, root_obj, pathInRoot, getOwningMember(root_obj).epcView, hdfFileCache, externalPathCache);
+    }
+
+    /**
+     * Describes all the external arrays of the workspace objects, without reading their values.
+     * Objects are loaded (and cached) to find their arrays.
+     * @return the descriptions by object identifier
+     */
+    public Map<String, List<ExternalArrayInfo>> getAllExternalArrayInfos() {
+        Map<String, List<ExternalArrayInfo>> result = new LinkedHashMap<>();
+        for (String uuid : new TreeSet<>(getAllUuids())) {
+            for (EPCPartLocation location : getPartLocations(uuid)) {
+                String identifier = EPCFile.getIdentifier(uuid, location.getObjectVersion());
+                Object obj = getObjectByIdentifier(identifier);
+                if (obj != null && !result.containsKey(identifier)) {
+                    List<ExternalArrayInfo> infos = EnergymlWorkspaceHelper.getExternalArrayInfos(obj, this);
+                    if (!infos.isEmpty()) {
+                        result.put(identifier, infos);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Member getOwningMember(Object root_obj) throws ObjectNotFoundNotError {
+        CompactIdentifier rootIdentifier = EPCFile.getCompactIdentifier(root_obj);
+        EPCPartLocation location = findLocation(rootIdentifier);
+        if (location == null) {
+            throw new ObjectNotFoundNotError("No epc file found in workspace for " + rootIdentifier);
+        }
+        Member member = members.get(location.getEpcFilePath());
+        if (member == null) {
+            throw new ObjectNotFoundNotError("Epc file " + location.getEpcFilePath() + " has been removed from workspace");
+        }
+        return member;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (String epcPath : getFiles()) {
+            removeFile(epcPath);
+        }
+        hdfFileCache.close();
+    }
+
+    /**
+     * Finds the part of an object. Parts which version can not be known from their path are loaded to compare
+     * their real identifier.
+     */
+    private EPCPartLocation findLocation(CompactIdentifier identifier) {
+        String version = identifier.getVersion();
+        for (EPCPartLocation location : getPartLocations(identifier.withoutVersion())) {
+            if (location.getObjectVersion() == null || location.getObjectVersion().equals(version)) {
+                Object obj = loadPart(location);
+                if (obj != null && identifier.equals(EPCFile.getCompactIdentifier(obj))) {
+                    return location;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Object loadPart(EPCPartLocation location) {
+        Member member = members.get(location.getEpcFilePath());
+        if (member == null) {
+            return null;
+        }
+        CompactIdentifier loadedIdentifier = member.loadedParts.get(location.getPartPath());
+        if (loadedIdentifier != null) {
+            Object loaded = getLoaded(loadedIdentifier);
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+        try (InputStream is = member.zip.getInputStream(member.zip.getEntry(location.getPartPath()))) {
+            Object obj = pkgManager.unmarshal(is.readAllBytes()).getValue();
+            CompactIdentifier identifier = EPCFile.getCompactIdentifier(obj);
+            Object previous;
+            synchronized (loadedObjects) {
+                previous = loadedObjects.putIfAbsent(identifier, obj);
+                if (previous == null && accessibleDORIndex != null) {
+                    accessibleDORIndex.add(obj);
+                }
+            }
+            member.loadedParts.put(location.getPartPath(), identifier);
+            attachAdditionalRels(member, location.getPartPath(), identifier);
+            return previous != null ? previous : obj;
+        } catch (Exception e) {
+            logger.error("@loadPart failed to read {} : {}", location, e.getMessage());
+            logger.debug(e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private static void attachAdditionalRels(Member member, String partPath, CompactIdentifier identifier) {
+        Map<String, List<Relationship>> relsByPart = member.relsByPart;
+        if (relsByPart != null) {
+            List<Relationship> rels = relsByPart.get(partPath);
+            if (rels != null) {
+                member.additionalRels.putIfAbsent(identifier.toString(), rels);
+            }
+        }
+    }
+
+    /* reads the additional rels of the member, keyed by the path of their part. Objects are not loaded */
+    private Map<String, List<Relationship>> readAdditionalRels(Member member) {
+        Map<String, List<Relationship>> relsByPart = new HashMap<>();
+        Enumeration<? extends ZipEntry> entries = member.zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory() || !entry.getName().endsWith("." + OPCRelsPackage.getRelsExtension())) {
+                continue;
+            }
+            String uuid = EPCGenericManager.findUUID(Paths.get(entry.getName()).getFileName().toString());
+            if (uuid == null) {
+                continue;
+            }
+            List<Relationship> additional = new ArrayList<>();
+            try (InputStream is = member.zip.getInputStream(entry)) {
+                Relationships relsObj = OPCRelsPackage.parseRels(is);
+                for (Relationship r : relsObj.getRelationship()) {
+                    if (EPCRelsRelationshipType.DestinationObject.getType().compareToIgnoreCase(r.getType()) != 0
+                            && EPCRelsRelationshipType.SourceObject.getType().compareToIgnoreCase(r.getType()) != 0) {
+                        additional.add(r);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("@readAdditionalRels failed to read {} : {}", entry.getName(), e.getMessage());
+            }
+            if (additional.isEmpty()) {
+                continue;
+            }
+            // "folder/_rels/part.xml.rels" describes "folder/part.xml"
+            String relsName = entry.getName();
+            String partPath = relsName.substring(0, relsName.length() - OPCRelsPackage.getRelsExtension().length() - 1)
+                    .replace("_rels/", "");
+            List<EPCPartLocation> memberLocations = new ArrayList<>();
+            for (EPCPartLocation location : getPartLocations(CompactIdentifier.of(uuid, null))) {
+                if (location.getEpcFilePath().equals(member.epcFilePath)) {
+                    if (location.getPartPath().equals(partPath)) {
+                        memberLocations = List.of(location);
+                        break;
+                    }
+                    memberLocations.add(location);
+                }
+            }
+            for (EPCPartLocation location : memberLocations) {
+                relsByPart.computeIfAbsent(location.getPartPath(), k -> new ArrayList<>()).addAll(additional);
+            }
+        }
+        return relsByPart;
+    }
+
+    private static EPCPartLocation createPartLocation(String epcFilePath, ZipEntry entry) {
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.toLowerCase().endsWith(".xml")) {
+            return null;
+        }
+        String fileName = Paths.get(name).getFileName().toString();
+        Matcher uuidMatcher = EPCGenericManager.PATTERN_UUID.matcher(fileName);
+        if (!uuidMatcher.find()) {
+            return null;
+        }
+        String uuid = uuidMatcher.group("uuid");
+        String objectType = uuidMatcher.start() > 0 ? fileName.substring(0, uuidMatcher.start() - 1) : "";
+        Matcher versionMatcher = PATTERN_PART_VERSION_FOLDER.matcher(name);
+        String objectVersion = versionMatcher.find() ? versionMatcher.group("version") : null;
+        return new EPCPartLocation(epcFilePath, name, uuid, objectType, objectVersion);
+    }
+}
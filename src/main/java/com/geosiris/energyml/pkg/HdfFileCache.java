@@ -0,0 +1,319 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import io.jhdf.HdfFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of open {@link HdfFile}, so the superblock and b-trees of a h5 file are parsed once for all the arrays
+ * read from it.
+ * Files are acquired with {@link #acquire(String)} and released by closing the returned {@link Handle}. A file is
+ * only closed when it is not used : when more than 'maxOpenFiles' files are open (least recently used first), when it
+ * has not been used for 'idleTimeout', when it has been modified on disk, or when the cache is closed.
+ * Idle files are closed during the next {@link #acquire(String)} or with {@link #closeIdle()}, no thread is started.
+ * Files are opened and closed outside of the cache lock : threads acquiring the same file wait for the one opening it,
+ * other files stay available meanwhile. Readers may share a handle from different threads.
+ */
+public class HdfFileCache implements Closeable {
+    public static Logger logger = LogManager.getLogger(HdfFileCache.class);
+
+    public static final int DEFAULT_MAX_OPEN_FILES = 16;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+
+    /**
+     * A reference to an open file, must be closed to release the file.
+     */
+    public static class Handle implements AutoCloseable {
+        private final HdfFileCache cache;
+        private final Entry entry;
+        private boolean released;
+
+        private Handle(HdfFileCache cache, Entry entry) {
+            this.cache = cache;
+            this.entry = entry;
+            this.released = false;
+        }
+
+        public HdfFile getFile() {
+            return entry.file.join();
+        }
+
+        /**
+         * @return the absolute normalized path of the file
+         */
+        public String getFilePath() {
+            return entry.filePath;
+        }
+
+        /**
+         * @return the modification time of the file when it was acquired
+         */
+        public long getLastModified() {
+            return entry.lastModified;
+        }
+
+        @Override
+        public void close() {
+            List<Entry> toClose = new ArrayList<>();
+            synchronized (cache) {
+                if (!released) {
+                    released = true;
+                    cache.release(entry, toClose);
+                }
+            }
+            closeFiles(toClose);
+        }
+    }
+
+    private static class Entry {
+        final String filePath;
+        /** completed by the thread opening the file */
+        final CompletableFuture<HdfFile> file;
+        final long lastModified;
+        int refCount;
+        long lastUse;
+        /** removed from the cache (stale or cache closed), closed when no more used */
+        boolean detached;
+
+        Entry(String filePath, long lastModified) {
+            this.filePath = filePath;
+            this.file = new CompletableFuture<>();
+            this.lastModified = lastModified;
+            this.refCount = 0;
+            this.lastUse = System.nanoTime();
+            this.detached = false;
+        }
+    }
+
+    private final int maxOpenFiles;
+    private final long idleTimeoutNanos;
+
+    /** Open files, in access order */
+    private final LinkedHashMap<String, Entry> entries;
+    private boolean closed;
+
+    private long openCount;
+    private long hitCount;
+
+    public HdfFileCache(int maxOpenFiles, long idleTimeout, TimeUnit unit) {
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.closed = false;
+    }
+
+    public HdfFileCache() {
+        this(DEFAULT_MAX_OPEN_FILES, DEFAULT_IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a h5 file or reuses an already open one. The returned handle must be closed after use.
+     * @param filePath path to the h5 file
+     */
+    public Handle acquire(String filePath) {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        String key = path.toString();
+        long lastModified = new File(key).lastModified();
+
+        List<Entry> toClose = new ArrayList<>();
+        Entry entry;
+        boolean opening = false;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("HdfFileCache is closed");
+            }
+            collectIdle(toClose);
+            entry = entries.get(key);
+            if (entry != null && entry.lastModified != lastModified) {
+                logger.debug("@acquire {} has been modified, reopening it", key);
+                entries.remove(key);
+                detach(entry, toClose);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(key, lastModified);
+                entries.put(key, entry);
+                openCount++;
+                opening = true;
+            } else {
+                hitCount++;
+            }
+            entry.refCount++;
+            entry.lastUse = System.nanoTime();
+            evictOverflow(toClose);
+        }
+        closeFiles(toClose);
+
+        if (opening) {
+            try {
+                entry.file.complete(new HdfFile(path));
+            } catch (Throwable e) {
+                // completed anyway so the threads waiting for this file do not block
+                entry.file.completeExceptionally(e);
+            }
+        }
+        try {
+            entry.file.join();
+        } catch (CompletionException e) {
+            synchronized (this) {
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+                entry.detached = true;
+                entry.refCount--;
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        return new Handle(this, entry);
+    }
+
+    /* Must be called with the lock, the files to close are added to 'toClose' */
+    private void release(Entry entry, List<Entry> toClose) {
+        entry.refCount--;
+        entry.lastUse = System.nanoTime();
+        if (entry.detached && entry.refCount <= 0) {
+            toClose.add(entry);
+        } else {
+            evictOverflow(toClose);
+        }
+    }
+
+    /**
+     * Closes the files that are not used and have not been used since the idle timeout.
+     * @return the number of closed files
+     */
+    public int closeIdle() {
+        List<Entry> toClose = new ArrayList<>();
+        synchronized (this) {
+            collectIdle(toClose);
+        }
+        closeFiles(toClose);
+        return toClose.size();
+    }
+
+    /* Removes the idle files from the cache, must be called with the lock */
+    private void collectIdle(List<Entry> toClose) {
+        long now = System.nanoTime();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.refCount <= 0 && now - entry.lastUse >= idleTimeoutNanos) {
+                it.remove();
+                toClose.add(entry);
+            }
+        }
+    }
+
+    /* Removes the least recently used unused files while there are too many open files, must be called with the lock */
+    private void evictOverflow(List<Entry> toClose) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxOpenFiles && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.refCount <= 0) {
+                it.remove();
+                toClose.add(entry);
+            }
+        }
+    }
+
+    private void detach(Entry entry, List<Entry> toClose) {
+        entry.detached = true;
+        if (entry.refCount <= 0) {
+            toClose.add(entry);
+        }
+    }
+
+    /* Closes files removed from the cache, without the lock. Unused entries are always opened (or failed to open) */
+    private static void closeFiles(List<Entry> toClose) {
+        for (Entry entry : toClose) {
+            HdfFile file = entry.file.isCompletedExceptionally() ? null : entry.file.getNow(null);
+            if (file == null) {
+                continue;
+            }
+            try {
+                file.close();
+            } catch (Exception e) {
+                logger.error("@closeFiles failed to close {} : {}", entry.filePath, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes all the files. Files still in use are closed when their last handle is released.
+     */
+    @Override
+    public void close() {
+        List<Entry> toClose = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Entry entry : entries.values()) {
+                detach(entry, toClose);
+            }
+            entries.clear();
+        }
+        closeFiles(toClose);
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the number of files currently open by the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of times a file has been opened
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * @return the number of times an already open file has been reused
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public long getIdleTimeout(TimeUnit unit) {
+        return unit.convert(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+}
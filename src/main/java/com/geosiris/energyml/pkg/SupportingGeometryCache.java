@@ -0,0 +1,181 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.pkg;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.Point3dLattice;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the geometries of the supporting representations (e.g. the Grid2dRepresentation referenced by the
+ * Point3dFromRepresentationLatticeArray of several horizons), so a geometry shared by many representations is
+ * computed once. A geometry is identified by its representation identifier and its patch index, and is either a
+ * {@link Point3dLattice} (kept as its parameters) or the points as a {@link NumericArray}.
+ * The cached geometries are bounded by 'maxBytes' : the least recently used are evicted first, geometries bigger
+ * than the budget are not cached. Cached geometries are shared and must not be modified. This class is thread-safe.
+ */
+public class SupportingGeometryCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /* Approximate size of the lattice parameters and of the objects */
+    private static final long LATTICE_BASE_BYTES = 256;
+
+    /** Cache key to the cached geometry, in access order */
+    private final LinkedHashMap<String, Object> entries;
+    private long maxBytes;
+    private long usedBytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public SupportingGeometryCache(long maxBytes) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxBytes = maxBytes;
+        this.usedBytes = 0;
+    }
+
+    public static String getKey(String representationIdentifier, int patchIndex) {
+        return representationIdentifier + "|" + patchIndex;
+    }
+
+    /**
+     * @return the size of a geometry in memory, in bytes
+     */
+    public static long getSize(Object geometry) {
+        if (geometry instanceof Point3dLattice) {
+            Point3dLattice lattice = (Point3dLattice) geometry;
+            return LATTICE_BASE_BYTES + 8L * (lattice.getNbRows() + lattice.getNbColumns());
+        }
+        NumericArray points = (NumericArray) geometry;
+        return points.size() * points.getElementType().getSize();
+    }
+
+    /**
+     * @return the cached {@link Point3dLattice} or {@link NumericArray} of the patch, null if it is not cached
+     */
+    public synchronized Object get(String representationIdentifier, int patchIndex) {
+        Object geometry = entries.get(getKey(representationIdentifier, patchIndex));
+        if (geometry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return geometry;
+    }
+
+    /**
+     * Caches the geometry of a patch, if it is not bigger than the budget. The geometry is computed by the caller
+     * without lock : two threads missing the same geometry at the same time may both compute it.
+     * @param geometry a {@link Point3dLattice} or a {@link NumericArray} of points
+     * @return the cached geometry, which is the one already cached if another thread put it first
+     */
+    public Object put(String representationIdentifier, int patchIndex, Object geometry) {
+        if (!(geometry instanceof Point3dLattice) && !(geometry instanceof NumericArray)) {
+            throw new IllegalArgumentException("Not supported supporting geometry " + geometry);
+        }
+        long nbBytes = getSize(geometry);
+        synchronized (this) {
+            if (nbBytes > maxBytes) {
+                return geometry;
+            }
+            Object previous = entries.putIfAbsent(getKey(representationIdentifier, patchIndex), geometry);
+            if (previous != null) {
+                return previous;
+            }
+            usedBytes += nbBytes;
+            evictOverflow();
+        }
+        return geometry;
+    }
+
+    /* Evicts the least recently used geometries while the budget is exceeded */
+    private void evictOverflow() {
+        Iterator<Object> it = entries.values().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Object evicted = it.next();
+            it.remove();
+            usedBytes -= getSize(evicted);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Changes the budget, evicting geometries if needed.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evictOverflow();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Removes the geometries of all the patches of a representation (e.g. after it has been modified).
+     */
+    public synchronized void invalidate(String representationIdentifier) {
+        String prefix = representationIdentifier + "|";
+        Iterator<Map.Entry<String, Object>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Object> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                it.remove();
+                usedBytes -= getSize(entry.getValue());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * @return the number of cached geometries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the size of the cached geometries, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SupportingGeometryCache{" + entries.size() + " geometries, " + usedBytes + "/" + maxBytes + " bytes}";
+    }
+}
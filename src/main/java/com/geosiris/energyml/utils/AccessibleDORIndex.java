@@ -0,0 +1,128 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import java.util.*;
+
+/**
+ * Index of workspace objects bucketed by their concrete class. Superclass suffix matching
+ * (see {@link ObjectController#hasSuperClassSuffix(Class, String)}) is done once per (class, suffix)
+ * instead of once per object, so the accessible DOR candidates of a type are found by
+ * selecting the matching buckets.
+ * The index must be rebuilt (or updated with {@link #add(Object)}/{@link #remove(Object)}) when the workspace changes,
+ * the workspaces keep theirs up to date (see {@link EnergymlWorkspace#getAccessibleDORIndex()}).
+ */
+public class AccessibleDORIndex {
+
+    /** Objects grouped by concrete class, in the order the classes were first met */
+    private final Map<Class<?>, Set<Object>> buckets;
+
+    /** Lower-cased suffix -> classes of the index that have a (super)class ending with this suffix */
+    private final Map<String, Set<Class<?>>> suffixMatches;
+
+    public AccessibleDORIndex() {
+        this.buckets = new LinkedHashMap<>();
+        this.suffixMatches = new HashMap<>();
+    }
+
+    public AccessibleDORIndex(Collection<?> objects) {
+        this();
+        for (Object o : objects) {
+            add(o);
+        }
+    }
+
+    public synchronized void add(Object obj) {
+        if (obj != null) {
+            Set<Object> bucket = buckets.get(obj.getClass());
+            if (bucket == null) {
+                bucket = new LinkedHashSet<>();
+                buckets.put(obj.getClass(), bucket);
+                // a new class may match already computed suffixes
+                suffixMatches.clear();
+            }
+            bucket.add(obj);
+        }
+    }
+
+    public synchronized void remove(Object obj) {
+        if (obj != null) {
+            Set<Object> bucket = buckets.get(obj.getClass());
+            if (bucket != null) {
+                bucket.remove(obj);
+                if (bucket.isEmpty()) {
+                    buckets.remove(obj.getClass());
+                    suffixMatches.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param classSuffix a class name suffix, compared case-insensitively
+     * @return the classes of the index having a superclass (or itself) ending with classSuffix
+     */
+    public synchronized Set<Class<?>> getMatchingClasses(String classSuffix) {
+        return suffixMatches.computeIfAbsent(classSuffix.toLowerCase(), suffix -> {
+            Set<Class<?>> matching = new HashSet<>();
+            for (Class<?> objClass : buckets.keySet()) {
+                if (ObjectController.hasSuperClassSuffix(objClass, suffix)) {
+                    matching.add(objClass);
+                }
+            }
+            return matching;
+        });
+    }
+
+    /**
+     * Returns every indexed object having a superclass that ends with one of the given suffixes.
+     * Each object appears only once in the result.
+     * @param classSuffixes class name suffixes (e.g. "AbstractFeatureInterpretation")
+     * @return the matching objects, grouped by class
+     */
+    public synchronized List<Object> getObjectsMatchingSuffixes(Collection<String> classSuffixes) {
+        Set<Class<?>> matchingClasses = new HashSet<>();
+        for (String suffix : classSuffixes) {
+            matchingClasses.addAll(getMatchingClasses(suffix));
+        }
+        List<Object> result = new ArrayList<>();
+        for (Map.Entry<Class<?>, Set<Object>> bucket : buckets.entrySet()) {
+            if (matchingClasses.contains(bucket.getKey())) {
+                result.addAll(bucket.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all the indexed objects, grouped by class
+     */
+    public synchronized List<Object> getObjects() {
+        List<Object> result = new ArrayList<>();
+        for (Set<Object> bucket : buckets.values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    public synchronized List<Object> getObjects(Class<?> objClass) {
+        return new ArrayList<>(buckets.getOrDefault(objClass, Set.of()));
+    }
+
+    public synchronized int size() {
+        return buckets.values().stream().mapToInt(Set::size).sum();
+    }
+}
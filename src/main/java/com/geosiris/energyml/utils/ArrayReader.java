@@ -0,0 +1,33 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import java.util.List;
+
+/**
+ * Reads the values of an energyml array type, see {@link EnergymlWorkspaceHelper#registerArrayReader(Class, ArrayReader)}.
+ */
+@FunctionalInterface
+public interface ArrayReader {
+    /**
+     * @param energymlArray the array object
+     * @param rootObj the root object containing the array
+     * @param pathInRoot path of the array in the root object
+     * @param workspace the workspace to read the external data and referenced objects (may be null)
+     * @return the values of the array
+     */
+    List<?> read(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws Exception;
+}
@@ -0,0 +1,173 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import java.util.Objects;
+
+/**
+ * Compact form of an object identifier 'OBJ_UUID.OBJ_VERSION' (see {@link com.geosiris.energyml.pkg.EPCFile#getIdentifier(Object)}).
+ * The uuid is stored as two longs and the object version is interned, so identifiers sharing a version share the
+ * same String. Uuids that are not in the canonical lower-case form (8-4-4-4-12 hex digits) are kept as String to
+ * be rebuilt exactly.
+ * An empty object version is the same as no version (null).
+ */
+public final class CompactIdentifier {
+    private final long mostSigBits;
+    private final long leastSigBits;
+    /** Not null only for non canonical uuids */
+    private final String rawUuid;
+    private final String version;
+
+    CompactIdentifier(long mostSigBits, long leastSigBits, String rawUuid, String version) {
+        this.mostSigBits = mostSigBits;
+        this.leastSigBits = leastSigBits;
+        this.rawUuid = rawUuid;
+        this.version = version;
+    }
+
+    public static CompactIdentifier of(String uuid, String version) {
+        String v = version == null || version.isEmpty() ? null : version.intern();
+        if (isCanonicalUuid(uuid)) {
+            return new CompactIdentifier(parseHex(uuid, 0, 8) << 32 | parseHex(uuid, 9, 13) << 16 | parseHex(uuid, 14, 18),
+                    parseHex(uuid, 19, 23) << 48 | parseHex(uuid, 24, 36), null, v);
+        }
+        return new CompactIdentifier(0, 0, uuid, v);
+    }
+
+    /**
+     * @param identifier an identifier as 'OBJ_UUID.OBJ_VERSION' or 'OBJ_UUID.'
+     */
+    public static CompactIdentifier parse(String identifier) {
+        int dot = identifier.indexOf(".");
+        if (dot < 0) {
+            return of(identifier, null);
+        }
+        return of(identifier.substring(0, dot), identifier.substring(dot + 1));
+    }
+
+    private static boolean isCanonicalUuid(String uuid) {
+        if (uuid == null || uuid.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = uuid.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String s, int begin, int end) {
+        long value = 0;
+        for (int i = begin; i < end; i++) {
+            value = value << 4 | Character.digit(s.charAt(i), 16);
+        }
+        return value;
+    }
+
+    private static void appendHex(StringBuilder sb, long value, int nbDigits) {
+        for (int shift = (nbDigits - 1) * 4; shift >= 0; shift -= 4) {
+            sb.append(Character.forDigit((int) (value >>> shift) & 0xf, 16));
+        }
+    }
+
+    long getMostSigBits() {
+        return mostSigBits;
+    }
+
+    long getLeastSigBits() {
+        return leastSigBits;
+    }
+
+    String getRawUuid() {
+        return rawUuid;
+    }
+
+    public String getUuid() {
+        if (rawUuid != null) {
+            return rawUuid;
+        }
+        StringBuilder sb = new StringBuilder(36);
+        appendHex(sb, mostSigBits >>> 32, 8);
+        sb.append('-');
+        appendHex(sb, mostSigBits >>> 16, 4);
+        sb.append('-');
+        appendHex(sb, mostSigBits, 4);
+        sb.append('-');
+        appendHex(sb, leastSigBits >>> 48, 4);
+        sb.append('-');
+        appendHex(sb, leastSigBits, 12);
+        return sb.toString();
+    }
+
+    /**
+     * @return the object version, null if the object has no version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the same identifier without version
+     */
+    public CompactIdentifier withoutVersion() {
+        return version == null ? this : new CompactIdentifier(mostSigBits, leastSigBits, rawUuid, null);
+    }
+
+    static int hash(long mostSigBits, long leastSigBits, String rawUuid, String version) {
+        long h = mostSigBits * 0x9E3779B97F4A7C15L ^ leastSigBits;
+        h ^= h >>> 32;
+        int result = (int) h;
+        if (rawUuid != null) {
+            result = 31 * result + rawUuid.hashCode();
+        }
+        if (version != null) {
+            result = 31 * result + version.hashCode();
+        }
+        return result ^ (result >>> 16);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(mostSigBits, leastSigBits, rawUuid, version);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactIdentifier)) {
+            return false;
+        }
+        CompactIdentifier other = (CompactIdentifier) o;
+        return mostSigBits == other.mostSigBits && leastSigBits == other.leastSigBits
+                && Objects.equals(rawUuid, other.rawUuid) && Objects.equals(version, other.version);
+    }
+
+    /**
+     * @return the identifier as 'OBJ_UUID.OBJ_VERSION'
+     */
+    @Override
+    public String toString() {
+        return getUuid() + "." + (version != null ? version : "");
+    }
+}
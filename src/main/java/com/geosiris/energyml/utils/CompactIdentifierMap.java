@@ -0,0 +1,448 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Open-addressing (linear probing) hash map keyed by {@link CompactIdentifier}.
+ * Keys are not stored as objects but spread in parallel arrays (two longs and the interned version per slot), which
+ * avoids the key Strings and the entry objects of a {@link java.util.HashMap} for large object catalogs.
+ * Null values are not allowed. This class is not thread-safe.
+ * Methods taking a String identifier ('OBJ_UUID.OBJ_VERSION') are adapters for the String based API, see also
+ * {@link StringIdentifierMap} for a Map view keyed by String identifiers.
+ * The entry set and the values are views iterating the table, key objects are only created by {@link Map.Entry#getKey()}.
+ */
+public class CompactIdentifierMap<V> extends AbstractMap<CompactIdentifier, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private String[] rawUuids;
+    private String[] versions;
+    /** null for empty slots */
+    private Object[] values;
+    private int size;
+    /** structural modifications count, for the iterators */
+    private int modCount;
+
+    public CompactIdentifierMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CompactIdentifierMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR)));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+
+    private void allocate(int tableSize) {
+        mostSigBits = new long[tableSize];
+        leastSigBits = new long[tableSize];
+        rawUuids = new String[tableSize];
+        versions = new String[tableSize];
+        values = new Object[tableSize];
+        size = 0;
+        modCount++;
+    }
+
+    private int indexOf(CompactIdentifier key) {
+        int mask = values.length - 1;
+        int i = key.hashCode() & mask;
+        while (values[i] != null) {
+            if (mostSigBits[i] == key.getMostSigBits() && leastSigBits[i] == key.getLeastSigBits()
+                    && (versions[i] == key.getVersion() || Objects.equals(versions[i], key.getVersion()))
+                    && Objects.equals(rawUuids[i], key.getRawUuid())) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1 - i;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof CompactIdentifier)) {
+            return null;
+        }
+        int i = indexOf((CompactIdentifier) key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    public V get(String uuid, String version) {
+        return get(CompactIdentifier.of(uuid, version));
+    }
+
+    public V getByIdentifier(String identifier) {
+        return get(CompactIdentifier.parse(identifier));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof CompactIdentifier && indexOf((CompactIdentifier) key) >= 0;
+    }
+
+    /**
+     * @return the previous value, or null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(CompactIdentifier key, V value) {
+        Objects.requireNonNull(value);
+        int i = indexOf(key);
+        if (i >= 0) {
+            V previous = (V) values[i];
+            values[i] = value;
+            return previous;
+        }
+        if (size + 1 > values.length * LOAD_FACTOR) {
+            resize(values.length * 2);
+            i = indexOf(key);
+        }
+        i = -1 - i;
+        mostSigBits[i] = key.getMostSigBits();
+        leastSigBits[i] = key.getLeastSigBits();
+        rawUuids[i] = key.getRawUuid();
+        versions[i] = key.getVersion();
+        values[i] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    public V putByIdentifier(String identifier, V value) {
+        return put(CompactIdentifier.parse(identifier), value);
+    }
+
+    /**
+     * @return the current value if present, otherwise puts value and returns null
+     */
+    @Override
+    public V putIfAbsent(CompactIdentifier key, V value) {
+        V current = get(key);
+        if (current == null) {
+            put(key, value);
+        }
+        return current;
+    }
+
+    @Override
+    public V computeIfAbsent(CompactIdentifier key, Function<? super CompactIdentifier, ? extends V> mappingFunction) {
+        V current = get(key);
+        if (current == null) {
+            current = mappingFunction.apply(key);
+            if (current != null) {
+                put(key, current);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (!(key instanceof CompactIdentifier)) {
+            return null;
+        }
+        int i = indexOf((CompactIdentifier) key);
+        if (i < 0) {
+            return null;
+        }
+        V removed = (V) values[i];
+        // backward shift deletion : moves back the following entries of the probe sequence
+        int mask = values.length - 1;
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (values[j] != null) {
+            int home = CompactIdentifier.hash(mostSigBits[j], leastSigBits[j], rawUuids[j], versions[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                mostSigBits[hole] = mostSigBits[j];
+                leastSigBits[hole] = leastSigBits[j];
+                rawUuids[hole] = rawUuids[j];
+                versions[hole] = versions[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        rawUuids[hole] = null;
+        versions[hole] = null;
+        values[hole] = null;
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    public V removeByIdentifier(String identifier) {
+        return remove(CompactIdentifier.parse(identifier));
+    }
+
+    private void resize(int tableSize) {
+        long[] oldMost = mostSigBits;
+        long[] oldLeast = leastSigBits;
+        String[] oldRaw = rawUuids;
+        String[] oldVersions = versions;
+        Object[] oldValues = values;
+        allocate(tableSize);
+        int mask = tableSize - 1;
+        for (int k = 0; k < oldValues.length; k++) {
+            if (oldValues[k] != null) {
+                int i = CompactIdentifier.hash(oldMost[k], oldLeast[k], oldRaw[k], oldVersions[k]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                mostSigBits[i] = oldMost[k];
+                leastSigBits[i] = oldLeast[k];
+                rawUuids[i] = oldRaw[k];
+                versions[i] = oldVersions[k];
+                values[i] = oldValues[k];
+                size++;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Key objects are created during the iteration.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super CompactIdentifier, ? super V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                action.accept(new CompactIdentifier(mostSigBits[i], leastSigBits[i], rawUuids[i], versions[i]), (V) values[i]);
+            }
+        }
+    }
+
+    public List<CompactIdentifier> keys() {
+        List<CompactIdentifier> keys = new ArrayList<>(size);
+        forEach((k, v) -> keys.add(k));
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new TableIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V element(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                CompactIdentifierMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<CompactIdentifier, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<CompactIdentifier, V>> iterator() {
+                return new TableIterator<>() {
+                    @Override
+                    Map.Entry<CompactIdentifier, V> element(int index) {
+                        return new Entry(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                CompactIdentifierMap.this.clear();
+            }
+        };
+    }
+
+    /*
+     * Iterates the slots cyclically, starting after an empty slot : no probe sequence crosses the start, so the
+     * backward shift of a removal only moves entries that have not been visited yet into the hole, which is scanned
+     * again.
+     */
+    private abstract class TableIterator<E> implements Iterator<E> {
+        private final int start;
+        /** number of slots visited since start */
+        private int visited;
+        private int nextIndex = -1;
+        private int lastIndex = -1;
+        private int expectedModCount = modCount;
+
+        TableIterator() {
+            int i = 0;
+            while (values[i] != null) {
+                i++;
+            }
+            start = i;
+            advance();
+        }
+
+        abstract E element(int index);
+
+        private void advance() {
+            int mask = values.length - 1;
+            nextIndex = -1;
+            while (visited < values.length) {
+                int i = (start + visited) & mask;
+                visited++;
+                if (values[i] != null) {
+                    nextIndex = i;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex >= 0;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (nextIndex < 0) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            E element = element(lastIndex);
+            advance();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            CompactIdentifierMap.this.remove(new CompactIdentifier(mostSigBits[lastIndex], leastSigBits[lastIndex],
+                    rawUuids[lastIndex], versions[lastIndex]));
+            expectedModCount = modCount;
+            // the following entries may have been shifted into the hole
+            visited = (lastIndex - start) & (values.length - 1);
+            lastIndex = -1;
+            advance();
+        }
+    }
+
+    /* Entry of a slot, valid until the next structural modification of the map */
+    private final class Entry implements Map.Entry<CompactIdentifier, V> {
+        private final int index;
+        private CompactIdentifier key;
+
+        Entry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public CompactIdentifier getKey() {
+            if (key == null) {
+                key = new CompactIdentifier(mostSigBits[index], leastSigBits[index], rawUuids[index], versions[index]);
+            }
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
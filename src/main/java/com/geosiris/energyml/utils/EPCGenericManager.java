@@ -102,7 +102,9 @@ public class EPCGenericManager {
     /**
      * Retourne la liste des objets assignables pour un DOR en fonction d'un filtre
      * par type défini dans mapAccessibleDORTypes
-     *
+     * The objects are indexed for each call : for the objects of a workspace, prefer
+     * {@link #getAccessibleDORs(Object, Object, String, EnergymlWorkspace, Map)} which uses the index it keeps.
+     * The result is grouped by class, not in the order of resqmlObjList.
      */
     public static List<Object> getAccessibleDORs(
             Object resqmlCurrentObj,
@@ -110,7 +112,43 @@ public class EPCGenericManager {
             String subAttributePath,
             Collection<Object> resqmlObjList,
             Map<String, List<String>> mapAccessibleDORTypes) {
-        List<Object> accessible = new ArrayList<>();
+        return getAccessibleDORs(resqmlCurrentObj, subAttribute, subAttributePath, resqmlObjList, new AccessibleDORIndex(resqmlObjList), mapAccessibleDORTypes);
+    }
+
+    /**
+     * Same as {@link #getAccessibleDORs(Object, Object, String, Collection, Map)} for the objects of a workspace,
+     * taken from the index it keeps up to date (see {@link EnergymlWorkspace#getAccessibleDORIndex()}).
+     * The result is grouped by class, not in the order of the workspace objects.
+     * @throws UnsupportedOperationException if the workspace does not index its objects
+     */
+    public static List<Object> getAccessibleDORs(
+            Object resqmlCurrentObj,
+            Object subAttribute,
+            String subAttributePath,
+            EnergymlWorkspace workspace,
+            Map<String, List<String>> mapAccessibleDORTypes) {
+        AccessibleDORIndex objIndex = workspace.getAccessibleDORIndex();
+        if (objIndex == null) {
+            throw new UnsupportedOperationException("The workspace " + workspace.getClass().getSimpleName() + " does not index its objects");
+        }
+        return getAccessibleDORs(resqmlCurrentObj, subAttribute, subAttributePath, null, objIndex, mapAccessibleDORTypes);
+    }
+
+    /**
+     * Same as {@link #getAccessibleDORs(Object, Object, String, Collection, Map)} but the candidates are taken from
+     * a precomputed {@link AccessibleDORIndex} of the workspace objects. The index should be kept by the caller
+     * and reused for each DOR of the same workspace.
+     * The result is grouped by class, not in the order of resqmlObjList.
+     * @param resqmlObjList null to take the objects of objIndex
+     */
+    public static List<Object> getAccessibleDORs(
+            Object resqmlCurrentObj,
+            Object subAttribute,
+            String subAttributePath,
+            Collection<Object> resqmlObjList,
+            AccessibleDORIndex objIndex,
+            Map<String, List<String>> mapAccessibleDORTypes) {
+        List<Object> accessible;
         Class<?> subAttributeClass = subAttribute != null ? subAttribute.getClass() : null;
 
         logger.info("#getAccessibleDORs [resqmlCurrentObj:" + resqmlCurrentObj + "] [subAttribute: " + subAttribute + "] [subAttributePath: " + subAttributePath + "]");
@@ -118,7 +156,7 @@ public class EPCGenericManager {
             subAttributeClass = resqmlCurrentObj.getClass();
         }
 
-        List<String> accessiblesTypes = new ArrayList<>();
+        Set<String> accessiblesTypes = new HashSet<>();
         if (mapAccessibleDORTypes != null) {
             for (String k : mapAccessibleDORTypes.keySet()) {
                 if (ObjectController.hasSuperClassSuffix(subAttributeClass, k)) {
@@ -128,17 +166,10 @@ public class EPCGenericManager {
         }
 
         if (accessiblesTypes.size() > 0) {
-            for (Object obj : resqmlObjList) {
-                for (String acType : accessiblesTypes) {
-                    if (ObjectController.hasSuperClassSuffix(obj.getClass(), acType)
-                            && !accessible.contains(obj)
-                            && !obj.equals(resqmlCurrentObj)) {
-                        accessible.add(obj);
-                    }
-                }
-            }
+            accessible = objIndex.getObjectsMatchingSuffixes(accessiblesTypes);
+            accessible.remove(resqmlCurrentObj);
         } else {
-            accessible = getAccessibleDORsSimple(subAttributeClass, resqmlObjList);
+            accessible = getAccessibleDORsSimple(subAttributeClass, resqmlObjList != null ? resqmlObjList : objIndex.getObjects());
         }
 
         if (subAttributeClass.getName().endsWith("SingleCollectionAssociation")) {
@@ -167,16 +198,13 @@ public class EPCGenericManager {
                     }
 
                     // On enleve ceux deja présents
-                    accessible = accessible.stream().filter(o -> {
-                        String o_uuid = (String) ObjectController.getObjectAttributeValue(o, "uuid");
-                        for (Object obj_in : dataObject) {
-                            String obj_in_uuid = (String) ObjectController.getObjectAttributeValue(obj_in, "uuid");
-                            if (obj_in_uuid.compareTo(o_uuid) == 0) {
-                                return false;
-                            }
-                        }
-                        return true;
-                    }).collect(Collectors.toList());
+                    final Set<String> dataObjectUuids = dataObject.stream()
+                            .map(obj_in -> (String) ObjectController.getObjectAttributeValue(obj_in, "uuid"))
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toSet());
+                    accessible = accessible.stream()
+                            .filter(o -> !dataObjectUuids.contains((String) ObjectController.getObjectAttributeValue(o, "uuid")))
+                            .collect(Collectors.toList());
                 }
             } else if (subAttributePath.toLowerCase().endsWith("collection")) {
                 accessible = accessible.stream().filter(o -> o.getClass().getName().endsWith("DataobjectCollection")).collect(Collectors.toList());
@@ -15,14 +15,144 @@ limitations under the License.
 */
 package com.geosiris.energyml.utils;
 
+import com.geosiris.energyml.data.ExternalArrayInfo;
+import com.geosiris.energyml.data.NumericArray;
 import com.geosiris.energyml.exception.ObjectNotFoundNotError;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.SupportingGeometryCache;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 public interface EnergymlWorkspace {
     Object getObject(String uuid, String objectVersion);
     Object getObjectByIdentifier(String identifier);
     Object getObjectByUUID(String uuid);
     List<?> readExternalArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError;
+
+    /**
+     * Reads an external array without boxing its values. The default implementation converts the result of
+     * {@link #readExternalArray(Object, Object, String)}, workspaces reading binary data should override it.
+     */
+    default NumericArray readExternalNumericArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return NumericArray.fromList(readExternalArray(energyml_array, root_obj, pathInRoot));
+    }
+
+    /**
+     * Reads a rectangular selection of an external array (see {@link NumericArray#slice(long[], long[], long[])}).
+     * The default implementation reads the whole array, workspaces reading binary data should only read the
+     * selection.
+     * @param stride null for a stride of 1 in each dimension
+     */
+    default NumericArray readExternalNumericArraySlice(Object energyml_array, Object root_obj, String pathInRoot,
+                                                       long[] offset, long[] count, long[] stride) throws ObjectNotFoundNotError {
+        return readExternalNumericArray(energyml_array, root_obj, pathInRoot).slice(offset, count, stride);
+    }
+
+    /**
+     * Describes an external array (dimensions, type, storage). The default implementation reads the array,
+     * workspaces reading binary data should only read the dataset metadata.
+     */
+    default ExternalArrayInfo getExternalArrayInfo(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        NumericArray values = readExternalNumericArray(energyml_array, root_obj, pathInRoot);
+        List<String> references = EnergymlWorkspaceHelper.getHdfReference(energyml_array);
+        return new ExternalArrayInfo(root_obj != null ? EPCFile.getIdentifier(root_obj) : null, pathInRoot, null,
+                references.isEmpty() ? null : references.get(0), values.getShape(), null, null,
+                values.getElementType().getJavaType(), values.getElementType().getSize(),
+                values.size() * values.getElementType().getSize(), null, null, List.of());
+    }
+
+    /**
+     * Reads many external arrays concurrently. The default implementation submits one read per request to the
+     * executor, workspaces reading binary data should group the requests by external file.
+     * A failed read only fails the future of its request, with an {@link ObjectNotFoundNotError} as cause.
+     * @param executor executor running the reads (e.g. a fixed thread pool sized for the disk)
+     * @return one future per request, in the same order
+     */
+    default List<CompletableFuture<NumericArray>> readExternalNumericArraysAsync(List<ExternalArrayRequest> requests, Executor executor) {
+        List<CompletableFuture<NumericArray>> futures = new ArrayList<>(requests.size());
+        for (ExternalArrayRequest request : requests) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return readExternalNumericArray(request.getEnergymlArray(), request.getRootObject(), request.getPathInRoot());
+                } catch (ObjectNotFoundNotError e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        return futures;
+    }
+
+    /**
+     * Same as {@link #readExternalNumericArraysAsync(List, Executor)}, waiting for all the reads.
+     * @return the values of each request, in the requests order
+     * @throws ObjectNotFoundNotError if a read failed (its cause is the first failure), after all the reads ended
+     */
+    default Map<ExternalArrayRequest, NumericArray> readExternalNumericArrays(List<ExternalArrayRequest> requests, Executor executor) throws ObjectNotFoundNotError {
+        List<CompletableFuture<NumericArray>> futures = readExternalNumericArraysAsync(requests, executor);
+        Map<ExternalArrayRequest, NumericArray> result = new LinkedHashMap<>();
+        Throwable firstFailure = null;
+        int nbFailures = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                result.put(requests.get(i), futures.get(i).get());
+            } catch (ExecutionException e) {
+                nbFailures++;
+                if (firstFailure == null) {
+                    firstFailure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ObjectNotFoundNotError("Interrupted while reading external arrays");
+            }
+        }
+        if (firstFailure != null) {
+            ObjectNotFoundNotError error = new ObjectNotFoundNotError(String.format("Failed to read %d of %d external arrays : %s",
+                    nbFailures, requests.size(), firstFailure.getMessage()));
+            error.initCause(firstFailure);
+            throw error;
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the objects of the workspace by class, kept up to date when objects are put or removed
+     * (see {@link EPCGenericManager#getAccessibleDORs(Object, Object, String, EnergymlWorkspace, Map)}), null if the
+     * workspace does not index its objects (default)
+     */
+    default AccessibleDORIndex getAccessibleDORIndex() {
+        return null;
+    }
+
+    /**
+     * @return the cache of the geometries of the supporting representations (see
+     * {@link EnergymlWorkspaceHelper#readPoint3dNumericArray(Object, Object, String, EnergymlWorkspace)}), null if
+     * they are not cached (default)
+     */
+    default SupportingGeometryCache getSupportingGeometryCache() {
+        return null;
+    }
+
+    default double[] readDoubleArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return readExternalNumericArray(energyml_array, root_obj, pathInRoot).toDoubleArray();
+    }
+
+    default long[] readLongArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return readExternalNumericArray(energyml_array, root_obj, pathInRoot).toLongArray();
+    }
+
+    default int[] readIntArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return readExternalNumericArray(energyml_array, root_obj, pathInRoot).toIntArray();
+    }
+
+    default boolean[] readBooleanArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError {
+        return readExternalNumericArray(energyml_array, root_obj, pathInRoot).toBooleanArray();
+    }
 //    List<Number> readArray(Object energyml_array, Object root_obj, String pathInRoot) throws ObjectNotFoundNotError;
 }
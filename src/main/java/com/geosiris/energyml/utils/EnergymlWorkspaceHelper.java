@@ -15,17 +15,27 @@ limitations under the License.
 */
 package com.geosiris.energyml.utils;
 
+import com.geosiris.energyml.data.ArrayChunk;
+import com.geosiris.energyml.data.ArrayChunkSpliterator;
+import com.geosiris.energyml.data.ExternalArrayInfo;
+import com.geosiris.energyml.data.JaggedArray;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.Point3dLattice;
+import com.geosiris.energyml.data.PrimitiveList;
 import com.geosiris.energyml.exception.NotImplementedException;
 import com.geosiris.energyml.exception.ObjectNotFoundNotError;
 import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.SupportingGeometryCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.geosiris.energyml.utils.ObjectController.*;
 
@@ -73,6 +83,22 @@ public class EnergymlWorkspaceHelper {
             "StringXmlArray"
     };
 
+    private static final ReaderRegistry<ArrayReader> ARRAY_READERS = new ReaderRegistry<>(EnergymlWorkspaceHelper::arrayNameMapping);
+    private static final ArrayReader EXTERNAL_ARRAY_READER = EnergymlWorkspaceHelper::readExternalArray;
+
+    static {
+        ARRAY_READERS.register("ConstantArray", EnergymlWorkspaceHelper::readConstantArray);
+        ARRAY_READERS.register("ExternalArray", EXTERNAL_ARRAY_READER);
+        ARRAY_READERS.register("XmlArray", EnergymlWorkspaceHelper::readXmlArray);
+        ARRAY_READERS.register("JaggedArray", EnergymlWorkspaceHelper::readJaggedArray);
+        ARRAY_READERS.register("IntegerRangeArray", EnergymlWorkspaceHelper::readIntegerRangeArray);
+        ARRAY_READERS.register("IntDoubleLatticeArray", EnergymlWorkspaceHelper::readIntDoubleLatticeArray);
+        ARRAY_READERS.register("Point3dZValueArray", EnergymlWorkspaceHelper::readPoint3dZValueArray);
+        ARRAY_READERS.register("Point3dFromRepresentationLatticeArray", EnergymlWorkspaceHelper::readPoint3dFromRepresentationLatticeArray);
+        ARRAY_READERS.register("Point3dLatticeArray", EnergymlWorkspaceHelper::readPoint3dLatticeArray);
+        ARRAY_READERS.register("Grid2dPatch", EnergymlWorkspaceHelper::readGrid2dPatch);
+    }
+
     public static Object getCrsObj(
             Object contextObj,
             String pathInRoot,
@@ -82,7 +108,8 @@ public class EnergymlWorkspaceHelper {
         if (workspace == null) {
             logger.error("@get_crs_obj no Epc file given");
         } else {
-            List<Object> crsList = searchAttributeMatchingName(contextObj, "\\.*Crs", Pattern.CASE_INSENSITIVE, "", false, true);
+            List<Object> crsList = searchAttributeMatchingName(contextObj, "\\.*Crs", Pattern.CASE_INSENSITIVE, "", false, true)
+                    .stream().filter(Objects::nonNull).collect(Collectors.toList());
             if (!crsList.isEmpty()) {
                 Object crs = workspace.getObjectByIdentifier(EPCFile.getIdentifier(crsList.get(0)));
                 if (crs == null) {
@@ -171,8 +198,8 @@ public class EnergymlWorkspaceHelper {
         } else if (arrayTypeName.contains("Jagged")) {
             return "JaggedArray";
         } else if (arrayTypeName.contains("Lattice")) {
-            if (arrayTypeName.contains("Integer") || arrayTypeName.contains("Double")) {
-                return "int_double_lattice_array";
+            if (arrayTypeName.contains("Integer") || arrayTypeName.contains("Double") || arrayTypeName.contains("FloatingPoint")) {
+                return "IntDoubleLatticeArray";
             }
         }
         return arrayTypeName;
@@ -181,7 +208,7 @@ public class EnergymlWorkspaceHelper {
     public static List<String> getSupportedArray() {
         List<String> supportedArray = new ArrayList<>();
         for (String arrayName : _ARRAY_NAMES_) {
-            if (getArrayReaderFunction(arrayNameMapping(arrayName)) != null) {
+            if (ARRAY_READERS.getByName(arrayNameMapping(arrayName)) != null) {
                 supportedArray.add(arrayName);
             }
         }
@@ -191,7 +218,7 @@ public class EnergymlWorkspaceHelper {
     public static List<String> getNotSupportedArray() {
         List<String> notSupportedArray = new ArrayList<>();
         for (String arrayName : _ARRAY_NAMES_) {
-            if (getArrayReaderFunction(arrayNameMapping(arrayName)) == null) {
+            if (ARRAY_READERS.getByName(arrayNameMapping(arrayName)) == null) {
                 notSupportedArray.add(arrayName);
             }
         }
@@ -202,6 +229,34 @@ public class EnergymlWorkspaceHelper {
         return workspace.readExternalArray(energymlArray, rootObj, pathInRoot);
     }
 
+    /**
+     * Registers the reader of an array class (and its subclasses), e.g. for an array type that is not supported by
+     * this library. It is used by {@link #readArray(Object, Object, String, EnergymlWorkspace)} instead of the reader
+     * of the type name of the class (see {@link #arrayNameMapping(String)}).
+     */
+    public static void registerArrayReader(Class<?> arrayClass, ArrayReader reader) {
+        ARRAY_READERS.register(arrayClass, reader);
+    }
+
+    /**
+     * Registers the reader of an array type name (see {@link #arrayNameMapping(String)}), e.g. "ConstantArray" for
+     * the constant arrays of every energyml version. Replaces the reader of the library for this name.
+     */
+    public static void registerArrayReader(String arrayTypeName, ArrayReader reader) {
+        ARRAY_READERS.register(arrayTypeName, reader);
+    }
+
+    /**
+     * @return the reader of an array class, null if the class is not supported
+     */
+    public static ArrayReader getArrayReader(Class<?> arrayClass) {
+        return ARRAY_READERS.get(arrayClass);
+    }
+
+    /**
+     * @deprecated the readers are no longer found by reflection, use {@link #getArrayReader(Class)}
+     */
+    @Deprecated
     public static Method getArrayReaderFunction(String arrayTypeName) {
         try {
             return EnergymlWorkspaceHelper.class.getMethod("read" + arrayTypeName, Object.class, Object.class, String.class, EnergymlWorkspace.class);
@@ -227,119 +282,348 @@ public class EnergymlWorkspaceHelper {
         if (energymlArray instanceof List) {
             return (List<Object>) energymlArray;
         }
+        ArrayReader reader = ARRAY_READERS.get(energymlArray.getClass());
+        if (reader == null) {
+            String arrayTypeName = ARRAY_READERS.getTypeName(energymlArray.getClass());
+            logger.error("Type {} is not supported: no reader registered", arrayTypeName);
+            throw new NotImplementedException("Type " + arrayTypeName + " is not supported\n\t" + energymlArray + ": \n\tno reader registered for " + arrayTypeName);
+        }
+        try {
+            return reader.read(energymlArray, rootObj, pathInRoot, workspace);
+        } catch (InvocationTargetException | IllegalAccessException | NotImplementedException e) {
+            throw e;
+        } catch (Exception e) {
+            // same as the failure of a reflective call, that the callers expect
+            throw new InvocationTargetException(e, "Failed to read " + energymlArray.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Reads an array without boxing its values when possible : external arrays are read with
+     * {@link EnergymlWorkspace#readExternalNumericArray(Object, Object, String)}, the other arrays with
+     * {@link #readArray(Object, Object, String, EnergymlWorkspace)} (not copied if the list is a view of a
+     * NumericArray, see {@link NumericArray#fromList(List)}).
+     */
+    public static NumericArray readNumericArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws InvocationTargetException, IllegalAccessException, NotImplementedException {
+        if (workspace != null && ARRAY_READERS.get(energymlArray.getClass()) == EXTERNAL_ARRAY_READER) {
+            try {
+                return workspace.readExternalNumericArray(energymlArray, rootObj, pathInRoot);
+            } catch (ObjectNotFoundNotError e) {
+                throw new InvocationTargetException(e, "Failed to read " + energymlArray.getClass().getSimpleName());
+            }
+        }
+        return NumericArray.fromList(readArray(energymlArray, rootObj, pathInRoot, workspace));
+    }
+
+    /**
+     * Reads an array by chunks of at most chunkSize values (whole rows of its first dimension), see
+     * {@link ArrayChunkSpliterator}. External arrays are read by hyperslabs (only their dimensions are read first)
+     * and constant arrays are generated, so they can be processed in bounded memory. The other arrays are read with
+     * {@link #readArray(Object, Object, String, EnergymlWorkspace)} then split.
+     */
+    public static ArrayChunkSpliterator getArrayChunkSpliterator(Object energymlArray, Object rootObj, String pathInRoot,
+                                                                 EnergymlWorkspace workspace, long chunkSize)
+            throws ObjectNotFoundNotError, InvocationTargetException, IllegalAccessException, NotImplementedException {
         String arrayTypeName = arrayNameMapping(energymlArray.getClass().getSimpleName());
+        if (arrayTypeName.equals("ExternalArray") && workspace != null) {
+            long[] shape = workspace.getExternalArrayInfo(energymlArray, rootObj, pathInRoot).getDimensions();
+            return ArrayChunkSpliterator.of((firstRow, nbRows) -> {
+                if (shape.length == 0) {
+                    return workspace.readExternalNumericArray(energymlArray, rootObj, pathInRoot);
+                }
+                long[] offset = new long[shape.length];
+                long[] count = shape.clone();
+                offset[0] = firstRow;
+                count[0] = nbRows;
+                return workspace.readExternalNumericArraySlice(energymlArray, rootObj, pathInRoot, offset, count, null);
+            }, shape, chunkSize);
+        } else if (arrayTypeName.equals("ConstantArray")) {
+            Object value = ObjectController.getObjectAttributeValue(energymlArray, "value");
+            long count = ((Number) ObjectController.getObjectAttributeValue(energymlArray, "count")).longValue();
+            return new ArrayChunkSpliterator((firstRow, nbRows) -> constantValues(value, nbRows), count, 1, chunkSize);
+        }
+        return ArrayChunkSpliterator.of(NumericArray.fromList(readArray(energymlArray, rootObj, pathInRoot, workspace)), chunkSize);
+    }
 
-        Method readerFunc = getArrayReaderFunction(arrayTypeName);
-        if (readerFunc != null) {
-            logger.debug("invoke {}", readerFunc.getName());
-            return (List<?>) readerFunc.invoke(null, energymlArray, rootObj, pathInRoot, workspace);
-        } else {
-            logger.error("Type {} is not supported: function read not found", arrayTypeName, arrayTypeName);
-            throw new NotImplementedException("Type " + arrayTypeName + " is not supported\n\t" + energymlArray + ": \n\tfunction read_" + arrayTypeName + " not found");
+    /**
+     * Same as {@link #getArrayChunkSpliterator(Object, Object, String, EnergymlWorkspace, long)} as a stream.
+     * @param parallel true to process the chunks in parallel (the workspace must support concurrent reads)
+     */
+    public static Stream<ArrayChunk> streamArrayChunks(Object energymlArray, Object rootObj, String pathInRoot,
+                                                       EnergymlWorkspace workspace, long chunkSize, boolean parallel)
+            throws ObjectNotFoundNotError, InvocationTargetException, IllegalAccessException, NotImplementedException {
+        return ArrayChunkSpliterator.stream(getArrayChunkSpliterator(energymlArray, rootObj, pathInRoot, workspace, chunkSize), parallel);
+    }
+
+    /**
+     * Same as {@link #getArrayChunkSpliterator(Object, Object, String, EnergymlWorkspace, long)} as an iterator.
+     */
+    public static Iterator<ArrayChunk> iterateArrayChunks(Object energymlArray, Object rootObj, String pathInRoot,
+                                                          EnergymlWorkspace workspace, long chunkSize)
+            throws ObjectNotFoundNotError, InvocationTargetException, IllegalAccessException, NotImplementedException {
+        return Spliterators.iterator(getArrayChunkSpliterator(energymlArray, rootObj, pathInRoot, workspace, chunkSize));
+    }
+
+    /* Virtual array of count values (booleans, integers, or doubles for the other values) */
+    private static NumericArray constantValues(Object value, long count) {
+        if (value instanceof Boolean) {
+            return NumericArray.ofConstant((boolean) (Boolean) value, count);
+        } else if (isIntegral(value)) {
+            return NumericArray.ofConstant(((Number) value).longValue(), count);
         }
+        return NumericArray.ofConstant(value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(String.valueOf(value)), count);
     }
 
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger;
+    }
+
+    /**
+     * Numeric and boolean constant arrays are read as a read-only list view of a virtual array : the values are not
+     * stored (see {@link NumericArray#getViewedArray(List)} to read them with the primitive accessors, and
+     * {@link NumericArray#toDense()} for a copy). Other values are read as a read-only list of copies.
+     * @throws UnsupportedOperationException if the count is greater than Integer.MAX_VALUE
+     */
+    @SuppressWarnings("unchecked")
     public static List<Object> readConstantArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) {
         Object value = ObjectController.getObjectAttributeValue(energymlArray, "value");
-        Integer count = ((Number)ObjectController.getObjectAttributeValue(energymlArray, "count")).intValue();
+        long count = ((Number) ObjectController.getObjectAttributeValue(energymlArray, "count")).longValue();
+        if (value instanceof Number || value instanceof Boolean) {
+            return (List<Object>) constantValues(value, count).asListView();
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Array of " + count + " elements can not be viewed as a java list");
+        }
+        return Collections.nCopies((int) count, value);
+    }
 
-        List<Object> result = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            result.add(value);
+    /**
+     * Reads an integer range array as a read-only list view of a virtual array : count values from 'value'.
+     * Copy it (e.g. in an ArrayList) to modify it.
+     * @throws UnsupportedOperationException if the count is greater than Integer.MAX_VALUE
+     */
+    public static List<?> readIntegerRangeArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) {
+        long start = ((Number) ObjectController.getObjectAttributeValue(energymlArray, "value")).longValue();
+        long count = ((Number) ObjectController.getObjectAttributeValue(energymlArray, "count")).longValue();
+        return NumericArray.ofRange(start, count).asListView();
+    }
+
+    /**
+     * Reads a 1 dimension integer or floating point lattice array as a read-only list view of a virtual array :
+     * startValue then 'count' times the offset value.
+     */
+    public static List<?> readIntDoubleLatticeArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws NotImplementedException {
+        Object start = ObjectController.getObjectAttributeValue(energymlArray, "startValue");
+        List<?> offsets = (List<?>) ObjectController.getObjectAttributeValue(energymlArray, "offset");
+        if (offsets == null || offsets.size() != 1) {
+            throw new NotImplementedException("Only 1 dimension lattice arrays are supported, " + energymlArray.getClass().getSimpleName()
+                    + " has " + (offsets != null ? offsets.size() : 0) + " offsets");
         }
-        return result;
+        Object step = ObjectController.getObjectAttributeValue(offsets.get(0), "value");
+        long count = ((Number) ObjectController.getObjectAttributeValue(offsets.get(0), "count")).longValue() + 1;
+        if (isIntegral(start) && isIntegral(step)) {
+            return NumericArray.ofLattice(((Number) start).longValue(), new long[]{((Number) step).longValue()}, count).asListView();
+        }
+        return NumericArray.ofLattice(((Number) start).doubleValue(), new double[]{((Number) step).doubleValue()}, count).asListView();
     }
 
+    /**
+     * @return the values of an XmlArray, a {@link PrimitiveList} (read without copy by
+     * {@link #readNumericArray(Object, Object, String, EnergymlWorkspace)}) if the object has been unmarshalled with
+     * {@link XmlArrayParser}
+     */
     public static List<?> readXmlArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) {
         return (List<?>) ObjectController.getObjectAttributeValue(energymlArray, "values");
     }
 
+    /**
+     * Reads a jagged array as a read-only list of rows, each row being a view of the elements (see
+     * {@link JaggedArray#asListView()}). Copy the rows to modify them.
+     */
+    @SuppressWarnings("unchecked")
     public static List<Object> readJaggedArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws InvocationTargetException, IllegalAccessException, NotImplementedException {
-        List<?> elements = readArray(ObjectController.getObjectAttributeValue(energymlArray, "elements"), rootObj, pathInRoot + ".elements", workspace);
-        List<?> cumulativeLength = readArray(readArray(ObjectController.getObjectAttributeValue(energymlArray, "cumulative_length")), rootObj, pathInRoot + ".cumulative_length", workspace);
+        return (List<Object>) (List<?>) getJaggedArray(energymlArray, rootObj, pathInRoot, workspace).asListView();
+    }
 
-        List<Object> result = new ArrayList<>();
-        int previous = 0;
-        for (Object cl : cumulativeLength) {
-            result.add(elements.subList(previous, (int) cl));
-            previous = (int) cl;
-        }
-        return result;
+    /**
+     * Reads the elements and the cumulative lengths of a jagged array without boxing, see {@link #readNumericArray(Object, Object, String, EnergymlWorkspace)}.
+     */
+    public static JaggedArray getJaggedArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws InvocationTargetException, IllegalAccessException, NotImplementedException {
+        NumericArray elements = readNumericArray(ObjectController.getObjectAttributeValue(energymlArray, "elements"), rootObj, pathInRoot + ".Elements", workspace);
+        NumericArray cumulativeLength = readNumericArray(ObjectController.getObjectAttributeValue(energymlArray, "cumulativeLength"), rootObj, pathInRoot + ".CumulativeLength", workspace);
+        return JaggedArray.fromCumulativeLengths(elements, cumulativeLength);
     }
 
+    /**
+     * Reads a Point3dZValueArray as a view of its points stored as interleaved x, y, z (see
+     * {@link #readPoint3dZValueNumericArray(Object, Object, String, EnergymlWorkspace)}), nested like the supporting
+     * geometry (rows of points for a lattice, a list of points otherwise).
+     * @return the points, null if they can not be read
+     */
     public static List<?> readPoint3dZValueArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
         try {
-            Object supportingGeometry = ObjectController.getObjectAttributeValue(energymlArray, "SupportingGeometry");
-            /*Object crs = null;
-            try {
-                crs = getCrsObj(energymlArray, pathInRoot, rootObj, workspace);
-            } catch (ObjectNotFoundNotError e) {
-                logger.error("No CRS found, not able to check zIncreasingDownward");
-            }
-            boolean zIncreasingDownward = isZReversed(crs);*/
-            List<?> supGeomArray = readArray(
-                    supportingGeometry,
-                    rootObj,
-                    pathInRoot + ".SupportingGeometry",
-                    workspace
-            );
-            Object zvalues = ObjectController.getObjectAttributeValue(energymlArray, "ZValues");
-            List<?> zvaluesArray = new ArrayList<>();
-
-            try {
-                zvaluesArray = readArray(
-                        zvalues,
-                        rootObj,
-                        pathInRoot + ".ZValues",
-                        workspace
-                );
-            }catch (InvocationTargetException e){
-                logger.error("Failed to read Z values for {}", energymlArray);
-            }
-
-            if(!zvaluesArray.isEmpty()) {
-                List<Double> zvalueFlat = null;
-                if(zvaluesArray.get(0) instanceof Collection){
-                    zvalueFlat = ((List<List<?>>)zvaluesArray).stream().flatMap(List::stream).map(z-> z instanceof String ? Double.parseDouble((String) z) : ((Number)z).doubleValue()).collect(Collectors.toList());
-                }else{
-                    zvalueFlat = zvaluesArray.stream().map(z-> z instanceof String ? Double.parseDouble((String) z) : ((Number)z).doubleValue()).collect(Collectors.toList());
-                }
-    //            logger.info("supGeomArray : {}", (((List<?>)supGeomArray.get(0)).get(0)));
-    //            logger.info("zvaluesArrayNotFlat");
-
-
-                if(supGeomArray.get(0) instanceof Collection && !(((List<?>)supGeomArray.get(0)).get(0) instanceof Collection)){
-                    // supGeom is List<List<Double>>, a list of points
-//                    final int colSize = ((List<List<?>>)supGeomArray).get(0).size();
-//                    for (int li = 0; li < supGeomArray.size(); li++) {
-//                        for (int ci = 0; ci < colSize; ci++) {
-//                            int idx = li * colSize + ci;
-////                        if(zIncreasingDownward)
-////                            idx = li * zvaluesArrayNotFlat.size() + ci;
-////                            List<Double> p = (List<Double>) supGeomArray.get(idx);
-//                            ((List<List<Double>>)supGeomArray).get(idx).set(2, zvaluesArrayNotFlat.get(li).get(ci));
-//                        }
-//                    }
-                    for(int pi=0; pi<supGeomArray.size(); pi++){
-                        ((List<List<Double>>)supGeomArray).get(pi).set(2, zvalueFlat.get(pi));
-                    }
-                }else {
-                    final int colSize = ((List<List<?>>)supGeomArray).get(0).size();
-                    for (int li = 0; li < supGeomArray.size(); li++) {
-                        for (int ci = 0; ci < colSize; ci++) {
-                            int idx = li * colSize + ci;
-                            ((List<List<List<Double>>>)supGeomArray).get(li).get(ci).set(2, zvalueFlat.get(idx));
-                        }
-                    }
-                }
-            }
-            return supGeomArray;
+            return asPointListView(readPoint3dZValueNumericArray(energymlArray, rootObj, pathInRoot, workspace));
         }catch (Exception e){
             logger.error(e);
         }
         return null;
     }
 
+    /**
+     * Reads the points of a Point3dZValueArray : the x, y of the supporting geometry and the z values, in a new
+     * DOUBLE array whose last dimension is 3. A supporting lattice (given directly or by a
+     * Point3dFromRepresentationLatticeArray) is not read as points, its x, y are generated in the result.
+     * If the z values can not be read (or are empty), the points of the supporting geometry are returned.
+     * @throws IllegalArgumentException if there are less z values than supporting points
+     */
+    public static NumericArray readPoint3dZValueNumericArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        Object supportingGeometry = ObjectController.getObjectAttributeValue(energymlArray, "SupportingGeometry");
+
+        double[] xyz;
+        long[] shape;
+        Object geometry = getPoint3dGeometry(supportingGeometry, rootObj, pathInRoot + ".SupportingGeometry", workspace);
+        if (geometry instanceof Point3dLattice) {
+            Point3dLattice lattice = (Point3dLattice) geometry;
+            xyz = lattice.toXyzArray();
+            shape = new long[]{lattice.getNbRows(), lattice.getNbColumns(), 3};
+        } else {
+            NumericArray supporting = (NumericArray) geometry;
+            // the supporting points may be shared (e.g. cached) : they are copied before z is written
+            xyz = supporting.getElementType() == NumericArray.ElementType.DOUBLE ? supporting.toDoubleArray().clone() : supporting.toDoubleArray();
+            shape = supporting.getShape();
+        }
+        double[] zValues;
+        try {
+            zValues = readNumericArray(ObjectController.getObjectAttributeValue(energymlArray, "ZValues"), rootObj, pathInRoot + ".ZValues", workspace).toDoubleArray();
+        } catch (InvocationTargetException | RuntimeException e) {
+            logger.error("Failed to read Z values for {} : {}", pathInRoot, e.getMessage());
+            zValues = new double[0];
+        }
+        if (zValues.length == 0) {
+            return NumericArray.of(xyz, shape);
+        }
+        int nbPoints = xyz.length / 3;
+        if (zValues.length < nbPoints) {
+            throw new IllegalArgumentException(zValues.length + " z values for " + nbPoints + " supporting points");
+        }
+        for (int i = 0; i < nbPoints; i++) {
+            xyz[i * 3 + 2] = zValues[i];
+        }
+        return NumericArray.of(xyz, shape);
+    }
+
+    /**
+     * Reads any array of 3d points in a DOUBLE array whose last dimension is 3 : lattices are generated, z value
+     * arrays composed, and the other arrays read with {@link #readNumericArray(Object, Object, String, EnergymlWorkspace)}.
+     * The geometry of a supporting representation is taken from (or stored in) the cache of the workspace (see
+     * {@link EnergymlWorkspace#getSupportingGeometryCache()}) : the result may be shared and must not be modified.
+     */
+    public static NumericArray readPoint3dNumericArray(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        Object geometry = getPoint3dGeometry(energymlArray, rootObj, pathInRoot, workspace);
+        return geometry instanceof Point3dLattice ? ((Point3dLattice) geometry).toNumericArray() : (NumericArray) geometry;
+    }
+
+    /**
+     * @return the lattice of a Point3dLatticeArray, or of the supporting Grid2d of a
+     * Point3dFromRepresentationLatticeArray (if its points are a lattice), null for the other arrays
+     */
+    public static Point3dLattice getSupportingLattice(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        String arrayTypeName = ARRAY_READERS.getTypeName(energymlArray.getClass());
+        if (arrayTypeName.equals("Point3dLatticeArray")) {
+            return getPoint3dLattice(energymlArray, rootObj, pathInRoot, workspace);
+        } else if (arrayTypeName.equals("Point3dFromRepresentationLatticeArray")) {
+            Object geometry = getSupportingGeometry(energymlArray, workspace);
+            return geometry instanceof Point3dLattice ? (Point3dLattice) geometry : null;
+        }
+        return null;
+    }
+
+    /* The points of an array as a Point3dLattice if they are a lattice, a DOUBLE NumericArray otherwise */
+    private static Object getPoint3dGeometry(Object energymlArray, Object rootObj, String pathInRoot, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        String arrayTypeName = ARRAY_READERS.getTypeName(energymlArray.getClass());
+        if (arrayTypeName.equals("Point3dZValueArray")) {
+            return readPoint3dZValueNumericArray(energymlArray, rootObj, pathInRoot, workspace);
+        } else if (arrayTypeName.equals("Point3dLatticeArray")) {
+            return getPoint3dLattice(energymlArray, rootObj, pathInRoot, workspace);
+        } else if (arrayTypeName.equals("Point3dFromRepresentationLatticeArray")) {
+            return getSupportingGeometry(energymlArray, workspace);
+        }
+        NumericArray points = readNumericArray(energymlArray, rootObj, pathInRoot, workspace);
+        return points.getElementType() == NumericArray.ElementType.DOUBLE ? points : NumericArray.of(points.toDoubleArray(), points.getShape());
+    }
+
+    /* The geometry of the Grid2d patch referenced by a Point3dFromRepresentationLatticeArray, computed once per
+     * workspace if it has a supporting geometry cache */
+    private static Object getSupportingGeometry(Object energymlArray, EnergymlWorkspace workspace) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        SupportingPatch supporting = getSupportingGrid2dPatch(energymlArray, workspace);
+        SupportingGeometryCache cache = workspace.getSupportingGeometryCache();
+        Object geometry = cache != null ? cache.get(supporting.identifier, supporting.patchIndex) : null;
+        if (geometry == null) {
+            geometry = getPoint3dGeometry(supporting.pointsObj, supporting.representation, supporting.pointsPath, workspace);
+            if (cache != null) {
+                geometry = cache.put(supporting.identifier, supporting.patchIndex, geometry);
+            }
+        }
+        return geometry;
+    }
+
+    /* The points of the Grid2d patch referenced by a Point3dFromRepresentationLatticeArray */
+    private static class SupportingPatch {
+        final Object representation;
+        final String identifier;
+        /* the PatchIndex of the patch, 0 if it has none */
+        final int patchIndex;
+        final String pointsPath;
+        final Object pointsObj;
+
+        SupportingPatch(Object representation, String identifier, int patchIndex, String pointsPath, Object pointsObj) {
+            this.representation = representation;
+            this.identifier = identifier;
+            this.patchIndex = patchIndex;
+            this.pointsPath = pointsPath;
+            this.pointsObj = pointsObj;
+        }
+    }
+
+    private static SupportingPatch getSupportingGrid2dPatch(Object energymlArray, EnergymlWorkspace workspace) {
+        String supportingRepIdentifier = EPCFile.getIdentifier(ObjectController.getObjectAttributeValue(energymlArray, "supportingRepresentation"));
+        Object supportingRep = workspace.getObjectByIdentifier(supportingRepIdentifier);
+        if (supportingRep == null || !supportingRep.getClass().getSimpleName().toLowerCase().contains("grid2d")) {
+            throw new RuntimeException("Not supported supporting representation " + supportingRepIdentifier + " for " + energymlArray.getClass());
+        }
+        Map<String, Object> patchs = ObjectController.searchAttributeMatchingNameWithPath(supportingRep, "Grid2dPatch");
+        String patchPath = patchs.keySet().stream().findFirst().get();
+        Object patch = patchs.get(patchPath);
+        Object patchIndex = ObjectController.getObjectAttributeValue(patch, "PatchIndex");
+        Pair<String, Object> points = getGrid2dPatchPoints(patch);
+        return new SupportingPatch(supportingRep, EPCFile.getIdentifier(supportingRep), patchIndex instanceof Number ? ((Number) patchIndex).intValue() : 0,
+                patchPath + points.l(), points.r());
+    }
+
+    /* The path (relative to the patch) and the points array of a Grid2d patch */
+    private static Pair<String, Object> getGrid2dPatchPoints(Object patch) {
+        Map<String, Object> pointsPathAndPointsObj = ObjectController.searchAttributeMatchingNameWithPath(patch, "Geometry.Points");
+        pointsPathAndPointsObj.putAll(ObjectController.searchAttributeMatchingNameWithPath(patch, "Points"));
+        String pointsPath = pointsPathAndPointsObj.keySet().stream().findFirst().get();
+        return new Pair<>(pointsPath, pointsPathAndPointsObj.get(pointsPath));
+    }
+
+    /* Boxed view of points stored as x, y, z : rows of points for a rank 3 array, a list of points otherwise */
+    private static List<?> asPointListView(NumericArray points) {
+        double[] xyz = points.toDoubleArray();
+        long[] shape = points.getShape();
+        if (shape.length == 3) {
+            return Point3dLattice.asPointListView(xyz, (int) shape[0], (int) shape[1]);
+        }
+        return Point3dLattice.asPointListView(xyz, 1, xyz.length / 3).get(0);
+    }
+
+    /**
+     * Reads the points of the supporting Grid2d of a Point3dFromRepresentationLatticeArray, as a read-only view of
+     * the geometry kept in the supporting geometry cache of the workspace (if any).
+     * @return the points, null if they can not be read
+     */
     public static List<?> readPoint3dFromRepresentationLatticeArray(
             Object energymlArray,
             Object rootObj,
@@ -347,17 +631,7 @@ public class EnergymlWorkspaceHelper {
             EnergymlWorkspace workspace
     ) throws InvocationTargetException, IllegalAccessException, NotImplementedException {
         try {
-            String supportingRepIdentifier = EPCFile.getIdentifier(ObjectController.getObjectAttributeValue(energymlArray, "supportingRepresentation"));
-            Object supportingRep = workspace.getObjectByIdentifier(supportingRepIdentifier);
-
-            if (supportingRep.getClass().getSimpleName().toLowerCase().contains("grid2d")) {
-                Map<String, Object> patchs = ObjectController.searchAttributeMatchingNameWithPath(supportingRep, "Grid2dPatch");
-                String patchPath = patchs.keySet().stream().findFirst().get();
-                Object patch = patchs.get(patchPath);
-                return readGrid2dPatch(patch, supportingRep, patchPath, workspace);
-            } else {
-                throw new RuntimeException("Not supported type " + energymlArray.getClass() + " for object " + rootObj.getClass());
-            }
+            return readPoint3dNumericArray(energymlArray, rootObj, pathInRoot, workspace).asListView();
         }catch (Exception e){
             logger.error(e);
         }
@@ -370,13 +644,32 @@ public class EnergymlWorkspaceHelper {
             String pathInRoot,
             EnergymlWorkspace workspace
     ) throws InvocationTargetException, IllegalAccessException, NotImplementedException {
-        Map<String, Object> pointsPathAndPointsObj = ObjectController.searchAttributeMatchingNameWithPath(patch, "Geometry.Points");
-        pointsPathAndPointsObj.putAll(ObjectController.searchAttributeMatchingNameWithPath(patch, "Points"));
-        String pointsPath = pointsPathAndPointsObj.keySet().stream().findFirst().get();
-        Object pointsObj = pointsPathAndPointsObj.get(pointsPath);
-        return readArray(pointsObj, grid2d, pathInRoot + pointsPath, workspace);
+        Pair<String, Object> points = getGrid2dPatchPoints(patch);
+        return readArray(points.r(), grid2d, pathInRoot + points.l(), workspace);
     }
 
+    /**
+     * Reads the points of a Grid2d patch like {@link #readGrid2dPatch(Object, Object, String, EnergymlWorkspace)},
+     * with {@link #readPoint3dNumericArray(Object, Object, String, EnergymlWorkspace)} : the result may be shared and
+     * must not be modified.
+     * @return a DOUBLE array of shape (nbRows, nbColumns, 3)
+     */
+    public static NumericArray readGrid2dPatchNumericArray(
+            Object patch,
+            Object grid2d,
+            String pathInRoot,
+            EnergymlWorkspace workspace
+    ) throws InvocationTargetException, IllegalAccessException, NotImplementedException {
+        Pair<String, Object> points = getGrid2dPatchPoints(patch);
+        return readPoint3dNumericArray(points.r(), grid2d, pathInRoot + points.l(), workspace);
+    }
+
+    /**
+     * Reads a Point3dLatticeArray as a grid of points stored as interleaved x, y, z (generated in parallel by rows for
+     * big grids, see {@link Point3dLattice#toXyzArray()}). The returned lists are a view of this array, a point
+     * coordinate can be modified with List.set.
+     * @return the rows of points, an empty list if the lattice can not be read
+     */
     public static List<List<List<Double>>> readPoint3dLatticeArray(
             Object energymlArray,
             Object rootObj,
@@ -385,115 +678,86 @@ public class EnergymlWorkspaceHelper {
     ) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
         List<List<List<Double>>> result = new ArrayList<>();
         try {
-            List<Double> origin = pointAsArray(ObjectController.getObjectAttributeValue(energymlArray, "origin"));
-            List<?> offset = ObjectController.getObjectAttributeValueRgx(energymlArray, "offset|dimension");
-            if (((List<?>)offset.get(0)).size() == 2) {
-                Object slowest = ((List<?>)offset.get(0)).get(0);
-                Object fastest = ((List<?>)offset.get(0)).get(1);
-
-                List<Integer> crsSaCount = ((List<Number>) searchAttributeInUpperMatchingName(energymlArray, "SlowestAxisCount", rootObj, pathInRoot)).stream()
-                        .map(n -> n.intValue())
-                        .collect(Collectors.toList());
-                List<Integer> crsFaCount = ((List<Number>) searchAttributeInUpperMatchingName(energymlArray, "FastestAxisCount", rootObj, pathInRoot)).stream()
-                        .map(n -> n.intValue())
-                        .collect(Collectors.toList());
-                Object crs = null;
-                try {
-                    crs = getCrsObj(energymlArray, pathInRoot, rootObj, workspace);
-                } catch (ObjectNotFoundNotError e) {
-                    logger.error("No CRS found, not able to check zIncreasingDownward");
-                }
-
-                boolean zIncreasingDownward = isZReversed(crs);
-
-                List<Double> slowestVec = pointAsArray(ObjectController.getObjectAttributeValueRgx(slowest, "offset|direction").get(0));
+            Point3dLattice lattice = getPoint3dLattice(energymlArray, rootObj, pathInRoot, workspace);
+            result = Point3dLattice.asPointListView(lattice.toXyzArray(), lattice.getNbRows(), lattice.getNbColumns());
+        }catch (Exception e){
+            logger.error(e);
+        }
+        return result;
+    }
 
-//                List<Double> slowestSpacing = (List<Double>) readArray(ObjectController.getObjectAttributeValue(slowest, "spacing"));
-                List<Double> slowestSpacing = (List<Double>) readArray(ObjectController.getObjectAttributeValue(zIncreasingDownward ? fastest: slowest, "spacing"));
-                List<List<Double>> slowestTable = new ArrayList<>();
-                for (Double spacing : slowestSpacing) {
-                    slowestTable.add(prodNTab(spacing, slowestVec));
-                }
+    /**
+     * Reads the parameters of a Point3dLatticeArray, to compute its points (see {@link Point3dLattice#point(int, int)})
+     * without generating the whole grid.
+     */
+    public static Point3dLattice getPoint3dLattice(
+            Object energymlArray,
+            Object rootObj,
+            String pathInRoot,
+            EnergymlWorkspace workspace
+    ) throws NotImplementedException, InvocationTargetException, IllegalAccessException {
+        double[] origin = toPrimitivePoint(pointAsArray(ObjectController.getObjectAttributeValue(energymlArray, "origin")));
+        List<?> offset = ObjectController.getObjectAttributeValueRgx(energymlArray, "offset|dimension");
+        if (((List<?>)offset.get(0)).size() != 2) {
+            throw new RuntimeException(energymlArray.getClass() + " read with an offset of length " + offset.size() + " is not supported");
+        }
+        Object slowest = ((List<?>)offset.get(0)).get(0);
+        Object fastest = ((List<?>)offset.get(0)).get(1);
 
-                List<Double> fastestVec = pointAsArray(ObjectController.getObjectAttributeValueRgx(fastest, "offset|direction").get(0));
-//                List<Double> fastestSpacing = (List<Double>) readArray(ObjectController.getObjectAttributeValue(fastest, "spacing"));
-                List<Double> fastestSpacing = (List<Double>) readArray(ObjectController.getObjectAttributeValue(zIncreasingDownward ? slowest: fastest, "spacing"));
-                List<List<Double>> fastestTable = new ArrayList<>();
-                for (Object spacing : fastestSpacing) {
-                    fastestTable.add(prodNTab(Double.valueOf(String.valueOf(spacing)), fastestVec));
-                }
+        List<Integer> crsSaCount = searchAxisCount(energymlArray, "SlowestAxisCount", rootObj, pathInRoot);
+        List<Integer> crsFaCount = searchAxisCount(energymlArray, "FastestAxisCount", rootObj, pathInRoot);
+        Object crs = null;
+        try {
+            crs = getCrsObj(energymlArray, pathInRoot, rootObj, workspace);
+        } catch (ObjectNotFoundNotError e) {
+            logger.error("No CRS found, not able to check zIncreasingDownward");
+        }
 
-                int slowestSize = slowestTable.size();
-                int fastestSize = fastestTable.size();
-
-                if (!crsSaCount.isEmpty() && !crsFaCount.isEmpty()) {
-                    if ((crsSaCount.get(0) == fastestSize && crsFaCount.get(0) == slowestSize)
-                            || (crsSaCount.get(0) == fastestSize - 1 && crsFaCount.get(0) == slowestSize - 1)) {
-                        logger.debug("@readPoint3dLatticeArray reversing order");
-                        List<List<Double>> tmpTable = slowestTable;
-                        slowestTable = fastestTable;
-                        fastestTable = tmpTable;
-
-                        int tmpSize = slowestSize;
-                        slowestSize = fastestSize;
-                        fastestSize = tmpSize;
-                    } else {
-                        slowestSize = crsSaCount.get(0);
-                        fastestSize = crsFaCount.get(0);
-                    }
-                }
-                logger.debug("slowestSize {} fastestSize {}", slowestSize , fastestSize);
-                logger.debug("fastestTable {} slowestTable {}", fastestTable , slowestTable);
-
-                if(zIncreasingDownward){
-//                    slowestTable = slowestTable.stream().map(l -> l.stream().map(i -> -i).collect(Collectors.toList())).collect(Collectors.toList());
-//                    fastestTable = fastestTable.stream().map(l -> l.stream().map(i -> -i).collect(Collectors.toList())).collect(Collectors.toList());
-//                    Collections.reverse(slowestTable);
-//                    Collections.reverse(fastestTable);
-//                    slowestTable.forEach(l -> Collections.swap(l, 0, 1));
-//                    fastestTable.forEach(l -> Collections.swap(l, 0, 1));
-                   /* List<List<Double>> tmp = slowestTable;
-                    slowestTable = fastestTable;
-                    fastestTable = tmp;
-                    fastestSize = fastestTable.size();
-                    slowestSize = slowestTable.size();*/
-                }
-                for (int i = 0; i < Math.min(slowestSize, slowestTable.size() + 1); i++) {
-                    List<List<Double>> fastList = new ArrayList<>();
-                    for (int j = 0; j < Math.min(fastestSize, fastestTable.size() + 1); j++) {
-                        List<Double> previousValue = origin;
-                        if (j > 0) {
-                            if (i > 0) { // (i,j) on prends (i-1, j-1) comme previous
-                                previousValue = result.get(i - 1).get(j - 1);
-                            } else { // (0, j)
-                                previousValue = fastList.get(j - 1);
-                            }
-                        } else {
-                            if (i > 0) {
-                                previousValue = result.get(i - 1).get(0);
-                            }
-                            // if (0,0) previous is origin
-                        }
-                        List<Double> current = previousValue;
-                        if (j > 0) {
-                            current = sumLists(current, fastestTable.get(j - 1));
-                        }
-                        if (i > 0) {
-                            current = sumLists(current, slowestTable.get(i - 1));
-                        }
-                        fastList.add(current);
-                    }
-                    result.add(fastList);
-                }
+        boolean zIncreasingDownward = isZReversed(crs);
+
+        double[] slowestVec = toPrimitivePoint(pointAsArray(ObjectController.getObjectAttributeValueRgx(slowest, "offset|direction").get(0)));
+        double[] slowestSpacing = NumericArray.fromList(readArray(ObjectController.getObjectAttributeValue(zIncreasingDownward ? fastest: slowest, "spacing"))).toDoubleArray();
+        double[] fastestVec = toPrimitivePoint(pointAsArray(ObjectController.getObjectAttributeValueRgx(fastest, "offset|direction").get(0)));
+        double[] fastestSpacing = NumericArray.fromList(readArray(ObjectController.getObjectAttributeValue(zIncreasingDownward ? slowest: fastest, "spacing"))).toDoubleArray();
+
+        int slowestSize = slowestSpacing.length;
+        int fastestSize = fastestSpacing.length;
+
+        if (!crsSaCount.isEmpty() && !crsFaCount.isEmpty()) {
+            if ((crsSaCount.get(0) == fastestSize && crsFaCount.get(0) == slowestSize)
+                    || (crsSaCount.get(0) == fastestSize - 1 && crsFaCount.get(0) == slowestSize - 1)) {
+                logger.debug("@readPoint3dLatticeArray reversing order");
+                double[] tmpVec = slowestVec;
+                slowestVec = fastestVec;
+                fastestVec = tmpVec;
+                double[] tmpSpacing = slowestSpacing;
+                slowestSpacing = fastestSpacing;
+                fastestSpacing = tmpSpacing;
+
+                int tmpSize = slowestSize;
+                slowestSize = fastestSize;
+                fastestSize = tmpSize;
             } else {
-                throw new RuntimeException(energymlArray.getClass() + " read with an offset of length " + offset.size() + " is not supported");
+                slowestSize = crsSaCount.get(0);
+                fastestSize = crsFaCount.get(0);
             }
-        }catch (Exception e){
-            logger.error(e);
         }
-        logger.debug(result);
+        logger.debug("slowestSize {} fastestSize {}", slowestSize , fastestSize);
 
-        return result;
+        return new Point3dLattice(
+                origin,
+                slowestVec, slowestSpacing, Math.min(slowestSize, slowestSpacing.length + 1),
+                fastestVec, fastestSpacing, Math.min(fastestSize, fastestSpacing.length + 1)
+        );
+    }
+
+    private static List<Integer> searchAxisCount(Object energymlArray, String countName, Object rootObj, String pathInRoot) {
+        List<Number> counts = (List<Number>) searchAttributeInUpperMatchingName(energymlArray, countName, rootObj, pathInRoot);
+        return counts != null ? counts.stream().map(Number::intValue).collect(Collectors.toList()) : List.of();
+    }
+
+    private static double[] toPrimitivePoint(List<Double> point) {
+        return new double[]{point.get(0), point.get(1), point.get(2)};
     }
 
     public static List<String> getHdfReference(Object obj) {
@@ -506,6 +770,61 @@ public class EnergymlWorkspaceHelper {
     }
 
 
+    /**
+     * Objects of rootObj directly referencing an external dataset (e.g. a Hdf5Dataset or an ExternalDataArrayPart).
+     * @return {Dot_Path_In_Root: object, ...}
+     */
+    public static Map<String, Object> getExternalArrayReferences(Object rootObj) {
+        Map<String, Object> result = new TreeMap<>();
+        for (String referencePath : getHdfReferenceWithPath(rootObj).keySet()) {
+            String holderPath = referencePath.substring(0, Math.max(0, referencePath.lastIndexOf(".")));
+            result.put(holderPath, holderPath.isEmpty() ? rootObj : ObjectController.getObjectAttributeValue(rootObj, holderPath));
+        }
+        return result;
+    }
+
+    /**
+     * Describes all the external arrays of an object, see {@link EnergymlWorkspace#getExternalArrayInfo(Object, Object, String)}.
+     * Arrays that can not be resolved are logged and skipped.
+     */
+    public static List<ExternalArrayInfo> getExternalArrayInfos(Object rootObj, EnergymlWorkspace workspace) {
+        List<ExternalArrayInfo> result = new ArrayList<>();
+        for (Map.Entry<String, Object> e : getExternalArrayReferences(rootObj).entrySet()) {
+            try {
+                result.add(workspace.getExternalArrayInfo(e.getValue(), rootObj, e.getKey()));
+            } catch (Exception err) {
+                logger.error("@getExternalArrayInfos failed for {} {} : {}", EPCFile.getIdentifier(rootObj), e.getKey(), err.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selection of the external data array part referenced by {@link #getHdfReference(Object)} (its StartIndex and
+     * Count, since energyml common 2.3).
+     * @return {startIndex, count}, or null if the part selects the whole dataset
+     */
+    public static long[][] getExternalArraySelection(Object energymlArray) {
+        Map<String, String> references = getHdfReferenceWithPath(energymlArray);
+        if (references.isEmpty()) {
+            return null;
+        }
+        String referencePath = references.keySet().iterator().next();
+        String partPath = referencePath.substring(0, Math.max(0, referencePath.lastIndexOf(".")));
+        Object part = partPath.isEmpty() ? energymlArray : ObjectController.getObjectAttributeValue(energymlArray, partPath);
+        List<Object> startIndex = searchAttributeMatchingName(part, "^StartIndex$", Pattern.CASE_INSENSITIVE, "", false, false);
+        List<Object> count = searchAttributeMatchingName(part, "^Count$", Pattern.CASE_INSENSITIVE, "", false, false);
+        if (startIndex.isEmpty() || count.isEmpty() || !(startIndex.get(0) instanceof List) || !(count.get(0) instanceof List)) {
+            return null;
+        }
+        long[] start = ((List<?>) startIndex.get(0)).stream().mapToLong(v -> ((Number) v).longValue()).toArray();
+        long[] nb = ((List<?>) count.get(0)).stream().mapToLong(v -> ((Number) v).longValue()).toArray();
+        if (nb.length == 0 || start.length != nb.length) {
+            return null;
+        }
+        return new long[][]{start, nb};
+    }
+
     public static Map<String, String> getHdfReferenceWithPath(Object obj) {
         /**
          See :func:`search_attribute_matching_name_with_path`. Search an attribute with type matching regex
@@ -0,0 +1,54 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+/**
+ * An external array to read, see {@link EnergymlWorkspace#readExternalNumericArraysAsync(java.util.List, java.util.concurrent.Executor)}.
+ * Requests are compared by identity, so the same array can be requested twice.
+ */
+public class ExternalArrayRequest {
+    private final Object energymlArray;
+    private final Object rootObject;
+    private final String pathInRoot;
+
+    /**
+     * @param energymlArray the array object (e.g. a DoubleHdf5Array)
+     * @param rootObject the root object containing the array
+     * @param pathInRoot path of the array in the root object
+     */
+    public ExternalArrayRequest(Object energymlArray, Object rootObject, String pathInRoot) {
+        this.energymlArray = energymlArray;
+        this.rootObject = rootObject;
+        this.pathInRoot = pathInRoot;
+    }
+
+    public Object getEnergymlArray() {
+        return energymlArray;
+    }
+
+    public Object getRootObject() {
+        return rootObject;
+    }
+
+    public String getPathInRoot() {
+        return pathInRoot;
+    }
+
+    @Override
+    public String toString() {
+        return "ExternalArrayRequest{" + (rootObject != null ? rootObject.getClass().getSimpleName() : null) + " " + pathInRoot + "}";
+    }
+}
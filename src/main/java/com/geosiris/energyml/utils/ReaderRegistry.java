@@ -0,0 +1,123 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Readers of energyml objects by class (see {@link ArrayReader} and {@link com.geosiris.energyml.data.MeshReader}).
+ * A reader is registered for a class (it also applies to its subclasses) or for a type name : the simple class name
+ * after the name mapping of the registry, so that the same reader applies to the classes of every energyml version
+ * (e.g. "ConstantArray" for the DoubleConstantArray of resqml 2.0.1 and the FloatingPointConstantArray of resqml 2.2).
+ * The reader of a class is resolved once, then cached in a {@link ClassValue}. This class is thread-safe.
+ *
+ * @param <R> the reader type
+ */
+public class ReaderRegistry<R> {
+    private final Function<String, String> nameMapping;
+    private final Map<Class<?>, R> byClass;
+    private final Map<String, R> byName;
+    private volatile ClassValue<Optional<R>> resolved;
+
+    /**
+     * @param nameMapping gives the type name of a simple class name
+     */
+    public ReaderRegistry(Function<String, String> nameMapping) {
+        this.nameMapping = nameMapping;
+        this.byClass = new ConcurrentHashMap<>();
+        this.byName = new ConcurrentHashMap<>();
+        this.resolved = newResolved();
+    }
+
+    /**
+     * Registers the reader of a class and its subclasses. Replaces the reader previously registered for this class.
+     * A reader registered for a class has priority over the readers registered by name.
+     */
+    public void register(Class<?> type, R reader) {
+        byClass.put(type, reader);
+        resolved = newResolved();
+    }
+
+    /**
+     * Registers the reader of a type name (see {@link #getTypeName(Class)}). Replaces the reader previously
+     * registered for this name.
+     */
+    public void register(String typeName, R reader) {
+        byName.put(typeName, reader);
+        resolved = newResolved();
+    }
+
+    /**
+     * @return the reader that was registered for this class, null if none
+     */
+    public R unregister(Class<?> type) {
+        R reader = byClass.remove(type);
+        resolved = newResolved();
+        return reader;
+    }
+
+    /**
+     * @return the reader that was registered for this type name, null if none
+     */
+    public R unregister(String typeName) {
+        R reader = byName.remove(typeName);
+        resolved = newResolved();
+        return reader;
+    }
+
+    /**
+     * @return the reader of a class, null if none is registered
+     */
+    public R get(Class<?> type) {
+        return resolved.get(type).orElse(null);
+    }
+
+    /**
+     * @return the reader registered for a type name, null if none
+     */
+    public R getByName(String typeName) {
+        return byName.get(typeName);
+    }
+
+    /**
+     * @return the type name of a class : its simple name after the name mapping
+     */
+    public String getTypeName(Class<?> type) {
+        return nameMapping.apply(type.getSimpleName());
+    }
+
+    public boolean isSupported(Class<?> type) {
+        return get(type) != null;
+    }
+
+    private ClassValue<Optional<R>> newResolved() {
+        return new ClassValue<>() {
+            @Override
+            protected Optional<R> computeValue(Class<?> type) {
+                for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                    R reader = byClass.get(c);
+                    if (reader != null) {
+                        return Optional.of(reader);
+                    }
+                }
+                return Optional.ofNullable(byName.get(getTypeName(type)));
+            }
+        };
+    }
+}
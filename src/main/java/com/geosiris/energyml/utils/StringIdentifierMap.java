@@ -0,0 +1,171 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Map keyed by String identifiers ('OBJ_UUID.OBJ_VERSION', see EPCFile.getIdentifier) stored in a map keyed by
+ * {@link CompactIdentifier} (e.g. a {@link CompactIdentifierMap}, or a ConcurrentHashMap for concurrent access).
+ * Keys are parsed on each access and formatted back when an iterated entry key is read, so an identifier without
+ * version is seen as 'OBJ_UUID.'. The values are the values view of the backing map. Atomic operations (putIfAbsent, computeIfAbsent) are the ones of the backing map.
+ */
+public class StringIdentifierMap<V> extends AbstractMap<String, V> {
+    private final Map<CompactIdentifier, V> backing;
+
+    public StringIdentifierMap(Map<CompactIdentifier, V> backing) {
+        this.backing = backing;
+    }
+
+    public StringIdentifierMap() {
+        this(new CompactIdentifierMap<>());
+    }
+
+    private static CompactIdentifier toKey(Object identifier) {
+        return identifier instanceof String ? CompactIdentifier.parse((String) identifier) : null;
+    }
+
+    @Override
+    public V get(Object identifier) {
+        CompactIdentifier key = toKey(identifier);
+        return key != null ? backing.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object identifier) {
+        CompactIdentifier key = toKey(identifier);
+        return key != null && backing.containsKey(key);
+    }
+
+    @Override
+    public V put(String identifier, V value) {
+        return backing.put(CompactIdentifier.parse(identifier), value);
+    }
+
+    @Override
+    public V putIfAbsent(String identifier, V value) {
+        return backing.putIfAbsent(CompactIdentifier.parse(identifier), value);
+    }
+
+    @Override
+    public V computeIfAbsent(String identifier, Function<? super String, ? extends V> mappingFunction) {
+        return backing.computeIfAbsent(CompactIdentifier.parse(identifier), k -> mappingFunction.apply(identifier));
+    }
+
+    @Override
+    public V remove(Object identifier) {
+        CompactIdentifier key = toKey(identifier);
+        return key != null ? backing.remove(key) : null;
+    }
+
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return backing.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        backing.clear();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return backing.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                Iterator<Map.Entry<CompactIdentifier, V>> it = backing.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, V> next() {
+                        Map.Entry<CompactIdentifier, V> entry = it.next();
+                        return new Map.Entry<>() {
+                            private String identifier;
+
+                            @Override
+                            public String getKey() {
+                                if (identifier == null) {
+                                    identifier = entry.getKey().toString();
+                                }
+                                return identifier;
+                            }
+
+                            @Override
+                            public V getValue() {
+                                return entry.getValue();
+                            }
+
+                            @Override
+                            public V setValue(V value) {
+                                return entry.setValue(value);
+                            }
+
+                            @Override
+                            public boolean equals(Object o) {
+                                if (!(o instanceof Map.Entry)) {
+                                    return false;
+                                }
+                                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                                return getKey().equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+                            }
+
+                            @Override
+                            public int hashCode() {
+                                return getKey().hashCode() ^ Objects.hashCode(getValue());
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return backing.size();
+            }
+
+            @Override
+            public void clear() {
+                backing.clear();
+            }
+        };
+    }
+}
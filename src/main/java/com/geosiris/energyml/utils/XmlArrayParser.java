@@ -0,0 +1,414 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.PrimitiveList;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * StAX parser of the Values of the energyml XmlArrays (BooleanXmlArray, IntegerXmlArray, FloatingPointXmlArray...) :
+ * the whitespace separated values are parsed straight into a {@link PrimitiveList}, without boxing them.
+ * {@link #unmarshal(Unmarshaller, String)} uses it while unmarshalling an energyml object, so the XmlArrays values
+ * of the unmarshalled object are primitive lists that can be read without copy with {@link NumericArray#fromList(List)}.
+ */
+public class XmlArrayParser {
+    public static Logger logger = LogManager.getLogger(XmlArrayParser.class);
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    /* The field 'values' of the XmlArray classes, null for the other classes */
+    private static final ClassValue<Field> VALUES_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field computeValue(Class<?> type) {
+            if (!type.getSimpleName().endsWith("XmlArray")) {
+                return null;
+            }
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                try {
+                    Field field = c.getDeclaredField("values");
+                    if (List.class.isAssignableFrom(field.getType())) {
+                        field.setAccessible(true);
+                        return field;
+                    }
+                } catch (NoSuchFieldException ignore) {
+                }
+            }
+            return null;
+        }
+    };
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @param xmlArrayType the xsi:type (with or without prefix) or the class name of an XmlArray
+     * @return the element type of its values (DOUBLE, LONG or BOOLEAN), null if they are not numbers nor booleans
+     */
+    public static NumericArray.ElementType getValuesType(String xmlArrayType) {
+        if (xmlArrayType == null || !xmlArrayType.endsWith("XmlArray")) {
+            return null;
+        }
+        String name = xmlArrayType.substring(xmlArrayType.lastIndexOf(':') + 1);
+        if (name.startsWith("Boolean")) {
+            return NumericArray.ElementType.BOOLEAN;
+        } else if (name.startsWith("FloatingPoint") || name.startsWith("Double") || name.startsWith("Float")) {
+            return NumericArray.ElementType.DOUBLE;
+        } else if (name.startsWith("Integer") || name.startsWith("Int") || name.startsWith("Long")) {
+            return NumericArray.ElementType.LONG;
+        }
+        return null;
+    }
+
+    /**
+     * Parses the whitespace separated values of the current element of the reader, which must be on its
+     * START_ELEMENT. The reader is left on the END_ELEMENT.
+     * @param type the element type of the values : DOUBLE (or FLOAT), LONG (or an other integer type) or BOOLEAN
+     * @throws XMLStreamException if the element has child elements or a value can not be parsed
+     */
+    public static PrimitiveList<?> parseValues(XMLStreamReader reader, NumericArray.ElementType type) throws XMLStreamException {
+        if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+            throw new XMLStreamException("Values must be read from their start element", reader.getLocation());
+        }
+        ValuesTokenizer tokenizer = new ValuesTokenizer(PrimitiveList.of(type));
+        try {
+            while (true) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        tokenizer.accept(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        String text = reader.getText();
+                        tokenizer.accept(text.toCharArray(), 0, text.length());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        tokenizer.flush();
+                        tokenizer.values.trimToSize();
+                        return tokenizer.values;
+                    case XMLStreamConstants.START_ELEMENT:
+                        throw new XMLStreamException("Unexpected element " + reader.getLocalName() + " in values", reader.getLocation());
+                    default:
+                        // comments and processing instructions
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new XMLStreamException(e.getMessage(), reader.getLocation(), e);
+        }
+    }
+
+    /**
+     * Parses the values of all the XmlArrays (of numbers or booleans) of a document, without unmarshalling it.
+     * An XmlArray is recognized by its xsi:type.
+     * @return the values of each XmlArray, in the document order
+     */
+    public static List<PrimitiveList<?>> readXmlArrayValues(Reader xml) throws XMLStreamException {
+        List<PrimitiveList<?>> result = new ArrayList<>();
+        XMLStreamReader reader = new ValuesExtractingReader(XML_INPUT_FACTORY.createXMLStreamReader(xml), result::add);
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Unmarshals an energyml object, parsing the values of its XmlArrays (of numbers or booleans) with the StAX
+     * parser : they are not given to JAXB, but set as {@link PrimitiveList} in the XmlArrays after their
+     * unmarshalling. The values of the XmlArrays without xsi:type are unmarshalled by JAXB and converted after.
+     * The listener of the unmarshaller is still called (after the values are set) and is restored after.
+     */
+    public static Object unmarshal(Unmarshaller unmarshaller, String xmlContent) throws JAXBException, XMLStreamException {
+        Unmarshaller.Listener listener = unmarshaller.getListener();
+        PendingValues pending = new PendingValues(listener);
+        XMLStreamReader reader = new ValuesExtractingReader(XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xmlContent)), pending);
+        unmarshaller.setListener(pending);
+        try {
+            return unmarshaller.unmarshal(reader);
+        } finally {
+            unmarshaller.setListener(listener);
+            reader.close();
+        }
+    }
+
+    /**
+     * Replaces the values of an XmlArray by a {@link PrimitiveList} (if they are numbers or booleans).
+     * @param values the values to set, null to convert the current values
+     * @return true if the values are a primitive list
+     */
+    public static boolean setPrimitiveValues(Object xmlArray, PrimitiveList<?> values) {
+        Field field = VALUES_FIELDS.get(xmlArray.getClass());
+        if (field == null) {
+            return false;
+        }
+        try {
+            Class<?> boxedType = getListElementClass(field.getGenericType());
+            NumericArray.ElementType fieldType = boxedType == Double.class ? NumericArray.ElementType.DOUBLE
+                    : boxedType == Long.class ? NumericArray.ElementType.LONG
+                    : boxedType == Boolean.class ? NumericArray.ElementType.BOOLEAN : null;
+            if (values == null) {
+                List<?> current = (List<?>) field.get(xmlArray);
+                if (fieldType == null || current == null || current instanceof PrimitiveList) {
+                    return current instanceof PrimitiveList;
+                }
+                values = PrimitiveList.copyOf(NumericArray.fromList(current), fieldType);
+            }
+            if (fieldType == null) {
+                logger.error("Values of {} can not be stored in a list of {}", xmlArray.getClass(), boxedType);
+                return false;
+            } else if (values.getElementType() != fieldType) {
+                values = PrimitiveList.copyOf(values.toNumericArray(), fieldType);
+            }
+            field.set(xmlArray, values);
+            return true;
+        } catch (IllegalAccessException e) {
+            logger.error(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private static Class<?> getListElementClass(Type listType) {
+        if (listType instanceof ParameterizedType) {
+            Type arg = ((ParameterizedType) listType).getActualTypeArguments()[0];
+            if (arg instanceof Class) {
+                return (Class<?>) arg;
+            }
+        }
+        return Object.class;
+    }
+
+    /* Splits characters on whitespaces and parses the tokens, a token may be split over several calls of accept */
+    private static final class ValuesTokenizer {
+        private final PrimitiveList<?> values;
+        private char[] token;
+        private int tokenLength;
+
+        ValuesTokenizer(PrimitiveList<?> values) {
+            this.values = values;
+            this.token = new char[32];
+            this.tokenLength = 0;
+        }
+
+        void accept(char[] chars, int start, int length) {
+            for (int i = start, end = start + length; i < end; i++) {
+                char c = chars[i];
+                if (c == ' ' || c == '\n' || c == '\t' || c == '\r') {
+                    flush();
+                } else {
+                    if (tokenLength == token.length) {
+                        token = Arrays.copyOf(token, tokenLength * 2);
+                    }
+                    token[tokenLength++] = c;
+                }
+            }
+        }
+
+        void flush() {
+            if (tokenLength == 0) {
+                return;
+            }
+            if (values instanceof PrimitiveList.OfDouble) {
+                ((PrimitiveList.OfDouble) values).addDouble(parseDouble(token, tokenLength));
+            } else if (values instanceof PrimitiveList.OfLong) {
+                ((PrimitiveList.OfLong) values).addLong(parseLong(token, tokenLength));
+            } else {
+                ((PrimitiveList.OfBoolean) values).addBoolean(parseBoolean(token, tokenLength));
+            }
+            tokenLength = 0;
+        }
+    }
+
+    /* xs:long lexical form, without creating a String for the usual values */
+    static long parseLong(char[] chars, int length) {
+        int i = 0;
+        boolean negative = false;
+        if (chars[0] == '-' || chars[0] == '+') {
+            negative = chars[0] == '-';
+            i = 1;
+        }
+        if (i == length || length - i > 18) {
+            // no digit, or may overflow
+            return Long.parseLong(new String(chars, 0, length));
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + new String(chars, 0, length) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /* xs:double lexical form : INF and -INF are the infinities */
+    static double parseDouble(char[] chars, int length) {
+        String value = new String(chars, 0, length);
+        switch (value) {
+            case "INF": case "+INF": return Double.POSITIVE_INFINITY;
+            case "-INF": return Double.NEGATIVE_INFINITY;
+            default: return Double.parseDouble(value);
+        }
+    }
+
+    /* xs:boolean lexical form */
+    static boolean parseBoolean(char[] chars, int length) {
+        if (length == 1 && (chars[0] == '1' || chars[0] == '0')) {
+            return chars[0] == '1';
+        }
+        String value = new String(chars, 0, length);
+        if (value.equals("true") || value.equals("false")) {
+            return value.equals("true");
+        }
+        throw new IllegalArgumentException("Not a boolean : " + value);
+    }
+
+    /* Values parsed by the reader, waiting for their XmlArray to be unmarshalled. The events are forwarded to the
+    listener previously set on the unmarshaller, if any */
+    private static final class PendingValues extends Unmarshaller.Listener implements Consumer<PrimitiveList<?>> {
+        private final Unmarshaller.Listener next;
+        private PrimitiveList<?> values;
+
+        PendingValues(Unmarshaller.Listener next) {
+            this.next = next;
+        }
+
+        @Override
+        public void accept(PrimitiveList<?> values) {
+            this.values = values;
+        }
+
+        @Override
+        public void beforeUnmarshal(Object target, Object parent) {
+            if (next != null) {
+                next.beforeUnmarshal(target, parent);
+            }
+        }
+
+        @Override
+        public void afterUnmarshal(Object target, Object parent) {
+            if (VALUES_FIELDS.get(target.getClass()) != null) {
+                // XmlArrays are not nested : the parsed values are the ones of this XmlArray
+                setPrimitiveValues(target, values);
+                values = null;
+            }
+            if (next != null) {
+                next.afterUnmarshal(target, parent);
+            }
+        }
+    }
+
+    /**
+     * Reader hiding the Values of the XmlArrays : their text is parsed (see {@link #parseValues(XMLStreamReader, NumericArray.ElementType)})
+     * and given to a consumer, the Values element is read as empty.
+     */
+    private static final class ValuesExtractingReader extends StreamReaderDelegate {
+        private static final String VALUES = "Values";
+
+        private final Consumer<PrimitiveList<?>> consumer;
+        /* The values type of each open element (see getValuesType), FALSE if it is not an XmlArray */
+        private final Deque<Object> openTypes;
+        private NumericArray.ElementType valuesToParse;
+
+        ValuesExtractingReader(XMLStreamReader reader, Consumer<PrimitiveList<?>> consumer) {
+            super(reader);
+            this.consumer = consumer;
+            this.openTypes = new ArrayDeque<>();
+            this.valuesToParse = null;
+        }
+
+        @Override
+        public int next() throws XMLStreamException {
+            if (valuesToParse != null) {
+                // the start of the Values has been given, its text is parsed and its end is given
+                NumericArray.ElementType type = valuesToParse;
+                valuesToParse = null;
+                consumer.accept(parseValues(getParent(), type));
+                openTypes.pop();
+                return XMLStreamConstants.END_ELEMENT;
+            }
+            int event = super.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                Object parentType = openTypes.peek();
+                NumericArray.ElementType type = getValuesType(getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "type"));
+                openTypes.push(type != null ? type : Boolean.FALSE);
+                if (parentType instanceof NumericArray.ElementType && VALUES.equals(getLocalName())) {
+                    valuesToParse = (NumericArray.ElementType) parentType;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                openTypes.pop();
+            }
+            return event;
+        }
+
+        @Override
+        public int nextTag() throws XMLStreamException {
+            int event = next();
+            while (event == XMLStreamConstants.CHARACTERS && isWhiteSpace() || event == XMLStreamConstants.SPACE
+                    || event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                event = next();
+            }
+            if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+                throw new XMLStreamException("Expected a start or end tag", getLocation());
+            }
+            return event;
+        }
+
+        @Override
+        public String getElementText() throws XMLStreamException {
+            if (valuesToParse != null) {
+                next();
+                return "";
+            }
+            return super.getElementText();
+        }
+
+        @Override
+        public boolean hasNext() throws XMLStreamException {
+            return valuesToParse != null || super.hasNext();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.ArrayChunk;
+import com.geosiris.energyml.data.ArrayChunkSpliterator;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import energyml.common2_3.FloatingPointConstantArray;
+import energyml.common2_3.IntegerExternalArray;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class ArrayChunkTest {
+
+    @Test
+    void test_external_array_chunks(@TempDir Path tmp) throws Exception {
+        Path h5 = tmp.resolve("chunks.h5");
+        int[] values = new int[30];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        new Hdf5TestFile().addChunkedDataset("/RESQML/values", values, new long[]{4, 3}, 10, 3).write(h5);
+        IntegerExternalArray array = new IntegerExternalArray();
+        array.setValues(ExternalArrayInfoTest.createExternalDataArray(h5.toString(), "/RESQML/values"));
+
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            // 7 values per chunk : 2 rows of 3 values
+            Iterator<ArrayChunk> it = EnergymlWorkspaceHelper.iterateArrayChunks(array, null, "", workspace, 7);
+            List<ArrayChunk> chunks = new ArrayList<>();
+            it.forEachRemaining(chunks::add);
+            assert chunks.size() == 5;
+            for (int c = 0; c < chunks.size(); c++) {
+                assert chunks.get(c).getOffset() == c * 6L && chunks.get(c).size() == 6;
+                assert chunks.get(c).getValues().getRank() == 1 && chunks.get(c).getValues().getInt(0) == c * 6;
+            }
+
+            long sum = EnergymlWorkspaceHelper.streamArrayChunks(array, null, "", workspace, 7, true)
+                    .mapToLong(chunk -> LongStream.range(0, chunk.size()).map(i -> chunk.getValues().getLong(i)).sum())
+                    .sum();
+            assert sum == 29 * 30 / 2;
+            // a row bigger than the chunk size gives chunks of one row
+            assert EnergymlWorkspaceHelper.getArrayChunkSpliterator(array, null, "", workspace, 2).estimateSize() == 10;
+        }
+    }
+
+    @Test
+    void test_generated_and_in_memory_chunks() throws Exception {
+        FloatingPointConstantArray constant = new FloatingPointConstantArray();
+        constant.setValue(0.5);
+        constant.setCount(3_000_001);
+        ArrayChunkSpliterator spliterator = EnergymlWorkspaceHelper.getArrayChunkSpliterator(constant, null, "", null, 1 << 16);
+        assert spliterator.estimateSize() == 46;
+        double sum = ArrayChunkSpliterator.stream(spliterator, true)
+                .mapToDouble(chunk -> {
+                    double s = 0;
+                    for (long i = 0; i < chunk.size(); i++) {
+                        s += chunk.getValues().getDouble(i);
+                    }
+                    return s;
+                }).sum();
+        assert sum == 1_500_000.5;
+
+        // splits keep the chunk order
+        NumericArray array = NumericArray.of(new long[]{1, 2, 3, 4, 5, 6, 7}, 7);
+        List<Long> offsets = ArrayChunkSpliterator.stream(ArrayChunkSpliterator.of(array, 2), true)
+                .map(ArrayChunk::getOffset).collect(Collectors.toList());
+        assert offsets.equals(List.of(0L, 2L, 4L, 6L));
+        ArrayChunkSpliterator split = ArrayChunkSpliterator.of(array, 2);
+        ArrayChunkSpliterator prefix = (ArrayChunkSpliterator) split.trySplit();
+        assert prefix.estimateSize() == 2 && split.estimateSize() == 2;
+        split.tryAdvance(chunk -> {
+            assert chunk.getOffset() == 4 && chunk.getValues().getLong(1) == 6;
+        });
+    }
+}
@@ -0,0 +1,89 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.exception.ObjectNotFoundNotError;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.utils.ExternalArrayRequest;
+import energyml.resqml2_2.TrianglePatch;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BatchExternalArrayReadTest {
+
+    @Test
+    void test_batch_read_grouped_by_file(@TempDir Path tmp) throws Exception {
+        HdfFileCacheTest.writeTestFile(tmp, "a.h5", 0);
+        HdfFileCacheTest.writeTestFile(tmp, "b.h5", 10);
+        EPCFile epc = new EPCFile(new EPCPackageManager(), tmp.resolve("data.epc").toString());
+
+        List<ExternalArrayRequest> requests = new ArrayList<>();
+        for (String h5 : List.of("a.h5", "b.h5")) {
+            TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet(h5);
+            epc.getEnergymlObjects().put(EPCFile.getIdentifier(tr), tr);
+            TrianglePatch patch = tr.getTrianglePatch().get(0);
+            requests.add(new ExternalArrayRequest(patch.getGeometry().getPoints(), tr, "TrianglePatch.0.Geometry.Points"));
+            requests.add(new ExternalArrayRequest(patch.getTriangles(), tr, "TrianglePatch.0.Triangles"));
+        }
+        TriangulatedSetRepresentation tr = (TriangulatedSetRepresentation) requests.get(0).getRootObject();
+        // missing dataset in an existing file, and missing file
+        requests.add(new ExternalArrayRequest(ExternalArrayInfoTest.createExternalDataArray("a.h5", "/RESQML/missing"), tr, ""));
+        requests.add(new ExternalArrayRequest(ExternalArrayInfoTest.createExternalDataArray("missing.h5", "/RESQML/points"), tr, ""));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(epc)) {
+            List<CompletableFuture<NumericArray>> futures = workspace.readExternalNumericArraysAsync(requests, executor);
+            assert futures.size() == requests.size();
+            assert Arrays.equals(futures.get(0).get().toDoubleArray(), new double[]{0, 1, 2, 3, 4, 5});
+            assert Arrays.equals(futures.get(1).get().toIntArray(), new int[]{0, 1, 2});
+            assert Arrays.equals(futures.get(2).get().toDoubleArray(), new double[]{10, 11, 12, 13, 14, 15});
+            assert Arrays.equals(futures.get(3).get().toIntArray(), new int[]{0, 1, 2});
+            for (int i = 4; i < 6; i++) {
+                try {
+                    futures.get(i).get();
+                    assert false;
+                } catch (ExecutionException e) {
+                    assert e.getCause() instanceof ObjectNotFoundNotError;
+                }
+            }
+            // each file is opened once for all its arrays
+            assert workspace.getHdfFileCache().getOpenCount() == 2;
+
+            try {
+                workspace.readExternalNumericArrays(requests, executor);
+                assert false;
+            } catch (ObjectNotFoundNotError e) {
+                assert e.getMessage().startsWith("Failed to read 2 of 6");
+            }
+            assert workspace.readExternalNumericArrays(requests.subList(0, 4), executor).get(requests.get(2)).getDouble(5) == 15;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.pkg.BoundedObjectStore;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.utils.ExportVersion;
+import com.geosiris.energyml.utils.ObjectController;
+import energyml.resqml2_2.HorizonInterpretation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class BoundedObjectStoreTest {
+
+    private static final int NB_INTERPRETATIONS = 10;
+
+    /* Exports an epc of NB_INTERPRETATIONS interpretations and their representations, returns the interpretation
+     * identifiers */
+    private static List<String> exportTestEpc(EPCPackageManager pkgManager, String epcPath) throws Exception {
+        EPCFile epc = new EPCFile(pkgManager, ExportVersion.EXPANDED);
+        List<String> identifiers = new ArrayList<>();
+        for (int i = 0; i < NB_INTERPRETATIONS; i++) {
+            HorizonInterpretation interp = ConcurrentEPCFileTest.createInterpretation();
+            epc.getEnergymlObjects().put(EPCFile.getIdentifier(interp), interp);
+            identifiers.add(EPCFile.getIdentifier(interp));
+            Object tr = ConcurrentEPCFileTest.createRepresentation(UUID.randomUUID() + "", null, interp);
+            epc.getEnergymlObjects().put(EPCFile.getIdentifier(tr), tr);
+        }
+        epc.export(epcPath);
+        return identifiers;
+    }
+
+    @Test
+    void test_lru_eviction_and_export(@TempDir Path tmp) throws Exception {
+        EPCPackageManager pkgManager = new EPCPackageManager();
+        String epcPath = tmp.resolve("bounded.epc").toString();
+        List<String> identifiers = exportTestEpc(pkgManager, epcPath);
+
+        BoundedObjectStore store = BoundedObjectStore.lruByCount(3);
+        EPCFile bounded = EPCFile.read(epcPath, pkgManager, store);
+        assert store.size() == NB_INTERPRETATIONS * 2;
+        assert store.getLoadedCount() == 3;
+        assert store.getEvictionCount() == NB_INTERPRETATIONS * 2 - 3;
+
+        store.resetCounters();
+        for (String id : identifiers) {
+            assert EPCFile.getIdentifier(bounded.getObjectByIdentifier(id)).equals(id);
+        }
+        // the last objects read from the file may still be in memory
+        assert store.getMissCount() >= NB_INTERPRETATIONS - 3;
+        assert store.getMissCount() + store.getHitCount() == NB_INTERPRETATIONS;
+        assert store.getLoadedCount() == 3;
+        long hits = store.getHitCount();
+        assert bounded.getObjectByIdentifier(identifiers.get(NB_INTERPRETATIONS - 1)) != null;
+        assert store.getHitCount() == hits + 1;
+
+        // modified objects are pinned until exported
+        Object modified = bounded.getObjectByIdentifier(identifiers.get(0));
+        ObjectController.editObjectAttribute(modified, "Citation.Title", "Modified");
+        bounded.getEnergymlObjects().put(identifiers.get(0), modified);
+        for (String id : identifiers) {
+            bounded.getObjectByIdentifier(id);
+        }
+        assert store.isDirty(identifiers.get(0));
+        assert bounded.getObjectByIdentifier(identifiers.get(0)) == modified;
+
+        bounded.export(epcPath);
+        assert store.getDirtyCount() == 0;
+        assert store.size() == NB_INTERPRETATIONS * 2;
+        for (String id : identifiers.subList(1, NB_INTERPRETATIONS)) {
+            bounded.getObjectByIdentifier(id);
+        }
+        // still referenced here : evicted but not read again
+        Object reread = bounded.getObjectByIdentifier(identifiers.get(0));
+        assert reread == modified;
+        assert "Modified".equals(ObjectController.getObjectAttributeValue(reread, "Citation.Title"));
+
+        // rels are the same as the ones of a fully loaded epc
+        EPCFile full = EPCFile.read(epcPath, pkgManager);
+        assert full.getEnergymlObjects().size() == NB_INTERPRETATIONS * 2;
+        assert "Modified".equals(ObjectController.getObjectAttributeValue(full.getObjectByIdentifier(identifiers.get(0)), "Citation.Title"));
+        assert full.computeRelations().values().stream().mapToInt(r -> r.getRelationship().size()).sum()
+                == bounded.computeRelations().values().stream().mapToInt(r -> r.getRelationship().size()).sum();
+
+        // the size follows the new, pinned and removed objects
+        store.put("new-object.", modified);
+        store.markDirty(identifiers.get(1));
+        assert store.size() == NB_INTERPRETATIONS * 2 + 1 && new ArrayList<>(store.keySet()).size() == store.size();
+        store.remove("new-object.");
+        store.remove(identifiers.get(1));
+        store.remove("unknown.");
+        assert store.size() == NB_INTERPRETATIONS * 2 - 1 && new ArrayList<>(store.keySet()).size() == store.size();
+        store.close();
+    }
+
+    @Test
+    void test_in_place_edits(@TempDir Path tmp) throws Exception {
+        EPCPackageManager pkgManager = new EPCPackageManager();
+        String epcPath = tmp.resolve("edited.epc").toString();
+        List<String> identifiers = exportTestEpc(pkgManager, epcPath);
+        String editedId = identifiers.get(0);
+
+        BoundedObjectStore store = BoundedObjectStore.lruByCount(2);
+        EPCFile bounded = EPCFile.read(epcPath, pkgManager, store);
+
+        // edited in place without put : while it is referenced, the same object is returned after its eviction
+        Object edited = bounded.getObjectByIdentifier(editedId);
+        ObjectController.editObjectAttribute(edited, "Citation.Title", "Edited");
+        long evictions = store.getEvictionCount();
+        for (String id : identifiers) {
+            bounded.getObjectByIdentifier(id);
+        }
+        assert store.getEvictionCount() > evictions && !store.isDirty(editedId);
+        assert bounded.getObjectByIdentifier(editedId) == edited;
+
+        // marked as modified : pinned, the edit is kept once the object is no longer referenced
+        bounded.markModified(editedId);
+        assert store.isDirty(editedId);
+        edited = null;
+        System.gc();
+        for (String id : identifiers) {
+            bounded.getObjectByIdentifier(id);
+        }
+        assert "Edited".equals(ObjectController.getObjectAttributeValue(bounded.getObjectByIdentifier(editedId), "Citation.Title"));
+
+        bounded.export(epcPath);
+        assert store.getDirtyCount() == 0;
+        EPCFile full = EPCFile.read(epcPath, pkgManager);
+        assert "Edited".equals(ObjectController.getObjectAttributeValue(full.getObjectByIdentifier(editedId), "Citation.Title"));
+        assert !store.markDirty("unknown.");
+        store.close();
+    }
+}
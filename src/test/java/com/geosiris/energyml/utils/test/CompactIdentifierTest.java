@@ -0,0 +1,123 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.utils.CompactIdentifier;
+import com.geosiris.energyml.utils.CompactIdentifierMap;
+import com.geosiris.energyml.utils.StringIdentifierMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class CompactIdentifierTest {
+
+    @Test
+    void test_identifier_round_trip() {
+        String uuid = UUID.randomUUID().toString();
+        assert CompactIdentifier.of(uuid, "2.0").toString().equals(EPCFile.getIdentifier(uuid, "2.0"));
+        assert CompactIdentifier.parse(EPCFile.getIdentifier(uuid, null)).getVersion() == null;
+        assert CompactIdentifier.of(uuid, "").equals(CompactIdentifier.of(uuid, null));
+        assert CompactIdentifier.of(uuid, "1").getUuid().equals(uuid);
+
+        // non canonical uuids are kept as is
+        String upper = uuid.toUpperCase();
+        assert CompactIdentifier.of(upper, null).getUuid().equals(upper);
+        assert !CompactIdentifier.of(upper, null).equals(CompactIdentifier.of(uuid, null));
+        assert CompactIdentifier.parse("not-a-uuid.3").toString().equals("not-a-uuid.3");
+    }
+
+    @Test
+    void test_map_against_hashmap() {
+        Random rnd = new Random(42);
+        List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            uuids.add(i % 50 == 0 ? "raw-" + i : new UUID(rnd.nextLong(), rnd.nextLong()).toString());
+        }
+        String[] versions = {null, "1.0", "2.0"};
+
+        CompactIdentifierMap<Integer> map = new CompactIdentifierMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int op = 0; op < 20000; op++) {
+            String identifier = EPCFile.getIdentifier(uuids.get(rnd.nextInt(uuids.size())), versions[rnd.nextInt(versions.length)]);
+            if (rnd.nextInt(3) == 0) {
+                assert Objects.equals(map.removeByIdentifier(identifier), expected.remove(identifier));
+            } else {
+                assert Objects.equals(map.putByIdentifier(identifier, op), expected.put(identifier, op));
+            }
+        }
+        assert map.size() == expected.size();
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assert map.getByIdentifier(e.getKey()).equals(e.getValue());
+        }
+        Set<String> keys = new HashSet<>();
+        map.forEach((k, v) -> keys.add(k.toString()));
+        assert keys.equals(expected.keySet());
+
+        // removals while iterating shift the following entries back, each entry must still be visited once
+        List<String> visited = new ArrayList<>();
+        Iterator<Map.Entry<CompactIdentifier, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<CompactIdentifier, Integer> e = it.next();
+            visited.add(e.getKey().toString());
+            if (e.getValue() % 2 == 0) {
+                it.remove();
+                expected.remove(e.getKey().toString());
+            }
+        }
+        assert visited.size() == keys.size() && new HashSet<>(visited).equals(keys);
+        assert map.size() == expected.size();
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assert map.getByIdentifier(e.getKey()).equals(e.getValue());
+        }
+
+        // values is a live view
+        Collection<Integer> values = map.values();
+        assert values.size() == expected.size();
+        values.removeIf(v -> v % 3 == 0);
+        expected.values().removeIf(v -> v % 3 == 0);
+        assert map.size() == expected.size() && new HashSet<>(values).equals(new HashSet<>(expected.values()));
+    }
+
+    @Test
+    void test_string_identifier_map() {
+        String uuid = UUID.randomUUID().toString();
+        Map<String, Integer> map = new StringIdentifierMap<>();
+        map.put(EPCFile.getIdentifier(uuid, "1.0"), 1);
+        map.put(EPCFile.getIdentifier(uuid, null), 2);
+        map.put(EPCFile.getIdentifier("raw-uuid", "3"), 3);
+        assert map.get(uuid + ".1.0") == 1;
+        assert map.get(uuid + ".") == 2;
+        assert map.containsKey("raw-uuid.3");
+        assert map.get(42) == null;
+        assert map.keySet().equals(Set.of(uuid + ".1.0", uuid + ".", "raw-uuid.3"));
+
+        // removal and update while iterating
+        Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> e = it.next();
+            if (e.getValue() == 1) {
+                it.remove();
+            } else {
+                e.setValue(e.getValue() * 10);
+            }
+        }
+        assert map.equals(Map.of(uuid + ".", 20, "raw-uuid.3", 30));
+        assert map.computeIfAbsent(uuid + ".1.0", k -> 4) == 4;
+        assert map.putIfAbsent(uuid + ".1.0", 5) == 4;
+        assert map.size() == 3;
+    }
+}
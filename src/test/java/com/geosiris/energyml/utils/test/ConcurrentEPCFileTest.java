@@ -0,0 +1,131 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.pkg.ConcurrentEPCFile;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.utils.Utils;
+import energyml.common2_3.DataObjectReference;
+import energyml.resqml2_2.HorizonInterpretation;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ConcurrentEPCFileTest {
+
+    private static final int NB_INTERPRETATIONS = 20;
+    private static final int NB_WRITERS = 8;
+    private static final int NB_READERS = 8;
+    private static final int NB_OPERATIONS = 150;
+
+    public static HorizonInterpretation createInterpretation() {
+        HorizonInterpretation interp = new HorizonInterpretation();
+        interp.setUuid(UUID.randomUUID() + "");
+        energyml.common2_3.Citation cit = new energyml.common2_3.Citation();
+        cit.setTitle("Horizon");
+        interp.setCitation(cit);
+        return interp;
+    }
+
+    public static TriangulatedSetRepresentation createRepresentation(String uuid, String version, Object interp) throws Exception {
+        TriangulatedSetRepresentation tr = EPCGenericManagerTest.createTestData_trSet(version);
+        tr.setUuid(uuid);
+        tr.setRepresentedObject(Utils.createDor(interp, DataObjectReference.class));
+        return tr;
+    }
+
+    @Test
+    void test_concurrent_read_write() throws Exception {
+        ConcurrentEPCFile epc = new ConcurrentEPCFile(null);
+        List<HorizonInterpretation> interps = new ArrayList<>();
+        for (int i = 0; i < NB_INTERPRETATIONS; i++) {
+            HorizonInterpretation interp = createInterpretation();
+            interps.add(interp);
+            epc.putObject(interp);
+        }
+        List<String> repUuids = new ArrayList<>();
+        for (int i = 0; i < NB_WRITERS * 4; i++) {
+            repUuids.add(UUID.randomUUID() + "");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NB_WRITERS + NB_READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < NB_WRITERS; w++) {
+            final long seed = w;
+            futures.add(executor.submit(() -> {
+                Random rnd = new Random(seed);
+                start.await();
+                for (int op = 0; op < NB_OPERATIONS; op++) {
+                    String uuid = repUuids.get(rnd.nextInt(repUuids.size()));
+                    String version = String.valueOf(rnd.nextInt(3));
+                    if (rnd.nextInt(4) == 0) {
+                        epc.removeObject(EPCFile.getIdentifier(uuid, version));
+                    } else {
+                        epc.putObject(createRepresentation(uuid, version, interps.get(rnd.nextInt(interps.size()))));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < NB_READERS; r++) {
+            final long seed = 1000 + r;
+            futures.add(executor.submit(() -> {
+                Random rnd = new Random(seed);
+                start.await();
+                for (int op = 0; op < NB_OPERATIONS * 4; op++) {
+                    String uuid = repUuids.get(rnd.nextInt(repUuids.size()));
+                    for (String version : epc.getAllVersions(uuid)) {
+                        // may have been removed in the meantime, but never an other object
+                        Object o = epc.getObjectByIdentifier(EPCFile.getIdentifier(uuid, version));
+                        assert o == null || EPCFile.getUuid(o).equals(uuid);
+                    }
+                    for (String source : epc.getSourceIdentifiers(EPCFile.getIdentifier(interps.get(rnd.nextInt(interps.size())))) ) {
+                        assert source.contains(".");
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Indexes must match the final content of the workspace
+        Map<String, Set<String>> expectedVersions = new HashMap<>();
+        Map<String, Set<String>> expectedSources = new HashMap<>();
+        for (Map.Entry<String, Object> e : epc.getEnergymlObjects().entrySet()) {
+            String uuid = EPCFile.getUuidFromIdentifier(e.getKey());
+            expectedVersions.computeIfAbsent(uuid, k -> new HashSet<>()).add(EPCFile.getObjVersionFromIdentifier(e.getKey()));
+            if (e.getValue() instanceof TriangulatedSetRepresentation) {
+                String target = EPCFile.getIdentifier(((TriangulatedSetRepresentation) e.getValue()).getRepresentedObject());
+                assert epc.getTargetIdentifiers(e.getKey()).equals(Set.of(target));
+                expectedSources.computeIfAbsent(target, k -> new HashSet<>()).add(e.getKey());
+            }
+        }
+        for (String uuid : repUuids) {
+            assert new HashSet<>(epc.getAllVersions(uuid)).equals(expectedVersions.getOrDefault(uuid, Set.of()));
+        }
+        for (HorizonInterpretation interp : interps) {
+            String interpId = EPCFile.getIdentifier(interp);
+            assert epc.getSourceIdentifiers(interpId).equals(expectedSources.getOrDefault(interpId, Set.of()));
+        }
+    }
+}
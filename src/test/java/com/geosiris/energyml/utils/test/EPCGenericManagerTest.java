@@ -16,14 +16,21 @@ limitations under the License.
 package com.geosiris.energyml.utils.test;
 
 import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.utils.AccessibleDORIndex;
 import com.geosiris.energyml.utils.EPCGenericManager;
 import com.geosiris.energyml.utils.ExportVersion;
 import com.geosiris.energyml.utils.ObjectController;
 import com.geosiris.energyml.utils.Utils;
 import energyml.common2_3.Citation;
+import energyml.resqml2_2.BoundaryFeature;
+import energyml.resqml2_2.FaultInterpretation;
+import energyml.resqml2_2.HorizonInterpretation;
 import energyml.resqml2_2.TriangulatedSetRepresentation;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -295,6 +302,45 @@ public class EPCGenericManagerTest {
         assert EPCGenericManager.reshapeVersion("v2.0.1.5.2.6.5.4", 4).compareTo("v2.0.1.5.2.6.5.4") == 0;
     }
 
+    @Test
+    void test_accessible_dors_index(){
+        HorizonInterpretation horizon = new HorizonInterpretation();
+        horizon.setUuid(UUID.randomUUID()+"");
+        FaultInterpretation fault = new FaultInterpretation();
+        fault.setUuid(UUID.randomUUID()+"");
+        BoundaryFeature feature = new BoundaryFeature();
+        feature.setUuid(UUID.randomUUID()+"");
+
+        List<Object> workspace = List.of(TR_TEST, TR_TEST_VERSIONNED, horizon, fault, feature);
+        AccessibleDORIndex index = new AccessibleDORIndex(workspace);
+        assert index.size() == workspace.size();
+        assert index.getObjectsMatchingSuffixes(List.of("abstractfeatureinterpretation")).size() == 2;
+        assert index.getObjectsMatchingSuffixes(List.of("AbstractFeatureInterpretation", "HorizonInterpretation")).size() == 2;
+
+        Map<String, List<String>> mapping = Map.of("TriangulatedSetRepresentation", List.of("AbstractFeatureInterpretation"));
+        List<Object> accessible = EPCGenericManager.getAccessibleDORs(TR_TEST, null, "", workspace, index, mapping);
+        assert accessible.size() == 2;
+        assert accessible.contains(horizon) && accessible.contains(fault);
+        assert accessible.equals(EPCGenericManager.getAccessibleDORs(TR_TEST, null, "", workspace, mapping));
+
+        index.remove(fault);
+        assert EPCGenericManager.getAccessibleDORs(TR_TEST, null, "", workspace, index, mapping).size() == 1;
+
+        // the index of an epc follows its objects
+        EPCFile epc = new EPCFile(new EPCPackageManager(), ExportVersion.EXPANDED);
+        for (Object o : workspace) {
+            epc.putObject(o);
+        }
+        assert EPCGenericManager.getAccessibleDORs(TR_TEST, null, "", epc, mapping).size() == 2;
+        epc.removeObject(EPCFile.getIdentifier(fault));
+        assert EPCGenericManager.getAccessibleDORs(TR_TEST, null, "", epc, mapping).equals(List.of(horizon));
+        HorizonInterpretation other = new HorizonInterpretation();
+        other.setUuid(UUID.randomUUID()+"");
+        epc.putObject(other);
+        assert EPCGenericManager.getAccessibleDORs(TR_TEST, null, "", epc, mapping).size() == 2;
+        assert epc.getAccessibleDORIndex().size() == workspace.size();
+    }
+
     public static TriangulatedSetRepresentation createTestData_trSet(String version){
         TriangulatedSetRepresentation tr = new TriangulatedSetRepresentation();
         tr.setUuid(UUID.randomUUID()+"");
@@ -0,0 +1,168 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.ExternalArrayInfo;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.exception.ObjectNotFoundNotError;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.pkg.ExternalArrayCache;
+import com.geosiris.energyml.utils.ExternalArrayRequest;
+import energyml.common2_3.ExternalDataArray;
+import energyml.common2_3.IntegerExternalArray;
+import energyml.common2_3.IntegerType;
+import energyml.resqml2_2.TrianglePatch;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class EmbeddedArrayTest {
+
+    private static void addEntry(ZipOutputStream zos, String name, byte[] content, boolean stored) throws Exception {
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    private static ExternalDataArray rawPart(String uri, long startIndex, long count) {
+        ExternalDataArray array = ExternalArrayInfoTest.createExternalDataArray(uri, "");
+        array.getExternalDataArrayPart().get(0).getStartIndex().add(startIndex);
+        array.getExternalDataArrayPart().get(0).getCount().add(count);
+        return array;
+    }
+
+    @Test
+    void test_arrays_in_archive(@TempDir Path tmp) throws Exception {
+        byte[] h5 = Files.readAllBytes(Path.of(HdfFileCacheTest.writeTestFile(tmp, "tmp.h5", 0)));
+        Files.delete(tmp.resolve("tmp.h5"));
+        ByteBuffer doubles = ByteBuffer.allocate(5 * 8).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer shorts = ByteBuffer.allocate(4 * 2).order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < 5; i++) {
+            doubles.putDouble(i * 1.5);
+        }
+        shorts.putShort((short) 1).putShort((short) -1).putShort((short) 300).putShort((short) 4);
+
+        Path epcPath = tmp.resolve("embedded.epc");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(epcPath.toFile()))) {
+            addEntry(zos, "stored.h5", h5, true);
+            addEntry(zos, "data/deflated.h5", h5, false);
+            addEntry(zos, "raw/doubles.bin", doubles.array(), true);
+            addEntry(zos, "raw/shorts.bin", shorts.array(), false);
+        }
+        EPCFile epc = new EPCFile(new EPCPackageManager(), epcPath.toString());
+
+        for (String entry : List.of("stored.h5", "data/deflated.h5")) {
+            TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet(entry);
+            TrianglePatch patch = tr.getTrianglePatch().get(0);
+            assert Arrays.equals(epc.readDoubleArray(patch.getGeometry().getPoints(), tr, ""), new double[]{0, 1, 2, 3, 4, 5});
+            assert epc.readExternalArray(patch.getTriangles(), tr, "").equals(List.of(0, 1, 2));
+        }
+
+        // stored raw values are read from the mapped archive
+        NumericArray values = epc.readExternalNumericArray(ExternalArrayInfoTest.createExternalDataArray("raw/doubles.bin", ""), null, "");
+        assert values instanceof NumericArray.OfBuffer && ((NumericArray.OfBuffer) values).getBuffer().isDirect();
+        assert Arrays.equals(values.toDoubleArray(), new double[]{0, 1.5, 3, 4.5, 6});
+        assert Arrays.equals(epc.readDoubleArray(rawPart("raw/doubles.bin", 1, 3), null, ""), new double[]{1.5, 3, 4.5});
+
+        IntegerExternalArray rawShorts = new IntegerExternalArray();
+        rawShorts.setValues(rawPart("raw/shorts.bin", 0, 4));
+        rawShorts.setArrayIntegerType(IntegerType.ARRAY_OF_U_INT_16_BE);
+        assert Arrays.equals(epc.readIntArray(rawShorts, null, ""), new int[]{1, 65535, 300, 4});
+        rawShorts.setArrayIntegerType(IntegerType.ARRAY_OF_INT_16_BE);
+        assert epc.readExternalArray(rawShorts, null, "").equals(List.of((short) 1, (short) -1, (short) 300, (short) 4));
+
+        try {
+            epc.readExternalNumericArray(ExternalArrayInfoTest.createExternalDataArray("missing.h5", "/RESQML/points"), null, "");
+            assert false;
+        } catch (ObjectNotFoundNotError ignore) {
+        }
+
+        // h5 files of the archive are also found by the h5 workspace
+        TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet("stored.h5");
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(epc)) {
+            assert workspace.readDoubleArray(tr.getTrianglePatch().get(0).getGeometry().getPoints(), tr, "")[5] == 5;
+        }
+    }
+
+    @Test
+    void test_embedded_h5_with_array_cache(@TempDir Path tmp) throws Exception {
+        byte[] h5 = Files.readAllBytes(Path.of(HdfFileCacheTest.writeTestFile(tmp, "tmp.h5", 0)));
+        Files.delete(tmp.resolve("tmp.h5"));
+        Path epcPath = tmp.resolve("embedded.epc");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(epcPath.toFile()))) {
+            addEntry(zos, "stored.h5", h5, true);
+        }
+        EPCFile epc = new EPCFile(new EPCPackageManager(), epcPath.toString());
+        TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet("stored.h5");
+        epc.getEnergymlObjects().put(EPCFile.getIdentifier(tr), tr);
+        TrianglePatch patch = tr.getTrianglePatch().get(0);
+
+        ExternalArrayCache cache = new ExternalArrayCache(1024 * 1024);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(epc)) {
+            workspace.setArrayCache(cache);
+            for (int i = 0; i < 2; i++) {
+                assert Arrays.equals(workspace.readDoubleArray(patch.getGeometry().getPoints(), tr, ""), new double[]{0, 1, 2, 3, 4, 5});
+            }
+            assert cache.size() == 1 && cache.getMissCount() == 1 && cache.getHitCount() == 1;
+
+            ExternalArrayInfo info = workspace.getExternalArrayInfo(patch.getGeometry().getPoints(), tr, "TrianglePatch.0.Geometry.Points");
+            assert info.getFilePath().equals(epcPath + "!/stored.h5");
+
+            // the batch read also finds the h5 file in the archive
+            List<ExternalArrayRequest> requests = List.of(
+                    new ExternalArrayRequest(patch.getGeometry().getPoints(), tr, "TrianglePatch.0.Geometry.Points"),
+                    new ExternalArrayRequest(patch.getTriangles(), tr, "TrianglePatch.0.Triangles"));
+            List<NumericArray> values = workspace.readExternalNumericArraysAsync(requests, executor).stream()
+                    .map(CompletableFuture::join).collect(Collectors.toList());
+            assert values.get(0).getDouble(5) == 5 && Arrays.equals(values.get(1).toIntArray(), new int[]{0, 1, 2});
+            assert cache.getHitCount() == 2 && cache.size() == 2;
+            // no h5 file is opened from the file system
+            assert workspace.getHdfFileCache().getOpenCount() == 0;
+
+            cache.invalidate(epcPath.toString());
+            assert cache.size() == 0;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
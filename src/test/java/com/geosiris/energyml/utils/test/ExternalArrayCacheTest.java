@@ -0,0 +1,112 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.pkg.ExternalArrayCache;
+import energyml.resqml2_2.TrianglePatch;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+public class ExternalArrayCacheTest {
+
+    @Test
+    void test_lru_eviction(@TempDir Path tmp) throws Exception {
+        String file = tmp.resolve("a.h5").toString();
+        Files.write(Path.of(file), new byte[0]);
+        ExternalArrayCache cache = new ExternalArrayCache(100);
+        int[] nbReads = {0};
+
+        NumericArray a = cache.get(file, "/a", null, () -> {
+            nbReads[0]++;
+            return NumericArray.of(new double[]{1, 2, 3, 4, 5, 6}, 2, 3);
+        });
+        NumericArray again = cache.get(file, "/a", null, () -> {
+            nbReads[0]++;
+            return NumericArray.of(new double[6]);
+        });
+        assert nbReads[0] == 1 && again == a;
+        assert a instanceof NumericArray.OfBuffer;
+        assert ((NumericArray.OfBuffer) a).getBuffer().isReadOnly() && ((NumericArray.OfBuffer) a).getBuffer().isDirect();
+        assert Arrays.equals(a.getShape(), new long[]{2, 3}) && a.getDouble(4) == 5;
+        assert Arrays.equals(a.toDoubleArray(), new double[]{1, 2, 3, 4, 5, 6});
+        assert cache.getUsedBytes() == 48 && cache.getHitRate() == 0.5;
+
+        // 48 + 40 bytes : both cached, a is the most recently used
+        cache.get(file, "/b", null, () -> NumericArray.of(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+        cache.get(file, "/a", null, () -> NumericArray.of(new double[6]));
+        assert cache.size() == 2;
+        // b is evicted
+        NumericArray c = cache.get(file, "/c", null, () -> NumericArray.of(new long[]{7, 8}));
+        assert c.getLong(1) == 8 && c.get(0).equals(7L);
+        assert cache.size() == 2 && cache.getEvictionCount() == 1 && cache.getUsedBytes() == 64;
+
+        // a known file key gives the same entries without accessing the file
+        String fileKey = ExternalArrayCache.getFileKey(file);
+        assert fileKey.equals(ExternalArrayCache.getFileKey(Path.of(file).toAbsolutePath().normalize().toString(),
+                new File(file).lastModified()));
+        assert cache.getByFileKey(fileKey, "/c", null, () -> NumericArray.of(new long[2])) == c;
+        assert cache.getByFileKey(ExternalArrayCache.getFileKey(file, 0), "/c", null, () -> NumericArray.of(new long[]{9, 9})).getLong(0) == 9;
+        cache.invalidate(file);
+        assert cache.size() == 0;
+        c = cache.get(file, "/c", null, () -> NumericArray.of(new long[]{7, 8}));
+        cache.get(file, "/a", null, () -> NumericArray.of(new double[]{1, 2, 3, 4, 5, 6}, 2, 3));
+
+        // too big to be cached
+        NumericArray big = cache.get(file, "/big", null, () -> NumericArray.of(new double[20]));
+        assert !(big instanceof NumericArray.OfBuffer) && cache.size() == 2;
+
+        cache.setMaxBytes(50);
+        assert cache.size() == 1;
+        cache.invalidate(file);
+        assert cache.size() == 0 && cache.getUsedBytes() == 0;
+    }
+
+    @Test
+    void test_workspace_reads_from_cache(@TempDir Path tmp) throws Exception {
+        String h5 = HdfFileCacheTest.writeTestFile(tmp, "arrays.h5", 0);
+        TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet("arrays.h5");
+        TrianglePatch patch = tr.getTrianglePatch().get(0);
+        EPCFile epc = new EPCFile(new EPCPackageManager(), tmp.resolve("data.epc").toString());
+        epc.getEnergymlObjects().put(EPCFile.getIdentifier(tr), tr);
+
+        ExternalArrayCache cache = new ExternalArrayCache(1024 * 1024);
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(epc)) {
+            workspace.setArrayCache(cache);
+            for (int i = 0; i < 3; i++) {
+                assert workspace.readDoubleArray(patch.getGeometry().getPoints(), tr, "")[5] == 5;
+                assert workspace.readExternalArray(patch.getTriangles(), tr, "").equals(Arrays.asList(0, 1, 2));
+            }
+            assert cache.size() == 2 && cache.getMissCount() == 2 && cache.getHitCount() == 4;
+
+            // a modified file is read again
+            HdfFileCacheTest.writeTestFile(tmp, "arrays.h5", 100);
+            Files.setLastModifiedTime(Path.of(h5), FileTime.fromMillis(Files.getLastModifiedTime(Path.of(h5)).toMillis() + 10_000));
+            assert workspace.readDoubleArray(patch.getGeometry().getPoints(), tr, "")[0] == 100;
+            assert cache.getMissCount() == 3;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.ExternalArrayInfo;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import energyml.common2_3.ExternalDataArray;
+import energyml.common2_3.ExternalDataArrayPart;
+import energyml.common2_3.IntegerExternalArray;
+import energyml.resqml2_2.Point3DExternalArray;
+import energyml.resqml2_2.PointGeometry;
+import energyml.resqml2_2.TrianglePatch;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import io.jhdf.HdfFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ExternalArrayInfoTest {
+
+    public static ExternalDataArray createExternalDataArray(String h5Path, String pathInExternalFile) {
+        ExternalDataArrayPart part = new ExternalDataArrayPart();
+        part.setURI(h5Path);
+        part.setPathInExternalFile(pathInExternalFile);
+        ExternalDataArray array = new ExternalDataArray();
+        array.getExternalDataArrayPart().add(part);
+        return array;
+    }
+
+    /**
+     * A triangulated set with one patch, its points in "/RESQML/points" and its triangles in "/RESQML/indices" (see
+     * {@link HdfFileCacheTest#writeTestFile(Path, String, double)}).
+     */
+    public static TriangulatedSetRepresentation createExternalTriangulatedSet(String h5Path) {
+        TriangulatedSetRepresentation tr = EPCGenericManagerTest.createTestData_trSet(null);
+        TrianglePatch patch = new TrianglePatch();
+        patch.setNodeCount(2);
+        PointGeometry geometry = new PointGeometry();
+        Point3DExternalArray points = new Point3DExternalArray();
+        points.setCoordinates(createExternalDataArray(h5Path, "/RESQML/points"));
+        geometry.setPoints(points);
+        patch.setGeometry(geometry);
+        IntegerExternalArray triangles = new IntegerExternalArray();
+        triangles.setValues(createExternalDataArray(h5Path, "/RESQML/indices"));
+        patch.setTriangles(triangles);
+        tr.getTrianglePatch().add(patch);
+        return tr;
+    }
+
+    @Test
+    void test_dataset_info(@TempDir Path tmp) throws Exception {
+        Path h5 = tmp.resolve("info.h5");
+        new Hdf5TestFile()
+                .addDataset("/RESQML/contiguous", new double[12], 3, 4)
+                .addChunkedDataset("/RESQML/chunked", new long[10], new long[]{4}, 10)
+                .write(h5);
+        try (HdfFile hdfFile = new HdfFile(h5)) {
+            ExternalArrayInfo contiguous = EpcHdf5FileManager.getDatasetInfo(hdfFile, "/RESQML/contiguous");
+            assert Arrays.equals(contiguous.getDimensions(), new long[]{3, 4});
+            assert contiguous.getElementType() == NumericArray.ElementType.DOUBLE;
+            assert contiguous.getElementSize() == 8 && contiguous.getSizeInBytes() == 96;
+            assert contiguous.getLayout().equals("CONTIGUOUS") && !contiguous.isChunked() && !contiguous.isCompressed();
+
+            ExternalArrayInfo chunked = EpcHdf5FileManager.getDatasetInfo(hdfFile, "/RESQML/chunked");
+            assert chunked.getElementType() == NumericArray.ElementType.LONG;
+            assert chunked.getLayout().equals("CHUNKED") && Arrays.equals(chunked.getChunkDimensions(), new long[]{4});
+            assert chunked.getFilters().isEmpty();
+            // 3 chunks of 4 values
+            assert chunked.getStorageSizeInBytes() == 96;
+        }
+    }
+
+    @Test
+    void test_all_infos_of_workspace(@TempDir Path tmp) throws Exception {
+        String h5 = HdfFileCacheTest.writeTestFile(tmp, "arrays.h5", 0);
+        EPCFile epc = new EPCFile(new EPCPackageManager());
+        TriangulatedSetRepresentation tr = createExternalTriangulatedSet(h5);
+        epc.getEnergymlObjects().put(EPCFile.getIdentifier(tr), tr);
+        TriangulatedSetRepresentation noArray = EPCGenericManagerTest.createTestData_trSet(null);
+        epc.getEnergymlObjects().put(EPCFile.getIdentifier(noArray), noArray);
+
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(epc)) {
+            Map<String, List<ExternalArrayInfo>> infos = workspace.getAllExternalArrayInfos();
+            assert infos.keySet().equals(java.util.Set.of(EPCFile.getIdentifier(tr)));
+            List<ExternalArrayInfo> trInfos = infos.get(EPCFile.getIdentifier(tr));
+            assert trInfos.size() == 2;
+            for (ExternalArrayInfo info : trInfos) {
+                assert info.getRootIdentifier().equals(EPCFile.getIdentifier(tr));
+                assert Path.of(info.getFilePath()).equals(Path.of(h5).toAbsolutePath().normalize()) : info.getFilePath();
+                if (info.getPathInExternalFile().equals("/RESQML/points")) {
+                    assert Arrays.equals(info.getDimensions(), new long[]{2, 3});
+                    assert info.getJavaType() == double.class;
+                } else {
+                    assert info.getPathInExternalFile().equals("/RESQML/indices");
+                    assert info.getElementType() == NumericArray.ElementType.INT && info.getSize() == 3;
+                }
+            }
+            // the h5 file has been opened once for all the arrays
+            assert workspace.getHdfFileCache().getOpenCount() == 1;
+        }
+    }
+}
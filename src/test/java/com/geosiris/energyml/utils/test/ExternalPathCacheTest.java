@@ -0,0 +1,60 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.pkg.ExternalPathCache;
+import energyml.resqml2_2.TrianglePatch;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+public class ExternalPathCacheTest {
+
+    @Test
+    void test_file_is_resolved_once(@TempDir Path tmp) throws Exception {
+        String h5 = HdfFileCacheTest.writeTestFile(tmp, "arrays.h5", 0);
+        // relative uri : found next to the epc file
+        TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet("arrays.h5");
+        TrianglePatch patch = tr.getTrianglePatch().get(0);
+        EPCFile epc = new EPCFile(new EPCPackageManager(), tmp.resolve("data.epc").toString());
+        epc.getEnergymlObjects().put(EPCFile.getIdentifier(tr), tr);
+
+        String key = ExternalPathCache.getResolutionKey(patch.getGeometry().getPoints(), epc);
+        assert key.equals(ExternalPathCache.getResolutionKey(patch.getTriangles(), epc));
+        assert !key.equals(ExternalPathCache.getResolutionKey(ExternalArrayInfoTest.createExternalDataArray("other.h5", "/a"), epc));
+
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(epc)) {
+            ExternalPathCache cache = workspace.getExternalPathCache();
+            for (int i = 0; i < 3; i++) {
+                assert workspace.readDoubleArray(patch.getGeometry().getPoints(), tr, "").length == 6;
+                assert workspace.readIntArray(patch.getTriangles(), tr, "").length == 3;
+            }
+            assert cache.size() == 1;
+            assert cache.getMissCount() == 1 && cache.getHitCount() == 5;
+            assert Path.of(cache.get(key)).equals(Path.of(h5));
+
+            // a remembered path that can not be read anymore is resolved again
+            cache.put(key, tmp.resolve("moved.h5").toString());
+            assert workspace.readIntArray(patch.getTriangles(), tr, "")[2] == 2;
+            assert Path.of(cache.get(key)).equals(Path.of(h5));
+        }
+    }
+}
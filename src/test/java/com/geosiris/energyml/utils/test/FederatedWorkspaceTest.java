@@ -0,0 +1,114 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EPCRelsRelationshipType;
+import com.geosiris.energyml.pkg.FederatedWorkspace;
+import com.geosiris.energyml.utils.ExportVersion;
+import com.geosiris.energyml.utils.ObjectController;
+import energyml.relationships.Relationship;
+import energyml.resqml2_2.HorizonInterpretation;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FederatedWorkspaceTest {
+
+    private static String exportEpc(EPCPackageManager pkgManager, Path folder, String name, Object... objects) throws IOException {
+        EPCFile epc = new EPCFile(pkgManager, ExportVersion.EXPANDED);
+        for (Object o : objects) {
+            epc.getEnergymlObjects().put(EPCFile.getIdentifier(o), o);
+        }
+        Path epcPath = folder.resolve(name);
+        try (OutputStream os = new FileOutputStream(epcPath.toFile())) {
+            epc.export(os);
+        }
+        return epcPath.toString();
+    }
+
+    @Test
+    void test_federated_lookup(@TempDir Path tmp) throws Exception {
+        EPCPackageManager pkgManager = new EPCPackageManager();
+        HorizonInterpretation interp = ConcurrentEPCFileTest.createInterpretation();
+        TriangulatedSetRepresentation tr = ConcurrentEPCFileTest.createRepresentation(EPCGenericManagerTest.createTestData_trSet(null).getUuid(), "42", interp);
+
+        String epcInterp = exportEpc(pkgManager, tmp, "interp.epc", interp);
+        String epcRep = exportEpc(pkgManager, tmp, "rep.epc", tr);
+
+        try (FederatedWorkspace workspace = new FederatedWorkspace(pkgManager, List.of(epcInterp, epcRep))) {
+            assert workspace.getFiles().size() == 2;
+            assert workspace.getAllUuids().size() == 2;
+            assert workspace.getPartLocations(tr.getUuid()).get(0).getObjectVersion().equals("42");
+
+            Object trRead = workspace.getObject(tr.getUuid(), "42");
+            assert trRead.getClass().getSimpleName().equals("TriangulatedSetRepresentation");
+            assert workspace.getObjectByIdentifier(EPCFile.getIdentifier(tr.getUuid(), "43")) == null;
+            String interpId = EPCFile.getIdentifier(interp);
+            // the interpretation referenced by the representation is in the other file
+            assert EPCFile.getIdentifier(ObjectController.getObjectAttributeValue(trRead, "RepresentedObject")).equals(interpId);
+            assert workspace.getObjectByIdentifier(interpId).getClass().getSimpleName().equals("HorizonInterpretation");
+            assert workspace.getOwningFile(interpId).equals(Path.of(epcInterp).toAbsolutePath().normalize().toString());
+
+            assert workspace.getAccessibleDORIndex().size() == 2;
+            assert workspace.removeFile(epcInterp);
+            assert workspace.getObjectByIdentifier(interpId) == null;
+            assert workspace.getObjectByUUID(tr.getUuid()) != null;
+            assert workspace.getAccessibleDORIndex().getObjects().equals(List.of(trRead));
+
+            workspace.addFile(epcInterp);
+            assert workspace.getObjectByIdentifier(interpId) != null;
+            assert workspace.getAccessibleDORIndex().size() == 2;
+        }
+    }
+
+    @Test
+    void test_federated_additional_rels(@TempDir Path tmp) throws Exception {
+        EPCPackageManager pkgManager = new EPCPackageManager();
+        HorizonInterpretation interp = ConcurrentEPCFileTest.createInterpretation();
+        String interpId = EPCFile.getIdentifier(interp);
+
+        EPCFile epc = new EPCFile(pkgManager, ExportVersion.EXPANDED);
+        epc.getEnergymlObjects().put(interpId, interp);
+        Relationship rel = new Relationship();
+        rel.setId("Hdf5File");
+        rel.setType(EPCRelsRelationshipType.ExternalResource.getType());
+        rel.setTarget("data.h5");
+        epc.getAdditionalRels().computeIfAbsent(interpId, k -> new ArrayList<>()).add(rel);
+        Path epcPath = tmp.resolve("rels.epc");
+        try (OutputStream os = new FileOutputStream(epcPath.toFile())) {
+            epc.export(os);
+        }
+
+        try (FederatedWorkspace workspace = new FederatedWorkspace(pkgManager, List.of(epcPath.toString()))) {
+            EPCFile view = workspace.getEpcView(epcPath.toString());
+            // reading the rels does not load the objects
+            assert view.getAdditionalRels().isEmpty();
+            assert workspace.getObjectByIdentifier(interpId) != null;
+            List<Relationship> rels = view.getAdditionalRels().get(interpId);
+            assert rels != null && rels.size() == 1;
+            assert rels.get(0).getTarget().equals("data.h5");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.Grid2dTriangulation;
+import com.geosiris.energyml.data.Mesh;
+import com.geosiris.energyml.data.SurfaceMesh;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class Grid2dTriangulationTest {
+
+    private static double[] grid(int nbRows, int nbColumns, double holeRate, long seed) {
+        Random random = new Random(seed);
+        double[] xyz = new double[nbRows * nbColumns * 3];
+        for (int p = 0; p < nbRows * nbColumns; p++) {
+            xyz[p * 3] = p % nbColumns;
+            xyz[p * 3 + 1] = p / nbColumns;
+            xyz[p * 3 + 2] = random.nextDouble() < holeRate ? Double.NaN : p;
+        }
+        return xyz;
+    }
+
+    @Test
+    void test_small_grid() {
+        // 3x3 nodes, hole on the middle of the last column
+        double[] xyz = grid(3, 3, 0, 1);
+        xyz[5 * 3 + 2] = Double.NaN;
+        long[] holes = Grid2dTriangulation.getHoleMask(xyz);
+        assert holes.length == 1 && Grid2dTriangulation.isHole(holes, 5) && Grid2dTriangulation.countHoles(holes) == 1;
+
+        int[] remap = Grid2dTriangulation.getRemap(holes, 9);
+        assert Arrays.equals(remap, new int[]{0, 1, 2, 3, 4, -1, 5, 6, 7});
+        double[] points = Grid2dTriangulation.removeHoles(xyz, remap, 8);
+        assert points.length == 24 && points[5 * 3 + 2] == 6;
+
+        assert Arrays.equals(Grid2dTriangulation.getFaces(remap, 3, 3, Grid2dTriangulation.FaceType.QUADS),
+                new int[]{0, 3, 4, 1, 3, 5, 6, 4});
+        // the triangles of the cells touching the hole by their 2nd or 4th node are kept
+        assert Arrays.equals(Grid2dTriangulation.getFaces(remap, 3, 3, Grid2dTriangulation.FaceType.TRIANGLES),
+                new int[]{0, 3, 4, 0, 4, 1, 3, 5, 6, 3, 6, 4, 4, 6, 7});
+        assert Grid2dTriangulation.getFaces(null, 3, 3, Grid2dTriangulation.FaceType.TRIANGLES).length == 24;
+        assert Grid2dTriangulation.getFaces(null, 1, 3, Grid2dTriangulation.FaceType.QUADS).length == 0;
+    }
+
+    @Test
+    void test_big_grid() {
+        // processed in parallel : same faces as a sequential reference
+        int nbRows = 301;
+        int nbColumns = 257;
+        double[] xyz = grid(nbRows, nbColumns, 0.1, 42);
+        long[] holes = Grid2dTriangulation.getHoleMask(xyz);
+        int[] remap = Grid2dTriangulation.getRemap(holes, nbRows * nbColumns);
+
+        int index = 0;
+        for (int p = 0; p < nbRows * nbColumns; p++) {
+            boolean hole = Double.isNaN(xyz[p * 3 + 2]);
+            assert Grid2dTriangulation.isHole(holes, p) == hole;
+            assert remap[p] == (hole ? -1 : index++);
+        }
+        assert Grid2dTriangulation.countHoles(holes) == nbRows * nbColumns - index;
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < nbRows - 1; i++) {
+            for (int j = 0; j < nbColumns - 1; j++) {
+                int[] quad = {remap[i * nbColumns + j], remap[(i + 1) * nbColumns + j], remap[(i + 1) * nbColumns + j + 1], remap[i * nbColumns + j + 1]};
+                if (Arrays.stream(quad).allMatch(v -> v >= 0)) {
+                    Arrays.stream(quad).forEach(expected::add);
+                }
+            }
+        }
+        int[] faces = Grid2dTriangulation.getFaces(remap, nbRows, nbColumns, Grid2dTriangulation.FaceType.QUADS);
+        assert Arrays.equals(faces, expected.stream().mapToInt(Integer::intValue).toArray());
+
+        double[] points = Grid2dTriangulation.removeHoles(xyz, remap, index);
+        assert points[remap[nbRows * nbColumns - 1] * 3 + 2] == nbRows * nbColumns - 1 || remap[nbRows * nbColumns - 1] < 0;
+    }
+
+    @Test
+    void test_read_grid2d_triangles() throws Exception {
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            SurfaceMesh surface = Mesh.readGrid2dRepresentationHolable(
+                    MeshTest.createGrid2d(List.of(1., 2., 3., 4., 5., Double.NaN, 7., 8., 9.)), workspace, false,
+                    Grid2dTriangulation.FaceType.TRIANGLES).get(0);
+            assert surface.getNbPoints() == 8 && surface.getNbFaces() == 5;
+            assert surface.getEdgeIndices().get(0).equals(List.of(0L, 3L, 4L));
+        }
+    }
+}
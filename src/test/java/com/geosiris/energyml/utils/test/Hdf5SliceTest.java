@@ -0,0 +1,123 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import energyml.common2_3.ExternalDataArray;
+import energyml.common2_3.ExternalDataArrayPart;
+import energyml.common2_3.FloatingPointExternalArray;
+import io.jhdf.HdfFile;
+import io.jhdf.object.message.DataLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class Hdf5SliceTest {
+
+    private static final long[] DIMS = {5, 7};
+
+    private static int[] values() {
+        int[] values = new int[35];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+
+    private static String writeFile(Path folder) throws Exception {
+        Path h5 = folder.resolve("slices.h5");
+        double[] doubles = Arrays.stream(values()).asDoubleStream().toArray();
+        new Hdf5TestFile()
+                .addDataset("/RESQML/contiguous", doubles, DIMS)
+                .addChunkedDataset("/RESQML/chunked", values(), new long[]{2, 3}, DIMS)
+                .write(h5);
+        return h5.toString();
+    }
+
+    @Test
+    void test_slice_in_memory() {
+        NumericArray array = NumericArray.of(values(), DIMS);
+        NumericArray slice = array.slice(new long[]{1, 2}, new long[]{2, 3}, new long[]{2, 2});
+        assert Arrays.equals(slice.getShape(), new long[]{2, 3});
+        assert Arrays.equals(slice.toIntArray(), new int[]{9, 11, 13, 23, 25, 27});
+        assert array.slice(new long[]{4, 0}, new long[]{0, 7}, null).size() == 0;
+
+        try {
+            array.slice(new long[]{4, 0}, new long[]{2, 1}, null);
+            assert false;
+        } catch (IndexOutOfBoundsException ignore) {
+        }
+    }
+
+    @Test
+    void test_contiguous_and_chunked_slices(@TempDir Path tmp) throws Exception {
+        String h5 = writeFile(tmp);
+        NumericArray expected = NumericArray.of(values(), DIMS);
+        long[][][] selections = {
+                {{0, 0}, {5, 7}, null},
+                {{1, 2}, {3, 4}, null},
+                {{1, 1}, {2, 3}, {3, 2}},
+                {{4, 6}, {1, 1}, null},
+                {{0, 5}, {5, 2}, {1, 1}},
+        };
+        try (HdfFile hdfFile = new HdfFile(Path.of(h5))) {
+            assert hdfFile.getDatasetByPath("/RESQML/chunked").getDataLayout() == DataLayout.CHUNKED;
+            assert Arrays.equals(EpcHdf5FileManager.getDatasetNumericArray(hdfFile, "/RESQML/chunked").toIntArray(), values());
+            for (long[][] s : selections) {
+                int[] expectedValues = expected.slice(s[0], s[1], s[2]).toIntArray();
+                NumericArray contiguous = EpcHdf5FileManager.getDatasetNumericArraySlice(hdfFile, "/RESQML/contiguous", s[0], s[1], s[2]);
+                NumericArray chunked = EpcHdf5FileManager.getDatasetNumericArraySlice(hdfFile, "/RESQML/chunked", s[0], s[1], s[2]);
+                assert contiguous.getElementType() == NumericArray.ElementType.DOUBLE;
+                assert chunked.getElementType() == NumericArray.ElementType.INT;
+                assert Arrays.equals(contiguous.getShape(), s[1]) && Arrays.equals(chunked.getShape(), s[1]);
+                assert Arrays.equals(contiguous.toIntArray(), expectedValues) : Arrays.toString(contiguous.toIntArray());
+                assert Arrays.equals(chunked.toIntArray(), expectedValues) : Arrays.toString(chunked.toIntArray());
+            }
+        }
+    }
+
+    @Test
+    void test_external_part_selection(@TempDir Path tmp) throws Exception {
+        String h5 = writeFile(tmp);
+        ExternalDataArrayPart part = new ExternalDataArrayPart();
+        part.setURI(h5);
+        part.setPathInExternalFile("/RESQML/contiguous");
+        part.getStartIndex().addAll(List.of(2L, 0L));
+        part.getCount().addAll(List.of(2L, 7L));
+        FloatingPointExternalArray array = new FloatingPointExternalArray();
+        array.setValues(new ExternalDataArray());
+        array.getValues().getExternalDataArrayPart().add(part);
+
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            NumericArray values = workspace.readExternalNumericArray(array, null, "");
+            assert Arrays.equals(values.getShape(), new long[]{2, 7});
+            assert values.getDouble(0) == 14 && values.getDouble(13) == 27;
+
+            List<?> boxed = workspace.readExternalArray(array, null, "");
+            assert boxed.size() == 2 && ((List<?>) boxed.get(1)).get(0).equals(21.0);
+
+            // slice offsets are relative to the part
+            NumericArray slice = workspace.readExternalNumericArraySlice(array, null, "", new long[]{1, 3}, new long[]{1, 2}, null);
+            assert Arrays.equals(slice.toDoubleArray(), new double[]{24, 25});
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import io.jhdf.checksum.ChecksumUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal h5 file writer for tests (jhdf can only read): superblock v2, compact groups and contiguous or chunked
+ * (fixed array index, no filter) little-endian datasets of double, float, int or long.
+ */
+public class Hdf5TestFile {
+    private static final long UNDEFINED_ADDRESS = -1L;
+
+    private static class Node {
+        final Map<String, Node> children = new LinkedHashMap<>();
+        Object data;
+        long[] dims;
+        long[] chunkDims;
+        long address;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * @param path dataset path, e.g. "/RESQML/uuid/points_patch0"
+     * @param data a double[], float[], int[] or long[] in row-major order
+     * @param dims dataset dimensions, the product must be the data length
+     */
+    public Hdf5TestFile addDataset(String path, Object data, long... dims) {
+        Node node = root;
+        for (String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                node = node.children.computeIfAbsent(name, k -> new Node());
+            }
+        }
+        node.data = data;
+        node.dims = dims;
+        return this;
+    }
+
+    /**
+     * Same as {@link #addDataset(String, Object, long...)} with a chunked layout.
+     * @param chunkDims chunk dimensions, edge chunks are padded with zeros
+     */
+    public Hdf5TestFile addChunkedDataset(String path, Object data, long[] chunkDims, long... dims) {
+        addDataset(path, data, dims);
+        Node node = root;
+        for (String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                node = node.children.get(name);
+            }
+        }
+        node.chunkDims = chunkDims;
+        return this;
+    }
+
+    public void write(Path filePath) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[48]); // superblock, written at the end
+        writeNode(root, out);
+        ByteBuffer superblock = ByteBuffer.allocate(48).order(ByteOrder.LITTLE_ENDIAN);
+        superblock.put(new byte[]{(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'});
+        superblock.put((byte) 2).put((byte) 8).put((byte) 8).put((byte) 0);
+        superblock.putLong(0).putLong(UNDEFINED_ADDRESS).putLong(out.size()).putLong(root.address);
+        superblock.putInt(ChecksumUtils.checksum(java.util.Arrays.copyOf(superblock.array(), 44)));
+        byte[] bytes = out.toByteArray();
+        System.arraycopy(superblock.array(), 0, bytes, 0, 48);
+        Files.write(filePath, bytes);
+    }
+
+    private void writeNode(Node node, ByteArrayOutputStream out) throws IOException {
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        if (node.data != null) {
+            byte[] data = toBytes(node.data);
+            long dataAddress = out.size();
+            if (node.chunkDims == null) {
+                out.write(data);
+            }
+
+            ByteBuffer dataspace = le(4 + 8 * node.dims.length);
+            dataspace.put((byte) 2).put((byte) node.dims.length).put((byte) 0).put((byte) 1);
+            for (long d : node.dims) {
+                dataspace.putLong(d);
+            }
+            addMessage(messages, 0x01, dataspace.array());
+            addMessage(messages, 0x03, datatype(node.data));
+            addMessage(messages, 0x05, new byte[]{3, 0x0A});
+            if (node.chunkDims == null) {
+                ByteBuffer layout = le(18);
+                layout.put((byte) 3).put((byte) 1).putLong(dataAddress).putLong(data.length);
+                addMessage(messages, 0x08, layout.array());
+            } else {
+                addMessage(messages, 0x08, writeChunks(node, data, out));
+            }
+        } else {
+            for (Node child : node.children.values()) {
+                writeNode(child, out);
+            }
+            ByteBuffer linkInfo = le(18);
+            linkInfo.put((byte) 0).put((byte) 0).putLong(UNDEFINED_ADDRESS).putLong(UNDEFINED_ADDRESS);
+            addMessage(messages, 0x02, linkInfo.array());
+            addMessage(messages, 0x0A, new byte[]{0, 0});
+            for (Map.Entry<String, Node> child : node.children.entrySet()) {
+                byte[] name = child.getKey().getBytes();
+                ByteBuffer link = le(3 + name.length + 8);
+                link.put((byte) 1).put((byte) 0).put((byte) name.length).put(name).putLong(child.getValue().address);
+                addMessage(messages, 0x06, link.array());
+            }
+        }
+        node.address = out.size();
+        ByteBuffer header = le(4 + 2 + 4 + messages.size() + 4);
+        header.put(new byte[]{'O', 'H', 'D', 'R'}).put((byte) 2).put((byte) 2).putInt(messages.size()).put(messages.toByteArray());
+        header.putInt(ChecksumUtils.checksum(java.util.Arrays.copyOf(header.array(), header.capacity() - 4)));
+        out.write(header.array());
+    }
+
+    /* Writes the chunks and their fixed array index, returns the layout message */
+    private static byte[] writeChunks(Node node, byte[] data, ByteArrayOutputStream out) throws IOException {
+        int rank = node.dims.length;
+        int elementSize = data.length / (int) Math.max(1, java.util.Arrays.stream(node.dims).reduce(1, (a, b) -> a * b));
+        long[] nbChunks = new long[rank];
+        long totalChunks = 1;
+        int chunkSize = 1;
+        for (int d = 0; d < rank; d++) {
+            nbChunks[d] = (node.dims[d] + node.chunkDims[d] - 1) / node.chunkDims[d];
+            totalChunks *= nbChunks[d];
+            chunkSize *= node.chunkDims[d];
+        }
+        long[] chunkAddresses = new long[(int) totalChunks];
+        for (int c = 0; c < totalChunks; c++) {
+            // chunk grid position, row-major
+            long[] chunkPos = new long[rank];
+            for (int d = rank - 1, rest = c; d >= 0; d--) {
+                chunkPos[d] = rest % nbChunks[d];
+                rest /= nbChunks[d];
+            }
+            byte[] chunk = new byte[chunkSize * elementSize];
+            for (int e = 0; e < chunkSize; e++) {
+                long flat = 0;
+                boolean inside = true;
+                for (int d = rank - 1, rest = e, mul = 1; d >= 0; d--) {
+                    long idx = chunkPos[d] * node.chunkDims[d] + rest % node.chunkDims[d];
+                    rest /= node.chunkDims[d];
+                    inside &= idx < node.dims[d];
+                    flat += idx * mul;
+                    mul *= node.dims[d];
+                }
+                if (inside) {
+                    System.arraycopy(data, (int) flat * elementSize, chunk, e * elementSize, elementSize);
+                }
+            }
+            chunkAddresses[c] = out.size();
+            out.write(chunk);
+        }
+
+        long dataBlockAddress = out.size();
+        long headerAddress = dataBlockAddress + 4 + 2 + 8 + 8L * totalChunks + 4;
+        ByteBuffer dataBlock = le(4 + 2 + 8 + 8 * (int) totalChunks + 4);
+        dataBlock.put(new byte[]{'F', 'A', 'D', 'B'}).put((byte) 0).put((byte) 0).putLong(headerAddress);
+        for (long a : chunkAddresses) {
+            dataBlock.putLong(a);
+        }
+        dataBlock.putInt(ChecksumUtils.checksum(java.util.Arrays.copyOf(dataBlock.array(), dataBlock.capacity() - 4)));
+        out.write(dataBlock.array());
+
+        ByteBuffer header = le(28);
+        header.put(new byte[]{'F', 'A', 'H', 'D'}).put((byte) 0).put((byte) 0).put((byte) 8).put((byte) 10);
+        header.putLong(totalChunks).putLong(dataBlockAddress);
+        header.putInt(ChecksumUtils.checksum(java.util.Arrays.copyOf(header.array(), 24)));
+        out.write(header.array());
+
+        ByteBuffer layout = le(6 + 4 * (rank + 1) + 1 + 8);
+        layout.put((byte) 4).put((byte) 2).put((byte) 0).put((byte) (rank + 1)).put((byte) 4);
+        for (long c : node.chunkDims) {
+            layout.putInt((int) c);
+        }
+        layout.putInt(elementSize);
+        layout.put((byte) 3).put((byte) 10).putLong(headerAddress);
+        return layout.array();
+    }
+
+    private static void addMessage(ByteArrayOutputStream messages, int type, byte[] body) throws IOException {
+        ByteBuffer b = le(4 + body.length);
+        b.put((byte) type).putShort((short) body.length).put((byte) 0).put(body);
+        messages.write(b.array());
+    }
+
+    private static byte[] datatype(Object data) {
+        if (data instanceof double[] || data instanceof float[]) {
+            boolean isDouble = data instanceof double[];
+            ByteBuffer b = le(20);
+            b.put((byte) 0x11).put((byte) 0x20).put((byte) (isDouble ? 63 : 31)).put((byte) 0);
+            b.putInt(isDouble ? 8 : 4);
+            b.putShort((short) 0).putShort((short) (isDouble ? 64 : 32));
+            b.put((byte) (isDouble ? 52 : 23)).put((byte) (isDouble ? 11 : 8)).put((byte) 0).put((byte) (isDouble ? 52 : 23));
+            b.putInt(isDouble ? 1023 : 127);
+            return b.array();
+        }
+        boolean isLong = data instanceof long[];
+        ByteBuffer b = le(12);
+        b.put((byte) 0x10).put((byte) 0x08).put((byte) 0).put((byte) 0);
+        b.putInt(isLong ? 8 : 4);
+        b.putShort((short) 0).putShort((short) (isLong ? 64 : 32));
+        return b.array();
+    }
+
+    private static byte[] toBytes(Object data) {
+        if (data instanceof double[]) {
+            ByteBuffer b = le(((double[]) data).length * 8);
+            b.asDoubleBuffer().put((double[]) data);
+            return b.array();
+        } else if (data instanceof float[]) {
+            ByteBuffer b = le(((float[]) data).length * 4);
+            b.asFloatBuffer().put((float[]) data);
+            return b.array();
+        } else if (data instanceof long[]) {
+            ByteBuffer b = le(((long[]) data).length * 8);
+            b.asLongBuffer().put((long[]) data);
+            return b.array();
+        } else if (data instanceof int[]) {
+            ByteBuffer b = le(((int[]) data).length * 4);
+            b.asIntBuffer().put((int[]) data);
+            return b.array();
+        }
+        throw new IllegalArgumentException("Unsupported data type " + data.getClass());
+    }
+
+    private static ByteBuffer le(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
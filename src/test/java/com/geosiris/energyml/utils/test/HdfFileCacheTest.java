@@ -0,0 +1,134 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.pkg.HdfFileCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class HdfFileCacheTest {
+
+    public static String writeTestFile(Path folder, String name, double value) throws Exception {
+        Path h5 = folder.resolve(name);
+        new Hdf5TestFile()
+                .addDataset("/RESQML/points", new double[]{value, value + 1, value + 2, value + 3, value + 4, value + 5}, 2, 3)
+                .addDataset("/RESQML/indices", new int[]{0, 1, 2}, 3)
+                .write(h5);
+        return h5.toString();
+    }
+
+    @Test
+    void test_handles_are_reused(@TempDir Path tmp) throws Exception {
+        String h5a = writeTestFile(tmp, "a.h5", 0);
+        String h5b = writeTestFile(tmp, "b.h5", 10);
+        try (HdfFileCache cache = new HdfFileCache(1, 1, TimeUnit.HOURS)) {
+            for (int i = 0; i < 5; i++) {
+                List<?> points = EpcHdf5FileManager.getDatasetValues(cache, h5a, "/RESQML/points");
+                assert points.size() == 2 && ((List<?>) points.get(1)).get(2).equals(5.0);
+                assert EpcHdf5FileManager.getDatasetValues(cache, h5a, "/RESQML/indices").size() == 3;
+            }
+            assert cache.getOpenCount() == 1;
+            assert cache.getHitCount() == 9;
+
+            // only one file can stay open : a is closed when b is acquired, except while a is used
+            try (HdfFileCache.Handle a = cache.acquire(h5a)) {
+                try (HdfFileCache.Handle b = cache.acquire(h5b)) {
+                    assert cache.size() == 2;
+                    assert b.getFile().getDatasetByPath("/RESQML/points").getDimensions()[1] == 3;
+                }
+                assert a.getFile().getDatasetByPath("/RESQML/points") != null;
+            }
+            cache.acquire(h5b).close();
+            assert cache.size() == 1;
+            assert cache.getOpenCount() == 3;
+        }
+    }
+
+    @Test
+    void test_idle_and_close(@TempDir Path tmp) throws Exception {
+        String h5a = writeTestFile(tmp, "a.h5", 0);
+        HdfFileCache cache = new HdfFileCache(4, 0, TimeUnit.MILLISECONDS);
+        HdfFileCache.Handle used = cache.acquire(h5a);
+        assert cache.closeIdle() == 0;
+        used.close();
+        assert cache.closeIdle() == 1;
+        assert cache.size() == 0;
+
+        HdfFileCache.Handle stillUsed = cache.acquire(h5a);
+        cache.close();
+        // the file is closed after its last release, and can be read until then
+        assert stillUsed.getFile().getDatasetByPath("/RESQML/indices").getDimensions()[0] == 3;
+        stillUsed.close();
+        try {
+            cache.acquire(h5a);
+            assert false;
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    void test_open_failure(@TempDir Path tmp) throws Exception {
+        String h5a = writeTestFile(tmp, "a.h5", 0);
+        try (HdfFileCache cache = new HdfFileCache(4, 1, TimeUnit.HOURS)) {
+            try {
+                cache.acquire(tmp.resolve("missing.h5").toString());
+                assert false;
+            } catch (RuntimeException ignore) {
+            }
+            // the failed file is not kept
+            assert cache.size() == 0;
+            try (HdfFileCache.Handle a = cache.acquire(h5a)) {
+                assert a.getFile().getDatasetByPath("/RESQML/indices") != null;
+            }
+            assert cache.size() == 1;
+        }
+    }
+
+    @Test
+    void test_concurrent_readers(@TempDir Path tmp) throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            files.add(writeTestFile(tmp, "f" + i + ".h5", i * 10));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (HdfFileCache cache = new HdfFileCache(2, 1, TimeUnit.HOURS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int op = 0; op < 200; op++) {
+                        int f = (seed + op) % files.size();
+                        List<?> points = EpcHdf5FileManager.getDatasetValues(cache, files.get(f), "/RESQML/points");
+                        assert ((List<?>) points.get(0)).get(0).equals(f * 10.0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            assert cache.size() <= files.size();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.JaggedArray;
+import com.geosiris.energyml.data.Mesh;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.SurfaceMesh;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import energyml.common2_3.IntegerXmlArray;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class JaggedArrayTest {
+
+    @Test
+    void test_rows() {
+        long[] values = {10, 11, 12, 13, 14, 15};
+        JaggedArray jagged = JaggedArray.fromCumulativeLengths(NumericArray.of(values), NumericArray.of(new int[]{2, 2, 6}));
+        assert jagged.getNbRows() == 3 && Arrays.equals(jagged.getOffsets(), new long[]{0, 2, 2, 6});
+        assert jagged.getRowLength(1) == 0 && jagged.getRow(1).size() == 0;
+        assert Arrays.equals(jagged.getRow(2).toLongArray(), new long[]{12, 13, 14, 15}) && jagged.getLong(2, 1) == 13;
+        assert jagged.asListView().equals(List.of(List.of(10L, 11L), List.of(), List.of(12L, 13L, 14L, 15L)));
+
+        // rows are views of the values
+        values[3] = -1;
+        assert jagged.getRow(2).getLong(1) == -1 && jagged.asLongListView().get(2).get(1) == -1;
+
+        assert Arrays.equals(JaggedArray.fromCounts(NumericArray.of(values), NumericArray.of(new long[]{1, 3})).getOffsets(), new long[]{0, 1, 4});
+        JaggedArray triangles = JaggedArray.ofRegular(NumericArray.of(new int[]{0, 1, 2, 2, 1, 3, 9}), 3);
+        assert triangles.getNbRows() == 2 && triangles.asLongListView().equals(List.of(List.of(0L, 1L, 2L), List.of(2L, 1L, 3L)));
+
+        // elements of more than 1 value : rows of points
+        JaggedArray points = JaggedArray.fromCounts(NumericArray.of(new double[]{0, 0, 0, 1, 1, 1, 2, 2, 2}, 3, 3), NumericArray.of(new int[]{1, 2}));
+        assert Arrays.equals(points.getRow(1).getShape(), new long[]{2, 3}) && points.getRow(1).getDouble(3) == 2;
+        assert points.getNbValues() == 9;
+
+        // offsets past 2^31
+        JaggedArray big = JaggedArray.fromCounts(NumericArray.ofRange(0, 3_000_000_000L), NumericArray.of(new long[]{2_500_000_000L, 500_000_000L}));
+        assert big.getRowLength(0) == 2_500_000_000L && big.getLong(1, 5) == 2_500_000_005L && big.getRow(1).getLong(0) == 2_500_000_000L;
+
+        try {
+            JaggedArray.fromCumulativeLengths(NumericArray.of(values), NumericArray.of(new int[]{4, 2}));
+            assert false;
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    void test_read_jagged_arrays(@TempDir Path tmp) throws Exception {
+        IntegerXmlArray elements = new IntegerXmlArray();
+        elements.getValues().addAll(List.of(5L, 6L, 7L));
+        IntegerXmlArray cumulativeLength = new IntegerXmlArray();
+        cumulativeLength.getValues().addAll(List.of(1L, 3L));
+        energyml.common2_3.JaggedArray array = new energyml.common2_3.JaggedArray();
+        array.setElements(elements);
+        array.setCumulativeLength(cumulativeLength);
+        assert EnergymlWorkspaceHelper.readArray(array).equals(List.of(List.of(5L), List.of(6L, 7L)));
+
+        List<List<Long>> polylines = Mesh.getPolylineIndices(JaggedArray.fromCounts(NumericArray.ofRange(0, 5), NumericArray.of(new int[]{3, 2})),
+                NumericArray.of(new boolean[]{true, false}));
+        assert polylines.equals(List.of(List.of(0L, 1L, 2L, 0L), List.of(3L, 4L)));
+
+        // triangles read from an int h5 dataset
+        HdfFileCacheTest.writeTestFile(tmp, "tr.h5", 0);
+        TriangulatedSetRepresentation tr = ExternalArrayInfoTest.createExternalTriangulatedSet(tmp.resolve("tr.h5").toString());
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            List<SurfaceMesh> meshes = Mesh.readTriangulatedSetRepresentation(tr, workspace);
+            assert meshes.size() == 1 && meshes.get(0).getEdgeIndices().equals(List.of(List.of(0L, 1L, 2L)));
+        }
+    }
+}
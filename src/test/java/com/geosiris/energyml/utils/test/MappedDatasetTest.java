@@ -0,0 +1,98 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import energyml.common2_3.ExternalDataArray;
+import energyml.common2_3.ExternalDataArrayPart;
+import energyml.common2_3.FloatingPointExternalArray;
+import io.jhdf.HdfFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class MappedDatasetTest {
+
+    private static FloatingPointExternalArray createPart(String h5, long[] startIndex, long[] count) {
+        ExternalDataArrayPart part = new ExternalDataArrayPart();
+        part.setURI(h5);
+        part.setPathInExternalFile("/RESQML/doubles");
+        Arrays.stream(startIndex).forEach(part.getStartIndex()::add);
+        Arrays.stream(count).forEach(part.getCount()::add);
+        FloatingPointExternalArray array = new FloatingPointExternalArray();
+        array.setValues(new ExternalDataArray());
+        array.getValues().getExternalDataArrayPart().add(part);
+        return array;
+    }
+
+    @Test
+    void test_map_contiguous_datasets(@TempDir Path tmp) throws Exception {
+        Path h5 = tmp.resolve("mapped.h5");
+        double[] doubles = new double[12];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = i * 0.5;
+        }
+        new Hdf5TestFile()
+                .addDataset("/RESQML/doubles", doubles, 3, 4)
+                .addDataset("/RESQML/floats", new float[]{1.5f, -2f}, 2)
+                .addDataset("/RESQML/ints", new int[]{-1, 2, 3}, 3)
+                .addDataset("/RESQML/longs", new long[]{Long.MAX_VALUE, -5}, 2)
+                .addChunkedDataset("/RESQML/chunked", new int[]{1, 2, 3, 4}, new long[]{2}, 4)
+                .write(h5);
+
+        try (HdfFile hdfFile = new HdfFile(h5)) {
+            NumericArray.OfBuffer mapped = EpcHdf5FileManager.mapDataset(hdfFile, "/RESQML/doubles");
+            assert mapped != null && mapped.getElementType() == NumericArray.ElementType.DOUBLE;
+            assert Arrays.equals(mapped.getShape(), new long[]{3, 4});
+            assert Arrays.equals(mapped.toDoubleArray(), doubles) && mapped.getDouble(11) == 5.5;
+            assert mapped.getBuffer().isReadOnly() && mapped.getBuffer().order() == ByteOrder.LITTLE_ENDIAN;
+
+            assert Arrays.equals(EpcHdf5FileManager.mapDataset(hdfFile, "/RESQML/floats").toFloatArray(), new float[]{1.5f, -2f});
+            assert Arrays.equals(EpcHdf5FileManager.mapDataset(hdfFile, "/RESQML/ints").toIntArray(), new int[]{-1, 2, 3});
+            assert EpcHdf5FileManager.mapDataset(hdfFile, "/RESQML/longs").getLong(0) == Long.MAX_VALUE;
+
+            // chunked : read with the decoder
+            assert EpcHdf5FileManager.mapDataset(hdfFile, "/RESQML/chunked") == null;
+            NumericArray chunked = EpcHdf5FileManager.getDatasetNumericArrayMapped(hdfFile, "/RESQML/chunked");
+            assert !(chunked instanceof NumericArray.OfBuffer);
+            assert Arrays.equals(chunked.toIntArray(), new int[]{1, 2, 3, 4});
+        }
+        // the mapping outlives the file
+        NumericArray.OfBuffer mapped = EpcHdf5FileManager.mapDataset(h5.toString(), "/RESQML/ints");
+        assert mapped.getInt(0) == -1;
+
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            workspace.setMemoryMapped(true);
+            // whole rows are contiguous in the file
+            NumericArray rows = workspace.readExternalNumericArray(createPart(h5.toString(), new long[]{1, 0}, new long[]{2, 4}), null, "");
+            assert rows instanceof NumericArray.OfBuffer;
+            assert Arrays.equals(rows.getShape(), new long[]{2, 4}) && rows.getDouble(0) == 2 && rows.getDouble(7) == 5.5;
+
+            NumericArray columns = workspace.readExternalNumericArray(createPart(h5.toString(), new long[]{0, 1}, new long[]{3, 2}), null, "");
+            assert !(columns instanceof NumericArray.OfBuffer);
+            assert Arrays.equals(columns.toDoubleArray(), new double[]{0.5, 1, 2.5, 3, 4.5, 5});
+            assert workspace.readExternalArray(createPart(h5.toString(), new long[]{2, 0}, new long[]{1, 4}), null, "")
+                    .equals(List.of(List.of(4.0, 4.5, 5.0, 5.5)));
+        }
+    }
+}
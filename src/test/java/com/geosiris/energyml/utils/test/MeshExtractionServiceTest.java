@@ -0,0 +1,175 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.AbstractMesh;
+import com.geosiris.energyml.data.Mesh;
+import com.geosiris.energyml.data.MeshExtractionService;
+import com.geosiris.energyml.data.PointSetMesh;
+import com.geosiris.energyml.data.SurfaceMesh;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MeshExtractionServiceTest {
+
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final AtomicInteger maxRunning = new AtomicInteger();
+    /* Released when two reads run at the same time */
+    private static volatile CountDownLatch overlap;
+    private static final AtomicBoolean overlapped = new AtomicBoolean();
+
+    public static class SlowRepresentation {
+        final int index;
+        final boolean failing;
+
+        SlowRepresentation(int index, boolean failing) {
+            this.index = index;
+            this.failing = failing;
+        }
+    }
+
+    private static List<AbstractMesh> readSlow(Object obj) throws Exception {
+        SlowRepresentation representation = (SlowRepresentation) obj;
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            // the first reads wait for another read to start
+            CountDownLatch latch = overlap;
+            latch.countDown();
+            if (latch.await(10, TimeUnit.SECONDS)) {
+                overlapped.set(true);
+            }
+            if (representation.failing) {
+                if (representation.index % 2 == 0) {
+                    // errors which are not virtual machine errors only fail their representation
+                    throw new LinkageError("broken " + representation.index);
+                }
+                throw new IllegalStateException("broken " + representation.index);
+            }
+            return List.of(new PointSetMesh(obj, null, new double[]{representation.index, 0, 0}, "slow"));
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static void resetConcurrency() {
+        maxRunning.set(0);
+        overlap = new CountDownLatch(2);
+        overlapped.set(false);
+    }
+
+    @Test
+    void test_extract() throws Exception {
+        Mesh.registerMeshReader(SlowRepresentation.class, (obj, workspace) -> readSlow(obj));
+        try {
+            checkExtract();
+        } finally {
+            Mesh.unregisterMeshReader(SlowRepresentation.class);
+        }
+        assert Mesh.getMeshReader(SlowRepresentation.class) == null;
+    }
+
+    private static void checkExtract() throws Exception {
+        List<Object> representations = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            representations.add(new SlowRepresentation(i, i % 5 == 3));
+        }
+
+        ConcurrentLinkedQueue<Integer> failed = new ConcurrentLinkedQueue<>();
+        AtomicInteger lastProgress = new AtomicInteger();
+        MeshExtractionService.ProgressListener listener = new MeshExtractionService.ProgressListener() {
+            @Override
+            public void onFailed(int index, Object representation, Throwable error) {
+                failed.add(index);
+            }
+
+            @Override
+            public void onProgress(int nbDone, int nbTotal) {
+                lastProgress.accumulateAndGet(nbDone, Math::max);
+                assert nbTotal == 12;
+            }
+        };
+
+        resetConcurrency();
+        List<MeshExtractionService.Result> results = new MeshExtractionService(null, 3).extract(representations, listener);
+        assert results.size() == 12 && maxRunning.get() <= 3 && overlapped.get();
+        assert lastProgress.get() == 12 && failed.size() == 2 && failed.containsAll(List.of(3, 8));
+        for (int i = 0; i < 12; i++) {
+            MeshExtractionService.Result result = results.get(i);
+            // results in the input order, failures isolated
+            assert result.getRepresentation() == representations.get(i);
+            if (i % 5 == 3) {
+                assert !result.isSuccess() && result.getMeshes().isEmpty();
+                assert (i % 2 == 0 ? result.getError() instanceof LinkageError : result.getError() instanceof IllegalStateException)
+                        && result.getError().getMessage().equals("broken " + i);
+            } else {
+                assert result.isSuccess() && ((PointSetMesh) result.getMeshes().get(0)).getXyz()[0] == i;
+            }
+        }
+
+        // on a given executor, still bounded
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            resetConcurrency();
+            results = new MeshExtractionService(null, 2, executor).extractAsync(representations, null).get();
+            assert results.size() == 12 && maxRunning.get() <= 2 && overlapped.get() && results.get(11).isSuccess();
+        } finally {
+            executor.shutdown();
+        }
+
+        // a failing listener does not stop the workers
+        MeshExtractionService.ProgressListener failingListener = new MeshExtractionService.ProgressListener() {
+            @Override
+            public void onCompleted(int index, Object representation, List<AbstractMesh> meshes) {
+                throw new IllegalStateException("listener");
+            }
+
+            @Override
+            public void onProgress(int nbDone, int nbTotal) {
+                throw new IllegalStateException("listener");
+            }
+        };
+        resetConcurrency();
+        results = new MeshExtractionService(null, 2).extract(representations, failingListener);
+        assert results.size() == 12 && results.get(11).isSuccess() && results.get(10).getMeshes().size() == 1;
+        assert new MeshExtractionService(null, 4).extract(List.of()).isEmpty();
+    }
+
+    @Test
+    void test_extract_grid2d() throws Exception {
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            List<Object> representations = List.of(
+                    MeshTest.createGrid2d(List.of(1., 2., 3., 4., 5., 6., 7., 8., 9.)),
+                    "not a representation",
+                    MeshTest.createGrid2d(List.of(1., 2., 3., 4., 5., Double.NaN, 7., 8., 9.)));
+            List<MeshExtractionService.Result> results = new MeshExtractionService(workspace, 2).extract(representations);
+            assert results.get(0).isSuccess() && results.get(0).getMeshes().get(0).getNbFaces() == 4;
+            assert !results.get(1).isSuccess();
+            assert results.get(2).getMeshes().get(0) instanceof SurfaceMesh && results.get(2).getMeshes().get(0).getNbFaces() == 2;
+        }
+    }
+}
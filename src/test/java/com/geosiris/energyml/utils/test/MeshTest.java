@@ -0,0 +1,166 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.AbstractMesh;
+import com.geosiris.energyml.data.GridedPointSetMesh;
+import com.geosiris.energyml.data.JaggedArray;
+import com.geosiris.energyml.data.Mesh;
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.PointSetMesh;
+import com.geosiris.energyml.data.PolylineSetMesh;
+import com.geosiris.energyml.data.SurfaceMesh;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import energyml.common2_3.FloatingPointConstantArray;
+import energyml.common2_3.FloatingPointXmlArray;
+import energyml.resqml2_2.Grid2DRepresentation;
+import energyml.resqml2_2.Point3D;
+import energyml.resqml2_2.Point3DLatticeArray;
+import energyml.resqml2_2.Point3DLatticeDimension;
+import energyml.resqml2_2.Point3DZValueArray;
+import energyml.resqml2_2.PointGeometry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public class MeshTest {
+
+    private static Point3D point(double x, double y, double z) {
+        Point3D p = new Point3D();
+        p.setCoordinate1(x);
+        p.setCoordinate2(y);
+        p.setCoordinate3(z);
+        return p;
+    }
+
+    private static Point3DLatticeDimension dimension(Point3D direction, double spacing, long count) {
+        FloatingPointConstantArray spacingArray = new FloatingPointConstantArray();
+        spacingArray.setValue(spacing);
+        spacingArray.setCount(count);
+        Point3DLatticeDimension dimension = new Point3DLatticeDimension();
+        dimension.setDirection(direction);
+        dimension.setSpacing(spacingArray);
+        return dimension;
+    }
+
+    /* A grid of 3 rows of 3 points whose z values are given */
+    public static Grid2DRepresentation createGrid2d(List<Double> zValues) {
+        Point3DLatticeArray lattice = new Point3DLatticeArray();
+        lattice.setOrigin(point(0, 0, 0));
+        lattice.getDimension().add(dimension(point(0, 1, 0), 1, 3));
+        lattice.getDimension().add(dimension(point(1, 0, 0), 1, 3));
+        FloatingPointXmlArray values = new FloatingPointXmlArray();
+        values.getValues().addAll(zValues);
+        Point3DZValueArray points = new Point3DZValueArray();
+        points.setSupportingGeometry(lattice);
+        points.setZValues(values);
+        PointGeometry geometry = new PointGeometry();
+        geometry.setPoints(points);
+        Grid2DRepresentation grid = new Grid2DRepresentation();
+        grid.setUuid("0ab3d5e4-8c5d-4a8f-9a39-4c5c1a7c2e11");
+        grid.setFastestAxisCount(3);
+        grid.setSlowestAxisCount(3);
+        grid.setGeometry(geometry);
+        return grid;
+    }
+
+    @Test
+    void test_buffer_backed_points() {
+        double[] xyz = {0, 0, 0, 1, 0, 0, 1, 1, 0.5};
+        PointSetMesh mesh = new PointSetMesh(null, null, xyz, "points");
+        assert mesh.isBufferBacked() && mesh.getNbPoints() == 3;
+        assert mesh.getPointList().equals(List.of(List.of(0., 0., 0.), List.of(1., 0., 0.), List.of(1., 1., 0.5)));
+
+        // the list view writes in the buffer
+        ((List<List<Double>>) mesh.getPointList()).get(1).set(2, 7.);
+        assert xyz[5] == 7 && mesh.getXyz() == xyz;
+        assert Arrays.equals(mesh.getPoints().getShape(), new long[]{3, 3}) && mesh.getPoints().getDouble(8) == 0.5;
+
+        mesh.setSinglePrecision(true);
+        assert mesh.isSinglePrecision() && mesh.getPoints().getElementType() == NumericArray.ElementType.FLOAT;
+        assert Arrays.equals(mesh.getXyzFloat(), new float[]{0, 0, 0, 1, 0, 7, 1, 1, 0.5f});
+        ((List<List<Double>>) mesh.getPointList()).get(0).set(0, 2.);
+        assert mesh.getXyzFloat()[0] == 2 && mesh.getPointList().get(2).equals(List.of(1., 1., 0.5));
+        mesh.setSinglePrecision(false);
+        assert !mesh.isSinglePrecision() && mesh.getXyz()[0] == 2;
+
+        // meshes built from lists keep their lists
+        List<List<Double>> points = List.of(List.of(1., 2., 3.), List.of(4., 5., 6.));
+        SurfaceMesh listMesh = new SurfaceMesh(null, null, points, "list", List.of(List.of(0L, 1L, 0L)));
+        assert !listMesh.isBufferBacked() && listMesh.getPointList() == points && listMesh.getNbPoints() == 2;
+        assert Arrays.equals(listMesh.getXyz(), new double[]{1, 2, 3, 4, 5, 6});
+        assert Arrays.equals(listMesh.getFaceIndices().getOffsets(), new long[]{0, 3}) && listMesh.getNbEdge() == 2;
+    }
+
+    @Test
+    void test_indices() throws Exception {
+        JaggedArray lines = Mesh.getPolylineIndexArray(JaggedArray.fromCounts(NumericArray.ofRange(0, 5), NumericArray.of(new int[]{3, 2})),
+                NumericArray.of(new boolean[]{true, false}));
+        assert lines.getValues().getElementType() == NumericArray.ElementType.INT;
+        assert Arrays.equals(lines.getValues().toIntArray(), new int[]{0, 1, 2, 0, 3, 4}) && Arrays.equals(lines.getOffsets(), new long[]{0, 4, 6});
+
+        double[] xyz = new double[15];
+        PolylineSetMesh polylines = new PolylineSetMesh(null, null, xyz, "lines", lines);
+        assert polylines.getNbPoints() == 5 && polylines.getNbEdge() == 4;
+        assert polylines.getEdgeIndices().equals(List.of(List.of(0L, 1L, 2L, 0L), List.of(3L, 4L)));
+
+        SurfaceMesh surface = new SurfaceMesh(null, null, new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0}, "surface",
+                JaggedArray.ofRegular(NumericArray.of(new int[]{0, 1, 2, 2, 1, 3}), 3));
+        assert surface.getNbFaces() == 2 && surface.getNbEdge() == 4;
+        assert surface.getEdgeIndices().equals(List.of(List.of(0L, 1L, 2L), List.of(2L, 1L, 3L)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SurfaceMesh.exportObj(List.of(surface), out, null, true);
+        String obj = out.toString(StandardCharsets.UTF_8);
+        assert obj.contains("v 1.0 1.0 0.0\n") && obj.contains("f 3 2 4\n");
+    }
+
+    @Test
+    void test_read_grid2d() throws Exception {
+        double nan = Double.NaN;
+        Grid2DRepresentation grid = createGrid2d(List.of(
+                1., 2., 3.,
+                4., 5., nan,
+                7., 8., 9.));
+        try (EpcHdf5FileManager workspace = new EpcHdf5FileManager(new EPCFile(new EPCPackageManager()))) {
+            List<SurfaceMesh> surfaces = Mesh.readGrid2dRepresentation(grid, workspace);
+            assert surfaces.size() == 1;
+            SurfaceMesh surface = surfaces.get(0);
+            // the hole is removed, with the 2 faces touching it
+            assert surface.getNbPoints() == 8 && surface.getNbFaces() == 2;
+            assert surface.getFaceIndices().getValues().getElementType() == NumericArray.ElementType.INT;
+            assert surface.getEdgeIndices().equals(List.of(List.of(0L, 3L, 4L, 1L), List.of(3L, 5L, 6L, 4L)));
+            assert surface.getPointList().get(5).equals(List.of(2., 0., 7.));
+
+            SurfaceMesh holed = Mesh.readGrid2dRepresentationHolable(grid, workspace, true).get(0);
+            assert holed.getNbPoints() == 9 && holed.getNbFaces() == 4 && holed.getXyz()[17] == 0;
+
+            List<GridedPointSetMesh> grids = Mesh.readGrid2dRepresentationPoints(grid, workspace);
+            GridedPointSetMesh points = grids.get(0);
+            assert points.getNbRows() == 3 && points.getNbColumns() == 3;
+            assert Arrays.equals(points.getPoints().getShape(), new long[]{3, 3, 3});
+            assert ((List<List<List<Double>>>) points.getPointList()).get(2).get(1).equals(List.of(2., 1., 8.));
+
+            List<AbstractMesh> meshes = Mesh.readMeshObject(grid, workspace);
+            assert meshes.size() == 1 && meshes.get(0).getNbFaces() == 2;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.pkg.HdfFileCache;
+import com.geosiris.energyml.utils.Utils;
+import io.jhdf.HdfFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class NumericArrayTest {
+
+    @Test
+    void test_dataset_is_read_without_boxing(@TempDir Path tmp) throws Exception {
+        String h5 = HdfFileCacheTest.writeTestFile(tmp, "a.h5", 1);
+        try (HdfFileCache cache = new HdfFileCache()) {
+            NumericArray points = EpcHdf5FileManager.getDatasetNumericArray(cache, h5, "/RESQML/points");
+            assert points.getElementType() == NumericArray.ElementType.DOUBLE;
+            assert Arrays.equals(points.getShape(), new long[]{2, 3});
+            assert points.size() == 6;
+            assert points.getDouble(4) == 5.0;
+            assert Arrays.equals(points.toDoubleArray(), new double[]{1, 2, 3, 4, 5, 6});
+            assert points.toLongArray()[5] == 6;
+
+            NumericArray indices = EpcHdf5FileManager.getDatasetNumericArray(cache, h5, "/RESQML/indices");
+            assert indices.getElementType() == NumericArray.ElementType.INT;
+            assert Arrays.equals(indices.toIntArray(), new int[]{0, 1, 2});
+            assert indices.toDoubleArray()[2] == 2.0;
+        }
+    }
+
+    @Test
+    void test_list_adapter_is_unchanged(@TempDir Path tmp) throws Exception {
+        String h5 = HdfFileCacheTest.writeTestFile(tmp, "a.h5", 1);
+        List<?> values = EpcHdf5FileManager.getDatasetValues(h5, "/RESQML/points");
+        assert values.equals(List.of(List.of(1.0, 2.0, 3.0), List.of(4.0, 5.0, 6.0)));
+        try (HdfFile hdfFile = new HdfFile(Path.of(h5))) {
+            assert Utils.rawArrayToList(hdfFile.getDatasetByPath("/RESQML/points").getData()).equals(values);
+        }
+        assert EpcHdf5FileManager.getDatasetValues(h5, "/RESQML/indices").equals(List.of(0, 1, 2));
+    }
+
+    @Test
+    void test_from_list_and_reshape() {
+        NumericArray fromList = NumericArray.fromList(List.of(List.of(1, 2), List.of(3, 4), List.of(5, 6)));
+        assert Arrays.equals(fromList.getShape(), new long[]{3, 2});
+        assert fromList.getElementType() == NumericArray.ElementType.INT;
+        assert fromList.getLong(3) == 4;
+
+        NumericArray flat = fromList.reshape(6);
+        assert flat.getRank() == 1 && flat.getInt(5) == 6;
+        assert flat.toList().equals(List.of(1, 2, 3, 4, 5, 6));
+
+        NumericArray floats = NumericArray.of(new float[]{0.5f, 1.5f});
+        assert floats.getDouble(1) == 1.5;
+        assert NumericArray.of(new boolean[]{true, false}).getBoolean(0);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.Point3dLattice;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import energyml.common2_3.FloatingPointConstantArray;
+import energyml.resqml2_2.Point3D;
+import energyml.resqml2_2.Point3DLatticeArray;
+import energyml.resqml2_2.Point3DLatticeDimension;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class Point3dLatticeTest {
+
+    private static Point3D point(double x, double y, double z) {
+        Point3D p = new Point3D();
+        p.setCoordinate1(x);
+        p.setCoordinate2(y);
+        p.setCoordinate3(z);
+        return p;
+    }
+
+    private static Point3DLatticeDimension dimension(Point3D direction, double spacing, long count) {
+        FloatingPointConstantArray spacingArray = new FloatingPointConstantArray();
+        spacingArray.setValue(spacing);
+        spacingArray.setCount(count);
+        Point3DLatticeDimension dimension = new Point3DLatticeDimension();
+        dimension.setDirection(direction);
+        dimension.setSpacing(spacingArray);
+        return dimension;
+    }
+
+    @Test
+    void test_generate_lattice() {
+        Point3dLattice lattice = new Point3dLattice(new double[]{1, 2, 3},
+                new double[]{0, 1, 0}, new double[]{10, 20}, 3,
+                new double[]{1, 0, 1}, new double[]{0.5, 0.5, 1}, 4);
+        assert lattice.getNbRows() == 3 && lattice.getNbColumns() == 4 && lattice.size() == 12;
+        assert Arrays.equals(lattice.point(0, 0), new double[]{1, 2, 3});
+        assert Arrays.equals(lattice.point(2, 3), new double[]{3, 32, 5});
+        assert lattice.getCoordinate(1, 2, 1) == 12;
+        double[] xyz = lattice.toXyzArray();
+        assert xyz.length == 36 && xyz[(2 * 4 + 3) * 3 + 1] == 32;
+
+        List<List<List<Double>>> view = Point3dLattice.asPointListView(xyz, 3, 4);
+        assert view.size() == 3 && view.get(0).size() == 4 && view.get(1).get(2).equals(List.of(2., 12., 4.));
+        view.get(1).get(2).set(2, -1.);
+        assert xyz[(4 + 2) * 3 + 2] == -1;
+
+        // big lattices are generated in parallel
+        double[] bigXyz = new Point3dLattice(new double[]{0, 0, 0},
+                new double[]{0, 2, 0}, filled(299, 1), 300, new double[]{1, 0, 0}, filled(299, 3), 300).toXyzArray();
+        assert bigXyz.length == 300 * 300 * 3;
+        for (int i = 0; i < 300; i += 37) {
+            for (int j = 0; j < 300; j += 41) {
+                assert bigXyz[(i * 300 + j) * 3] == 3. * j && bigXyz[(i * 300 + j) * 3 + 1] == 2. * i;
+            }
+        }
+    }
+
+    private static double[] filled(int size, double value) {
+        double[] values = new double[size];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    @Test
+    void test_read_lattice_array() throws Exception {
+        Point3DLatticeArray array = new Point3DLatticeArray();
+        array.setOrigin(point(1, 2, 3));
+        array.getDimension().add(dimension(point(0, 1, 0), 10, 2));
+        array.getDimension().add(dimension(point(1, 0, 0), 0.5, 3));
+
+        Point3dLattice lattice = EnergymlWorkspaceHelper.getPoint3dLattice(array, array, "", null);
+        assert lattice.getNbRows() == 2 && lattice.getNbColumns() == 3;
+        assert Arrays.equals(lattice.point(1, 2), new double[]{2, 12, 3});
+
+        List<?> points = EnergymlWorkspaceHelper.readArray(array, array, "", null);
+        assert points.equals(List.of(
+                List.of(List.of(1., 2., 3.), List.of(1.5, 2., 3.), List.of(2., 2., 3.)),
+                List.of(List.of(1., 12., 3.), List.of(1.5, 12., 3.), List.of(2., 12., 3.))
+        ));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.AbstractMesh;
+import com.geosiris.energyml.data.Mesh;
+import com.geosiris.energyml.data.PointSetMesh;
+import com.geosiris.energyml.exception.NotImplementedException;
+import com.geosiris.energyml.exception.ObjectNotFoundNotError;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import com.geosiris.energyml.utils.ReaderRegistry;
+import energyml.common2_3.FloatingPointConstantArray;
+import energyml.common2_3.IntegerConstantArray;
+import energyml.common2_3.StringConstantArray;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+public class ReaderRegistryTest {
+
+    public static class CustomArray {
+        public int size = 3;
+    }
+
+    public static class DerivedCustomArray extends CustomArray {
+    }
+
+    public static class CustomRepresentation {
+    }
+
+    @Test
+    void test_registry_resolution() {
+        ReaderRegistry<String> registry = new ReaderRegistry<>(name -> name.endsWith("Array") ? "Array" : name);
+        assert registry.get(CustomArray.class) == null;
+        registry.register("Array", "byName");
+        assert registry.get(CustomArray.class).equals("byName") && registry.get(DerivedCustomArray.class).equals("byName");
+        // a class reader has priority, and applies to the subclasses
+        registry.register(CustomArray.class, "byClass");
+        assert registry.get(DerivedCustomArray.class).equals("byClass");
+        assert registry.unregister(CustomArray.class).equals("byClass");
+        assert registry.get(DerivedCustomArray.class).equals("byName");
+        assert registry.isSupported(CustomArray.class) && !registry.isSupported(CustomRepresentation.class);
+    }
+
+    @Test
+    void test_array_readers() throws Exception {
+        FloatingPointConstantArray constant = new FloatingPointConstantArray();
+        constant.setValue(2.5);
+        constant.setCount(3);
+        assert EnergymlWorkspaceHelper.readArray(constant).equals(List.of(2.5, 2.5, 2.5));
+        assert EnergymlWorkspaceHelper.getArrayReader(IntegerConstantArray.class) != null;
+        assert EnergymlWorkspaceHelper.getSupportedArray().contains("FloatingPointConstantArray");
+        assert !EnergymlWorkspaceHelper.getNotSupportedArray().contains("StringConstantArray");
+
+        // constant arrays are read-only views, which can not exceed Integer.MAX_VALUE elements
+        StringConstantArray strings = new StringConstantArray();
+        strings.setValue("a");
+        strings.setCount(2);
+        List<Object> stringValues = EnergymlWorkspaceHelper.readConstantArray(strings, null, "", null);
+        assert stringValues.equals(List.of("a", "a"));
+        try {
+            stringValues.add("b");
+            assert false;
+        } catch (UnsupportedOperationException ignore) {
+        }
+        strings.setCount(3L * Integer.MAX_VALUE);
+        try {
+            EnergymlWorkspaceHelper.readConstantArray(strings, null, "", null);
+            assert false;
+        } catch (UnsupportedOperationException ignore) {
+        }
+        constant.setCount(3L * Integer.MAX_VALUE);
+        try {
+            EnergymlWorkspaceHelper.readConstantArray(constant, null, "", null);
+            assert false;
+        } catch (UnsupportedOperationException ignore) {
+        }
+
+        try {
+            EnergymlWorkspaceHelper.readArray(new CustomArray());
+            assert false;
+        } catch (NotImplementedException ignore) {
+        }
+
+        EnergymlWorkspaceHelper.registerArrayReader(CustomArray.class,
+                (array, root, path, workspace) -> List.of(((CustomArray) array).size));
+        assert EnergymlWorkspaceHelper.readArray(new DerivedCustomArray()).equals(List.of(3));
+
+        // failures of a reader are reported as for a reflective call
+        EnergymlWorkspaceHelper.registerArrayReader(DerivedCustomArray.class, (array, root, path, workspace) -> {
+            throw new ObjectNotFoundNotError("missing");
+        });
+        try {
+            EnergymlWorkspaceHelper.readArray(new DerivedCustomArray());
+            assert false;
+        } catch (InvocationTargetException e) {
+            assert e.getCause() instanceof ObjectNotFoundNotError;
+        }
+    }
+
+    @Test
+    void test_mesh_readers() throws Exception {
+        try {
+            Mesh.readMeshObject(new CustomRepresentation(), null);
+            assert false;
+        } catch (RuntimeException ignore) {
+        }
+        Mesh.registerMeshReader(CustomRepresentation.class,
+                (obj, workspace) -> List.of(new PointSetMesh(obj, null, List.of(List.of(1., 2., 3.)), "custom")));
+        List<AbstractMesh> meshes = Mesh.readMeshObject(List.of(new CustomRepresentation(), new CustomRepresentation()), null);
+        assert meshes.size() == 2 && meshes.get(0) instanceof PointSetMesh;
+        assert Mesh.getMeshReader(CustomRepresentation.class) != null;
+    }
+}
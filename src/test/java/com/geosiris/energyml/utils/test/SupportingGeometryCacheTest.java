@@ -0,0 +1,205 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.Point3dLattice;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.pkg.EpcHdf5FileManager;
+import com.geosiris.energyml.pkg.SupportingGeometryCache;
+import com.geosiris.energyml.utils.ExportVersion;
+import com.geosiris.energyml.utils.EnergymlWorkspace;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import energyml.common2_0.DataObjectReference;
+import energyml.resqml2_0_1.DoubleConstantArray;
+import energyml.resqml2_0_1.Grid2DPatch;
+import energyml.resqml2_0_1.ObjGrid2DRepresentation;
+import energyml.resqml2_0_1.Point3D;
+import energyml.resqml2_0_1.Point3DFromRepresentationLatticeArray;
+import energyml.resqml2_0_1.Point3DLatticeArray;
+import energyml.resqml2_0_1.Point3DOffset;
+import energyml.resqml2_0_1.Point3DZValueArray;
+import energyml.resqml2_0_1.PointGeometry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SupportingGeometryCacheTest {
+    private static final String GRID_UUID = "030a82f6-10a7-4ecf-af03-54749e098624";
+
+    private static Point3D point(double x, double y, double z) {
+        Point3D p = new Point3D();
+        p.setCoordinate1(x);
+        p.setCoordinate2(y);
+        p.setCoordinate3(z);
+        return p;
+    }
+
+    private static Point3DOffset offset(Point3D direction, double spacing, long count) {
+        DoubleConstantArray spacingArray = new DoubleConstantArray();
+        spacingArray.setValue(spacing);
+        spacingArray.setCount(BigInteger.valueOf(count));
+        Point3DOffset offset = new Point3DOffset();
+        offset.setOffset(direction);
+        offset.setSpacing(spacingArray);
+        return offset;
+    }
+
+    /* A grid of 2x3 points : x in 0, 1, 2 and y in 0, 10 */
+    private static ObjGrid2DRepresentation createGrid() {
+        Point3DLatticeArray lattice = new Point3DLatticeArray();
+        lattice.setOrigin(point(0, 0, 0));
+        lattice.getOffset().add(offset(point(0, 1, 0), 10, 1));
+        lattice.getOffset().add(offset(point(1, 0, 0), 1, 2));
+        PointGeometry geometry = new PointGeometry();
+        geometry.setPoints(lattice);
+        Grid2DPatch patch = new Grid2DPatch();
+        patch.setSlowestAxisCount(BigInteger.valueOf(2));
+        patch.setFastestAxisCount(BigInteger.valueOf(3));
+        patch.setGeometry(geometry);
+        patch.setPatchIndex(BigInteger.valueOf(3));
+        ObjGrid2DRepresentation grid = new ObjGrid2DRepresentation();
+        grid.setUuid(GRID_UUID);
+        grid.setGrid2DPatch(patch);
+        return grid;
+    }
+
+    private static Point3DZValueArray horizon(double z) {
+        DataObjectReference reference = new DataObjectReference();
+        reference.setUUID(GRID_UUID);
+        Point3DFromRepresentationLatticeArray supporting = new Point3DFromRepresentationLatticeArray();
+        supporting.setSupportingRepresentation(reference);
+        DoubleConstantArray zValues = new DoubleConstantArray();
+        zValues.setValue(z);
+        zValues.setCount(BigInteger.valueOf(6));
+        Point3DZValueArray array = new Point3DZValueArray();
+        array.setSupportingGeometry(supporting);
+        array.setZValues(zValues);
+        return array;
+    }
+
+    private static EnergymlWorkspace workspace(Object grid, SupportingGeometryCache cache, AtomicInteger nbLookups) {
+        return new EnergymlWorkspace() {
+            @Override
+            public Object getObject(String uuid, String objectVersion) {
+                return getObjectByUUID(uuid);
+            }
+
+            @Override
+            public Object getObjectByIdentifier(String identifier) {
+                nbLookups.incrementAndGet();
+                return identifier.startsWith(GRID_UUID) ? grid : null;
+            }
+
+            @Override
+            public Object getObjectByUUID(String uuid) {
+                return getObjectByIdentifier(uuid + ".");
+            }
+
+            @Override
+            public List<?> readExternalArray(Object energyml_array, Object root_obj, String pathInRoot) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public SupportingGeometryCache getSupportingGeometryCache() {
+                return cache;
+            }
+        };
+    }
+
+    @Test
+    void test_shared_supporting_grid() throws Exception {
+        SupportingGeometryCache cache = new SupportingGeometryCache(SupportingGeometryCache.DEFAULT_MAX_BYTES);
+        AtomicInteger nbLookups = new AtomicInteger();
+        EnergymlWorkspace workspace = workspace(createGrid(), cache, nbLookups);
+
+        for (int h = 0; h < 5; h++) {
+            Point3DZValueArray horizon = horizon(-h);
+            double[] xyz = EnergymlWorkspaceHelper.readPoint3dZValueNumericArray(horizon, horizon, "", workspace).toDoubleArray();
+            assert xyz.length == 18 && xyz[15] == 2 && xyz[16] == 10 && xyz[17] == -h;
+        }
+        // the lattice of the supporting grid patch is computed once
+        assert nbLookups.get() == 5 && cache.size() == 1 && cache.getHitCount() == 4 && cache.getMissCount() == 1;
+        assert cache.get(GRID_UUID + ".", 3) instanceof Point3dLattice;
+
+        Object supporting = horizon(0).getSupportingGeometry();
+        List<?> points = EnergymlWorkspaceHelper.readArray(supporting, null, "", workspace);
+        assert points.size() == 2 && points.get(1).equals(List.of(List.of(0., 10., 0.), List.of(1., 10., 0.), List.of(2., 10., 0.)));
+        long nbMisses = cache.getMissCount();
+
+        cache.invalidate(GRID_UUID + ".");
+        assert cache.size() == 0;
+        EnergymlWorkspaceHelper.readArray(supporting, null, "", workspace);
+        assert cache.getMissCount() == nbMisses + 1 && cache.size() == 1;
+
+        // without cache, the geometry is computed for each read
+        EnergymlWorkspace noCache = workspace(createGrid(), null, new AtomicInteger());
+        assert noCache.getSupportingGeometryCache() == null;
+        assert EnergymlWorkspaceHelper.readArray(supporting, null, "", noCache).equals(points);
+    }
+
+    @Test
+    void test_invalidation_by_the_epc() throws Exception {
+        EPCFile epc = new EPCFile(new EPCPackageManager(), ExportVersion.EXPANDED);
+        epc.putObject(createGrid());
+        try (EpcHdf5FileManager manager = new EpcHdf5FileManager(epc)) {
+            SupportingGeometryCache cache = manager.getSupportingGeometryCache();
+            assert cache != null;
+            Object supporting = horizon(0).getSupportingGeometry();
+            EnergymlWorkspaceHelper.readArray(supporting, null, "", manager);
+            assert cache.size() == 1;
+
+            // a replaced grid is read again
+            ObjGrid2DRepresentation moved = createGrid();
+            ((Point3DLatticeArray) moved.getGrid2DPatch().getGeometry().getPoints()).setOrigin(point(100, 0, 0));
+            epc.putObject(moved);
+            assert cache.size() == 0;
+            List<?> points = EnergymlWorkspaceHelper.readArray(supporting, null, "", manager);
+            assert ((List<?>) points.get(0)).get(0).equals(List.of(100., 0., 0.));
+
+            epc.markModified(EPCFile.getIdentifier(moved));
+            assert cache.size() == 0;
+            EnergymlWorkspaceHelper.readArray(supporting, null, "", manager);
+            epc.removeObject(EPCFile.getIdentifier(moved));
+            assert cache.size() == 0;
+        }
+    }
+
+    @Test
+    void test_eviction() {
+        SupportingGeometryCache cache = new SupportingGeometryCache(2 * 8 * 30);
+        cache.put("a.", 0, NumericArray.of(new double[30]));
+        cache.put("b.", 0, NumericArray.of(new double[30]));
+        assert cache.size() == 2 && cache.getUsedBytes() == 480;
+        cache.get("a.", 0);
+        cache.put("c.", 0, NumericArray.of(new double[30]));
+        // b is the least recently used
+        assert cache.get("b.", 0) == null && cache.get("a.", 0) != null && cache.getEvictionCount() == 1;
+
+        NumericArray tooBig = NumericArray.of(new double[61]);
+        assert cache.put("d.", 0, tooBig) == tooBig && cache.get("d.", 0) == null;
+
+        NumericArray first = NumericArray.of(new double[3]);
+        cache.clear();
+        assert cache.put("e.", 1, first) == first && cache.put("e.", 1, NumericArray.of(new double[3])) == first;
+        cache.setMaxBytes(0);
+        assert cache.size() == 0 && cache.getUsedBytes() == 0;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import energyml.common2_3.FloatingPointConstantArray;
+import energyml.common2_3.FloatingPointLatticeArray;
+import energyml.common2_3.IntegerConstantArray;
+import energyml.common2_3.IntegerLatticeArray;
+import energyml.resqml2_0_1.IntegerRangeArray;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+public class VirtualArrayTest {
+
+    @Test
+    void test_virtual_arrays() {
+        NumericArray constant = NumericArray.ofConstant(1.5, 2, 3);
+        assert constant.isVirtual() && constant.getElementType() == NumericArray.ElementType.DOUBLE;
+        assert constant.getDouble(5) == 1.5 && constant.get(0).equals(1.5);
+        assert constant.asListView().equals(List.of(List.of(1.5, 1.5, 1.5), List.of(1.5, 1.5, 1.5)));
+        NumericArray dense = constant.toDense();
+        assert !dense.isVirtual() && Arrays.equals(dense.getShape(), new long[]{2, 3}) && dense.toDoubleArray()[4] == 1.5;
+        try {
+            constant.getDouble(6);
+            assert false;
+        } catch (IndexOutOfBoundsException ignore) {
+        }
+
+        assert NumericArray.ofConstant(true, 2).getBoolean(1) && NumericArray.ofConstant(7L, 2).get(1).equals(7L);
+        assert Arrays.equals(NumericArray.ofRange(-2, 4).toLongArray(), new long[]{-2, -1, 0, 1});
+
+        NumericArray lattice = NumericArray.ofLattice(10L, new long[]{100, 1}, 2, 3);
+        assert Arrays.equals(lattice.toLongArray(), new long[]{10, 11, 12, 110, 111, 112});
+        NumericArray doubleLattice = NumericArray.ofLattice(0.5, new double[]{0.25}, 4);
+        assert Arrays.equals(doubleLattice.toDoubleArray(), new double[]{0.5, 0.75, 1, 1.25});
+
+        // list views are read back without copy
+        List<?> view = lattice.asListView();
+        assert NumericArray.getViewedArray(view) == lattice && NumericArray.fromList(view) == lattice;
+        assert NumericArray.getViewedArray((List<?>) view.get(0)) == null;
+    }
+
+    @Test
+    void test_read_virtual_arrays() throws Exception {
+        FloatingPointConstantArray huge = new FloatingPointConstantArray();
+        huge.setValue(3.);
+        huge.setCount(100_000_000);
+        List<?> values = EnergymlWorkspaceHelper.readArray(huge);
+        assert values.size() == 100_000_000 && values.get(99_999_999).equals(3.);
+        assert NumericArray.getViewedArray(values).isVirtual();
+
+        IntegerConstantArray integers = new IntegerConstantArray();
+        integers.setValue(4);
+        integers.setCount(2);
+        assert EnergymlWorkspaceHelper.readArray(integers).equals(List.of(4L, 4L));
+
+        IntegerRangeArray range = new IntegerRangeArray();
+        range.setValue(BigInteger.valueOf(5));
+        range.setCount(BigInteger.valueOf(3));
+        assert EnergymlWorkspaceHelper.readArray(range).equals(List.of(5L, 6L, 7L));
+
+        IntegerConstantArray step = new IntegerConstantArray();
+        step.setValue(-2);
+        step.setCount(3);
+        IntegerLatticeArray integerLattice = new IntegerLatticeArray();
+        integerLattice.setStartValue(10);
+        integerLattice.getOffset().add(step);
+        assert EnergymlWorkspaceHelper.readArray(integerLattice).equals(List.of(10L, 8L, 6L, 4L));
+
+        FloatingPointConstantArray doubleStep = new FloatingPointConstantArray();
+        doubleStep.setValue(0.5);
+        doubleStep.setCount(2);
+        FloatingPointLatticeArray doubleLattice = new FloatingPointLatticeArray();
+        doubleLattice.setStartValue(1);
+        doubleLattice.getOffset().add(doubleStep);
+        assert Arrays.equals(NumericArray.fromList(EnergymlWorkspaceHelper.readArray(doubleLattice)).toDoubleArray(), new double[]{1, 1.5, 2});
+
+        assert EnergymlWorkspaceHelper.getSupportedArray().containsAll(List.of("IntegerRangeArray", "IntegerLatticeArray", "DoubleLatticeArray", "FloatingPointLatticeArray"));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.data.PrimitiveList;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import com.geosiris.energyml.utils.XmlArrayParser;
+import energyml.common2_3.FloatingPointXmlArray;
+import energyml.common2_3.IntegerXmlArray;
+import energyml.resqml2_2.Point3DZValueArray;
+import energyml.resqml2_2.PointGeometry;
+import energyml.resqml2_2.TrianglePatch;
+import energyml.resqml2_2.TriangulatedSetRepresentation;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.Unmarshaller;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class XmlArrayParserTest {
+
+    @Test
+    void test_parse_values() throws Exception {
+        String xml = "<a xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+                + "<b xsi:type=\"eml:FloatingPointXmlArray\"><Values> 1.5\n-2e3 INF\t-INF <!-- c --> 4</Values></b>"
+                + "<c xsi:type=\"eml:IntegerXmlArray\"><Values>-9223372036854775808 +7 42</Values></c>"
+                + "<d xsi:type=\"eml:BooleanXmlArray\"><Values>true 0 1 false</Values></d>"
+                + "<e xsi:type=\"eml:StringXmlArray\"><Values>a b</Values></e>"
+                + "<Values>1 2</Values></a>";
+        List<PrimitiveList<?>> values = XmlArrayParser.readXmlArrayValues(new StringReader(xml));
+        assert values.size() == 3;
+        assert values.get(0).equals(List.of(1.5, -2000., Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 4.));
+        assert values.get(1).equals(List.of(Long.MIN_VALUE, 7L, 42L));
+        assert values.get(2).equals(List.of(true, false, true, false));
+
+        // values split over many text chunks
+        StringBuilder big = new StringBuilder("<a xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><b xsi:type=\"IntegerXmlArray\"><Values>");
+        for (int i = 0; i < 100_000; i++) {
+            big.append(i).append(' ');
+        }
+        big.append("</Values></b></a>");
+        PrimitiveList<?> bigValues = XmlArrayParser.readXmlArrayValues(new StringReader(big.toString())).get(0);
+        assert bigValues.size() == 100_000 && ((PrimitiveList.OfLong) bigValues).getLong(99_999) == 99_999;
+        assert Arrays.equals(bigValues.toNumericArray().toLongArray(), NumericArray.ofRange(0, 100_000).toLongArray());
+
+        try {
+            XmlArrayParser.readXmlArrayValues(new StringReader("<b xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:type=\"IntegerXmlArray\"><Values>1 x</Values></b>"));
+            assert false;
+        } catch (XMLStreamException ignore) {
+        }
+    }
+
+    @Test
+    void test_unmarshal_primitive_values() throws Exception {
+        TriangulatedSetRepresentation tr = EPCGenericManagerTest.createTestData_trSet(null);
+        IntegerXmlArray triangles = new IntegerXmlArray();
+        triangles.getValues().addAll(List.of(0L, 1L, 2L, 2L, 1L, 3L));
+        FloatingPointXmlArray zValues = new FloatingPointXmlArray();
+        zValues.getValues().addAll(List.of(1.5, 2.5, -3., 4.));
+        Point3DZValueArray points = new Point3DZValueArray();
+        points.setZValues(zValues);
+        PointGeometry geometry = new PointGeometry();
+        geometry.setPoints(points);
+        TrianglePatch patch = new TrianglePatch();
+        patch.setNodeCount(4);
+        patch.setTriangles(triangles);
+        patch.setGeometry(geometry);
+        tr.getTrianglePatch().add(patch);
+
+        EPCPackageManager manager = new EPCPackageManager();
+        String xml = manager.marshal(tr);
+        // both arrays have an xsi:type : their values are parsed by the StAX parser
+        assert XmlArrayParser.readXmlArrayValues(new StringReader(xml)).size() == 2;
+        TriangulatedSetRepresentation read = (TriangulatedSetRepresentation) manager.unmarshal(xml).getValue();
+
+        TrianglePatch readPatch = read.getTrianglePatch().get(0);
+        List<Long> readTriangles = ((IntegerXmlArray) readPatch.getTriangles()).getValues();
+        assert readTriangles instanceof PrimitiveList && readTriangles.equals(triangles.getValues());
+        List<Double> readZ = ((FloatingPointXmlArray) ((Point3DZValueArray) readPatch.getGeometry().getPoints()).getZValues()).getValues();
+        assert readZ instanceof PrimitiveList && readZ.equals(zValues.getValues());
+
+        // the typed api reads the values without copy
+        NumericArray z = EnergymlWorkspaceHelper.readNumericArray(((Point3DZValueArray) readPatch.getGeometry().getPoints()).getZValues(), read, "", null);
+        assert z.getElementType() == NumericArray.ElementType.DOUBLE && z.toDoubleArray() == NumericArray.fromList(readZ).toDoubleArray();
+
+        // the object is marshalled back the same
+        assert manager.marshal(read).equals(xml);
+        readTriangles.add(9L);
+        assert readTriangles.size() == 7 && readTriangles.get(6) == 9L;
+
+        // values unmarshalled by JAXB are converted after
+        IntegerXmlArray converted = new IntegerXmlArray();
+        converted.getValues().addAll(List.of(5L, 6L));
+        assert XmlArrayParser.setPrimitiveValues(converted, null) && converted.getValues() instanceof PrimitiveList;
+        assert converted.getValues().equals(List.of(5L, 6L));
+    }
+
+    @Test
+    void test_unmarshal_keeps_listener() throws Exception {
+        TriangulatedSetRepresentation tr = EPCGenericManagerTest.createTestData_trSet(null);
+        IntegerXmlArray triangles = new IntegerXmlArray();
+        triangles.getValues().addAll(List.of(0L, 1L, 2L));
+        TrianglePatch patch = new TrianglePatch();
+        patch.setNodeCount(3);
+        patch.setTriangles(triangles);
+        tr.getTrianglePatch().add(patch);
+        String xml = new EPCPackageManager().marshal(tr);
+
+        List<Object> unmarshalled = new ArrayList<>();
+        Unmarshaller.Listener listener = new Unmarshaller.Listener() {
+            @Override
+            public void afterUnmarshal(Object target, Object parent) {
+                if (target instanceof IntegerXmlArray) {
+                    // the parsed values are set before the listener is called
+                    assert ((IntegerXmlArray) target).getValues() instanceof PrimitiveList;
+                }
+                unmarshalled.add(target);
+            }
+        };
+        Unmarshaller unmarshaller = JAXBContext.newInstance(energyml.resqml2_2.ObjectFactory.class, energyml.common2_3.ObjectFactory.class)
+                .createUnmarshaller();
+        unmarshaller.setListener(listener);
+        Object read = ((JAXBElement<?>) XmlArrayParser.unmarshal(unmarshaller, xml)).getValue();
+        assert unmarshaller.getListener() == listener;
+        assert unmarshalled.contains(read) && unmarshalled.stream().anyMatch(o -> o instanceof IntegerXmlArray);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+Copyright 2019 GEOSIRIS
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.geosiris.energyml.utils.test;
+
+import com.geosiris.energyml.data.NumericArray;
+import com.geosiris.energyml.pkg.EPCFile;
+import com.geosiris.energyml.pkg.EPCPackageManager;
+import com.geosiris.energyml.utils.EnergymlWorkspaceHelper;
+import energyml.common2_3.FloatingPointConstantArray;
+import energyml.common2_3.FloatingPointExternalArray;
+import energyml.common2_3.FloatingPointXmlArray;
+import energyml.resqml2_2.Point3D;
+import energyml.resqml2_2.Point3DLatticeArray;
+import energyml.resqml2_2.Point3DLatticeDimension;
+import energyml.resqml2_2.Point3DZValueArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ZValueArrayTest {
+
+    private static Point3D point(double x, double y, double z) {
+        Point3D p = new Point3D();
+        p.setCoordinate1(x);
+        p.setCoordinate2(y);
+        p.setCoordinate3(z);
+        return p;
+    }
+
+    private static Point3DLatticeDimension dimension(Point3D direction, double spacing, long count) {
+        FloatingPointConstantArray spacingArray = new FloatingPointConstantArray();
+        spacingArray.setValue(spacing);
+        spacingArray.setCount(count);
+        Point3DLatticeDimension dimension = new Point3DLatticeDimension();
+        dimension.setDirection(direction);
+        dimension.setSpacing(spacingArray);
+        return dimension;
+    }
+
+    private static Point3DZValueArray zValueArray(Object supportingGeometry, List<Double> zValues) {
+        FloatingPointXmlArray values = new FloatingPointXmlArray();
+        values.getValues().addAll(zValues);
+        Point3DZValueArray array = new Point3DZValueArray();
+        array.setSupportingGeometry((energyml.resqml2_2.AbstractPoint3DArray) supportingGeometry);
+        array.setZValues(values);
+        return array;
+    }
+
+    @Test
+    void test_z_values_on_lattice() throws Exception {
+        Point3DLatticeArray lattice = new Point3DLatticeArray();
+        lattice.setOrigin(point(1, 2, 100));
+        lattice.getDimension().add(dimension(point(0, 1, 0), 10, 2));
+        lattice.getDimension().add(dimension(point(1, 0, 0), 0.5, 3));
+        Point3DZValueArray array = zValueArray(lattice, List.of(1., 2., 3., 4., 5., 6.));
+
+        NumericArray points = EnergymlWorkspaceHelper.readPoint3dZValueNumericArray(array, array, "", null);
+        assert Arrays.equals(points.getShape(), new long[]{2, 3, 3});
+        assert Arrays.equals(points.toDoubleArray(), new double[]{
+                1, 2, 1, 1.5, 2, 2, 2, 2, 3,
+                1, 12, 4, 1.5, 12, 5, 2, 12, 6});
+
+        List<?> view = EnergymlWorkspaceHelper.readArray(array, array, "", null);
+        assert view.equals(List.of(
+                List.of(List.of(1., 2., 1.), List.of(1.5, 2., 2.), List.of(2., 2., 3.)),
+                List.of(List.of(1., 12., 4.), List.of(1.5, 12., 5.), List.of(2., 12., 6.))
+        ));
+
+        // z values over already composed points : the supporting points are not modified
+        Point3DZValueArray nested = zValueArray(array, List.of(-1., -2., -3., -4., -5., -6.));
+        double[] xyz = EnergymlWorkspaceHelper.readPoint3dNumericArray(nested, nested, "", null).toDoubleArray();
+        assert xyz[0] == 1 && xyz[2] == -1 && xyz[16] == 12 && xyz[17] == -6;
+        assert points.getDouble(17) == 6;
+
+        // missing z values
+        Point3DZValueArray tooShort = zValueArray(lattice, List.of(1.));
+        try {
+            EnergymlWorkspaceHelper.readPoint3dZValueNumericArray(tooShort, tooShort, "", null);
+            assert false;
+        } catch (IllegalArgumentException ignore) {
+        }
+
+        // z values that can not be read : the supporting points are returned
+        FloatingPointExternalArray missing = new FloatingPointExternalArray();
+        missing.setValues(ExternalArrayInfoTest.createExternalDataArray("missing.h5", "/RESQML/z"));
+        Point3DZValueArray unreadable = zValueArray(lattice, List.of());
+        unreadable.setZValues(missing);
+        EPCFile epc = new EPCFile(new EPCPackageManager());
+        NumericArray supporting = EnergymlWorkspaceHelper.readPoint3dZValueNumericArray(unreadable, unreadable, "", epc);
+        assert Arrays.equals(supporting.getShape(), new long[]{2, 3, 3});
+        assert supporting.getDouble(2) == 100 && supporting.getDouble(15) == 2 && supporting.getDouble(16) == 12;
+        assert EnergymlWorkspaceHelper.readArray(unreadable, unreadable, "", epc).size() == 2;
+    }
+}